@@ -0,0 +1,70 @@
+package santanjm.quoridor;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Measures finding every player's distance to goal in a batch of positions, one position at
+ * a time through Position and all at once through BatchEvaluator with and without the
+ * Vector API
+ * @author santanjm
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class BatchBenchmark {
+	// The number of positions in the batch
+	@Param({"1024"})
+	int count;
+
+	// Positions reached by random play from the start of 2 player games
+	Position[] positions;
+
+	// The batch evaluators with and without the Vector API
+	BatchEvaluator vector = new BatchEvaluator(true);
+	BatchEvaluator scalar = new BatchEvaluator(false);
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(3);
+		positions = new Position[count];
+		for(int i = 0; i < count; i++) {
+			Position pos = new Position(2);
+			int length = random.nextInt(30);
+			for(int move = 0; move < length; move++) {
+				int[] moves = pos.legalMoves();
+				Position next = pos.play(moves[random.nextInt(moves.length)]);
+				if(next.isOver()) {
+					break;
+				}
+				pos = next;
+			}
+			positions[i] = pos;
+		}
+	}
+
+	@Benchmark
+	public int oneAtATime() {
+		int total = 0;
+		for(Position pos : positions) {
+			total += pos.distanceToGoal(1) + pos.distanceToGoal(2);
+		}
+		return total;
+	}
+
+	@Benchmark
+	public int[] scalarBatch() {
+		return scalar.distances(positions, count);
+	}
+
+	@Benchmark
+	public int[] vectorBatch() {
+		return vector.distances(positions, count);
+	}
+}
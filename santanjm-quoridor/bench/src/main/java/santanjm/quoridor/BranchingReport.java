@@ -0,0 +1,42 @@
+package santanjm.quoridor;
+
+import santanjm.quoridor.*;
+
+/**
+ * Prints the nodes each depth of an iterative deepening search takes over the positions of
+ * PositionSuite, and the effective branching factor, the ratio of the nodes of each depth
+ * to those of the depth before, for plain alpha-beta and for principal variation search
+ * @author santanjm
+ */
+public class BranchingReport {
+
+	/**
+	 * Searches every position of the suite to a depth both ways and prints the counts
+	 *
+	 * @param args the deepest depth to search, 4 if not given
+	 */
+	public static void main(String[] args) {
+		int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		Position[] positions = PositionSuite.positions();
+		System.out.println("search     depth       nodes      ebf        ms");
+		for(boolean plain : new boolean[] {true, false}) {
+			final long[] nodes = new long[maxDepth + 1];
+			final long[] millis = new long[maxDepth + 1];
+			for(Position pos : positions) {
+				Search search = new Search();
+				search.setPlain(plain);
+				search.iterate(pos, maxDepth, new Search.Listener() {
+					public void depthCompleted(Analysis analysis) {
+						nodes[analysis.getDepth()] += analysis.getNodes();
+						millis[analysis.getDepth()] += analysis.getMillis();
+					}
+				});
+			}
+			for(int depth = 1; depth <= maxDepth; depth++) {
+				String ebf = depth == 1 ? "-" : String.format("%.1f", (double) nodes[depth] / nodes[depth - 1]);
+				System.out.println(String.format("%-10s %5d %11d %8s %9d",
+						plain ? "alpha-beta" : "pvs", depth, nodes[depth], ebf, millis[depth]));
+			}
+		}
+	}
+}
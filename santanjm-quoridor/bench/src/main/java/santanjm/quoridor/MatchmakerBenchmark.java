@@ -0,0 +1,79 @@
+package santanjm.quoridor;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Measures matchmaking ticks over a queue of 100,000 waiting players, with a steady stream
+ * of arrivals and widening windows.  To keep that many players waiting the ratings are
+ * split very finely and the players spread so that none of those already waiting are
+ * within reach of each other, while half of the arrivals land on one of them
+ * @author santanjm
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchmakerBenchmark {
+	// The number of players waiting before the first tick measured
+	private static final int WAITING = 100000;
+
+	// The width of a bucket in rating points, leaving two buckets between waiting players
+	private static final double BUCKET_WIDTH = 2.0*(Matchmaker.MAX_RATING - Matchmaker.MIN_RATING)/(2*WAITING);
+
+	// The number of players who join between ticks and the time between ticks
+	private static final int ARRIVALS = 100;
+	private static final long PERIOD = 100;
+
+	// The clock, moved on by a period every tick
+	ManualClock clock;
+
+	// The matchmaker, already holding the waiting players
+	Matchmaker matchmaker;
+
+	// The ratings of the arrivals and the id of the next one
+	double[] ratings;
+	long next;
+
+	@Setup
+	public void setUp() {
+		clock = new ManualClock(0);
+		// Windows reach the next bucket after 30 seconds of waiting and no further
+		matchmaker = new Matchmaker(clock, BUCKET_WIDTH/2.0, 0.0, BUCKET_WIDTH/2.0, 30000, BUCKET_WIDTH/2.0);
+		// The players waiting joined over the 50 seconds before, so their windows widen a few
+		// at every tick rather than all at once
+		for(int i = 0; i < WAITING; i++) {
+			matchmaker.join(next++, i*BUCKET_WIDTH, i % 4 == 0 ? 4 : 2);
+			if((i + 1) % (WAITING/500) == 0) {
+				matchmaker.tick();
+				clock.advance(PERIOD);
+			}
+		}
+		Random random = new Random(1);
+		ratings = new double[1 << 16];
+		for(int i = 0; i < ratings.length; i++) {
+			ratings[i] = random.nextDouble()*(Matchmaker.MAX_RATING - Matchmaker.MIN_RATING);
+		}
+	}
+
+	@Benchmark
+	public List<Matchmaker.Match> tick() {
+		for(int i = 0; i < ARRIVALS; i++) {
+			long id = next++;
+			matchmaker.join(id, ratings[(int) id & (ratings.length - 1)], (int) id % 4 == 0 ? 4 : 2);
+		}
+		clock.advance(PERIOD);
+		return matchmaker.tick();
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.println();
+		System.out.println("Players waiting: " + matchmaker.getWaitingCount());
+	}
+}
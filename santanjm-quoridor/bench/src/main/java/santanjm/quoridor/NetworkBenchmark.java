@@ -0,0 +1,82 @@
+package santanjm.quoridor;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Measures scoring positions with NetworkEvaluator, one at a time and in a batch, with and
+ * without the Vector API.  Each benchmark scores a single position, so the batch's time is
+ * for the whole batch divided by its size
+ * @author santanjm
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class NetworkBenchmark {
+	// The number of positions in the batch
+	static final int COUNT = 256;
+
+	// Positions reached by random play from the start of 2 player games
+	Position[] positions = new Position[COUNT];
+
+	// The scores of the batch
+	int[] scores = new int[COUNT];
+
+	// The position scored next one at a time
+	int next;
+
+	// The same untrained network with and without the Vector API
+	NetworkEvaluator network = new NetworkEvaluator(1L);
+	NetworkEvaluator vector = network.copy(true);
+	NetworkEvaluator scalar = network.copy(false);
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(3);
+		for(int i = 0; i < COUNT; i++) {
+			Position pos = new Position(2);
+			int length = random.nextInt(30);
+			for(int move = 0; move < length; move++) {
+				int[] moves = pos.legalMoves();
+				Position following = pos.play(moves[random.nextInt(moves.length)]);
+				if(following.isOver()) {
+					break;
+				}
+				pos = following;
+			}
+			positions[i] = pos;
+		}
+	}
+
+	@Benchmark
+	public int scalarSingle() {
+		next = (next + 1) % COUNT;
+		return scalar.evaluate(positions[next], 1);
+	}
+
+	@Benchmark
+	public int vectorSingle() {
+		next = (next + 1) % COUNT;
+		return vector.evaluate(positions[next], 1);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int[] scalarBatch() {
+		scalar.evaluate(positions, COUNT, 1, scores);
+		return scores;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int[] vectorBatch() {
+		vector.evaluate(positions, COUNT, 1, scores);
+		return scores;
+	}
+}
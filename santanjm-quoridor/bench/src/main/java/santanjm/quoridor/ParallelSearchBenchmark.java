@@ -0,0 +1,73 @@
+package santanjm.quoridor;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Measures the time a lazy SMP search takes to reach a fixed depth in each of a suite of
+ * positions, on different numbers of threads.  Each invocation starts from an empty table.
+ * The nodes every thread visited and the rate they were visited at are printed at the end
+ * of each trial, warmup included
+ * @author santanjm
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class ParallelSearchBenchmark {
+	// The number of threads searching
+	@Param({"1", "2", "4", "8", "16"})
+	int threads;
+
+	// The number of moves to look ahead
+	@Param({"4"})
+	int depth;
+
+	// The positions of the suite, see PositionSuite
+	Position[] positions;
+
+	// The search under measurement, made afresh for each invocation
+	ParallelSearch search;
+
+	// The nodes visited and the nanoseconds spent searching over every invocation
+	long nodes;
+	long nanos;
+
+	@Setup(Level.Trial)
+	public void setUpSuite() {
+		positions = PositionSuite.positions();
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpSearch() {
+		search = new ParallelSearch(threads, new PathEvaluator(), 18);
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDownSearch() {
+		search.shutdown();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDownSuite() {
+		System.out.println();
+		System.out.println("Nodes: " + nodes + " in " + nanos/1000000 + " ms, "
+				+ (nanos == 0 ? 0 : nodes*1000000000L/nanos) + " nodes per second");
+	}
+
+	@Benchmark
+	public int timeToDepth() {
+		int total = 0;
+		for(Position pos : positions) {
+			long start = System.nanoTime();
+			total += search.iterate(pos, depth, null).getScore();
+			nanos += System.nanoTime() - start;
+			nodes += search.getNodes();
+		}
+		return total;
+	}
+}
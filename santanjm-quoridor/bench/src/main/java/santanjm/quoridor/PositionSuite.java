@@ -0,0 +1,38 @@
+package santanjm.quoridor;
+
+import santanjm.quoridor.*;
+
+/**
+ * A fixed suite of 2 player positions for measuring searches on, from the start of a game
+ * to part way through one with walls placed
+ * @author santanjm
+ */
+public class PositionSuite {
+	// The moves played to reach each position of the suite
+	private static final String[][] LINES = {
+		{},
+		{"e8", "e2", "e7", "e3"},
+		{"e8", "e2", "e7", "e3", "d6h", "e4h", "c3v", "f5v", "b6h", "g3h"},
+		{"e8", "e2", "d8", "f2", "d7", "f3", "c6h", "e6h", "d3v"}
+	};
+
+	private PositionSuite() {
+	}
+
+	/**
+	 * Plays out each line of the suite
+	 *
+	 * @return the positions of the suite
+	 */
+	public static Position[] positions() {
+		Position[] positions = new Position[LINES.length];
+		for(int i = 0; i < LINES.length; i++) {
+			Position pos = new Position(2);
+			for(String move : LINES[i]) {
+				pos = pos.play(Position.parseMove(move));
+			}
+			positions[i] = pos;
+		}
+		return positions;
+	}
+}
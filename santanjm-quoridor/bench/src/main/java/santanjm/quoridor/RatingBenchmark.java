@@ -0,0 +1,95 @@
+package santanjm.quoridor;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Measures rating results as they stream in, recomputing a long history bucket by bucket
+ * over a large pool of players and reading the top of the leaderboard
+ * @author santanjm
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RatingBenchmark {
+	// The number of players in the pool and of results in the history
+	private static final int PLAYERS = 100000;
+	private static final int GAMES = 200000;
+
+	// The number of results streamed in by each call of stream
+	private static final int STREAMED = 10000;
+
+	// The number of threads recomputations update players on
+	@Param({"1", "4"})
+	int threads;
+
+	// The service, already holding the ratings of the whole history
+	RatingService service;
+
+	// The history, spread over 100 rating periods
+	List<RatingService.Result> history;
+
+	// The results streamed in, and the index of the next one
+	List<RatingService.Result> fresh;
+	int next;
+
+	@Setup
+	public void setUp() throws Exception {
+		Random random = new Random(1);
+		history = results(random, GAMES, 0);
+		fresh = results(random, STREAMED, GAMES);
+		service = new RatingService(GAMES/100, threads);
+		for(RatingService.Result result : history) {
+			service.submit(result.gameId, result.playerIds, result.winner, result.playedAt);
+		}
+		service.flush();
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		service.close();
+	}
+
+	/**
+	 * Random results between the players of the pool, one to a millisecond, a quarter of
+	 * them 4 player games
+	 */
+	private static List<RatingService.Result> results(Random random, int count, long from) {
+		List<RatingService.Result> results = new ArrayList<RatingService.Result>();
+		for(int i = 0; i < count; i++) {
+			long[] ids = new long[random.nextInt(4) == 0 ? 4 : 2];
+			for(int j = 0; j < ids.length; j++) {
+				// Players are spaced out so that no two seats of a game share one
+				ids[j] = j*(PLAYERS/ids.length) + random.nextInt(PLAYERS/ids.length);
+			}
+			results.add(new RatingService.Result(from + i, ids, 1 + random.nextInt(ids.length), from + i));
+		}
+		return results;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STREAMED)
+	public void stream() throws InterruptedException {
+		for(RatingService.Result result : fresh) {
+			service.submit(result.gameId, result.playerIds, result.winner, result.playedAt);
+		}
+		service.flush();
+	}
+
+	@Benchmark
+	public Map<Long, RatingService.Rating> recompute() throws Exception {
+		return service.compute(history);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<RatingService.Rating> leaderboard() {
+		return service.getLeaderboard(RatingService.GLICKO, 100);
+	}
+}
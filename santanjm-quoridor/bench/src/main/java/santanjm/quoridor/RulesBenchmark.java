@@ -0,0 +1,67 @@
+package santanjm.quoridor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Measures finding the legal moves of a position with the rules in Board and the rules in
+ * Position, from the start of a game and from part way through one with walls placed
+ * @author santanjm
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RulesBenchmark {
+	// The moves played to reach each position measured
+	private static final String[][] OPENINGS = {
+		{},
+		{"e8", "e2", "e7", "e3", "d6h", "e4h", "c3v", "f5v", "b6h", "g3h"}
+	};
+
+	// Which of the openings to measure
+	@Param({"0", "1"})
+	int opening;
+
+	// The position reached on a board and as a Position
+	Board board;
+	Position position;
+
+	// The array Position writes its legal moves into
+	int[] moves = new int[Position.NUM_MOVES];
+
+	@Setup
+	public void setUp() {
+		board = new Board(2);
+		for(String move : OPENINGS[opening]) {
+			board.executeMove(move);
+			board.nextTurn();
+		}
+		position = new Position(board);
+	}
+
+	@Benchmark
+	public List<String> boardLegalMoves() {
+		return board.legalMoves();
+	}
+
+	@Benchmark
+	public int positionLegalMoves() {
+		return position.legalMoves(moves);
+	}
+
+	@Benchmark
+	public boolean boardWallCheck() {
+		return board.isLegalMove("d2h");
+	}
+
+	@Benchmark
+	public int distanceToGoal() {
+		return position.distanceToGoal(1);
+	}
+}
@@ -0,0 +1,37 @@
+package santanjm.quoridor;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Measures searching the starting position to a fixed depth, trying every wall or only
+ * those near the players' shortest paths
+ * @author santanjm
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+	// The number of moves to look ahead
+	@Param({"2", "3"})
+	int depth;
+
+	// The number of slots out from the shortest paths walls are tried at, -1 for every wall
+	@Param({"-1", "0", "1", "2"})
+	int wallReach;
+
+	// The position searched
+	Position position = new Position(2);
+
+	@Benchmark
+	public Analysis search() {
+		Search search = new Search();
+		search.setWallReach(wallReach);
+		return search.search(position, depth);
+	}
+}
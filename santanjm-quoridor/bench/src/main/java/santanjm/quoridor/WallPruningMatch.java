@@ -0,0 +1,78 @@
+package santanjm.quoridor;
+
+import java.util.concurrent.TimeUnit;
+
+import santanjm.quoridor.*;
+
+/**
+ * Plays bots which leave out walls far from the play against bots which try every wall, on
+ * a bot farm, to weigh how much strength each wall reach gives up for the time it saves.
+ * Each reach plays both sides of every position of PositionSuite at a fixed depth, and a
+ * game still going after MAX_MOVES moves counts as a draw
+ * @author santanjm
+ */
+public class WallPruningMatch {
+	// The number of moves after which a game is given up as a draw
+	static final int MAX_MOVES = 200;
+
+	// The wall reaches played against trying every wall
+	static final int[] REACHES = {0, 1, 2};
+
+	/**
+	 * Plays the matches and prints the results of each reach
+	 *
+	 * @param args the depth the bots search to, 3 if not given
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		Position[] openings = PositionSuite.positions();
+		System.out.println("reach  games  wins  draws  losses   pruned ms/move  full ms/move"
+				+ "  pruned nodes/move  full nodes/move");
+		for(int reach : REACHES) {
+			int wins = 0;
+			int draws = 0;
+			int losses = 0;
+			long[] millis = new long[2];
+			long[] nodes = new long[2];
+			long[] turns = new long[2];
+			for(Position opening : openings) {
+				for(int prunedPlayer = 1; prunedPlayer <= 2; prunedPlayer++) {
+					BotFarm farm = new BotFarm(1);
+					HostedGame game = new HostedGame(opening);
+					BotFarm.Seat[] seats = new BotFarm.Seat[2];
+					for(int player = 1; player <= 2; player++) {
+						seats[player - 1] = farm.seat(game, player, depth, Long.MAX_VALUE / 1000000,
+								new PathEvaluator(), player == prunedPlayer ? reach : -1);
+					}
+					int winner = 0;
+					while(winner == 0 && game.getMoveCount() < MAX_MOVES) {
+						winner = game.awaitWinner(1, TimeUnit.SECONDS);
+					}
+					farm.shutdown();
+
+					if(winner == prunedPlayer) {
+						wins++;
+					} else if(winner == 0) {
+						draws++;
+					} else {
+						losses++;
+					}
+					for(int player = 1; player <= 2; player++) {
+						BotFarm.Seat seat = seats[player - 1];
+						if(seat.getFailure() != null) {
+							throw new IllegalStateException(seat.getFailure());
+						}
+						int side = player == prunedPlayer ? 0 : 1;
+						millis[side] += seat.getSearchMillis();
+						nodes[side] += seat.getNodes();
+						turns[side] += seat.getTurns();
+					}
+				}
+			}
+			System.out.println(String.format("%5d %6d %5d %6d %7d %16.1f %13.1f %18d %16d",
+					reach, 2*openings.length, wins, draws, losses,
+					(double) millis[0] / turns[0], (double) millis[1] / turns[1],
+					nodes[0] / turns[0], nodes[1] / turns[1]));
+		}
+	}
+}
@@ -1,8 +1,8 @@
 package santanjm.quoridor;
 
-import java.awt.Color;
+import java.io.IOException;
 import java.util.*;
-import javax.swing.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import santanjm.quoridor.*;
 
@@ -12,13 +12,35 @@ import santanjm.quoridor.*;
  * @author santanjm
  */
 public class Board {
-    // The matrix which makes up the 9x9 grid of spaces
-    Space[] spaces = new Space[81];
+    // The shape of the board, the standard 9x9 one unless a size is given
+    Geometry geometry = Geometry.STANDARD;
+
+    // The matrix which makes up the grid of spaces, by index size*row + col
+    Space[] spaces;
     
     // Map of each space that designates a wall to a 0 or a 1:
     // 0 - wall is vertical
     // 1 - wall is horizontal
     Map<Space, Integer> walls = new HashMap<Space, Integer>();
+
+    // Bit sets of the slots designating vertical and horizontal walls (see WallTable), kept
+    // in step with the walls map on 9x9 boards
+    long vWalls;
+    long hWalls;
+
+    // Bit sets of the slots designating vertical and horizontal walls (see Geometry), kept
+    // in step with the walls map on boards of other sizes, null on 9x9 boards
+    long[] vSlots;
+    long[] hSlots;
+
+    // Room for the breadth first searches of Geometry.distance, null until first needed
+    int[] queue;
+    int[] depth;
+
+    // Whether walls are checked the way they were before WallTable and Reachability, by
+    // scanning the walls map and searching for each goal with A*, so that the differential
+    // fuzzer and perft have a reference which shares none of Position's wall code.  9x9 only
+    boolean reference;
     
     // The list of players in the game
     Player[] players;
@@ -32,8 +54,40 @@ public class Board {
     // The current turn number
     public int turn = 0;
     
-    // The game panel in which the game is displayed
-    GamePanel gamepanel;
+    // The view in which the game is displayed, null when the game is not displayed
+    BoardView view;
+
+    // The encoded moves made so far (see Position), only the first historyLength are in use.
+    // Entries are never changed once written, so snapshots can share the array
+    int[] history = new int[32];
+    int historyLength = 0;
+
+    // The time in milliseconds each player has spent on their moves, by player number - 1
+    long[] clocks;
+
+    // The time in milliseconds at which the current turn started
+    long turnStarted;
+
+    // The snapshot of the game as of the start of the current turn, replaced on every turn
+    volatile GameSnapshot published;
+
+    // The journal the moves of this game are logged to, if any
+    GameJournal journal;
+
+    // The id of the game, numbered in order of creation until a journal gives it its own id.
+    // 0 for boards which only explore moves
+    long gameId;
+
+    // The id of the last game created
+    static AtomicLong lastGameId = new AtomicLong();
+
+    // The broadcast the moves of this game are sent to spectators through, if any
+    SpectatorBroadcast broadcast;
+
+    // The rating service the result of this game is submitted to, if any, and the id of
+    // the player playing as each player number, by player number - 1
+    RatingService ratings;
+    long[] ratedPlayers;
 
     /**
      * Simplest constructor for a board, only creating the grid of spaces
@@ -42,6 +96,17 @@ public class Board {
     public Board() {
     	createGrid();
     }
+
+    /**
+     * Constructs a board of a given shape, only creating the grid of spaces
+     * and nothing else
+     *
+     * @param geometry the shape of the board
+     */
+    Board(Geometry geometry) {
+    	this.geometry = geometry;
+    	createGrid();
+    }
     
     /**
      * Creates a board with a single player, used by the player to determine
@@ -50,6 +115,9 @@ public class Board {
      * @param p a player object
      */
     public Board(Player p) {
+    	if(p.board != null) {
+    		geometry = p.board.geometry;
+    	}
     	createGrid();
     	players = new Player[] {p};
     	placePlayer(p.getColumn(), p.getRow());
@@ -65,46 +133,109 @@ public class Board {
      */
     public Board(Player p, Map<Space, Integer> wallsMap) {
     	this(p);
-    	walls = wallsMap;
+    	setWalls(wallsMap);
     }
     
     /**
-     * Constructs a new Board object with a specified number of players (2 or 4)
+     * Constructs a new Board object with a specified number of players (2 or 4), which
+     * is not displayed
      * 
      * @param numPlayers the number of players in the game
      */
     public Board(int numPlayers) {
+    	this(numPlayers, null);
+    }
+
+    /**
+     * Constructs a new Board object with a specified number of players (2 or 4), which
+     * is displayed in a view
+     *
+     * @param numPlayers the number of players in the game
+     * @param view       the view the game is displayed in, null for none
+     */
+    public Board(int numPlayers, BoardView view) {
+    	this(numPlayers, 9, Geometry.STANDARD.defaultWalls(numPlayers), view);
+    }
+
+    /**
+     * Constructs a new Board object of any odd size with a specified number of players
+     * (2 or 4) and walls, which is not displayed
+     *
+     * @param numPlayers the number of players in the game
+     * @param size       the number of spaces along a side of the board
+     * @param numWalls   the number of walls each player starts with
+     */
+    public Board(int numPlayers, int size, int numWalls) {
+    	this(numPlayers, size, numWalls, null);
+    }
+
+    /**
+     * Constructs a new Board object of any odd size with a specified number of players
+     * (2 or 4) and walls, which is displayed in a view.  Only 9x9 games can be displayed,
+     * snapshotted, logged to a journal or broadcast, since those all go through Position,
+     * and 9x9 games can have at most Position.MAX_WALLS walls each
+     *
+     * @param numPlayers the number of players in the game
+     * @param size       the number of spaces along a side of the board
+     * @param numWalls   the number of walls each player starts with
+     * @param view       the view the game is displayed in, null for none
+     */
+    public Board(int numPlayers, int size, int numWalls, BoardView view) {
     	// If the number of players is not 2 or 4, then we cannot continue
     	if(numPlayers != 2 && numPlayers != 4) {
     		throw new IllegalArgumentException("Game can only be played with 2 or 4 players");
     	}
-    	gamepanel = new GamePanel();
+    	if(numWalls < 0) {
+    		throw new IllegalArgumentException("Players cannot start with a negative number of walls");
+    	}
+    	geometry = Geometry.of(size);
+    	if(view != null && size != 9) {
+    		throw new IllegalArgumentException("Only 9x9 boards can be displayed");
+    	}
+    	// 9x9 games are published as Positions, whose hashes, snapshots and features only
+    	// go up to a standard game's walls
+    	if(geometry == Geometry.STANDARD && numWalls > Position.MAX_WALLS) {
+    		throw new IllegalArgumentException("9x9 games can have at most " + Position.MAX_WALLS + " walls each");
+    	}
+    	this.view = view;
     	this.numPlayers = numPlayers;
     	createGrid();
-    	if(numPlayers == 2) {
-    		players = new Player[2];
-    		addPlayer(1, 10);
-    		addPlayer(2, 10);
-    	} else if(numPlayers == 4) {
-    		players = new Player[4];
-    		addPlayer(1, 5);
-    		addPlayer(2, 5);
-    		addPlayer(3, 5);
-    		addPlayer(4, 5);
+    	players = new Player[numPlayers];
+    	for(int playerNum = 1; playerNum <= numPlayers; playerNum++) {
+    		addPlayer(playerNum, numWalls);
     	}
     	setActivePlayer();
+    	clocks = new long[numPlayers];
+    	turnStarted = System.currentTimeMillis();
+    	publish();
+
+    	gameId = lastGameId.incrementAndGet();
+    	GameEvents.GameStarted started = new GameEvents.GameStarted();
+    	if(started.shouldCommit()) {
+    		started.gameId = gameId;
+    		started.players = numPlayers;
+    		started.commit();
+    	}
     }
 
     /**
-     * Construct the 9x9 grid of Spaces which will make up the board
+     * Construct the grid of Spaces which will make up the board
      */
     private void createGrid() {
+    	int size = geometry.size;
+    	spaces = new Space[geometry.spaces];
+    	if(size != 9) {
+    		vSlots = new long[geometry.words];
+    		hSlots = new long[geometry.words];
+    	}
+
     	// We construct the grid row by row
-    	for(int i = 0; i < 9; i++) {
-    		for(int j = 0; j < 9; j++) {
-    			spaces[9*i + j] = new Space(j, i);
-    			if(gamepanel != null) {
-    				gamepanel.addSpace(spaces[9*i + j]);
+    	for(int i = 0; i < size; i++) {
+    		for(int j = 0; j < size; j++) {
+    			spaces[size*i + j] = new Space(j, i, size);
+    			if(view != null) {
+    				spaces[size*i + j].view = view;
+    				view.spaceChanged(spaces[size*i + j]);
     			}
     		}
     	}
@@ -117,10 +248,11 @@ public class Board {
      * the 4 spaces which neighbor that space: [above, right, below, left]
      */
     private void setNeighbors() {
-    	for(int i = 0; i < 9; i++) {
-    		for(int j = 0; j < 9; j++) {
+    	int size = geometry.size;
+    	for(int i = 0; i < size; i++) {
+    		for(int j = 0; j < size; j++) {
     			// The index of the current space in spaces
-    			int index = 9*i + j;
+    			int index = size*i + j;
     			
     			// The coordinates of the space
     			int[] coords = spaces[index].getCoords();
@@ -128,23 +260,23 @@ public class Board {
     			// Array of the four spaces around the space
     			Space[] neighbors = new Space[4];
     			
-    			// Top neighbor, which will be spaces[index - 9]
+    			// Top neighbor, which will be spaces[index - size]
     			if(coords[1] > 0) {
-    				neighbors[0] = spaces[index-9];
+    				neighbors[0] = spaces[index-size];
     			} else {
     				neighbors[0] = null;
     			}
     			
     			// Right neighbor, which will be spaces[index + 1]
-    			if(coords[0] < 8) {
+    			if(coords[0] < size - 1) {
     				neighbors[1] = spaces[index+1];
     			} else {
     				neighbors[1] = null;
     			}
     			
-    			// Bottom neighbor, which will be spaces[index + 9]
-    			if(coords[1] < 8) {
-    				neighbors[2] = spaces[index+9];
+    			// Bottom neighbor, which will be spaces[index + size]
+    			if(coords[1] < size - 1) {
+    				neighbors[2] = spaces[index+size];
     			} else {
     				neighbors[2] = null;
     			}
@@ -170,16 +302,8 @@ public class Board {
      */
     private void addPlayer(int playerNum, int numWalls) {
     	players[playerNum - 1] = new Player(this, playerNum, numWalls);
-    	switch(playerNum) {
-    		case 1: placePlayer(players[0], 4, 8);
-    				break;
-    		case 2: placePlayer(players[1], 4, 0);
-    				break;
-    		case 3: placePlayer(players[2], 0, 4);
-    				break;
-    		case 4: placePlayer(players[3], 8, 4);
-    				break;
-    	}
+    	int start = geometry.startSpace(playerNum - 1);
+    	placePlayer(players[playerNum - 1], start % geometry.size, start / geometry.size);
     }
     
     /**
@@ -193,56 +317,6 @@ public class Board {
     	placePlayer(p.getColumn(), p.getRow());
     }
     
-    /**
-     * The game of Quoridor's main loop
-     */
-    public void gameLoop() {
-    	Scanner moveReader = new Scanner(System.in);
-    	JFrame gameframe = new JFrame("Quoridor");
-    	gameframe.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-    	gameframe.setResizable(false);
-    	gameframe.add(gamepanel);
-    	gameframe.pack();
-    	gameframe.setSize(gameframe.getPreferredSize());
-    	gameframe.setVisible(true);
-    	while(true) {
-    		// First, set the active player
-    		setActivePlayer();
-    		
-    		// Now we print out the current turn number and the game status
-    		System.out.println("Turn " + (turn + 1) + ": " 
-    						  + "\n" + "The current game status:\n" + currentGameStatus());
-    		
-    		// Next, we prompt the active player for a move
-    		System.out.print("Enter a move player " + active.getPlayerNum() + ": ");
-    		String move = moveReader.nextLine();
-    		
-    		// First we force the move to be all lower case
-        	move = move.toLowerCase();
-        	
-        	// Next we strip any and all whitespace from the move submitted
-        	move = move.replaceAll("\\s+", "");
-        	
-    		if(isLegalMove(move)) {
-    			executeMove(move);
-    			System.out.println("Move succeeded");
-    			System.out.println(active + "\n");
-    			
-    			// Update all player's boards
-    			for(Player p : players) {
-    				p.updateBoard(this);
-    				if(p.checkHasWon()) {
-    					System.out.println("Player " + p.getPlayerNum() + " has won the game!!!");
-    					return;
-    				}
-    			}
-    			turn++;
-    		} else {
-    			System.out.println("ILLEGAL MOVE");
-    		}
-    	}
-    }
-    
     /**
      * Returns a string representing the game's current status: player positions and walls
      * 
@@ -271,10 +345,33 @@ public class Board {
      * @return true if the move is legal, false if not
      */
     public boolean isLegalMove(String move) {
-    	// If the move string is not exactly 2 or 3 characters long it must be malformed
-    	if(move.length() < 2 || move.length() > 3) {
-    		throw new IllegalArgumentException("The move submitted is malformed");
+    	long start = Metrics.start();
+    	GameEvents.MoveValidation event = new GameEvents.MoveValidation();
+    	event.begin();
+    	boolean legal = false;
+    	try {
+    		legal = checkLegalMove(move);
+    		if(! legal) {
+    			Metrics.ILLEGAL_MOVES.increment();
+    		}
+    		return legal;
+    	} finally {
+    		Metrics.IS_LEGAL_MOVE.stop(start);
+    		event.end();
+    		if(event.shouldCommit()) {
+    			event.gameId = gameId;
+    			event.player = active == null ? 0 : active.getPlayerNum();
+    			event.move = move;
+    			event.legal = legal;
+    			event.commit();
+    		}
     	}
+    }
+
+    /**
+     * Applies the rules of Quoridor to a player's submitted move, see isLegalMove
+     */
+    private boolean checkLegalMove(String move) {
     	// Flag saying whether or not the move is legal, this may change as it goes
     	boolean isLegal = false;
     	
@@ -283,25 +380,22 @@ public class Board {
     	int actRow = active.getRow();
     	Space actSpace = getSpaceFromCoords(actCol, actRow);
     	
-    	// Whether the move is a pawn movement or a wall placement, the first
-    	// two characters in the string will designate a space with a letter and a number
-    	int col = ((int) move.charAt(0)) - 97;
-		int row = ((int) move.charAt(1)) - 49;
-		
-		// In order for the move to be potentially legal, the first character must be
-		// a letter between 'a' and 'i', and the second character must be a number 
-		// between '1' and '9'
-		if((col < 0 || col > 8) || (row < 0 || row > 8)) {
-			throw new IllegalArgumentException("The move submitted is malformed");
-		}
+    	// Whether the move is a pawn movement or a wall placement, the string starts
+    	// with a letter for the column of a space and a number for its row.  In order for
+    	// the move to be potentially legal, both must be on the board
+    	int size = geometry.size;
+    	int index = geometry.parseSpace(move);
+    	int col = index % size;
+		int row = index / size;
+		boolean wall = Geometry.isWall(move);
 		
 		// The space the active player is attempting to either move to or
 		// place a wall relative to
 		Space moveSpace = getSpaceFromCoords(col, row);
     	
     	checkLegalMove:
-	    	// A move string with length 2 is an attempted pawn move
-	    	if(move.length() == 2) {    		
+	    	// A move string ending in the row is an attempted pawn move
+	    	if(! wall) {    		
 	    		// Case 1: The space is more than 2 spaces away which is never legal
 	    		// or the space is already occupied by another player
 	    		if((distance(actSpace, moveSpace) > 2) || (isOccupied(moveSpace))) {
@@ -338,19 +432,12 @@ public class Board {
 	    	}
 		
 		checkLegalWall:
-			// A move string with length 3 is an attempted wall placement
-			if(move.length() == 3) {
-				// The third character in a wall placement move is 'v' or 'h', designating
+			// A move string ending in a direction is an attempted wall placement
+			if(wall) {
+				// The last character in a wall placement move is 'v' or 'h', designating
 				// the direction of the wall (vertical or horizontal) we use 0 for vertical
 				// and 1 for horizontal
-				int dir;
-				switch(move.charAt(2)) {
-					case 'v': dir = 0;
-							  break;
-					case 'h': dir = 1;
-							  break;
-					default: throw new IllegalArgumentException("Direction of wall must be 'v' or 'h'");
-				}
+				int dir = Geometry.parseDirection(move);
 				// Case 1: The player is attemping to place a wall when
 				// that player has no more walls left to place
 				if(active.walls == 0) {
@@ -359,8 +446,8 @@ public class Board {
 				}
 				
 				// Case 2: The player is attempting to place a wall relative
-				// to a space on row 9 or column 9 which is always illegal
-				if(col == 8 || row == 8) {
+				// to a space on the last row or column which is always illegal
+				if(col == size - 1 || row == size - 1) {
 					isLegal = false;
 					break checkLegalWall;
 				}
@@ -425,32 +512,354 @@ public class Board {
      * @param move string representing a legal player move
      */
     public void executeMove(String move) {
-    	move = move.toLowerCase();
+    	long start = Metrics.start();
+    	GameEvents.MoveExecuted event = new GameEvents.MoveExecuted();
+    	event.begin();
+    	try {
+    		makeMove(move.toLowerCase());
+    	} finally {
+    		Metrics.EXECUTE_MOVE.stop(start);
+    		event.end();
+    		// Boards which only explore moves are left out of recordings
+    		if(gameId != 0 && event.shouldCommit()) {
+    			event.gameId = gameId;
+    			event.turn = turn;
+    			event.player = active.getPlayerNum();
+    			event.move = move;
+    			event.commit();
+    		}
+    	}
+    	if(gameId != 0 && active.checkHasWon()) {
+    		GameEvents.GameEnded ended = new GameEvents.GameEnded();
+    		if(ended.shouldCommit()) {
+    			ended.gameId = gameId;
+    			ended.winner = active.getPlayerNum();
+    			ended.moves = historyLength;
+    			ended.commit();
+    		}
+    		if(ratings != null) {
+    			ratings.submit(gameId, ratedPlayers, active.getPlayerNum(), System.currentTimeMillis());
+    		}
+    	}
+    }
+
+    /**
+     * Makes a legal move on the board, see executeMove
+     */
+    private void makeMove(String move) {
+    	// The move is logged before it is made, so that a move which cannot be logged is not made
+    	recordMove(move);
     	
-    	// Whether the move is a pawn movement or a wall placement, the first
-    	// two characters in the string will designate a space with a letter and a number
-    	int col = ((int) move.charAt(0)) - 97;
-		int row = ((int) move.charAt(1)) - 49;
-		Space moveSpace = getSpaceFromCoords(col, row);
+    	// Whether the move is a pawn movement or a wall placement, the string starts
+    	// with a letter and a number designating a space
+    	int index = geometry.parseSpace(move);
+		Space moveSpace = spaces[index];
 		
 		// Pawn movement
-    	if(move.length() == 2) {
-    		placePlayer(active, col, row);
+    	if(! Geometry.isWall(move)) {
+    		placePlayer(active, index % geometry.size, index / geometry.size);
     	
     	// Wall placement
-    	} else if(move.length() == 3) {
-    		int dir;
-			switch(move.charAt(2)) {
-				case 'v': dir = 0;
-						  break;
-				case 'h': dir = 1;
-						  break;
-				default: throw new IllegalArgumentException("Direction of wall must be 'v' or 'h'");
-			}
-			placeWall(moveSpace, dir);
+    	} else {
+			placeWall(moveSpace, Geometry.parseDirection(move));
     	}
     }
-    
+
+    /**
+     * Adds a move about to be made to the history of the game, charges the time since the
+     * turn started to the active player's clock and, if the game has a journal, waits for
+     * the move to be logged
+     *
+     * @param move string representing the move about to be made
+     */
+    private void recordMove(String move) {
+    	int code = geometry.parseMove(move);
+    	long now = System.currentTimeMillis();
+    	long clock = 0;
+    	if(clocks != null) {
+    		clock = clocks[active.getPlayerNum() - 1] + now - turnStarted;
+    	}
+
+    	if(journal != null) {
+    		try {
+    			journal.logMove(gameId, historyLength, code, clock).await();
+    		} catch(IOException e) {
+    			throw new IllegalStateException("The move could not be logged", e);
+    		} catch(InterruptedException e) {
+    			Thread.currentThread().interrupt();
+    			throw new IllegalStateException("Interrupted while logging the move", e);
+    		}
+    	}
+
+    	// Grow into a new array so that snapshots sharing the old one are unaffected
+    	if(historyLength == history.length) {
+    		history = Arrays.copyOf(history, 2*history.length);
+    	}
+    	history[historyLength] = code;
+    	historyLength++;
+    	if(clocks != null) {
+    		clocks[active.getPlayerNum() - 1] = clock;
+    	}
+    	turnStarted = now;
+    }
+
+    /**
+     * Finds every move the currently active player could legally submit, by checking
+     * each possible pawn move and wall placement with isLegalMove
+     *
+     * @return list of the legal move strings, pawn moves first and then wall placements
+     */
+    public List<String> legalMoves() {
+    	List<String> moves = new ArrayList<String>();
+
+    	// Every space on the board is a potential pawn move
+    	for(int i = 0; i < spaces.length; i++) {
+    		String move = spaces[i].toGrid();
+    		if(isLegalMove(move)) {
+    			moves.add(move);
+    		}
+    	}
+
+    	// Walls can only be designated by spaces outside of the last row and column
+    	if(active.getWalls() > 0) {
+    		for(int row = 0; row < geometry.size - 1; row++) {
+    			for(int col = 0; col < geometry.size - 1; col++) {
+    				String designator = getSpaceFromCoords(col, row).toGrid();
+    				if(isLegalMove(designator + "v")) {
+    					moves.add(designator + "v");
+    				}
+    				if(isLegalMove(designator + "h")) {
+    					moves.add(designator + "h");
+    				}
+    			}
+    		}
+    	}
+    	return moves;
+    }
+
+    /**
+     * Advances the board to the next turn and sets the active player accordingly
+     */
+    public void nextTurn() {
+    	GameSnapshot before = published;
+    	turn++;
+    	setActivePlayer();
+    	publish();
+
+    	// Spectators are sent the move just made from the position at the start of its turn
+    	if(broadcast != null && before != null && historyLength > 0) {
+    		broadcast.moveMade(before.getPosition(), history[historyLength - 1]);
+    	}
+
+    	// Log a snapshot every so often so that rebuilding the game replays few moves
+    	if(journal != null && historyLength % journal.snapshotInterval == 0) {
+    		journal.logSnapshot(gameId, published);
+    	}
+    }
+
+    /**
+     * Replaces the published snapshot with one of the game as it is now, used at the
+     * start of every turn.  Only the game's own thread calls this, and only 9x9 games
+     * have snapshots
+     */
+    private void publish() {
+    	if(clocks != null && geometry == Geometry.STANDARD) {
+    		published = new GameSnapshot(new Position(this), history, historyLength,
+    				clocks.clone(), turnStarted);
+    		if(view != null) {
+    			view.turnStarted(published.getPosition());
+    		}
+    	}
+    }
+
+    /**
+     * Takes a snapshot of the game as of the start of the current turn, which may be done
+     * from any thread without interrupting the game.  The clocks include the time the
+     * active player has spent on the current turn so far
+     *
+     * @return a snapshot of the game
+     */
+    public GameSnapshot snapshot() {
+    	if(published == null) {
+    		throw new IllegalStateException("Only 9x9 games which have started have snapshots");
+    	}
+    	return published.at(System.currentTimeMillis());
+    }
+
+    /**
+     * Rebuilds a board from a snapshot of a game, so that the game can carry on from where
+     * the snapshot was taken.  The clock of the active player restarts from the time
+     * recorded in the snapshot
+     *
+     * @param snapshot a snapshot of a game
+     * @param view     the view the game is displayed in, null for none
+     * @return a board with the position, history and clocks of the snapshot
+     */
+    public static Board restore(GameSnapshot snapshot, BoardView view) {
+    	Position pos = snapshot.getPosition();
+    	Board b = new Board(pos.getNumPlayers(), view);
+
+    	// Move every pawn straight to its space rather than making its moves again
+    	for(Player p : b.players) {
+    		b.getSpaceFromPlayer(p).unoccupy();
+    	}
+    	for(Player p : b.players) {
+    		int space = pos.getPawn(p.getPlayerNum());
+    		p.setPos(space % 9, space / 9);
+    		p.walls = pos.getWallsLeft(p.getPlayerNum());
+    		b.getSpaceFromPlayer(p).occupy(p.getPlayerNum());
+    	}
+
+    	// The walls are drawn in the order they were placed so that the corners are filled
+    	// in just as they were, followed by any walls not placed by a move
+    	long vWalls = pos.getVerticalWalls();
+    	long hWalls = pos.getHorizontalWalls();
+    	int[] moves = snapshot.getMoveCodes();
+    	for(int move : moves) {
+    		if(move >= Position.WALL_MOVES) {
+    			int slot = (move - Position.WALL_MOVES) >> 1;
+    			int dir = (move - Position.WALL_MOVES) & 1;
+    			long bit = 1L << slot;
+    			if(dir == 0 && (vWalls & bit) != 0L) {
+    				b.restoreWall(slot, 0);
+    				vWalls &= ~bit;
+    			} else if(dir == 1 && (hWalls & bit) != 0L) {
+    				b.restoreWall(slot, 1);
+    				hWalls &= ~bit;
+    			}
+    		}
+    	}
+    	for(int slot = 0; slot < 64; slot++) {
+    		if((vWalls & (1L << slot)) != 0L) {
+    			b.restoreWall(slot, 0);
+    		}
+    		if((hWalls & (1L << slot)) != 0L) {
+    			b.restoreWall(slot, 1);
+    		}
+    	}
+
+    	b.turn = pos.getTurn();
+    	b.setActivePlayer();
+    	b.history = Arrays.copyOf(moves, Math.max(32, moves.length));
+    	b.historyLength = moves.length;
+    	for(int i = 0; i < b.numPlayers; i++) {
+    		b.clocks[i] = snapshot.getClock(i + 1);
+    	}
+    	b.turnStarted = System.currentTimeMillis();
+    	b.publish();
+    	return b;
+    }
+
+    /**
+     * Puts a wall back on the board without charging it to any player
+     *
+     * @param slot the slot of the wall's designator, 8*row + col
+     * @param dir  the direction of the wall, 0 for vertical and 1 for horizontal
+     */
+    private void restoreWall(int slot, int dir) {
+    	Space designator = getSpaceFromCoords(slot % 8, slot / 8);
+    	addWall(designator, dir);
+    	drawWall(designator, dir);
+    }
+
+    /**
+     * Returns the player who has reached one of their goal spaces, if any
+     *
+     * @return the winning player or null if the game is not over
+     */
+    public Player getWinner() {
+    	for(Player p : players) {
+    		if(p.checkHasWon()) {
+    			return p;
+    		}
+    	}
+    	return null;
+    }
+
+    /**
+     * Creates a copy of this board with the same players, walls and turn but which is not
+     * displayed, so that moves can be explored without disturbing the board being played
+     *
+     * @return a copy of this board with no view
+     */
+    public Board copy() {
+    	Board b = new Board(geometry);
+    	b.numPlayers = numPlayers;
+    	b.turn = turn;
+    	b.players = new Player[players.length];
+    	for(Player p : players) {
+    		Player copied = new Player(b, p.getPlayerNum(), p.getWalls());
+    		copied.setPos(p.getColumn(), p.getRow());
+    		b.players[p.getPlayerNum() - 1] = copied;
+    		b.getSpaceFromPlayer(copied).occupy(copied.getPlayerNum());
+    	}
+
+    	// The walls must be keyed on the spaces of the new board
+    	for(Space designator : walls.keySet()) {
+    		b.walls.put(b.getSpaceFromCoords(designator.getCoords()), walls.get(designator));
+    	}
+    	b.vWalls = vWalls;
+    	b.hWalls = hWalls;
+    	b.reference = reference;
+    	if(vSlots != null) {
+    		b.vSlots = vSlots.clone();
+    		b.hSlots = hSlots.clone();
+    	}
+    	for(int i = 0; i < spaces.length; i++) {
+    		b.spaces[i].placed = spaces[i].placed.clone();
+    	}
+    	b.setActivePlayer();
+    	b.history = history.clone();
+    	b.historyLength = historyLength;
+    	if(clocks != null) {
+    		b.clocks = clocks.clone();
+    		b.turnStarted = turnStarted;
+    		b.publish();
+    	}
+    	return b;
+    }
+
+    /**
+     * Creates an independent copy of a 9x9 board which checks walls as the reference rules
+     * do, see reference.  Moves made on it and on its copies are judged without WallTable
+     * or Reachability, so that they can be compared with the rules in Position
+     *
+     * @return a copy of this board using the reference rules
+     */
+    Board referenceCopy() {
+    	if(geometry != Geometry.STANDARD) {
+    		throw new IllegalStateException("Only 9x9 boards have reference rules");
+    	}
+    	Board b = copy();
+    	b.reference = true;
+    	return b;
+    }
+
+    /**
+     * Returns a string which identifies the current position: every player's position and
+     * remaining walls, the player to move and the walls on the board.  Two boards have
+     * the same key exactly when the same moves would be legal on them
+     *
+     * @return the key of the current position
+     */
+    public String positionKey() {
+    	StringBuilder key = new StringBuilder();
+    	for(Player p : players) {
+    		key.append(getSpaceFromPlayer(p).toGrid()).append(':').append(p.getWalls()).append(' ');
+    	}
+    	key.append('/').append(active.getPlayerNum()).append('/');
+
+    	// The walls are sorted so that the order they were placed in does not matter
+    	Set<String> sortedWalls = new TreeSet<String>();
+    	for(Space designator : walls.keySet()) {
+    		sortedWalls.add(designator.toGrid() + (walls.get(designator) == 0 ? "v" : "h"));
+    	}
+    	for(String wall : sortedWalls) {
+    		key.append(' ').append(wall);
+    	}
+    	return key.toString();
+    }
+
     /**
      * Places a player at a specific space on the board
      * 
@@ -462,8 +871,8 @@ public class Board {
     	// The player number of player p
     	int pNum = p.getPlayerNum();
     	
-    	// The space at position [col, row] in spaces will be at position [9*row + col]
-    	spaces[9*row + col].occupy(pNum);
+    	// The space at position [col, row] in spaces will be at position [size*row + col]
+    	spaces[geometry.size*row + col].occupy(pNum);
     	
     	// We need to ensure that we unoccupy the space that the player just moved from,
     	// assuming that they moved at all
@@ -471,7 +880,7 @@ public class Board {
     	if(! Arrays.equals(oldPos, new int[] {col, row})) {
 	    	int oldCol = oldPos[0];
 	    	int oldRow = oldPos[1];
-	    	spaces[9*oldRow + oldCol].unoccupy();
+	    	spaces[geometry.size*oldRow + oldCol].unoccupy();
     	}
     	
     	// Finally, set the position of the player to the new coordinates
@@ -491,8 +900,8 @@ public class Board {
     		throw new UnsupportedOperationException("Only boards with exactly one player may call");
     	}
     	
-    	// The space at position [col, row] in spaces will be at position [9*row + col]
-    	spaces[9*row + col].occupy(players[0].getPlayerNum());
+    	// The space at position [col, row] in spaces will be at position [size*row + col]
+    	spaces[geometry.size*row + col].occupy(players[0].getPlayerNum());
     	
     	// We need to ensure that we unoccupy the space that the player just moved from,
     	// assuming that they moved at all
@@ -500,7 +909,7 @@ public class Board {
     	if(! Arrays.equals(oldPos, new int[] {col, row})) {
     		int oldCol = oldPos[0];
     		int oldRow = oldPos[1];
-    		spaces[9*oldRow + oldCol].unoccupy();
+    		spaces[geometry.size*oldRow + oldCol].unoccupy();
     	}
     	
     	// Finally, set the position of the player to the new coordinates
@@ -522,31 +931,41 @@ public class Board {
     	int[] coords = designator.getCoords();
     	
     	// The index of the designator in the spaces array
-    	int index = 9*coords[1] + coords[0];
+    	int index = geometry.size*coords[1] + coords[0];
     	
     	// Map spaces[index] to dir in the walls map
-    	walls.put(spaces[index], dir);
+    	addWall(spaces[index], dir);
     	
     	// Reduce the number of walls the active player has by 1
     	if(active != null) {
     		active.spendWall();
-    		Space[] nearby = findNearSpaces(spaces[index]);
-        	spaces[index].placeWall(dir);
-        	spaces[index].placeCornerWall();
-        	
-        	switch(dir) {
-        		case 0: nearby[2].placeWall(0);
-        				break;
-        		case 1: nearby[1].placeWall(1);
-        				break;
-        	}
-        	placeCornerWall(designator);
+    		drawWall(spaces[index], dir);
     	}	
     }
+
+    /**
+     * Fills in the wall segments of a wall which has just been placed
+     *
+     * @param designator the space directly northwest of the wall center
+     * @param dir        designates the direction of the wall, 0 for vertical and 1 for horizontal
+     */
+    private void drawWall(Space designator, int dir) {
+    	Space[] nearby = findNearSpaces(designator);
+    	designator.placeWall(dir);
+    	designator.placeCornerWall();
+
+    	switch(dir) {
+    		case 0: nearby[2].placeWall(0);
+    				break;
+    		case 1: nearby[1].placeWall(1);
+    				break;
+    	}
+    	placeCornerWall(designator);
+    }
     
     /**
      * When a new wall has been placed, this method checks to see which,
-     * if any, corner wall panels should be darkened to completely fill in
+     * if any, corner wall segments should be darkened to completely fill in
      * any gaps in contiguous walls
      * 
      * @param designator space designating the new wall placement
@@ -556,7 +975,7 @@ public class Board {
     	int[] coords = designator.getCoords();
     	
     	// The index of the designator space in the spaces array
-    	int index = 9*coords[1] + coords[0];
+    	int index = geometry.size*coords[1] + coords[0];
     	
     	// The direction of the newly placed wall (0 for vertical and 1 for horizontal)
     	int dir = walls.get(spaces[index]);
@@ -568,7 +987,7 @@ public class Board {
     		// The wall is vertical
     		case 0: // The designator is not in the topmost row
     				if(nearby[0] != null) {
-    					// Fill in the corner of the upper space if either of its wall panels are placed
+    					// Fill in the corner of the upper space if either of its wall segments are placed
     					if(nearby[0].isPlaced(0) || nearby[0].isPlaced(1)) {
     						nearby[0].placeCornerWall();
     					}
@@ -578,7 +997,7 @@ public class Board {
     					// column, and so the space to the right of it must be not null
     					Space[] nearUpper = findNearSpaces(nearby[0]);
     					
-    					// Fill in the corner of the upper space if the horizontal wall panel
+    					// Fill in the corner of the upper space if the horizontal wall segment
     					// of the space to its right has been placed
     					if(nearUpper[1].isPlaced(1)) {
     						nearby[0].placeCornerWall();
@@ -586,7 +1005,7 @@ public class Board {
     				}
     				
     				// The space below the designator is not in the bottom row
-    				if(nearby[2].getRow() != 8) {
+    				if(nearby[2].getRow() != geometry.size - 1) {
     					
     					// The spaces adjacent to the space below the designator
     					// NOTE: The space below the designator cannot be in the rightmost
@@ -596,13 +1015,13 @@ public class Board {
     					Space[] nearBelow = findNearSpaces(nearby[2]);
     					
     					// Fill in the corner of the bottom space if the horizontal
-    					// wall panel of the space to its right has been placed
+    					// wall segment of the space to its right has been placed
     					if(nearBelow[1].isPlaced(1)) {
     						nearby[2].placeCornerWall();
     					}
     					
     					// Fill in the corner of the bottom space if the vertical
-    					// wall panel of the space below that has been placed
+    					// wall segment of the space below that has been placed
     					if(nearBelow[2].isPlaced(0)) {
     						nearby[2].placeCornerWall();
     					}
@@ -612,7 +1031,7 @@ public class Board {
     		// The wall is horizontal
     		case 1: // The designator is not in the leftmost column
     				if(nearby[3] != null) {
-    					// Fill in corner of left space if either of its wall panels are placed
+    					// Fill in corner of left space if either of its wall segments are placed
     					if(nearby[3].isPlaced(0) || nearby[3].isPlaced(1)) {
     						nearby[3].placeCornerWall();
     					}
@@ -622,7 +1041,7 @@ public class Board {
     					// row, and so the space below that must be not null
     					Space[] nearLeft = findNearSpaces(nearby[3]);
     					
-    					// Fill in corner of left space if the vertical wall panel
+    					// Fill in corner of left space if the vertical wall segment
     					// of the space below that space has been placed
 						if(nearLeft[2].isPlaced(0)) {
 							nearby[3].placeCornerWall();
@@ -630,7 +1049,7 @@ public class Board {
     				}
     				
     				// The space to the right of the designator is not in the rightmost column
-    				if(nearby[1].getColumn() != 8) {
+    				if(nearby[1].getColumn() != geometry.size - 1) {
     					
     					// The spaces adjacent to the space to the right of the designator
     					// NOTE: The space to the right of the designator cannot be on the bottom
@@ -640,13 +1059,13 @@ public class Board {
     					Space[] nearRight = findNearSpaces(nearby[1]);
     					
     					// Fill in the corner of the right space if the horizontal
-    					// wall panel of the space to the right of that space has been placed
+    					// wall segment of the space to the right of that space has been placed
     					if(nearRight[1].isPlaced(1)) {
     						nearby[1].placeCornerWall();
     					}
     					
     					// Fill in the corner of the right space if the vertical
-    					// wall panel of the space below that space has been placed
+    					// wall segment of the space below that space has been placed
     					if(nearRight[2].isPlaced(0)) {
     						nearby[1].placeCornerWall();
     					}
@@ -663,6 +1082,15 @@ public class Board {
     public Player getActivePlayer() {
     	return active;
     }
+
+    /**
+     * Getter for the number of spaces along a side of the board
+     * 
+     * @return the size of the board, 9 for the standard board
+     */
+    public int getSize() {
+    	return geometry.size;
+    }
     
     /**
      * Sets the active player to the player whose number is turn mod numPlayers,
@@ -686,14 +1114,55 @@ public class Board {
      * 
      * @param newWalls walls mapping to set on the board
      */
-    public void setWalls(HashMap<Space, Integer> newWalls) {
+    public void setWalls(Map<Space, Integer> newWalls) {
     	walls = newWalls;
+    	vWalls = 0L;
+    	hWalls = 0L;
+    	if(vSlots != null) {
+    		Arrays.fill(vSlots, 0L);
+    		Arrays.fill(hSlots, 0L);
+    	}
+    	for(Space designator : walls.keySet()) {
+    		markWall(designator, walls.get(designator).intValue());
+    	}
+    }
+
+    /**
+     * Adds a wall to the walls map and the bit sets of wall slots
+     *
+     * @param designator the space directly northwest of the wall center
+     * @param dir        the direction of the wall, 0 for vertical and 1 for horizontal
+     */
+    private void addWall(Space designator, int dir) {
+    	walls.put(designator, dir);
+    	markWall(designator, dir);
+    }
+
+    /**
+     * Adds a wall to the bit sets of wall slots
+     *
+     * @param designator the space directly northwest of the wall center
+     * @param dir        the direction of the wall, 0 for vertical and 1 for horizontal
+     */
+    private void markWall(Space designator, int dir) {
+    	if(vSlots == null) {
+    		long bit = 1L << (8*designator.getRow() + designator.getColumn());
+    		if(dir == 0) {
+    			vWalls |= bit;
+    		} else {
+    			hWalls |= bit;
+    		}
+    	} else {
+    		int slot = geometry.slot(designator.getColumn(), designator.getRow());
+    		long[] slots = dir == 0 ? vSlots : hSlots;
+    		slots[slot >>> 6] |= 1L << slot;
+    	}
     }
     
     /**
      * Returns the space on the board with the given index in spaces
      * 
-     * @param index the index of a space on the board in spaces, in the interval [0, 81)
+     * @param index the index of a space on the board in spaces, in the interval [0, size*size)
      * @return spaces[index]
      */
     public Space getSpace(int index) {
@@ -707,7 +1176,7 @@ public class Board {
      * @return true if the space is occupied and false if it is not
      */
     public boolean isOccupied(Space s) {
-    	int index = 9*s.getRow() + s.getColumn();
+    	int index = geometry.size*s.getRow() + s.getColumn();
     	return spaces[index].isOccupied();
     }
     
@@ -719,7 +1188,7 @@ public class Board {
      * @return true if the space is occupied and false if it is not
      */
     public boolean isOccupied(int col, int row) {
-    	return spaces[9*row + col].isOccupied();
+    	return spaces[geometry.size*row + col].isOccupied();
     }
     
     /**
@@ -757,7 +1226,7 @@ public class Board {
      * @return the space in the grid at position [col, row]
      */
     public Space getSpaceFromCoords(int col, int row) {
-    	return spaces[9*row + col];
+    	return spaces[geometry.size*row + col];
     }
     
     /**
@@ -770,7 +1239,7 @@ public class Board {
     	if(coords == null) {
     		return null;
     	} else {
-    		return spaces[9*coords[1] + coords[0]];
+    		return spaces[geometry.size*coords[1] + coords[0]];
     	}
     }
     
@@ -781,7 +1250,7 @@ public class Board {
      * @return spaces at the player's current position
      */
     public Space getSpaceFromPlayer(Player p) {
-    	int index = 9*p.getRow() + p.getColumn();
+    	int index = geometry.size*p.getRow() + p.getColumn();
     	return spaces[index];
     }
     
@@ -1118,7 +1587,7 @@ public class Board {
     	// also adjacent to the jump space, note that this will have a max size of 2
     	Set<Player> jumpablePlayers = new HashSet<Player>();
     	for(Player p : nearPlayers) {
-    		int index = 9*p.getRow() + p.getColumn();
+    		int index = geometry.size*p.getRow() + p.getColumn();
     		if(areAdjacent(jumpSpace, spaces[index])) {
     			jumpablePlayers.add(p);
     		}
@@ -1135,8 +1604,9 @@ public class Board {
     		
     		// We simulate a direct jump over jumpable player p to see if such a jump
     		// would be prevented by another player or a wall, in either case we then
-    		// check to ensure that the diagonal jump would not be impeded by a wall
-    		if((isOccupied(nearP[dir]) || isDirectJumpBlocked(nearP[dir])) &&
+    		// check to ensure that the diagonal jump would not be impeded by a wall.
+    		// The edge of the board prevents a direct jump just as a wall would
+    		if((nearP[dir] == null || isOccupied(nearP[dir]) || isDirectJumpBlocked(nearP[dir])) &&
     				(! isBlocked(pSpace, jumpSpace))) {
     			return true;
     		}
@@ -1211,12 +1681,20 @@ public class Board {
      * @return true if the space already designates a wall, false if not
      */
     private boolean isDesignated(Space designator) {
-    	for(Space s : walls.keySet()) {
-    		if(designator.equalsSpace(s)) {
-    			return true;
+    	if(reference) {
+    		for(Space s : walls.keySet()) {
+    			if(designator.equalsSpace(s)) {
+    				return true;
+    			}
     		}
+    		return false;
     	}
-    	return false;
+    	if(vSlots != null) {
+    		int slot = geometry.slot(designator.getColumn(), designator.getRow());
+    		return Geometry.contains(vSlots, slot) || Geometry.contains(hSlots, slot);
+    	}
+    	long bit = 1L << (8*designator.getRow() + designator.getColumn());
+    	return ((vWalls | hWalls) & bit) != 0L;
     }
     
     /**
@@ -1227,39 +1705,40 @@ public class Board {
      * @return true if the wall would intersect an existing wall and false if not
      */
     private boolean willIntersect(Space designator, int dir) {
-    	int[] coords = designator.getCoords();
-    	int index = 9*coords[1] + coords[0];
-    	
-    	// Get the spaces around the designator first
-    	Space[] nearby = findNearSpaces(coords);
-    	
-    	// If the wall would be vertical then we need to check to see
-    	// if either of the spaces above or below the designator are in the
-    	// walls key set designating a vertical wall
-    	if(dir == 0) {
-    		for(Space s : walls.keySet()) {
-    			if((nearby[0] != null && s.equalsSpace(nearby[0])) || 
-    					(nearby[2] != null && s.equalsSpace(nearby[2]))) {
-    				if(walls.get(s).intValue() == 0) {
-    					return true;
-    				}
-    			}
-    		}
+    	if(reference) {
+    		return scanForIntersection(designator, dir);
     	}
+    	if(vSlots != null) {
+    		int slot = geometry.slot(designator.getColumn(), designator.getRow());
+    		return geometry.conflicts(vSlots, hSlots, 2*slot + dir);
+    	}
+    	// The walls of the same direction on either side along the wall's length
+    	int placement = 2*(8*designator.getRow() + designator.getColumn()) + dir;
+    	return ((dir == 0 ? vWalls : hWalls) & WallTable.OVERLAPPED[placement]) != 0L;
+    }
+    
+    /**
+     * Checks whether an attempted wall placement would intersect an existing wall by
+     * scanning the walls map for the spaces either side of the designator, see reference
+     * 
+     * @param designator the space which designates a wall placement
+     * @param dir        the direction of the wall, 0 for vertical and 1 for horizontal
+     * @return true if the wall would intersect an existing wall and false if not
+     */
+    private boolean scanForIntersection(Space designator, int dir) {
+    	Space[] nearby = findNearSpaces(designator.getCoords());
     	
-    	// If the wall would be horizontal then we need to check to see
-    	// if either of the spaces to the right or left of the designator
-    	// are in the walls key set designating a horizontal wall
-    	if(dir == 1) {
-    		for(Space s : walls.keySet()) {
-    			if((nearby[1] != null && s.equalsSpace(nearby[1])) || 
-    					(nearby[3] != null && s.equalsSpace(nearby[3]))) {
-    				if(walls.get(s).intValue() == 1) {
-    					return true;
-    				}
+    	// A vertical wall meets vertical walls designated by the spaces above and below,
+    	// a horizontal one horizontal walls designated by the spaces right and left
+    	Space first = dir == 0 ? nearby[0] : nearby[1];
+    	Space second = dir == 0 ? nearby[2] : nearby[3];
+    	for(Space s : walls.keySet()) {
+    		if((first != null && s.equalsSpace(first)) || (second != null && s.equalsSpace(second))) {
+    			if(walls.get(s).intValue() == dir) {
+    				return true;
     			}
     		}
-    	}    	
+    	}
     	return false;
     }
     
@@ -0,0 +1,27 @@
+package santanjm.quoridor;
+
+import santanjm.quoridor.*;
+
+/**
+ * Something which displays a game as it is played, such as a game panel.  The board tells
+ * its view about every change on the thread the game is played on, so a view which draws
+ * on another thread must hand the changes over to it
+ * @author santanjm
+ */
+public interface BoardView {
+	/**
+	 * Tells the view that a space has been occupied, unoccupied or had a wall segment
+	 * placed, or that it is a space of the board being displayed for the first time
+	 *
+	 * @param s the space which changed
+	 */
+	void spaceChanged(Space s);
+
+	/**
+	 * Tells the view that a turn has started, or that the game is over if the position
+	 * has a winner
+	 *
+	 * @param pos the position at the start of the turn
+	 */
+	void turnStarted(Position pos);
+}
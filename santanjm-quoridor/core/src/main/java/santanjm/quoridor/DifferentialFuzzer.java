@@ -0,0 +1,311 @@
+package santanjm.quoridor;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import santanjm.quoridor.*;
+
+/**
+ * Plays random games with both the rules in Board and the rules in Position side by side,
+ * comparing the set of legal moves each finds at every position reached.  Any position on
+ * which they disagree is shrunk to as short a sequence of moves as still shows a difference,
+ * so that the two engines can be trusted to be interchangeable.  Board checks walls with
+ * its reference rules, scanning its map of walls and searching with A*, so that a mistake in
+ * the wall tables or flood fill Position relies on cannot show up the same way on both sides.
+ * @author santanjm
+ */
+public class DifferentialFuzzer {
+	// The most moves played in a single random game before starting another
+	private static final int MAX_GAME_LENGTH = 200;
+
+	// The number of threads playing random games
+	int threads;
+
+	// How long, in milliseconds, the fuzzer runs for
+	long budgetMillis;
+
+	// The seed each thread's random numbers are derived from
+	long seed;
+
+	// The number of positions compared so far
+	AtomicLong positions = new AtomicLong();
+
+	// The number of legal moves compared so far
+	AtomicLong movesCompared = new AtomicLong();
+
+	// The differences found so far, already shrunk
+	List<Mismatch> mismatches = Collections.synchronizedList(new ArrayList<Mismatch>());
+
+	/**
+	 * Constructs a fuzzer which will play random games on several threads for a bounded time
+	 *
+	 * @param threads      the number of threads to play on
+	 * @param budgetMillis how long to play for, in milliseconds
+	 * @param seed         seed for the random games, so that a run can be repeated
+	 */
+	public DifferentialFuzzer(int threads, long budgetMillis, long seed) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("The fuzzer needs at least one thread");
+		}
+		this.threads = threads;
+		this.budgetMillis = budgetMillis;
+		this.seed = seed;
+	}
+
+	/**
+	 * Plays random games on every thread until the time budget is spent
+	 *
+	 * @return the shrunk differences found between the two engines, empty if they always agreed
+	 * @throws ExecutionException if a thread failed, having played fewer games than it should
+	 */
+	public List<Mismatch> run() throws InterruptedException, ExecutionException {
+		final long deadline = System.currentTimeMillis() + budgetMillis;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> workers = new ArrayList<Future<?>>();
+		for(int i = 0; i < threads; i++) {
+			final Random random = new Random(seed + i);
+			workers.add(executor.submit(new Runnable() {
+				public void run() {
+					while(System.currentTimeMillis() < deadline) {
+						playRandomGame(random, deadline);
+					}
+				}
+			}));
+		}
+		executor.shutdown();
+		for(Future<?> worker : workers) {
+			worker.get();
+		}
+		return new ArrayList<Mismatch>(mismatches);
+	}
+
+	/**
+	 * Getter for the number of positions compared so far
+	 *
+	 * @return the number of positions compared
+	 */
+	public long getPositions() {
+		return positions.get();
+	}
+
+	/**
+	 * Getter for the number of legal moves compared so far
+	 *
+	 * @return the number of legal moves compared
+	 */
+	public long getMovesCompared() {
+		return movesCompared.get();
+	}
+
+	/**
+	 * Plays a single random game, comparing the engines after every move and stopping at
+	 * the first difference, the end of the game or the deadline
+	 *
+	 * @param random   the random numbers for this thread
+	 * @param deadline the time at which to stop, in milliseconds
+	 */
+	private void playRandomGame(Random random, long deadline) {
+		int numPlayers = random.nextBoolean() ? 2 : 4;
+
+		// How often a wall is placed rather than a pawn moved, varied so that both open and
+		// crowded boards are reached
+		double wallChance = random.nextDouble();
+
+		Board board = new Board(numPlayers).referenceCopy();
+		Position pos = new Position(numPlayers);
+		List<String> history = new ArrayList<String>();
+		while(history.size() < MAX_GAME_LENGTH && System.currentTimeMillis() < deadline) {
+			Mismatch mismatch = compare(numPlayers, history, board, pos);
+			positions.incrementAndGet();
+			if(mismatch != null) {
+				mismatches.add(shrink(mismatch));
+				return;
+			}
+			if(pos.isOver()) {
+				return;
+			}
+
+			// Both engines agree on the legal moves so either may be used to pick one.  A
+			// player boxed in by pawns and walls with no walls left cannot move at all, which
+			// ends the game
+			int[] moves = pos.legalMoves();
+			if(moves.length == 0) {
+				return;
+			}
+			movesCompared.addAndGet(moves.length);
+			List<Integer> pawnMoves = new ArrayList<Integer>();
+			List<Integer> wallMoves = new ArrayList<Integer>();
+			for(int move : moves) {
+				if(move < Position.WALL_MOVES) {
+					pawnMoves.add(move);
+				} else {
+					wallMoves.add(move);
+				}
+			}
+			List<Integer> choices = wallMoves.isEmpty() || (! pawnMoves.isEmpty() &&
+					random.nextDouble() >= wallChance) ? pawnMoves : wallMoves;
+			String move = Position.toNotation(choices.get(random.nextInt(choices.size())));
+
+			board.executeMove(move);
+			board.nextTurn();
+			pos = pos.play(Position.parseMove(move));
+			history.add(move);
+		}
+	}
+
+	/**
+	 * Compares the legal moves of both engines in the position reached by a sequence of moves
+	 *
+	 * @param numPlayers the number of players in the game
+	 * @param history    the moves played from the starting position
+	 * @param board      the board with the moves played
+	 * @param pos        the position with the moves played
+	 * @return the difference between the engines or null if they agree
+	 */
+	private static Mismatch compare(int numPlayers, List<String> history, Board board, Position pos) {
+		Set<String> legacy;
+		try {
+			legacy = new TreeSet<String>(board.legalMoves());
+		} catch(RuntimeException e) {
+			return new Mismatch(numPlayers, history, "Board threw " + e);
+		}
+		Set<String> fast = new TreeSet<String>();
+		for(int move : pos.legalMoves()) {
+			fast.add(Position.toNotation(move));
+		}
+
+		if(! board.positionKey().equals(pos.key())) {
+			return new Mismatch(numPlayers, history, "Board is at " + board.positionKey()
+					+ " but Position is at " + pos.key());
+		}
+		if(legacy.equals(fast)) {
+			return null;
+		}
+		Set<String> legacyOnly = new TreeSet<String>(legacy);
+		legacyOnly.removeAll(fast);
+		Set<String> fastOnly = new TreeSet<String>(fast);
+		fastOnly.removeAll(legacy);
+		return new Mismatch(numPlayers, history, "Only legal on Board: " + legacyOnly
+				+ ", only legal on Position: " + fastOnly);
+	}
+
+	/**
+	 * Plays a sequence of moves from the starting position with both engines and compares
+	 * the legal moves of the position reached
+	 *
+	 * @param numPlayers the number of players in the game
+	 * @param history    the moves to play from the starting position
+	 * @return the difference between the engines, or null if they agree or if the moves are
+	 *         not a legal sequence by the rules of Board
+	 */
+	public static Mismatch replay(int numPlayers, List<String> history) {
+		Board board = new Board(numPlayers).referenceCopy();
+		Position pos = new Position(numPlayers);
+		for(String move : history) {
+			if(board.getWinner() != null || ! board.isLegalMove(move)) {
+				return null;
+			}
+			board.executeMove(move);
+			board.nextTurn();
+			pos = pos.play(Position.parseMove(move));
+		}
+		return compare(numPlayers, history, board, pos);
+	}
+
+	/**
+	 * Shrinks the moves leading to a difference by repeatedly removing runs of moves, first
+	 * long runs and then shorter ones, for as long as the remaining moves are legal and
+	 * still lead to a difference
+	 *
+	 * @param mismatch a difference found between the engines
+	 * @return a difference reached by as few moves as could be found
+	 */
+	public static Mismatch shrink(Mismatch mismatch) {
+		Mismatch smallest = mismatch;
+		int chunk = Math.max(1, smallest.moves.size() / 2);
+		while(chunk >= 1 && ! smallest.moves.isEmpty()) {
+			boolean removed = false;
+			int start = 0;
+			while(start < smallest.moves.size()) {
+				List<String> candidate = new ArrayList<String>(smallest.moves.subList(0, start));
+				candidate.addAll(smallest.moves.subList(
+						Math.min(start + chunk, smallest.moves.size()), smallest.moves.size()));
+				Mismatch smaller = replay(smallest.numPlayers, candidate);
+				if(smaller != null) {
+					smallest = smaller;
+					removed = true;
+				} else {
+					start += chunk;
+				}
+			}
+			if(! removed) {
+				chunk /= 2;
+			}
+		}
+		return smallest;
+	}
+
+	/**
+	 * A difference between the two engines along with the moves which lead to it
+	 */
+	public static class Mismatch {
+		// The number of players in the game
+		int numPlayers;
+
+		// The moves played from the starting position
+		List<String> moves;
+
+		// Description of how the engines differ
+		String difference;
+
+		Mismatch(int numPlayers, List<String> moves, String difference) {
+			this.numPlayers = numPlayers;
+			this.moves = new ArrayList<String>(moves);
+			this.difference = difference;
+		}
+
+		/**
+		 * Getter for the moves leading to the difference
+		 *
+		 * @return the moves played from the starting position
+		 */
+		public List<String> getMoves() {
+			return moves;
+		}
+
+		public String toString() {
+			return numPlayers + " players after " + moves + ": " + difference;
+		}
+	}
+
+	/**
+	 * Runs the fuzzer and prints any differences found
+	 *
+	 * @param args optionally the number of seconds to run for, the number of threads and the seed
+	 */
+	public static void main(String[] args) {
+		try {
+			long seconds = args.length > 0 ? Long.parseLong(args[0]) : 60;
+			int threads = args.length > 1 ? Integer.parseInt(args[1])
+					: Runtime.getRuntime().availableProcessors();
+			long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+
+			DifferentialFuzzer fuzzer = new DifferentialFuzzer(threads, seconds * 1000, seed);
+			List<Mismatch> found = fuzzer.run();
+			System.out.println("Seed " + seed + ": compared " + fuzzer.getPositions() + " positions and "
+					+ fuzzer.getMovesCompared() + " legal moves");
+			for(Mismatch mismatch : found) {
+				System.out.println(mismatch);
+			}
+			System.exit(found.isEmpty() ? 0 : 2);
+		} catch(ExecutionException e) {
+			System.err.println("A fuzzing thread failed:");
+			e.getCause().printStackTrace();
+			System.exit(1);
+		} catch(Exception e) {
+			System.err.println("Usage: DifferentialFuzzer [seconds] [threads] [seed]");
+			System.exit(1);
+		}
+	}
+}
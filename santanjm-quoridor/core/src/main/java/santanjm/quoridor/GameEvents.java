@@ -0,0 +1,148 @@
+package santanjm.quoridor;
+
+import jdk.jfr.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Java Flight Recorder events for the rules, the search and the life of each game, so that
+ * a recording shows which game and which rule check was slow.
+ *
+ * An event costs almost nothing unless a recording has it enabled.  The rule checks are
+ * made hundreds of times a turn, so by default only those taking longer than their
+ * threshold are recorded.  The thresholds can be lowered in the recording's settings, e.g.
+ *     jcmd <pid> JFR.start santanjm.quoridor.MoveValidation#threshold=0ms
+ * @author santanjm
+ */
+public class GameEvents {
+	private GameEvents() {
+	}
+
+	/**
+	 * A move checked against the rules by Board.isLegalMove
+	 */
+	@Name("santanjm.quoridor.MoveValidation")
+	@Label("Move Validation")
+	@Category({"Quoridor", "Rules"})
+	@Description("A submitted move checked against the rules")
+	@Threshold("100 us")
+	@StackTrace(false)
+	static class MoveValidation extends Event {
+		@Label("Game Id")
+		long gameId;
+
+		@Label("Player")
+		int player;
+
+		@Label("Move")
+		String move;
+
+		@Label("Legal")
+		boolean legal;
+	}
+
+	/**
+	 * A check by Player.canReachGoal that a wall would leave a player a path to their goal
+	 */
+	@Name("santanjm.quoridor.WallReachability")
+	@Label("Wall Reachability")
+	@Category({"Quoridor", "Rules"})
+	@Description("A search for a path to a player's goal with a proposed wall placed")
+	@Threshold("100 us")
+	@StackTrace(false)
+	static class WallReachability extends Event {
+		@Label("Game Id")
+		long gameId;
+
+		@Label("Player")
+		int player;
+
+		@Label("Wall")
+		String wall;
+
+		@Label("Reachable")
+		boolean reachable;
+	}
+
+	/**
+	 * One depth of an iterative deepening search
+	 */
+	@Name("santanjm.quoridor.SearchIteration")
+	@Label("Search Iteration")
+	@Category({"Quoridor", "Search"})
+	@Description("One depth of an iterative deepening search")
+	@StackTrace(false)
+	static class SearchIteration extends Event {
+		@Label("Position Hash")
+		long positionHash;
+
+		@Label("Depth")
+		int depth;
+
+		@Label("Nodes")
+		long nodes;
+
+		@Label("Nodes Per Second")
+		long nps;
+
+		@Label("Score")
+		int score;
+
+		@Label("Best Move")
+		String bestMove;
+	}
+
+	/**
+	 * A game set up on a board
+	 */
+	@Name("santanjm.quoridor.GameStarted")
+	@Label("Game Started")
+	@Category({"Quoridor", "Game"})
+	@StackTrace(false)
+	static class GameStarted extends Event {
+		@Label("Game Id")
+		long gameId;
+
+		@Label("Players")
+		int players;
+	}
+
+	/**
+	 * A move made in a game by Board.executeMove, including waiting for it to be journaled
+	 */
+	@Name("santanjm.quoridor.MoveExecuted")
+	@Label("Move Executed")
+	@Category({"Quoridor", "Game"})
+	@StackTrace(false)
+	static class MoveExecuted extends Event {
+		@Label("Game Id")
+		long gameId;
+
+		@Label("Turn")
+		int turn;
+
+		@Label("Player")
+		int player;
+
+		@Label("Move")
+		String move;
+	}
+
+	/**
+	 * A game won by one of its players
+	 */
+	@Name("santanjm.quoridor.GameEnded")
+	@Label("Game Ended")
+	@Category({"Quoridor", "Game"})
+	@StackTrace(false)
+	static class GameEnded extends Event {
+		@Label("Game Id")
+		long gameId;
+
+		@Label("Winner")
+		int winner;
+
+		@Label("Moves")
+		int moves;
+	}
+}
@@ -0,0 +1,444 @@
+package santanjm.quoridor;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import santanjm.quoridor.*;
+
+/**
+ * Append-only log of the moves made in many games, from which every game still in progress
+ * can be rebuilt after a crash.  Games are spread over several shards, each with its own
+ * log file and writer thread.  The writer takes every record waiting to be written, writes
+ * them all and then forces them to disk once, so that the cost of a sync is shared by every
+ * move made while the previous sync was in progress (group commit).
+ *
+ * Each record in a log file is laid out as:
+ * type (1 byte), game id (8 bytes), payload length (4 bytes), payload, CRC32 of all before it (4 bytes)
+ * A move record's payload is the move's index in the game, its encoding and the mover's clock,
+ * a snapshot record's payload is a GameSnapshot in its compact binary form.
+ * @author santanjm
+ */
+public class GameJournal {
+	// Record types
+	private static final byte MOVE = 1;
+	private static final byte SNAPSHOT = 2;
+
+	// The number of bytes a record takes up besides its payload
+	private static final int OVERHEAD = 1 + 8 + 4 + 4;
+
+	// The most records written in a single batch
+	private static final int MAX_BATCH = 4096;
+
+	// A snapshot of a game is logged after every this many moves, bounding how many moves
+	// have to be replayed to rebuild it
+	int snapshotInterval;
+
+	// The shards the games are spread across
+	Shard[] shards;
+
+	// The number of records written and the number of syncs they needed
+	AtomicLong records = new AtomicLong();
+	AtomicLong syncs = new AtomicLong();
+
+	/**
+	 * Opens, or creates, a journal whose log files are kept in a directory
+	 *
+	 * @param dir              the directory the shards' log files are kept in
+	 * @param numShards        the number of shards, which must be the same every time the
+	 *                         directory is opened
+	 * @param snapshotInterval the number of moves between logged snapshots of a game
+	 */
+	public GameJournal(File dir, int numShards, int snapshotInterval) throws IOException {
+		if(numShards < 1 || snapshotInterval < 1) {
+			throw new IllegalArgumentException("A journal needs at least one shard and a positive snapshot interval");
+		}
+		if(! dir.isDirectory() && ! dir.mkdirs()) {
+			throw new IOException("Could not create " + dir);
+		}
+		this.snapshotInterval = snapshotInterval;
+		shards = new Shard[numShards];
+		for(int i = 0; i < numShards; i++) {
+			shards[i] = new Shard(new File(dir, "shard-" + i + ".log"));
+		}
+	}
+
+	/**
+	 * Starts logging the moves made on a board, beginning with a snapshot of its game as it
+	 * is now.  From then on every move made by executeMove waits until it has been forced to disk
+	 *
+	 * @param gameId the id of the game, which must be unique in this journal
+	 * @param b      the board the game is played on
+	 * @return a handle which completes once the snapshot has been forced to disk
+	 */
+	public Commit attach(long gameId, Board b) {
+		b.journal = this;
+		b.gameId = gameId;
+		return logSnapshot(gameId, b.snapshot());
+	}
+
+	/**
+	 * Appends a move to the log of a game
+	 *
+	 * @param gameId the id of the game
+	 * @param index  the index of the move in the game, starting from 0
+	 * @param move   the encoded move
+	 * @param clock  the time in milliseconds the player who made the move has spent on their moves
+	 * @return a handle which completes once the move has been forced to disk
+	 */
+	public Commit logMove(long gameId, int index, int move, long clock) {
+		ByteBuffer payload = ByteBuffer.allocate(4 + 1 + 8);
+		payload.putInt(index).put((byte) move).putLong(clock);
+		return shardFor(gameId).append(record(MOVE, gameId, payload.array()));
+	}
+
+	/**
+	 * Appends a snapshot to the log of a game, after which the moves before it no longer
+	 * need to be replayed to rebuild the game
+	 *
+	 * @param gameId   the id of the game
+	 * @param snapshot a snapshot of the game
+	 * @return a handle which completes once the snapshot has been forced to disk
+	 */
+	public Commit logSnapshot(long gameId, GameSnapshot snapshot) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			snapshot.writeTo(new DataOutputStream(bytes));
+			return shardFor(gameId).append(record(SNAPSHOT, gameId, bytes.toByteArray()));
+		} catch(IOException e) {
+			// Writing to memory cannot fail
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Rebuilds every game in the journal which has not been won, each from its last logged
+	 * snapshot followed by the moves logged after it.  A record which was only partly
+	 * written before a crash ends the log of its shard.  The boards returned go on logging
+	 * their moves to this journal, and are not displayed
+	 *
+	 * @return map of each game id to the board its game is rebuilt on
+	 */
+	public Map<Long, Board> recover() throws IOException {
+		Map<Long, GameSnapshot> snapshots = new HashMap<Long, GameSnapshot>();
+		Map<Long, List<long[]>> tails = new HashMap<Long, List<long[]>>();
+		for(Shard shard : shards) {
+			readLog(shard.file, snapshots, tails);
+		}
+
+		Map<Long, Board> games = new TreeMap<Long, Board>();
+		for(Long gameId : snapshots.keySet()) {
+			GameSnapshot snapshot = snapshots.get(gameId);
+			Board b = Board.restore(snapshot, null);
+			for(long[] move : tails.get(gameId)) {
+				// Moves already in the snapshot were logged before it was taken
+				if(move[0] < snapshot.numMoves || b.getWinner() != null) {
+					continue;
+				}
+				int mover = b.getActivePlayer().getPlayerNum();
+				b.executeMove(Position.toNotation((int) move[1]));
+				b.clocks[mover - 1] = move[2];
+				b.nextTurn();
+			}
+			if(b.getWinner() == null) {
+				attach(gameId, b);
+				games.put(gameId, b);
+			}
+		}
+		return games;
+	}
+
+	/**
+	 * Reads the records of a log file up to the first one which is incomplete or corrupt,
+	 * collecting the latest snapshot of each game and the moves logged after it
+	 *
+	 * @param file      the log file
+	 * @param snapshots map the latest snapshot of each game is put in, null to only check the records
+	 * @param tails     map the moves logged after each game's latest snapshot are put in, each
+	 *                  as [index, move, clock]
+	 * @return the length of the log file up to the end of the last complete record
+	 */
+	private static long readLog(File file, Map<Long, GameSnapshot> snapshots,
+			Map<Long, List<long[]>> tails) throws IOException {
+		if(! file.exists()) {
+			return 0;
+		}
+		long valid = 0;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			byte[] header = new byte[OVERHEAD - 4];
+			while(readFully(in, header)) {
+				ByteBuffer head = ByteBuffer.wrap(header);
+				byte type = head.get();
+				long gameId = head.getLong();
+				int length = head.getInt();
+				if(length < 0 || length > (1 << 20)) {
+					break;
+				}
+				byte[] payload = new byte[length];
+				byte[] crc = new byte[4];
+				if(! readFully(in, payload) || ! readFully(in, crc)) {
+					break;
+				}
+				CRC32 check = new CRC32();
+				check.update(header);
+				check.update(payload);
+				if((int) check.getValue() != ByteBuffer.wrap(crc).getInt()) {
+					break;
+				}
+				valid += OVERHEAD + length;
+				if(snapshots == null) {
+					continue;
+				}
+
+				if(type == SNAPSHOT) {
+					snapshots.put(gameId, GameSnapshot.readFrom(
+							new DataInputStream(new ByteArrayInputStream(payload))));
+					tails.put(gameId, new ArrayList<long[]>());
+				} else if(type == MOVE && tails.containsKey(gameId)) {
+					ByteBuffer move = ByteBuffer.wrap(payload);
+					tails.get(gameId).add(new long[] {move.getInt(), move.get() & 0xff, move.getLong()});
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return valid;
+	}
+
+	/**
+	 * Getter for the number of records written so far
+	 *
+	 * @return the number of records forced to disk
+	 */
+	public long getRecordCount() {
+		return records.get();
+	}
+
+	/**
+	 * Getter for the number of syncs made so far, each of which covers a batch of records
+	 *
+	 * @return the number of times a log file has been forced to disk
+	 */
+	public long getSyncCount() {
+		return syncs.get();
+	}
+
+	/**
+	 * Writes every record still waiting and closes the log files
+	 */
+	public void close() throws IOException, InterruptedException {
+		for(Shard shard : shards) {
+			shard.close();
+		}
+	}
+
+	/**
+	 * Returns the shard the records of a game are written to
+	 */
+	private Shard shardFor(long gameId) {
+		return shards[(int) ((gameId % shards.length + shards.length) % shards.length)];
+	}
+
+	/**
+	 * Lays out a record, ending with the checksum of everything before it
+	 */
+	private static ByteBuffer record(byte type, long gameId, byte[] payload) {
+		ByteBuffer buf = ByteBuffer.allocate(OVERHEAD + payload.length);
+		buf.put(type).putLong(gameId).putInt(payload.length).put(payload);
+		CRC32 check = new CRC32();
+		check.update(buf.array(), 0, buf.position());
+		buf.putInt((int) check.getValue());
+		buf.flip();
+		return buf;
+	}
+
+	/**
+	 * Reads exactly enough bytes to fill an array
+	 *
+	 * @return true if the array was filled and false if the input ended first
+	 */
+	private static boolean readFully(DataInputStream in, byte[] bytes) throws IOException {
+		try {
+			in.readFully(bytes);
+			return true;
+		} catch(EOFException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Handle for a record waiting to be forced to disk
+	 */
+	public static class Commit {
+		// The record to write
+		ByteBuffer bytes;
+
+		// Counted down once the record has been forced to disk or failed to be
+		CountDownLatch done = new CountDownLatch(1);
+
+		// The reason the record could not be written, if it could not be
+		IOException error;
+
+		Commit(ByteBuffer bytes) {
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Waits until the record has been forced to disk
+		 *
+		 * @throws IOException if the record could not be written
+		 */
+		public void await() throws IOException, InterruptedException {
+			done.await();
+			if(error != null) {
+				throw error;
+			}
+		}
+
+		/**
+		 * Checks whether the record has been forced to disk yet
+		 *
+		 * @return true once the record is on disk
+		 */
+		public boolean isDurable() {
+			return done.getCount() == 0 && error == null;
+		}
+	}
+
+	/**
+	 * A single log file along with the thread which writes to it
+	 */
+	class Shard implements Runnable {
+		// The log file
+		File file;
+
+		// The open log file, only written to by the writer thread
+		FileChannel channel;
+
+		// The records waiting to be written
+		BlockingQueue<Commit> queue = new LinkedBlockingQueue<Commit>();
+
+		// The thread writing the records
+		Thread writer;
+
+		// Whether the shard is still accepting records
+		volatile boolean open = true;
+
+		// Why the log could not be cut back after a failed write, after which nothing more
+		// is written to it
+		IOException broken;
+
+		Shard(File file) throws IOException {
+			this.file = file;
+
+			// Cut off any record left incomplete by a crash, so that new records follow
+			// straight on from the last complete one
+			long valid = readLog(file, null, null);
+			RandomAccessFile log = new RandomAccessFile(file, "rw");
+			log.setLength(valid);
+			log.seek(valid);
+			channel = log.getChannel();
+			writer = new Thread(this, "journal-" + file.getName());
+			writer.setDaemon(true);
+			writer.start();
+		}
+
+		/**
+		 * Queues a record to be written by the writer thread
+		 */
+		synchronized Commit append(ByteBuffer bytes) {
+			if(! open) {
+				throw new IllegalStateException("The journal has been closed");
+			}
+			Commit commit = new Commit(bytes);
+			queue.add(commit);
+			return commit;
+		}
+
+		/**
+		 * Writes batches of records, forcing each batch to disk with a single sync
+		 */
+		public void run() {
+			List<Commit> batch = new ArrayList<Commit>();
+			while(open || ! queue.isEmpty()) {
+				try {
+					Commit first = queue.poll(50, TimeUnit.MILLISECONDS);
+					if(first == null) {
+						continue;
+					}
+					batch.add(first);
+					queue.drainTo(batch, MAX_BATCH - 1);
+				} catch(InterruptedException e) {
+					continue;
+				}
+
+				IOException error = broken;
+				// Where the batch starts, so that a batch which fails part way through can be
+				// cut off rather than leave part of a record for later batches to follow
+				long start = -1;
+				try {
+					if(error != null) {
+						throw new IOException("The log could not be cut back after a failed write", error);
+					}
+					start = channel.position();
+					ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+					for(int i = 0; i < buffers.length; i++) {
+						buffers[i] = batch.get(i).bytes;
+					}
+					long remaining = 0;
+					for(ByteBuffer buf : buffers) {
+						remaining += buf.remaining();
+					}
+					while(remaining > 0) {
+						remaining -= channel.write(buffers);
+					}
+					channel.force(false);
+					syncs.incrementAndGet();
+					records.addAndGet(batch.size());
+				} catch(IOException e) {
+					error = e;
+					if(start >= 0) {
+						cutBack(start);
+					}
+				}
+				for(Commit commit : batch) {
+					commit.error = error;
+					commit.done.countDown();
+				}
+				batch.clear();
+			}
+		}
+
+		/**
+		 * Cuts the log back to where a failed batch started, so that no part of it is left for
+		 * recovery to stop at.  If that fails too, the shard fails every batch after it
+		 *
+		 * @param start the length of the log before the batch
+		 */
+		private void cutBack(long start) {
+			try {
+				channel.truncate(start);
+				channel.position(start);
+				channel.force(true);
+			} catch(IOException e) {
+				broken = e;
+			}
+		}
+
+		/**
+		 * Stops accepting records, waits for those queued to be written and closes the file
+		 */
+		void close() throws IOException, InterruptedException {
+			synchronized(this) {
+				open = false;
+			}
+			writer.join();
+			channel.close();
+		}
+	}
+}
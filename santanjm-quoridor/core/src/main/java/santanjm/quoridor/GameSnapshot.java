@@ -0,0 +1,179 @@
+package santanjm.quoridor;
+
+import java.io.*;
+import java.util.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * An unchanging copy of a game in progress: the position, every move made so far and how
+ * long each player has spent on their moves.  Snapshots are taken with Board.snapshot and
+ * a game is carried on from one with Board.restore.
+ * @author santanjm
+ */
+public class GameSnapshot implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// The position of the game
+	final Position position;
+
+	// The encoded moves made so far, only the first numMoves are part of this snapshot as
+	// the board may go on to write further moves into the same array
+	final int[] moves;
+	final int numMoves;
+
+	// The time in milliseconds each player has spent on their moves, by player number - 1
+	final long[] clocks;
+
+	// The time in milliseconds at which the snapshot was taken
+	final long takenAt;
+
+	/**
+	 * Constructs a snapshot from each of its parts, which are not copied
+	 *
+	 * @param position the position of the game
+	 * @param moves    array starting with the encoded moves made so far
+	 * @param numMoves the number of moves made so far
+	 * @param clocks   the time each player has spent on their moves
+	 * @param takenAt  the time at which the snapshot was taken
+	 */
+	GameSnapshot(Position position, int[] moves, int numMoves, long[] clocks, long takenAt) {
+		this.position = position;
+		this.moves = moves;
+		this.numMoves = numMoves;
+		this.clocks = clocks;
+		this.takenAt = takenAt;
+	}
+
+	/**
+	 * Returns this snapshot as it would be if taken at a later time in the same turn, with
+	 * the time since this snapshot was taken charged to the active player's clock
+	 *
+	 * @param now the later time, in milliseconds
+	 * @return a snapshot with the active player's clock brought up to date
+	 */
+	GameSnapshot at(long now) {
+		long[] current = clocks.clone();
+		current[position.getActivePlayer() - 1] += now - takenAt;
+		return new GameSnapshot(position, moves, numMoves, current, now);
+	}
+
+	/**
+	 * Getter for the position of the game
+	 *
+	 * @return the position when the snapshot was taken
+	 */
+	public Position getPosition() {
+		return position;
+	}
+
+	/**
+	 * Returns the moves made in the game so far
+	 *
+	 * @return list of the move strings in the order they were made
+	 */
+	public List<String> getMoves() {
+		List<String> list = new ArrayList<String>();
+		for(int i = 0; i < numMoves; i++) {
+			list.add(Position.toNotation(moves[i]));
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the encoded moves made in the game so far
+	 *
+	 * @return array of the encoded moves in the order they were made
+	 */
+	public int[] getMoveCodes() {
+		return Arrays.copyOf(moves, numMoves);
+	}
+
+	/**
+	 * Returns how long a player had spent on their moves when the snapshot was taken
+	 *
+	 * @param playerNum the number of a player in the game
+	 * @return the player's time in milliseconds
+	 */
+	public long getClock(int playerNum) {
+		return clocks[playerNum - 1];
+	}
+
+	/**
+	 * Getter for the time the snapshot was taken
+	 *
+	 * @return the time in milliseconds
+	 */
+	public long getTakenAt() {
+		return takenAt;
+	}
+
+	/**
+	 * Serializes only the moves which are part of this snapshot
+	 *
+	 * @return a snapshot to be serialized in place of this one
+	 */
+	private Object writeReplace() {
+		if(moves.length == numMoves) {
+			return this;
+		}
+		return new GameSnapshot(position, getMoveCodes(), numMoves, clocks, takenAt);
+	}
+
+	/**
+	 * Writes this snapshot in a compact binary form, far smaller than its serialized form
+	 *
+	 * @param out the output to write to
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeByte(position.numPlayers);
+		out.writeInt(position.turn);
+		for(int i = 0; i < position.numPlayers; i++) {
+			out.writeByte(position.pawns[i]);
+			out.writeByte(position.wallsLeft[i]);
+			out.writeLong(clocks[i]);
+		}
+		out.writeLong(position.vWalls);
+		out.writeLong(position.hWalls);
+		out.writeLong(takenAt);
+
+		// Every encoded move fits in a single byte
+		out.writeInt(numMoves);
+		for(int i = 0; i < numMoves; i++) {
+			out.writeByte(moves[i]);
+		}
+	}
+
+	/**
+	 * Reads a snapshot written by writeTo
+	 *
+	 * @param in the input to read from
+	 * @return the snapshot read
+	 */
+	public static GameSnapshot readFrom(DataInput in) throws IOException {
+		int numPlayers = in.readUnsignedByte();
+		int turn = in.readInt();
+		int[] pawns = new int[numPlayers];
+		int[] wallsLeft = new int[numPlayers];
+		long[] clocks = new long[numPlayers];
+		for(int i = 0; i < numPlayers; i++) {
+			pawns[i] = in.readUnsignedByte();
+			wallsLeft[i] = in.readUnsignedByte();
+			clocks[i] = in.readLong();
+		}
+		long vWalls = in.readLong();
+		long hWalls = in.readLong();
+		long takenAt = in.readLong();
+		int numMoves = in.readInt();
+		int[] moves = new int[numMoves];
+		for(int i = 0; i < numMoves; i++) {
+			moves[i] = in.readUnsignedByte();
+		}
+		Position position = new Position(numPlayers, turn, pawns, wallsLeft, vWalls, hWalls);
+		return new GameSnapshot(position, moves, numMoves, clocks, takenAt);
+	}
+
+	public String toString() {
+		return "Snapshot after " + numMoves + " moves: " + position;
+	}
+}
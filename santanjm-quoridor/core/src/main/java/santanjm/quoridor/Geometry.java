@@ -0,0 +1,367 @@
+package santanjm.quoridor;
+
+import java.util.Arrays;
+
+import santanjm.quoridor.*;
+
+/**
+ * The shape of a square board of any odd size: where the players start, which spaces are
+ * their goals, how moves are written and which walls block which steps.  The tables are
+ * built once for each size, so that the rules of boards other than the standard 9x9 one,
+ * which has WallTable and Reachability to itself, are lookups on arrays rather than walks
+ * over maps of spaces.
+ *
+ * Spaces are numbered size*row + col and the wall slots (size - 1)*row + col, each wall
+ * designated by the space northwest of its center as on the standard board.  Walls are
+ * held as bit sets of slots split over as many longs as needed, slot k being bit k % 64
+ * of long k / 64.  Moves are encoded as on the standard board: pawn moves by the space
+ * moved to and wall placements by spaces + 2*slot + dir, dir being 0 for vertical and
+ * 1 for horizontal, so the encoding of the 9x9 geometry is the encoding of Position.
+ * @author santanjm
+ */
+public final class Geometry {
+	// The smallest and largest number of spaces along a side, the columns being lettered
+	public static final int MIN_SIZE = 3;
+	public static final int MAX_SIZE = 25;
+
+	// The geometries built so far, by size
+	private static final Geometry[] BUILT = new Geometry[MAX_SIZE + 1];
+
+	// The standard 9x9 board
+	public static final Geometry STANDARD = of(9);
+
+	// The number of spaces along a side
+	public final int size;
+
+	// The number of spaces
+	public final int spaces;
+
+	// The number of wall slots
+	public final int slots;
+
+	// The number of longs in a bit set of wall slots
+	public final int words;
+
+	// The number of encoded moves, pawn moves first and then wall placements
+	public final int numMoves;
+
+	// The space a step from each space leads to, by 4*space + dir where dir is 0 above,
+	// 1 right, 2 below and 3 left, -1 where the step goes off the board
+	final int[] steps;
+
+	// The two slots whose walls block each step, by 2*(4*space + dir) + k, -1 where there
+	// is no such slot.  Steps left and right are blocked by vertical walls and steps up and
+	// down by horizontal walls
+	final int[] blockers;
+
+	// The two slots along the length of each placement whose walls of the same direction it
+	// would overlap, by 2*placement + k, -1 where there is no such slot
+	final int[] overlaps;
+
+	/**
+	 * Builds the tables of a board size
+	 *
+	 * @param size the number of spaces along a side
+	 */
+	private Geometry(int size) {
+		this.size = size;
+		spaces = size*size;
+		slots = (size - 1)*(size - 1);
+		words = (slots + 63) >>> 6;
+		numMoves = spaces + 2*slots;
+
+		steps = new int[4*spaces];
+		for(int space = 0; space < spaces; space++) {
+			int col = space % size;
+			int row = space / size;
+			steps[4*space] = row > 0 ? space - size : -1;
+			steps[4*space + 1] = col < size - 1 ? space + 1 : -1;
+			steps[4*space + 2] = row < size - 1 ? space + size : -1;
+			steps[4*space + 3] = col > 0 ? space - 1 : -1;
+		}
+
+		blockers = new int[8*spaces];
+		for(int space = 0; space < spaces; space++) {
+			int col = space % size;
+			int row = space / size;
+			// A step right crosses the vertical walls designated by the space and the one
+			// above it, a step down the horizontal walls designated by the space and the one
+			// left of it.  Steps left and up are those steps from the neighbor
+			int right = 2*(4*space + 1);
+			blockers[right] = slot(col, row);
+			blockers[right + 1] = slot(col, row - 1);
+			int down = 2*(4*space + 2);
+			blockers[down] = slot(col, row);
+			blockers[down + 1] = slot(col - 1, row);
+			int up = 2*(4*space);
+			blockers[up] = slot(col, row - 1);
+			blockers[up + 1] = slot(col - 1, row - 1);
+			int left = 2*(4*space + 3);
+			blockers[left] = slot(col - 1, row);
+			blockers[left + 1] = slot(col - 1, row - 1);
+		}
+
+		overlaps = new int[4*slots];
+		for(int slot = 0; slot < slots; slot++) {
+			int col = slot % (size - 1);
+			int row = slot / (size - 1);
+			overlaps[4*slot] = slot(col, row - 1);
+			overlaps[4*slot + 1] = slot(col, row + 1);
+			overlaps[4*slot + 2] = slot(col - 1, row);
+			overlaps[4*slot + 3] = slot(col + 1, row);
+		}
+	}
+
+	/**
+	 * Returns the geometry of a board size, building its tables the first time it is asked for
+	 *
+	 * @param size the number of spaces along a side, odd so that the pawns start in the middle
+	 * @return the geometry of the board size
+	 */
+	public static synchronized Geometry of(int size) {
+		if(size < MIN_SIZE || size > MAX_SIZE || size % 2 == 0) {
+			throw new IllegalArgumentException("Board size must be odd and between " + MIN_SIZE + " and " + MAX_SIZE);
+		}
+		if(BUILT[size] == null) {
+			BUILT[size] = new Geometry(size);
+		}
+		return BUILT[size];
+	}
+
+	/**
+	 * Returns the number of walls each player starts with when none is given: one more than
+	 * the size of the board for 2 players, 10 on the standard board, and half that for 4
+	 *
+	 * @param numPlayers the number of players
+	 * @return the number of walls each player starts with
+	 */
+	public int defaultWalls(int numPlayers) {
+		return numPlayers == 2 ? size + 1 : (size + 1)/2;
+	}
+
+	/**
+	 * Returns the space a player starts on, the middle of the edge opposite their goal
+	 *
+	 * @param player the index of a player, their player number - 1
+	 * @return the index of the space
+	 */
+	public int startSpace(int player) {
+		int middle = size/2;
+		switch(player) {
+			case 0:  return size*(size - 1) + middle;
+			case 1:  return middle;
+			case 2:  return size*middle;
+			default: return size*middle + size - 1;
+		}
+	}
+
+	/**
+	 * Checks whether a space is one of a player's goal spaces: the first row for player 1,
+	 * the last row for player 2, the last column for player 3 and the first for player 4
+	 *
+	 * @param player the index of a player, their player number - 1
+	 * @param space  the index of a space
+	 * @return true if reaching the space wins the game for the player
+	 */
+	public boolean isGoal(int player, int space) {
+		switch(player) {
+			case 0:  return space < size;
+			case 1:  return space >= size*(size - 1);
+			case 2:  return space % size == size - 1;
+			default: return space % size == 0;
+		}
+	}
+
+	/**
+	 * Finds the slot of the wall designated by a space
+	 *
+	 * @param col the column of the designator
+	 * @param row the row of the designator
+	 * @return the slot, or -1 if the space cannot designate a wall
+	 */
+	public int slot(int col, int row) {
+		if(col < 0 || row < 0 || col >= size - 1 || row >= size - 1) {
+			return -1;
+		}
+		return (size - 1)*row + col;
+	}
+
+	/**
+	 * Reads the space a move string starts with, a letter for its column followed by a
+	 * number for its row, such as the "c3" of "c3h"
+	 *
+	 * @param move a move string
+	 * @return the index of the space
+	 * @throws IllegalArgumentException if the move does not start with a space on the board
+	 *         or has more than a direction after it
+	 */
+	public int parseSpace(String move) {
+		if(move.length() < 2) {
+			throw new IllegalArgumentException("The move submitted is malformed");
+		}
+		int end = isWall(move) ? move.length() - 1 : move.length();
+		if(end < 2) {
+			throw new IllegalArgumentException("The move submitted is malformed");
+		}
+		int col = ((int) move.charAt(0)) - 97;
+		int row = 0;
+		for(int i = 1; i < end; i++) {
+			int digit = ((int) move.charAt(i)) - 48;
+			if(digit < 0 || digit > 9 || (digit == 0 && row == 0) || row >= size) {
+				throw new IllegalArgumentException("The move submitted is malformed");
+			}
+			row = 10*row + digit;
+		}
+		row--;
+		if((col < 0 || col >= size) || (row < 0 || row >= size)) {
+			throw new IllegalArgumentException("The move submitted is malformed");
+		}
+		return size*row + col;
+	}
+
+	/**
+	 * Checks whether a move string is a wall placement, that is whether it ends in a
+	 * direction rather than the number of a row
+	 *
+	 * @param move a move string
+	 * @return true if the last character is not a digit
+	 */
+	public static boolean isWall(String move) {
+		char last = move.charAt(move.length() - 1);
+		return move.length() > 2 && (last < '0' || last > '9');
+	}
+
+	/**
+	 * Reads the direction a wall placement ends in
+	 *
+	 * @param move a wall placement string
+	 * @return 0 for vertical and 1 for horizontal
+	 */
+	public static int parseDirection(String move) {
+		switch(move.charAt(move.length() - 1)) {
+			case 'v': return 0;
+			case 'h': return 1;
+			default: throw new IllegalArgumentException("Direction of wall must be 'v' or 'h'");
+		}
+	}
+
+	/**
+	 * Converts a move string into an encoded move
+	 *
+	 * @param move a move string, such as "e2", "c3h" or on larger boards "k10v"
+	 * @return the encoded move
+	 */
+	public int parseMove(String move) {
+		move = move.toLowerCase();
+		int space = parseSpace(move);
+		if(! isWall(move)) {
+			return space;
+		}
+		int dir = parseDirection(move);
+		int slot = slot(space % size, space / size);
+		if(slot < 0) {
+			throw new IllegalArgumentException("Walls cannot be designated by the last row or column");
+		}
+		return spaces + 2*slot + dir;
+	}
+
+	/**
+	 * Converts an encoded move into a move string
+	 *
+	 * @param move an encoded move
+	 * @return the move string, such as "e2" or "c3h"
+	 */
+	public String toNotation(int move) {
+		if(move < spaces) {
+			return "" + (char) (move % size + 97) + (move / size + 1);
+		}
+		int wall = move - spaces;
+		int slot = wall >> 1;
+		return "" + (char) (slot % (size - 1) + 97) + (slot / (size - 1) + 1) + ((wall & 1) == 0 ? 'v' : 'h');
+	}
+
+	/**
+	 * Checks whether a slot is in a bit set of wall slots
+	 *
+	 * @param bits a bit set of wall slots
+	 * @param slot a slot, or -1 for none
+	 * @return true if the slot is in the set, false if not or if given -1
+	 */
+	static boolean contains(long[] bits, int slot) {
+		return slot >= 0 && (bits[slot >>> 6] & (1L << slot)) != 0L;
+	}
+
+	/**
+	 * Checks whether a step from a space is blocked by a wall, a step off the board always
+	 * counts as blocked
+	 *
+	 * @param v     bit set of the vertical wall slots
+	 * @param h     bit set of the horizontal wall slots
+	 * @param space the index of a space
+	 * @param dir   the direction of the step, 0 above, 1 right, 2 below and 3 left
+	 * @return true if the step cannot be made
+	 */
+	public boolean isBlocked(long[] v, long[] h, int space, int dir) {
+		if(steps[4*space + dir] < 0) {
+			return true;
+		}
+		long[] walls = (dir & 1) == 0 ? h : v;
+		int at = 2*(4*space + dir);
+		return contains(walls, blockers[at]) || contains(walls, blockers[at + 1]);
+	}
+
+	/**
+	 * Checks whether a wall placement would clash with any of the walls on the board, by
+	 * sharing a designator with one, crossing one or overlapping one
+	 *
+	 * @param v         bit set of the vertical wall slots
+	 * @param h         bit set of the horizontal wall slots
+	 * @param placement the placement, 2*slot + dir
+	 * @return true if the wall cannot be placed alongside the walls on the board
+	 */
+	public boolean conflicts(long[] v, long[] h, int placement) {
+		int slot = placement >> 1;
+		if(contains(v, slot) || contains(h, slot)) {
+			return true;
+		}
+		long[] same = (placement & 1) == 0 ? v : h;
+		int at = 4*slot + 2*(placement & 1);
+		return contains(same, overlaps[at]) || contains(same, overlaps[at + 1]);
+	}
+
+	/**
+	 * Finds the fewest steps from a space to one of a player's goal spaces through the
+	 * walls, ignoring any pawns in the way, by a breadth first search
+	 *
+	 * @param v      bit set of the vertical wall slots
+	 * @param h      bit set of the horizontal wall slots
+	 * @param space  the index of the space to start from
+	 * @param player the index of a player, their player number - 1
+	 * @param queue  room for the spaces still to visit, at least as long as the spaces
+	 * @param depth  room for the steps to each space, at least as long as the spaces
+	 * @return the number of steps, or -1 if none of the player's goal spaces can be reached
+	 */
+	public int distance(long[] v, long[] h, int space, int player, int[] queue, int[] depth) {
+		Arrays.fill(depth, 0, spaces, -1);
+		depth[space] = 0;
+		queue[0] = space;
+		int head = 0;
+		int tail = 1;
+		while(head < tail) {
+			int current = queue[head++];
+			if(isGoal(player, current)) {
+				return depth[current];
+			}
+			for(int dir = 0; dir < 4; dir++) {
+				if(! isBlocked(v, h, current, dir)) {
+					int next = steps[4*current + dir];
+					if(depth[next] < 0) {
+						depth[next] = depth[current] + 1;
+						queue[tail++] = next;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+}
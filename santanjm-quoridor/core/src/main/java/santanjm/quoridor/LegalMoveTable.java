@@ -0,0 +1,87 @@
+package santanjm.quoridor;
+
+import santanjm.quoridor.*;
+
+/**
+ * Every legal move of a position, found in one pass over the moves so that whether any
+ * single move is legal is then just a lookup.  Used by the game panel, which builds the
+ * table once per turn off the Event Dispatch Thread and looks moves up as the mouse moves.
+ * @author santanjm
+ */
+public class LegalMoveTable {
+	// The position whose moves are in the table
+	final Position position;
+
+	// Flags for whether each encoded move is legal
+	final boolean[] legal = new boolean[Position.NUM_MOVES];
+
+	// The number of legal moves
+	final int count;
+
+	/**
+	 * Finds every legal move of a position, a position which is over has none
+	 *
+	 * @param position a position
+	 */
+	public LegalMoveTable(Position position) {
+		this.position = position;
+		if(position.isOver()) {
+			count = 0;
+			return;
+		}
+		int[] moves = new int[Position.NUM_MOVES];
+		count = position.legalMoves(moves);
+		for(int i = 0; i < count; i++) {
+			legal[moves[i]] = true;
+		}
+	}
+
+	/**
+	 * Checks whether a move is legal
+	 *
+	 * @param move an encoded move, or -1 for no move
+	 * @return true if the move is legal and false if not
+	 */
+	public boolean isLegal(int move) {
+		return move >= 0 && move < Position.NUM_MOVES && legal[move];
+	}
+
+	/**
+	 * Checks whether the active player may move their pawn to a space
+	 *
+	 * @param space the index of a space
+	 * @return true if the pawn move is legal and false if not
+	 */
+	public boolean isLegalPawnMove(int space) {
+		return space >= 0 && space < Position.WALL_MOVES && legal[space];
+	}
+
+	/**
+	 * Checks whether the active player may place a wall
+	 *
+	 * @param slot the slot of the wall's designator, 8*row + col
+	 * @param dir  the direction of the wall, 0 for vertical and 1 for horizontal
+	 * @return true if the wall placement is legal and false if not
+	 */
+	public boolean isLegalWall(int slot, int dir) {
+		return legal[Position.WALL_MOVES + 2*slot + dir];
+	}
+
+	/**
+	 * Getter for the position whose moves are in the table
+	 *
+	 * @return the position
+	 */
+	public Position getPosition() {
+		return position;
+	}
+
+	/**
+	 * Getter for the number of legal moves
+	 *
+	 * @return the number of legal moves in the position
+	 */
+	public int getCount() {
+		return count;
+	}
+}
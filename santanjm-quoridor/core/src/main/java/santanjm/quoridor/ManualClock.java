@@ -0,0 +1,49 @@
+package santanjm.quoridor;
+
+import java.time.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * A clock which only moves when it is told to, so that whatever reads it, such as the
+ * Matchmaker, behaves the same way every time it is tested or benchmarked.
+ * @author santanjm
+ */
+public class ManualClock extends Clock {
+	// The time the clock shows, in milliseconds since the epoch
+	volatile long millis;
+
+	/**
+	 * Constructs a clock showing a given time
+	 *
+	 * @param millis the time, in milliseconds since the epoch
+	 */
+	public ManualClock(long millis) {
+		this.millis = millis;
+	}
+
+	/**
+	 * Moves the clock on
+	 *
+	 * @param by the number of milliseconds to move it by
+	 */
+	public void advance(long by) {
+		millis += by;
+	}
+
+	public long millis() {
+		return millis;
+	}
+
+	public Instant instant() {
+		return Instant.ofEpochMilli(millis);
+	}
+
+	public ZoneId getZone() {
+		return ZoneOffset.UTC;
+	}
+
+	public Clock withZone(ZoneId zone) {
+		throw new UnsupportedOperationException("A manual clock is always in UTC");
+	}
+}
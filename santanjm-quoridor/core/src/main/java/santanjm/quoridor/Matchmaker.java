@@ -0,0 +1,510 @@
+package santanjm.quoridor;
+
+import java.time.Clock;
+import java.util.*;
+import java.util.concurrent.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Pairs players waiting for 2 or 4 player games with others of a similar rating.  Players
+ * may join and leave the queue from any thread, but matches are only formed by ticks,
+ * which are run one at a time every so often rather than on every arrival.
+ *
+ * Waiting players are kept in buckets of ratings, oldest first within each bucket.  A
+ * player will play anyone whose bucket is within their window, which starts narrow and
+ * widens by a step every so often while they wait, and a match is formed when a player
+ * finds enough others within their window who each have the player within theirs.  The
+ * players of a 4 player game are all within the window of the one it was formed around,
+ * though not necessarily within each other's.  Since the windows only ever widen, a match
+ * can only become possible when one of its players arrives or has their window widened,
+ * so a tick only looks for matches with those players rather than everyone waiting.  It
+ * looks around the player themselves first and, if that fails, around each of the players
+ * within their window who have them within theirs, since a 4 player game may only be
+ * possible around one of those.  The players whose windows widen are found without
+ * looking at anyone else, as the heads of queues kept for each width in the order the
+ * players joined, so a tick costs as much as the arrivals and widenings since the last one
+ * and not the size of the queue.
+ * @author santanjm
+ */
+public class Matchmaker {
+	// The lowest and highest ratings with buckets of their own, ratings outside them share
+	// the bucket at that end
+	public static final double MIN_RATING = 0.0;
+	public static final double MAX_RATING = 4000.0;
+
+	// The clock the waits are timed by
+	final Clock clock;
+
+	// The width of a bucket in rating points
+	final double bucketWidth;
+
+	// The window, in buckets either side, of a player who has just joined, how much it
+	// widens by at each step and the widest it gets
+	final int initialWindow;
+	final int windowStep;
+	final int maxWindow;
+
+	// The time in milliseconds between steps in a player's window
+	final long widenMillis;
+
+	// The number of steps until a window is as wide as it gets
+	final int maxLevel;
+
+	// The waiting players for each number of seats
+	final Pool[] pools = new Pool[5];
+
+	// Every waiting player, by player id.  Only ticks touch it
+	final Map<Long, Waiting> waiting = new HashMap<Long, Waiting>();
+
+	// The players who have asked to join or leave since the last tick, in the order they
+	// asked, those leaving with no seats
+	final Queue<Waiting> requests = new ConcurrentLinkedQueue<Waiting>();
+
+	// The number of players waiting as of the last tick
+	volatile int waitingCount;
+
+	// The number of players who have asked to join so far, ordering those who join at once
+	long joined;
+
+	/**
+	 * Constructs a matchmaker with buckets 25 points wide, windows which start 50 points
+	 * either side and widen by 25 points every 5 seconds up to 400 points either side
+	 *
+	 * @param clock the clock the waits are timed by
+	 */
+	public Matchmaker(Clock clock) {
+		this(clock, 25.0, 50.0, 25.0, 5000, 400.0);
+	}
+
+	/**
+	 * Constructs a matchmaker.  The windows are rounded up to whole buckets
+	 *
+	 * @param clock         the clock the waits are timed by
+	 * @param bucketWidth   the width of a bucket in rating points
+	 * @param initialWindow the rating points either side a player who has just joined will play
+	 * @param windowStep    the rating points a window widens by at each step
+	 * @param widenMillis   the time in milliseconds between steps
+	 * @param maxWindow     the most rating points either side a window widens to
+	 */
+	public Matchmaker(Clock clock, double bucketWidth, double initialWindow, double windowStep,
+			long widenMillis, double maxWindow) {
+		if(bucketWidth <= 0.0 || initialWindow < 0.0 || windowStep <= 0.0 || widenMillis < 1
+				|| maxWindow < initialWindow) {
+			throw new IllegalArgumentException("Windows must be positive, widen over a positive time and not start wider than they get");
+		}
+		this.clock = clock;
+		this.bucketWidth = bucketWidth;
+		this.initialWindow = (int) Math.ceil(initialWindow/bucketWidth);
+		this.windowStep = (int) Math.ceil(windowStep/bucketWidth);
+		this.maxWindow = (int) Math.ceil(maxWindow/bucketWidth);
+		this.widenMillis = widenMillis;
+		maxLevel = (this.maxWindow - this.initialWindow + this.windowStep - 1)/this.windowStep;
+
+		int buckets = (int) Math.ceil((MAX_RATING - MIN_RATING)/bucketWidth);
+		pools[2] = new Pool(2, buckets);
+		pools[4] = new Pool(4, buckets);
+	}
+
+	/**
+	 * Asks for a player to be matched, from the next tick on.  A player already waiting
+	 * keeps their place and their first request
+	 *
+	 * @param playerId the id of the player
+	 * @param rating   the player's rating
+	 * @param seats    the number of players in the game they want, 2 or 4
+	 */
+	public void join(long playerId, double rating, int seats) {
+		if(seats != 2 && seats != 4) {
+			throw new IllegalArgumentException("Game can only be played with 2 or 4 players");
+		}
+		requests.add(new Waiting(playerId, bucketOf(rating), seats, clock.millis()));
+	}
+
+	/**
+	 * Asks for a player to stop waiting, from the next tick on.  A player matched before
+	 * then is still matched
+	 *
+	 * @param playerId the id of the player
+	 */
+	public void leave(long playerId) {
+		requests.add(new Waiting(playerId, 0, 0, clock.millis()));
+	}
+
+	/**
+	 * Takes in the players who have joined and left since the last tick, widens the
+	 * windows of those who have waited long enough and forms every match it can for them
+	 * and those who have just joined.  Ticks must not be run at once
+	 *
+	 * @return the matches formed, those built around the longest waiting players first
+	 */
+	public List<Match> tick() {
+		long now = clock.millis();
+
+		// The players who may now be matched with someone they could not be before
+		List<Waiting> candidates = new ArrayList<Waiting>();
+		for(Pool pool : pools) {
+			if(pool != null) {
+				pool.widen(now, candidates);
+			}
+		}
+		Waiting arrival;
+		while((arrival = requests.poll()) != null) {
+			if(arrival.seats == 0) {
+				Waiting gone = waiting.remove(arrival.playerId);
+				if(gone != null) {
+					gone.matched = true;
+				}
+				continue;
+			}
+			if(waiting.containsKey(arrival.playerId)) {
+				continue;
+			}
+			arrival.order = joined++;
+			arrival.level = levelAt(now - arrival.joinedAt);
+			waiting.put(arrival.playerId, arrival);
+			pools[arrival.seats].add(arrival);
+			candidates.add(arrival);
+		}
+
+		Collections.sort(candidates, BY_ORDER);
+		List<Match> matches = new ArrayList<Match>();
+		for(Waiting candidate : candidates) {
+			if(! candidate.matched) {
+				pools[candidate.seats].match(candidate, matches);
+			}
+		}
+		waitingCount = waiting.size();
+		return matches;
+	}
+
+	/**
+	 * Runs ticks every so often on an executor, handing the matches they form to a listener
+	 *
+	 * @param executor     the executor to run the ticks on
+	 * @param periodMillis the time in milliseconds between ticks
+	 * @param listener     the listener the matches are handed to, on the executor's thread
+	 * @return the scheduled ticks, which may be cancelled to stop them
+	 */
+	public ScheduledFuture<?> start(ScheduledExecutorService executor, long periodMillis, final Listener listener) {
+		return executor.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				for(Match match : tick()) {
+					listener.matched(match);
+				}
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Getter for the number of players waiting as of the last tick
+	 *
+	 * @return the number of players waiting to be matched
+	 */
+	public int getWaitingCount() {
+		return waitingCount;
+	}
+
+	/**
+	 * Returns the bucket a rating falls in
+	 */
+	int bucketOf(double rating) {
+		int buckets = pools[2].buckets.length;
+		int bucket = (int) Math.floor((rating - MIN_RATING)/bucketWidth);
+		return Math.max(0, Math.min(buckets - 1, bucket));
+	}
+
+	/**
+	 * Returns the number of steps a window has widened by after a wait
+	 *
+	 * @param wait the time waited in milliseconds
+	 * @return the number of steps, at most maxLevel
+	 */
+	int levelAt(long wait) {
+		return (int) Math.min(maxLevel, Math.max(0L, wait)/widenMillis);
+	}
+
+	/**
+	 * Returns the window of a player, in buckets either side of their own
+	 *
+	 * @param level the number of steps their window has widened by
+	 * @return the window
+	 */
+	int windowAt(int level) {
+		return Math.min(maxWindow, initialWindow + level*windowStep);
+	}
+
+	// Orders waiting players by when they joined
+	static final Comparator<Waiting> BY_ORDER = new Comparator<Waiting>() {
+		public int compare(Waiting a, Waiting b) {
+			return Long.compare(a.order, b.order);
+		}
+	};
+
+	/**
+	 * Hands the matches formed by scheduled ticks on
+	 */
+	public interface Listener {
+		/**
+		 * Called with each match formed
+		 *
+		 * @param match the match
+		 */
+		void matched(Match match);
+	}
+
+	/**
+	 * A player waiting to be matched
+	 */
+	static class Waiting {
+		// The id of the player
+		final long playerId;
+
+		// The bucket of the player's rating
+		final int bucket;
+
+		// The number of players in the game they want, or 0 if they are asking to leave
+		final int seats;
+
+		// The time they asked to join, in milliseconds since the epoch
+		final long joinedAt;
+
+		// Their place in the order players joined in
+		long order;
+
+		// The number of steps their window has widened by
+		int level;
+
+		// Whether they have been matched or have left, after which they are dropped from
+		// the buckets and the queues of levels as they are come across
+		boolean matched;
+
+		Waiting(long playerId, int bucket, int seats, long joinedAt) {
+			this.playerId = playerId;
+			this.bucket = bucket;
+			this.seats = seats;
+			this.joinedAt = joinedAt;
+		}
+	}
+
+	/**
+	 * The players waiting for games of one number of seats
+	 */
+	class Pool {
+		// The number of players in each game
+		final int seats;
+
+		// The waiting players in each bucket, oldest first
+		final ArrayDeque<Waiting>[] buckets;
+
+		// The waiting players at each level below the widest, oldest first
+		final ArrayDeque<Waiting>[] levels;
+
+		// The players found for the match being formed
+		final Waiting[] found;
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Pool(int seats, int numBuckets) {
+			this.seats = seats;
+			buckets = new ArrayDeque[numBuckets];
+			for(int i = 0; i < numBuckets; i++) {
+				buckets[i] = new ArrayDeque<Waiting>();
+			}
+			levels = new ArrayDeque[maxLevel];
+			for(int i = 0; i < maxLevel; i++) {
+				levels[i] = new ArrayDeque<Waiting>();
+			}
+			found = new Waiting[seats];
+		}
+
+		/**
+		 * Adds a player who has just joined
+		 */
+		void add(Waiting w) {
+			buckets[w.bucket].addLast(w);
+			if(w.level < maxLevel) {
+				levels[w.level].addLast(w);
+			}
+		}
+
+		/**
+		 * Widens the windows of the players who have waited long enough for their next step,
+		 * adding them to the candidates.  The widest levels are done first, so that a player
+		 * moved up is not come across again
+		 *
+		 * @param now        the time of the tick
+		 * @param candidates the list to add the players to
+		 */
+		void widen(long now, List<Waiting> candidates) {
+			for(int level = maxLevel - 1; level >= 0; level--) {
+				ArrayDeque<Waiting> queue = levels[level];
+				while(! queue.isEmpty()) {
+					Waiting w = queue.peekFirst();
+					if(! w.matched && w.joinedAt + (level + 1)*widenMillis > now) {
+						break;
+					}
+					queue.pollFirst();
+					if(w.matched) {
+						continue;
+					}
+					w.level = levelAt(now - w.joinedAt);
+					if(w.level < maxLevel) {
+						levels[w.level].addLast(w);
+					}
+					candidates.add(w);
+				}
+			}
+		}
+
+		/**
+		 * Forms every match a player who has just arrived or had their window widened makes
+		 * possible, around the player if there are enough players within reach and otherwise
+		 * around each of those within reach in turn, the longest waiting first, until the
+		 * player is matched
+		 *
+		 * @param candidate a waiting player
+		 * @param matches   the list to add the matches to
+		 */
+		void match(Waiting candidate, List<Match> matches) {
+			int count = gather(candidate);
+			if(count == seats) {
+				matches.add(form());
+				return;
+			}
+
+			// Having found too few, everyone within reach of the candidate has been found
+			Waiting[] reachable = Arrays.copyOfRange(found, 1, count);
+			Arrays.sort(reachable, BY_ORDER);
+			for(Waiting centre : reachable) {
+				if(candidate.matched) {
+					break;
+				}
+				if(! centre.matched && gather(centre) == seats) {
+					matches.add(form());
+				}
+			}
+		}
+
+		/**
+		 * Looks for players to fill a game with a player, in the nearest buckets first and
+		 * the longest waiting first within a bucket
+		 *
+		 * @param centre a waiting player
+		 * @return the number of players found, including the player, at most the number of seats
+		 */
+		private int gather(Waiting centre) {
+			int window = windowAt(centre.level);
+			int count = 0;
+			found[count++] = centre;
+			for(int distance = 0; distance <= window && count < seats; distance++) {
+				count = search(centre, centre.bucket - distance, distance, count);
+				if(distance > 0) {
+					count = search(centre, centre.bucket + distance, distance, count);
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Forms a match between the players found
+		 *
+		 * @return the match
+		 */
+		private Match form() {
+			// The longest waiting player moves first
+			Waiting[] players = Arrays.copyOf(found, seats);
+			Arrays.sort(players, BY_ORDER);
+			long[] ids = new long[seats];
+			for(int i = 0; i < seats; i++) {
+				players[i].matched = true;
+				waiting.remove(players[i].playerId);
+				ids[i] = players[i].playerId;
+			}
+			return new Match(ids);
+		}
+
+		/**
+		 * Adds the players of a bucket who would play a candidate to those found so far,
+		 * until there are enough.  Since windows widen with waiting, once a player in a
+		 * bucket would not play the candidate nobody who joined after them would either
+		 *
+		 * @return the number of players found
+		 */
+		private int search(Waiting candidate, int bucket, int distance, int count) {
+			if(bucket < 0 || bucket >= buckets.length) {
+				return count;
+			}
+			ArrayDeque<Waiting> queue = buckets[bucket];
+			// Players matched or gone are dropped from the front as they are come across
+			while(! queue.isEmpty() && queue.peekFirst().matched) {
+				queue.pollFirst();
+			}
+			for(Waiting w : queue) {
+				if(count == seats) {
+					break;
+				}
+				if(w.matched || w == candidate) {
+					continue;
+				}
+				if(windowAt(w.level) < distance) {
+					break;
+				}
+				found[count++] = w;
+			}
+			return count;
+		}
+	}
+
+	/**
+	 * Players matched to play a game together
+	 */
+	public static class Match {
+		// The id of the player to play as each player number, by player number - 1
+		final long[] playerIds;
+
+		Match(long[] playerIds) {
+			this.playerIds = playerIds;
+		}
+
+		/**
+		 * Getter for the players, in turn order
+		 *
+		 * @return the id of the player to play as each player number, by player number - 1
+		 */
+		public long[] getPlayerIds() {
+			return playerIds.clone();
+		}
+
+		/**
+		 * Getter for the number of players
+		 *
+		 * @return 2 or 4
+		 */
+		public int getSeats() {
+			return playerIds.length;
+		}
+
+		/**
+		 * Sets up a board for the match's game, rated by a rating service if given one
+		 *
+		 * @param ratings the rating service to submit the result to, or null for none
+		 * @return a new board with a player for each seat
+		 */
+		public Board newBoard(RatingService ratings) {
+			Board b = new Board(playerIds.length);
+			if(ratings != null) {
+				ratings.attach(b, playerIds);
+			}
+			return b;
+		}
+
+		/**
+		 * Returns a string representation of the match
+		 *
+		 * @return the ids of the players
+		 */
+		public String toString() {
+			return "Match " + Arrays.toString(playerIds);
+		}
+	}
+}
@@ -0,0 +1,320 @@
+package santanjm.quoridor;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import santanjm.quoridor.*;
+
+/**
+ * Counters and histograms of where the time goes in the rules and the rendering, which can
+ * be turned on and off while the game runs.  When turned off, recording costs a single
+ * read of a flag, so the calls can stay in the hot paths for good.
+ *
+ * A timed section is measured as:
+ *     long start = Metrics.start();
+ *     ... the work ...
+ *     Metrics.IS_LEGAL_MOVE.stop(start);
+ *
+ * Histograms keep counts in buckets whose width grows with the value, eight to each power
+ * of two, so every value is recorded to within an eighth of itself in fixed memory.  The
+ * counts and totals every call adds to are LongAdders, so threads recording at once add to
+ * cells of their own rather than all contending for one.
+ * Metrics are on from the start when the property quoridor.metrics is set to true.
+ * @author santanjm
+ */
+public class Metrics {
+	// Whether anything is being recorded
+	private static volatile boolean enabled = Boolean.getBoolean("quoridor.metrics");
+
+	// Every histogram and counter, in the order they are exported
+	private static final List<Histogram> HISTOGRAMS = new ArrayList<Histogram>();
+	private static final List<Counter> COUNTERS = new ArrayList<Counter>();
+
+	// Time taken by Board.isLegalMove, Board.executeMove and Player.canReachGoal
+	public static final Histogram IS_LEGAL_MOVE = new Histogram("board.isLegalMove", "ns");
+	public static final Histogram EXECUTE_MOVE = new Histogram("board.executeMove", "ns");
+	public static final Histogram CAN_REACH_GOAL = new Histogram("player.canReachGoal", "ns");
+
+	// Steps to the goal found by each call of Player.canReachGoal which found a way through
+	public static final Histogram REACH_STEPS = new Histogram("player.canReachGoal.steps", "steps");
+
+	// Time taken painting the game panel and rendering a thumbnail
+	public static final Histogram PAINT = new Histogram("gamePanel.paint", "ns");
+	public static final Histogram THUMBNAIL = new Histogram("thumbnail.render", "ns");
+
+	// The number of moves found to be illegal
+	public static final Counter ILLEGAL_MOVES = new Counter("board.illegalMoves");
+
+	private Metrics() {
+	}
+
+	/**
+	 * Turns recording on or off
+	 *
+	 * @param on true to record and false to stop recording
+	 */
+	public static void setEnabled(boolean on) {
+		enabled = on;
+	}
+
+	/**
+	 * Checks whether anything is being recorded
+	 *
+	 * @return true if recording is on
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Marks the start of a timed section
+	 *
+	 * @return the current time in nanoseconds, or 0 if recording is off
+	 */
+	public static long start() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * Empties every histogram and counter
+	 */
+	public static void reset() {
+		for(Histogram histogram : HISTOGRAMS) {
+			histogram.reset();
+		}
+		for(Counter counter : COUNTERS) {
+			counter.reset();
+		}
+	}
+
+	/**
+	 * Returns every histogram and counter as lines of text
+	 *
+	 * @return one line for each histogram and counter
+	 */
+	public static String toText() {
+		StringBuilder text = new StringBuilder();
+		for(Histogram h : HISTOGRAMS) {
+			text.append(h.name).append(": count=").append(h.getCount())
+				.append(" mean=").append(h.getMean()).append(" p50=").append(h.getPercentile(50))
+				.append(" p90=").append(h.getPercentile(90)).append(" p99=").append(h.getPercentile(99))
+				.append(" max=").append(h.getMax()).append(' ').append(h.unit).append('\n');
+		}
+		for(Counter c : COUNTERS) {
+			text.append(c.name).append(": ").append(c.get()).append('\n');
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Returns every histogram and counter as a JSON object
+	 *
+	 * @return JSON object with the histograms and counters by name
+	 */
+	public static String toJson() {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"enabled\":").append(enabled).append(",\"histograms\":{");
+		for(int i = 0; i < HISTOGRAMS.size(); i++) {
+			Histogram h = HISTOGRAMS.get(i);
+			json.append(i == 0 ? "" : ",").append('"').append(h.name).append("\":{")
+				.append("\"unit\":\"").append(h.unit).append('"')
+				.append(",\"count\":").append(h.getCount()).append(",\"mean\":").append(h.getMean())
+				.append(",\"p50\":").append(h.getPercentile(50)).append(",\"p90\":").append(h.getPercentile(90))
+				.append(",\"p99\":").append(h.getPercentile(99)).append(",\"max\":").append(h.getMax()).append('}');
+		}
+		json.append("},\"counters\":{");
+		for(int i = 0; i < COUNTERS.size(); i++) {
+			Counter c = COUNTERS.get(i);
+			json.append(i == 0 ? "" : ",").append('"').append(c.name).append("\":").append(c.get());
+		}
+		return json.append("}}").toString();
+	}
+
+	/**
+	 * Histogram of values such as latencies, bucketed to within an eighth of each value
+	 */
+	public static class Histogram {
+		// Values below this have a bucket each
+		private static final int LINEAR = 16;
+
+		// The number of buckets for each power of two above the linear ones
+		private static final int SUB_BUCKETS = 8;
+
+		// The name and unit of the values
+		final String name;
+		final String unit;
+
+		// The number of values in each bucket
+		final AtomicLongArray buckets = new AtomicLongArray(LINEAR + (63 - 4)*SUB_BUCKETS);
+
+		// The number of values, their total and the largest
+		final LongAdder count = new LongAdder();
+		final LongAdder total = new LongAdder();
+		final AtomicLong max = new AtomicLong();
+
+		Histogram(String name, String unit) {
+			this.name = name;
+			this.unit = unit;
+			HISTOGRAMS.add(this);
+		}
+
+		/**
+		 * Records a value, if recording is on
+		 *
+		 * @param value a value of at least 0
+		 */
+		public void record(long value) {
+			if(! enabled) {
+				return;
+			}
+			buckets.incrementAndGet(bucket(Math.max(0L, value)));
+			count.increment();
+			total.add(value);
+			long largest = max.get();
+			while(value > largest && ! max.compareAndSet(largest, value)) {
+				largest = max.get();
+			}
+		}
+
+		/**
+		 * Records the time since the start of a timed section
+		 *
+		 * @param start the time returned by Metrics.start at the start of the section
+		 */
+		public void stop(long start) {
+			if(start != 0L) {
+				record(System.nanoTime() - start);
+			}
+		}
+
+		/**
+		 * Getter for the number of values recorded
+		 *
+		 * @return the count
+		 */
+		public long getCount() {
+			return count.sum();
+		}
+
+		/**
+		 * Getter for the mean of the values recorded
+		 *
+		 * @return the mean, 0 if nothing has been recorded
+		 */
+		public long getMean() {
+			long n = count.sum();
+			return n == 0 ? 0 : total.sum() / n;
+		}
+
+		/**
+		 * Getter for the largest value recorded
+		 *
+		 * @return the largest value
+		 */
+		public long getMax() {
+			return max.get();
+		}
+
+		/**
+		 * Finds the value which the given percentage of the values are at most
+		 *
+		 * @param percent the percentile, from 0 to 100
+		 * @return the largest value in the bucket holding the percentile, 0 if nothing has
+		 *         been recorded
+		 */
+		public long getPercentile(double percent) {
+			long n = 0;
+			for(int i = 0; i < buckets.length(); i++) {
+				n += buckets.get(i);
+			}
+			long rank = Math.max(1L, (long) Math.ceil(percent / 100 * n));
+			long seen = 0;
+			for(int i = 0; i < buckets.length(); i++) {
+				seen += buckets.get(i);
+				if(seen >= rank) {
+					return Math.min(highest(i), max.get());
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Empties the histogram
+		 */
+		void reset() {
+			for(int i = 0; i < buckets.length(); i++) {
+				buckets.set(i, 0L);
+			}
+			count.reset();
+			total.reset();
+			max.set(0L);
+		}
+
+		/**
+		 * Returns the bucket a value is counted in
+		 */
+		static int bucket(long value) {
+			if(value < LINEAR) {
+				return (int) value;
+			}
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int sub = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+			return LINEAR + (exponent - 4)*SUB_BUCKETS + sub;
+		}
+
+		/**
+		 * Returns the largest value counted in a bucket
+		 */
+		static long highest(int bucket) {
+			if(bucket < LINEAR) {
+				return bucket;
+			}
+			int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+			int sub = (bucket - LINEAR) % SUB_BUCKETS;
+			return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+		}
+	}
+
+	/**
+	 * Counter of events
+	 */
+	public static class Counter {
+		// The name of the events counted
+		final String name;
+
+		// The number of events
+		final LongAdder value = new LongAdder();
+
+		Counter(String name) {
+			this.name = name;
+			COUNTERS.add(this);
+		}
+
+		/**
+		 * Counts an event, if recording is on
+		 */
+		public void increment() {
+			if(enabled) {
+				value.increment();
+			}
+		}
+
+		/**
+		 * Getter for the number of events counted
+		 *
+		 * @return the count
+		 */
+		public long get() {
+			return value.sum();
+		}
+
+		/**
+		 * Sets the count back to 0
+		 */
+		void reset() {
+			value.reset();
+		}
+	}
+}
@@ -0,0 +1,380 @@
+package santanjm.quoridor;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Counts the number of move paths (leaf nodes) of a given depth from a position on a board.
+ * The counts produced by the rules in Board, checking walls with its reference rules rather
+ * than the tables Position shares, serve as reference counts which any faster move
+ * generator must reproduce exactly.  Subtrees are split across a fork-join pool and an
+ * optional table of already counted positions lets transpositions be counted only once.
+ * Positions can be counted with the rules in Position as well, to check they give the same counts.
+ * @author santanjm
+ */
+public class Perft {
+	// Subtrees at least this deep are split into their own tasks, anything shallower
+	// is counted by the task which reaches it
+	private static final int FORK_DEPTH = 2;
+
+	// The pool which the subtrees are counted in
+	ForkJoinPool pool;
+
+	// Map of a position key and depth to the number of leaves below it, null when not in use.
+	// Positions counted with the rules in Position are keyed on their canonical form, since a
+	// position and its mirror image have the same number of leaves
+	Map<String, Long> table;
+
+	// The most entries the table will hold, once full no more positions are added
+	int maxEntries;
+
+	/**
+	 * Constructs a perft counter which counts on a single thread without a table
+	 */
+	public Perft() {
+		this(1, 0);
+	}
+
+	/**
+	 * Constructs a perft counter with the given number of threads and table size
+	 *
+	 * @param threads    the number of threads the subtrees are split across
+	 * @param maxEntries the most positions the table will hold, 0 to count without a table
+	 */
+	public Perft(int threads, int maxEntries) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("Perft needs at least one thread");
+		}
+		pool = new ForkJoinPool(threads);
+		this.maxEntries = maxEntries;
+		if(maxEntries > 0) {
+			table = new ConcurrentHashMap<String, Long>();
+		}
+	}
+
+	/**
+	 * Counts the leaf nodes which are exactly depth moves away from the board's position
+	 *
+	 * @param b     the board to count from, it is left unchanged
+	 * @param depth the number of moves to look ahead
+	 * @return the number of leaf nodes at that depth
+	 */
+	public long perft(Board b, int depth) {
+		return pool.invoke(new PerftTask(b.referenceCopy(), depth));
+	}
+
+	/**
+	 * Counts the leaf nodes below each of the active player's legal moves separately
+	 *
+	 * @param b     the board to count from, it is left unchanged
+	 * @param depth the number of moves to look ahead, including the root move
+	 * @return map of each legal root move to the number of leaf nodes below it
+	 */
+	public Map<String, Long> divide(Board b, int depth) {
+		if(depth < 1) {
+			throw new IllegalArgumentException("Divide needs a depth of at least 1");
+		}
+		Board root = b.referenceCopy();
+		Map<String, PerftTask> tasks = new LinkedHashMap<String, PerftTask>();
+		for(String move : root.legalMoves()) {
+			tasks.put(move, new PerftTask(child(root, move), depth - 1));
+		}
+		for(PerftTask task : tasks.values()) {
+			pool.execute(task);
+		}
+
+		// The moves are sorted so that divides of the same position can be compared line by line
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for(String move : tasks.keySet()) {
+			counts.put(move, tasks.get(move).join());
+		}
+		return counts;
+	}
+
+	/**
+	 * Counts the leaf nodes which are exactly depth moves away from a position, using
+	 * the rules in Position rather than those in Board
+	 *
+	 * @param pos   the position to count from
+	 * @param depth the number of moves to look ahead
+	 * @return the number of leaf nodes at that depth
+	 */
+	public long perft(Position pos, int depth) {
+		return pool.invoke(new PositionTask(pos, depth));
+	}
+
+	/**
+	 * Counts the leaf nodes below each of the active player's legal moves in a position
+	 * separately, using the rules in Position rather than those in Board
+	 *
+	 * @param pos   the position to count from
+	 * @param depth the number of moves to look ahead, including the root move
+	 * @return map of each legal root move, as a move string, to the number of leaf nodes below it
+	 */
+	public Map<String, Long> divide(Position pos, int depth) {
+		if(depth < 1) {
+			throw new IllegalArgumentException("Divide needs a depth of at least 1");
+		}
+		Map<String, PositionTask> tasks = new LinkedHashMap<String, PositionTask>();
+		for(int move : pos.legalMoves()) {
+			tasks.put(Position.toNotation(move), new PositionTask(pos.play(move), depth - 1));
+		}
+		for(PositionTask task : tasks.values()) {
+			pool.execute(task);
+		}
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for(String move : tasks.keySet()) {
+			counts.put(move, tasks.get(move).join());
+		}
+		return counts;
+	}
+
+	/**
+	 * Shuts down the threads used to count
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Counts the leaf nodes at a depth from a board on the calling thread alone
+	 *
+	 * @param b     the board to count from, which must be one that may be changed
+	 * @param depth the number of moves to look ahead
+	 * @return the number of leaf nodes at that depth
+	 */
+	private long count(Board b, int depth) {
+		if(depth == 0) {
+			return 1;
+		}
+		// Once a player has won there are no more moves to be made
+		if(b.getWinner() != null) {
+			return 0;
+		}
+		List<String> moves = b.legalMoves();
+		if(depth == 1) {
+			return moves.size();
+		}
+
+		String key = null;
+		if(table != null) {
+			key = b.positionKey() + "@" + depth;
+			Long stored = table.get(key);
+			if(stored != null) {
+				return stored;
+			}
+		}
+
+		long nodes = 0;
+		for(String move : moves) {
+			nodes += count(child(b, move), depth - 1);
+		}
+		store(key, nodes);
+		return nodes;
+	}
+
+	/**
+	 * Counts the leaf nodes at a depth from a position on the calling thread alone
+	 *
+	 * @param pos   the position to count from
+	 * @param depth the number of moves to look ahead
+	 * @param moves arrays the legal moves at each depth are written to
+	 * @return the number of leaf nodes at that depth
+	 */
+	private long count(Position pos, int depth, int[][] moves) {
+		if(depth == 0) {
+			return 1;
+		}
+		if(pos.isOver()) {
+			return 0;
+		}
+		int numMoves = pos.legalMoves(moves[depth]);
+		if(depth == 1) {
+			return numMoves;
+		}
+
+		String key = null;
+		if(table != null) {
+			key = pos.canonical().key() + "@" + depth;
+			Long stored = table.get(key);
+			if(stored != null) {
+				return stored;
+			}
+		}
+
+		long nodes = 0;
+		for(int i = 0; i < numMoves; i++) {
+			nodes += count(pos.play(moves[depth][i]), depth - 1, moves);
+		}
+		store(key, nodes);
+		return nodes;
+	}
+
+	/**
+	 * Records the number of leaves below a position in the table, if the table is in use
+	 * and is not full
+	 *
+	 * @param key   the position key and depth, null when the table is not in use
+	 * @param nodes the number of leaves below the position
+	 */
+	private void store(String key, long nodes) {
+		if(key != null && table.size() < maxEntries) {
+			table.put(key, nodes);
+		}
+	}
+
+	/**
+	 * Creates the board reached by making a move on a copy of the given board
+	 *
+	 * @param b    the board before the move
+	 * @param move a move string which is legal on b
+	 * @return a new board with the move made and the turn passed to the next player
+	 */
+	private static Board child(Board b, String move) {
+		Board next = b.copy();
+		next.executeMove(move);
+		next.nextTurn();
+		return next;
+	}
+
+	/**
+	 * Task counting the leaves below a single board, which splits itself into a task
+	 * for each legal move while the subtree is deep enough to be worth splitting
+	 */
+	private class PerftTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+
+		// The board to count from, owned by this task alone.  Tasks are never serialized
+		transient Board board;
+
+		// The number of moves left to look ahead
+		int depth;
+
+		PerftTask(Board board, int depth) {
+			this.board = board;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute() {
+			if(depth <= FORK_DEPTH || board.getWinner() != null) {
+				return count(board, depth);
+			}
+
+			String key = null;
+			if(table != null) {
+				key = board.positionKey() + "@" + depth;
+				Long stored = table.get(key);
+				if(stored != null) {
+					return stored;
+				}
+			}
+
+			List<PerftTask> subtasks = new ArrayList<PerftTask>();
+			for(String move : board.legalMoves()) {
+				subtasks.add(new PerftTask(child(board, move), depth - 1));
+			}
+			invokeAll(subtasks);
+
+			long nodes = 0;
+			for(PerftTask task : subtasks) {
+				nodes += task.join();
+			}
+			store(key, nodes);
+			return nodes;
+		}
+	}
+
+	/**
+	 * Task counting the leaves below a single position, which splits itself into a task
+	 * for each legal move while the subtree is deep enough to be worth splitting
+	 */
+	private class PositionTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+
+		// The position to count from
+		Position pos;
+
+		// The number of moves left to look ahead
+		int depth;
+
+		PositionTask(Position pos, int depth) {
+			this.pos = pos;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute() {
+			if(depth <= FORK_DEPTH || pos.isOver()) {
+				// One array of moves for each depth, reused by every position at that depth
+				return count(pos, depth, new int[depth + 1][Position.NUM_MOVES]);
+			}
+
+			String key = null;
+			if(table != null) {
+				key = pos.canonical().key() + "@" + depth;
+				Long stored = table.get(key);
+				if(stored != null) {
+					return stored;
+				}
+			}
+
+			List<PositionTask> subtasks = new ArrayList<PositionTask>();
+			for(int move : pos.legalMoves()) {
+				subtasks.add(new PositionTask(pos.play(move), depth - 1));
+			}
+			invokeAll(subtasks);
+
+			long nodes = 0;
+			for(PositionTask task : subtasks) {
+				nodes += task.join();
+			}
+			store(key, nodes);
+			return nodes;
+		}
+	}
+
+	/**
+	 * Prints the perft count, or the divide of each root move, of the starting position
+	 *
+	 * @param args the number of players, the depth and optionally "divide", the number of
+	 *             threads and the table size.  Setting the property quoridor.perft.engine to
+	 *             "position" counts with the rules in Position rather than those in Board
+	 */
+	public static void main(String[] args) {
+		try {
+			int numPlayers = Integer.parseInt(args[0]);
+			int depth = Integer.parseInt(args[1]);
+			boolean divide = args.length > 2 && args[2].equals("divide");
+			int next = divide ? 3 : 2;
+			int threads = args.length > next ? Integer.parseInt(args[next])
+					: Runtime.getRuntime().availableProcessors();
+			int maxEntries = args.length > next + 1 ? Integer.parseInt(args[next + 1]) : 0;
+
+			boolean fast = "position".equals(System.getProperty("quoridor.perft.engine"));
+			Board b = fast ? null : new Board(numPlayers).copy();
+			Position pos = new Position(numPlayers);
+			Perft perft = new Perft(threads, maxEntries);
+			long start = System.nanoTime();
+			long nodes = 0;
+			if(divide) {
+				Map<String, Long> counts = fast ? perft.divide(pos, depth) : perft.divide(b, depth);
+				for(String move : counts.keySet()) {
+					System.out.println(move + ": " + counts.get(move));
+					nodes += counts.get(move);
+				}
+				System.out.println("Moves: " + counts.size());
+			} else {
+				nodes = fast ? perft.perft(pos, depth) : perft.perft(b, depth);
+			}
+			long millis = (System.nanoTime() - start) / 1000000;
+			System.out.println("Nodes: " + nodes + " (" + millis + " ms)");
+			perft.shutdown();
+		} catch(Exception e) {
+			System.err.println("Usage: Perft <number of players> <depth> [divide] [threads] [table size]");
+			System.exit(1);
+		}
+	}
+}
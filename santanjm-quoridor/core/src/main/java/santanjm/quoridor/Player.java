@@ -23,7 +23,7 @@ public class Player {
     int[] pos;
 
     // The spaces that, if reached by the player, will be victory
-    Space[] goalSpaces = new Space[9];
+    Space[] goalSpaces;
     
     // Boolean which tells the player whether they have won or not
     boolean hasWon;
@@ -33,7 +33,8 @@ public class Player {
     
     /**
      * Constructs a new Player with a player number and a number of walls, then determine
-     * the player's starting position based on their player number 
+     * the player's starting position and goal spaces based on their player number and the
+     * size of the board
      * 
      * @param gameBoard the board on which this player will be playing quoridor
      * @param pNum     	the number of player, used to determine starting position and turn order
@@ -41,32 +42,21 @@ public class Player {
      */
     public Player(Board gameBoard, int pNum, int numWalls) {
     	board = gameBoard;
-    	switch (pNum) {
-    		case  1: playerNum = 1;
-    				 pos = new int[] {4, 8};
-    				 for(int i = 0; i < 9; i++) {
-    					 goalSpaces[i] = board.getSpace(i);
-    				 }
-    				 break;
-    		case  2: playerNum = 2;
-    				 pos = new int[] {4, 0};
-    				 for(int i = 0; i < 9; i++) {
-    					 goalSpaces[i] = board.getSpace(i + 72);
-    				 }
-    				 break;
-    		case  3: playerNum = 3;
-    				 pos = new int[] {0, 4};
-    				 for(int i = 0; i < 9; i++) {
-    					 goalSpaces[i] = board.getSpace(9*i + 8);
-    				 }
-    				 break;
-    		case  4: playerNum = 4;
-    				 pos = new int[] {8, 4};
-    				 for(int i = 0; i < 9; i++) {
-    					 goalSpaces[i] = board.getSpace(9*i);
-    				 }
-    				 break;
-    		default: throw new IllegalArgumentException("Player number must be between 1 and 4");
+    	if(pNum < 1 || pNum > 4) {
+    		throw new IllegalArgumentException("Player number must be between 1 and 4");
+    	}
+    	playerNum = pNum;
+    	
+    	// The player starts in the middle of one edge and wins on reaching the opposite one
+    	Geometry geometry = board.geometry;
+    	int start = geometry.startSpace(pNum - 1);
+    	pos = new int[] {start % geometry.size, start / geometry.size};
+    	goalSpaces = new Space[geometry.size];
+    	int found = 0;
+    	for(int i = 0; i < geometry.spaces; i++) {
+    		if(geometry.isGoal(pNum - 1, i)) {
+    			goalSpaces[found++] = board.getSpace(i);
+    		}
     	}
     	walls = numWalls;
     }
@@ -213,6 +203,59 @@ public class Player {
      * @return true if the wall placement would not prevent this player from reaching its goal
      */
     public boolean canReachGoal(Space designator, int dir) {
+    	long start = Metrics.start();
+    	GameEvents.WallReachability event = new GameEvents.WallReachability();
+    	event.begin();
+    	boolean reachable = false;
+    	try {
+    		reachable = findPathToGoal(designator, dir);
+    		return reachable;
+    	} finally {
+    		Metrics.CAN_REACH_GOAL.stop(start);
+    		event.end();
+    		if(event.shouldCommit()) {
+    			event.gameId = board.gameId;
+    			event.player = playerNum;
+    			event.wall = designator.toGrid() + (dir == 0 ? "v" : "h");
+    			event.reachable = reachable;
+    			event.commit();
+    		}
+    	}
+    }
+
+    /**
+     * Floods outwards from this player's pawn for any of their goal spaces with a proposed
+     * wall placed, see canReachGoal
+     */
+    private boolean findPathToGoal(Space designator, int dir) {
+    	if(board.reference) {
+    		return findPathByAStar(designator, dir);
+    	}
+    	int steps;
+    	if(board.vSlots == null) {
+    		// The board's walls with the proposed new wall added
+    		long bit = 1L << (8*designator.getRow() + designator.getColumn());
+    		long v = dir == 0 ? board.vWalls | bit : board.vWalls;
+    		long h = dir == 1 ? board.hWalls | bit : board.hWalls;
+    		steps = Reachability.distance(v, h, 9*getRow() + getColumn(), playerNum - 1);
+    	} else {
+    		steps = findPathOnSlots(designator, dir);
+    	}
+    	if(steps >= 0) {
+    		Metrics.REACH_STEPS.record(steps);
+    	}
+    	return steps >= 0;
+    }
+    
+    /**
+     * Searches for a path to any of this player's goal spaces with a proposed wall placed,
+     * with A* on a temporary board rather than Reachability, see Board.reference
+     *
+     * @param designator the space northwest of the center of the wall
+     * @param dir        the direction of the wall, 0 for vertical and 1 for horizontal
+     * @return true if any goal space can still be reached
+     */
+    private boolean findPathByAStar(Space designator, int dir) {
     	// A temporary board with only this player, all current walls and the proposed new wall
     	Map<Space, Integer> currentWalls = new HashMap<Space, Integer>(board.walls);
     	Board temp = new Board(this, currentWalls);
@@ -228,6 +271,33 @@ public class Player {
     	return false;
     }
     
+    /**
+     * Searches outwards from this player's pawn for any of their goal spaces with a proposed
+     * wall placed, on a board other than the standard one.  The wall is added to the board's
+     * bit sets of wall slots for the search and taken off again afterwards
+     *
+     * @param designator the space northwest of the center of the wall
+     * @param dir        the direction of the wall, 0 for vertical and 1 for horizontal
+     * @return the number of steps to the nearest goal space, or -1 if none can be reached
+     */
+    private int findPathOnSlots(Space designator, int dir) {
+    	Geometry geometry = board.geometry;
+    	if(board.queue == null) {
+    		board.queue = new int[geometry.spaces];
+    		board.depth = new int[geometry.spaces];
+    	}
+    	int slot = geometry.slot(designator.getColumn(), designator.getRow());
+    	long[] slots = dir == 0 ? board.vSlots : board.hSlots;
+    	long word = slots[slot >>> 6];
+    	slots[slot >>> 6] = word | (1L << slot);
+    	try {
+    		return geometry.distance(board.vSlots, board.hSlots, geometry.size*getRow() + getColumn(),
+    				playerNum - 1, board.queue, board.depth);
+    	} finally {
+    		slots[slot >>> 6] = word;
+    	}
+    }
+    
     /**
      * Classic A* shortest path algorithm for use in determining whether or not
      * a player will still be able to reach one of their goal spaces.  If the shortest
@@ -264,19 +334,21 @@ public class Player {
     	
     	while(! openSet.isEmpty() ) {
     		Space current = minfScore(openSet, fScore);
-    		
+
+    		// If the current space (which is known to have minimum f score)
+    		// has an f score of infinity, then there is no path and so return false.
+    		// This must be checked first, as the goal itself may be the space chosen
+    		// from several spaces which could only be discovered through a wall
+    		if(fScore.get(current) == INF) {
+    			return false;
+    		}
+
     		// If the node with the minimum f score is the goal node
     		// then a path has been found and we can stop
     		if(current.equalsSpace(goal)) {
     			return true;
     		}
     		
-    		// If the current space (which is known to have minimum f score)
-    		// has an f score of infinity, then there is no path and so return false
-    		if(fScore.get(current) == INF) {
-    			return false;
-    		}
-    		
     		// Remove the current from the list of discovered nodes
     		// and add it to the list of evaluated nodes
     		openSet.remove(current);
@@ -325,7 +397,7 @@ public class Player {
      */
     private Map<Space, Double> initScores(Board temp) {
     	Map<Space, Double> score = new LinkedHashMap<Space, Double>();
-    	for(int i = 0; i < 81; i++) {
+    	for(int i = 0; i < temp.spaces.length; i++) {
     		score.put(temp.getSpace(i), INF);
     	}
     	return score;
@@ -375,7 +447,7 @@ public class Player {
      */
     public String toString() {
     	char col = (char) (pos[0] + 97);
-    	char row = (char) (pos[1] + 49);
+    	int row = pos[1] + 1;
     	return "Player " + playerNum + ": " + "Current pos: " + col + row + 
     			"\n          " + "Walls remaining: " + walls;	
     }
@@ -0,0 +1,757 @@
+package santanjm.quoridor;
+
+import java.io.Serializable;
+import java.util.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Compact, immutable representation of a position in a game of Quoridor, along with the
+ * rules for which moves are legal from it.  The rules are exactly those of Board, but the
+ * position is held in a handful of numbers rather than objects so that moves can be
+ * generated and made quickly, which makes it the engine to use when exploring many positions.
+ *
+ * Spaces are indexed as they are in Board: the space at [col, row] has index 9*row + col.
+ * Walls are indexed by their designator, which can only be in the first 8 columns and rows,
+ * so the wall designated by [col, row] has slot 8*row + col.
+ *
+ * Moves are encoded as integers:
+ * 0 to 80   - a pawn move to the space with that index
+ * 81 to 208 - a wall placement, 81 + 2*slot + dir where dir is 0 for vertical and 1 for horizontal
+ *
+ * A 2 player game plays the same when the board is reflected left to right, so a position
+ * and its mirror image share a canonical form (see canonical), which tables of positions
+ * can be keyed on to hold each pair only once.
+ * @author santanjm
+ */
+public class Position implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// The first move number which encodes a wall placement rather than a pawn move
+	public static final int WALL_MOVES = 81;
+
+	// The number of distinct move numbers
+	public static final int NUM_MOVES = WALL_MOVES + 128;
+
+	// The most walls a player can have left, those a player starts a standard 2 player game with
+	public static final int MAX_WALLS = 10;
+
+	// The space each player starts on, by player number - 1
+	private static final int[] START_SPACES = new int[] {76, 4, 36, 44};
+
+	// Random numbers which are combined into the hash of a position: one for each pawn on each
+	// space, each number of walls left, each wall slot in each direction and each active player
+	private static final long[][] PAWN_KEYS = new long[4][81];
+	private static final long[][] WALLS_LEFT_KEYS = new long[4][MAX_WALLS + 1];
+	private static final long[][] WALL_KEYS = new long[2][64];
+	private static final long[] ACTIVE_KEYS = new long[4];
+	static {
+		// A fixed seed keeps hashes the same from one run to the next
+		Random random = new Random(0x5154L);
+		for(int i = 0; i < 4; i++) {
+			for(int space = 0; space < 81; space++) {
+				PAWN_KEYS[i][space] = random.nextLong();
+			}
+			for(int walls = 0; walls <= MAX_WALLS; walls++) {
+				WALLS_LEFT_KEYS[i][walls] = random.nextLong();
+			}
+			ACTIVE_KEYS[i] = random.nextLong();
+		}
+		for(int slot = 0; slot < 64; slot++) {
+			WALL_KEYS[0][slot] = random.nextLong();
+			WALL_KEYS[1][slot] = random.nextLong();
+		}
+	}
+
+	// The number of players in the game
+	final int numPlayers;
+
+	// The number of moves made so far, the active player is turn mod numPlayers + 1
+	final int turn;
+
+	// The space index of each player's pawn, by player number - 1
+	final int[] pawns;
+
+	// The number of walls each player has left, by player number - 1
+	final int[] wallsLeft;
+
+	// Bit sets of the slots designating vertical and horizontal walls
+	final long vWalls;
+	final long hWalls;
+
+	/**
+	 * Constructs the starting position of a game with 2 or 4 players
+	 *
+	 * @param numPlayers the number of players in the game
+	 */
+	public Position(int numPlayers) {
+		if(numPlayers != 2 && numPlayers != 4) {
+			throw new IllegalArgumentException("Game can only be played with 2 or 4 players");
+		}
+		this.numPlayers = numPlayers;
+		turn = 0;
+		pawns = Arrays.copyOf(START_SPACES, numPlayers);
+		wallsLeft = new int[numPlayers];
+		Arrays.fill(wallsLeft, numPlayers == 2 ? 10 : 5);
+		vWalls = 0L;
+		hWalls = 0L;
+	}
+
+	/**
+	 * Constructs the position currently on a board being played
+	 *
+	 * @param b a 9x9 board with 2 or 4 players, none of whom has more than MAX_WALLS walls left
+	 */
+	public Position(Board b) {
+		if(b.geometry != Geometry.STANDARD) {
+			throw new IllegalArgumentException("Positions can only be taken of 9x9 boards");
+		}
+		for(int i = 1; i <= b.numPlayers; i++) {
+			if(b.getPlayerFromNum(i).getWalls() > MAX_WALLS) {
+				throw new IllegalArgumentException("Positions can only be taken of players with at most " + MAX_WALLS + " walls");
+			}
+		}
+		numPlayers = b.numPlayers;
+		turn = b.turn;
+		pawns = new int[numPlayers];
+		wallsLeft = new int[numPlayers];
+		for(int i = 0; i < numPlayers; i++) {
+			Player p = b.getPlayerFromNum(i + 1);
+			pawns[i] = 9*p.getRow() + p.getColumn();
+			wallsLeft[i] = p.getWalls();
+		}
+		long v = 0L;
+		long h = 0L;
+		Map<Space, Integer> walls = b.getWalls();
+		for(Space designator : walls.keySet()) {
+			long bit = 1L << (8*designator.getRow() + designator.getColumn());
+			if(walls.get(designator) == 0) {
+				v |= bit;
+			} else {
+				h |= bit;
+			}
+		}
+		vWalls = v;
+		hWalls = h;
+	}
+
+	/**
+	 * Constructs a position from each of its parts, which are not copied
+	 */
+	Position(int numPlayers, int turn, int[] pawns, int[] wallsLeft, long vWalls, long hWalls) {
+		this.numPlayers = numPlayers;
+		this.turn = turn;
+		this.pawns = pawns;
+		this.wallsLeft = wallsLeft;
+		this.vWalls = vWalls;
+		this.hWalls = hWalls;
+	}
+
+	/**
+	 * Getter for the number of players in the game
+	 *
+	 * @return the number of players, 2 or 4
+	 */
+	public int getNumPlayers() {
+		return numPlayers;
+	}
+
+	/**
+	 * Getter for the number of moves made so far
+	 *
+	 * @return the turn number, starting from 0
+	 */
+	public int getTurn() {
+		return turn;
+	}
+
+	/**
+	 * Returns the number of the player whose turn it is
+	 *
+	 * @return the active player's number
+	 */
+	public int getActivePlayer() {
+		return (turn % numPlayers) + 1;
+	}
+
+	/**
+	 * Returns the index of the space a player's pawn is on
+	 *
+	 * @param playerNum the number of a player in the game
+	 * @return the index of the player's space, 9*row + col
+	 */
+	public int getPawn(int playerNum) {
+		return pawns[playerNum - 1];
+	}
+
+	/**
+	 * Returns the number of walls a player has left to place
+	 *
+	 * @param playerNum the number of a player in the game
+	 * @return the player's remaining walls
+	 */
+	public int getWallsLeft(int playerNum) {
+		return wallsLeft[playerNum - 1];
+	}
+
+	/**
+	 * Getter for the bit set of slots designating vertical walls
+	 *
+	 * @return bit 8*row + col is set when [col, row] designates a vertical wall
+	 */
+	public long getVerticalWalls() {
+		return vWalls;
+	}
+
+	/**
+	 * Getter for the bit set of slots designating horizontal walls
+	 *
+	 * @return bit 8*row + col is set when [col, row] designates a horizontal wall
+	 */
+	public long getHorizontalWalls() {
+		return hWalls;
+	}
+
+	/**
+	 * Returns the number of the player who has reached one of their goal spaces, if any
+	 *
+	 * @return the winning player's number or 0 if the game is not over
+	 */
+	public int getWinner() {
+		for(int i = 0; i < numPlayers; i++) {
+			if(isGoal(i, pawns[i])) {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Checks whether any player has reached one of their goal spaces
+	 *
+	 * @return true if the game is over and false otherwise
+	 */
+	public boolean isOver() {
+		return getWinner() != 0;
+	}
+
+	/**
+	 * Finds every move the active player could legally make, in increasing order
+	 *
+	 * @return array of the legal moves
+	 */
+	public int[] legalMoves() {
+		int[] moves = new int[NUM_MOVES];
+		return Arrays.copyOf(moves, legalMoves(moves));
+	}
+
+	/**
+	 * Finds every move the active player could legally make, in increasing order, without
+	 * allocating anything
+	 *
+	 * @param moves array of at least NUM_MOVES elements which the moves are written to
+	 * @return the number of legal moves written
+	 */
+	public int legalMoves(int[] moves) {
+		return legalMoves(moves, -1L);
+	}
+
+	/**
+	 * Finds every pawn move the active player could legally make, and the legal walls among
+	 * a set of slots, in increasing order without allocating anything.  Used by searches to
+	 * leave out walls too far from the play to matter, never to enforce the rules
+	 *
+	 * @param moves array of at least NUM_MOVES elements which the moves are written to
+	 * @param slots bit set of the slots walls may be placed at, -1 for every slot
+	 * @return the number of legal moves written
+	 */
+	public int legalMoves(int[] moves, long slots) {
+		int count = pawnMoves(moves);
+		if(wallsLeft[turn % numPlayers] > 0) {
+			// Only the slots free of clashes with the walls already placed need their paths checked
+			long openV = WallTable.openSlots(vWalls, hWalls, 0) & slots;
+			long openH = WallTable.openSlots(vWalls, hWalls, 1) & slots;
+			for(long open = openV | openH; open != 0L; open &= open - 1) {
+				int slot = Long.numberOfTrailingZeros(open);
+				if((openV & (1L << slot)) != 0L && keepsGoalsReachable(slot, 0)) {
+					moves[count++] = WALL_MOVES + 2*slot;
+				}
+				if((openH & (1L << slot)) != 0L && keepsGoalsReachable(slot, 1)) {
+					moves[count++] = WALL_MOVES + 2*slot + 1;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Checks whether a move is legal for the active player
+	 *
+	 * @param move an encoded move
+	 * @return true if the move is legal and false if not
+	 */
+	public boolean isLegal(int move) {
+		if(move < 0 || move >= NUM_MOVES) {
+			return false;
+		}
+		if(move < WALL_MOVES) {
+			int[] targets = new int[12];
+			int count = pawnMoves(targets);
+			for(int i = 0; i < count; i++) {
+				if(targets[i] == move) {
+					return true;
+				}
+			}
+			return false;
+		}
+		int wall = move - WALL_MOVES;
+		return wallsLeft[turn % numPlayers] > 0 && isLegalWall(wall >> 1, wall & 1);
+	}
+
+	/**
+	 * Returns the position reached by the active player making a move, which is
+	 * assumed to be legal
+	 *
+	 * @param move an encoded legal move
+	 * @return the position after the move, with the turn passed to the next player
+	 */
+	public Position play(int move) {
+		int active = turn % numPlayers;
+		if(move < WALL_MOVES) {
+			int[] newPawns = pawns.clone();
+			newPawns[active] = move;
+			return new Position(numPlayers, turn + 1, newPawns, wallsLeft, vWalls, hWalls);
+		}
+		int wall = move - WALL_MOVES;
+		long bit = 1L << (wall >> 1);
+		int[] newWallsLeft = wallsLeft.clone();
+		newWallsLeft[active]--;
+		if((wall & 1) == 0) {
+			return new Position(numPlayers, turn + 1, pawns, newWallsLeft, vWalls | bit, hWalls);
+		}
+		return new Position(numPlayers, turn + 1, pawns, newWallsLeft, vWalls, hWalls | bit);
+	}
+
+	/**
+	 * Checks whether a player could still reach one of their goal spaces with the walls
+	 * currently on the board, ignoring any pawns in the way
+	 *
+	 * @param playerNum the number of a player in the game
+	 * @return true if there is a path to one of the player's goal spaces and false if not
+	 */
+	public boolean canReachGoal(int playerNum) {
+		return Reachability.canReach(vWalls, hWalls, pawns[playerNum - 1], playerNum - 1);
+	}
+
+	/**
+	 * Finds the fewest steps a player needs to reach one of their goal spaces with the walls
+	 * currently on the board, ignoring any pawns in the way
+	 *
+	 * @param playerNum the number of a player in the game
+	 * @return the number of steps, or -1 if none of the player's goal spaces can be reached
+	 */
+	public int distanceToGoal(int playerNum) {
+		return Reachability.distance(vWalls, hWalls, pawns[playerNum - 1], playerNum - 1);
+	}
+
+	/**
+	 * Finds the wall slots at which a wall would run along a space on one of the shortest
+	 * paths of any player to their goal, ignoring any pawns in the way.  Walls anywhere else
+	 * leave every player's distance to goal as it is
+	 *
+	 * @return bit set of the wall slots touching the players' shortest paths
+	 */
+	public long pathSlots() {
+		long low = 0L;
+		long high = 0L;
+		for(int i = 0; i < numPlayers; i++) {
+			long[] path = Reachability.shortestPaths(vWalls, hWalls, pawns[i], i);
+			low |= path[0];
+			high |= path[1];
+		}
+		return Reachability.touchingSlots(low, high);
+	}
+
+	/**
+	 * Finds the wall slots worth a search trying: those touching a shortest path of any
+	 * player, widened by a number of slots in every direction
+	 *
+	 * @param reach how many slots to widen the slots touching the paths by, or -1 for every slot
+	 * @return bit set of the slots
+	 */
+	public long relevantSlots(int reach) {
+		if(reach < 0) {
+			return -1L;
+		}
+		long slots = pathSlots();
+		for(int i = 0; i < reach; i++) {
+			slots = WallTable.widen(slots);
+		}
+		return slots;
+	}
+
+	/**
+	 * Finds the spaces the active player's pawn may legally move to, in increasing order
+	 *
+	 * @param moves array the target spaces are written to from its start
+	 * @return the number of target spaces written
+	 */
+	private int pawnMoves(int[] moves) {
+		int count = 0;
+		int from = pawns[turn % numPlayers];
+		for(int dir = 0; dir < 4; dir++) {
+			int next = neighbor(from, dir);
+			if(next < 0) {
+				continue;
+			}
+			if(! isOccupied(next)) {
+				// A step to an adjacent space is legal when no wall is in the way
+				if(! isBlocked(from, dir)) {
+					count = addTarget(moves, count, next);
+				}
+				continue;
+			}
+
+			// A pawn is adjacent so it may be jumped.  As in Board, a wall between the
+			// active pawn and the pawn being jumped does not prevent the jump
+			int beyond = neighbor(next, dir);
+			boolean directBlocked = beyond < 0 || isBlocked(next, dir);
+			if(! directBlocked && ! isOccupied(beyond)) {
+				count = addTarget(moves, count, beyond);
+				continue;
+			}
+
+			// A diagonal jump is legal when the direct jump is prevented by a wall, the
+			// edge of the board or another pawn
+			for(int side = (dir + 1) % 2; side < 4; side += 2) {
+				int diag = neighbor(next, side);
+				if(diag >= 0 && ! isOccupied(diag) && ! isBlocked(next, side)) {
+					count = addTarget(moves, count, diag);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Inserts a target space into the sorted targets found so far, unless it is already
+	 * there since a diagonal jump may be reached by jumping either of two pawns
+	 *
+	 * @param moves  the sorted target spaces
+	 * @param count  the number of target spaces so far
+	 * @param target the space to add
+	 * @return the new number of target spaces
+	 */
+	private static int addTarget(int[] moves, int count, int target) {
+		int i = count;
+		while(i > 0 && moves[i - 1] >= target) {
+			if(moves[i - 1] == target) {
+				return count;
+			}
+			i--;
+		}
+		System.arraycopy(moves, i, moves, i + 1, count - i);
+		moves[i] = target;
+		return count + 1;
+	}
+
+	/**
+	 * Checks whether a wall placement would be legal for a player with walls left
+	 *
+	 * @param slot the slot of the wall's designator, 8*row + col
+	 * @param dir  the direction of the wall, 0 for vertical and 1 for horizontal
+	 * @return true if the wall may be placed and false if not
+	 */
+	private boolean isLegalWall(int slot, int dir) {
+		// A designator can only designate a single wall, and walls cannot cross or overlap
+		return ! WallTable.conflicts(vWalls, hWalls, 2*slot + dir) && keepsGoalsReachable(slot, dir);
+	}
+
+	/**
+	 * Checks whether a wall placement would leave every player a route to their goal
+	 *
+	 * @param slot the slot of the wall's designator, 8*row + col
+	 * @param dir  the direction of the wall, 0 for vertical and 1 for horizontal
+	 * @return true if no player would be cut off and false if any would
+	 */
+	private boolean keepsGoalsReachable(int slot, int dir) {
+		long v = dir == 0 ? vWalls | (1L << slot) : vWalls;
+		long h = dir == 1 ? hWalls | (1L << slot) : hWalls;
+		return Reachability.allCanReach(v, h, pawns, numPlayers);
+	}
+
+	/**
+	 * Checks whether a space is one of a player's goal spaces
+	 *
+	 * @param player the index of a player, their player number - 1
+	 * @param space  the index of a space
+	 * @return true if reaching the space wins the game for the player
+	 */
+	static boolean isGoal(int player, int space) {
+		switch(player) {
+			case 0:  return space < 9;
+			case 1:  return space >= 72;
+			case 2:  return space % 9 == 8;
+			default: return space % 9 == 0;
+		}
+	}
+
+	/**
+	 * Checks whether a space is occupied by any player's pawn
+	 *
+	 * @param space the index of a space
+	 * @return true if a pawn is on the space
+	 */
+	private boolean isOccupied(int space) {
+		for(int i = 0; i < numPlayers; i++) {
+			if(pawns[i] == space) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether a step from a space in a direction is blocked by a wall on this position
+	 */
+	private boolean isBlocked(int space, int dir) {
+		return isBlocked(vWalls, hWalls, space, dir);
+	}
+
+	/**
+	 * Checks whether a step from a space in a direction is blocked by one of the given walls,
+	 * a step off the board always counts as blocked:
+	 * 0 - above
+	 * 1 - right
+	 * 2 - below
+	 * 3 - left
+	 *
+	 * @param v     bit set of the vertical wall slots
+	 * @param h     bit set of the horizontal wall slots
+	 * @param space the index of the space stepped from
+	 * @param dir   the direction of the step
+	 * @return true if the step cannot be made
+	 */
+	static boolean isBlocked(long v, long h, int space, int dir) {
+		return WallTable.isBlocked(v, h, space, dir);
+	}
+
+	/**
+	 * Returns the index of the space one step from a space in a direction
+	 *
+	 * @param space the index of a space
+	 * @param dir   the direction of the step: 0 above, 1 right, 2 below, 3 left
+	 * @return the index of the neighboring space or -1 if it would be off the board
+	 */
+	static int neighbor(int space, int dir) {
+		int col = space % 9;
+		switch(dir) {
+			case 0:  return space < 9 ? -1 : space - 9;
+			case 1:  return col == 8 ? -1 : space + 1;
+			case 2:  return space >= 72 ? -1 : space + 9;
+			default: return col == 0 ? -1 : space - 1;
+		}
+	}
+
+	/**
+	 * Converts an encoded move into the notation used by Board
+	 *
+	 * @param move an encoded move
+	 * @return the move string, such as "e2" or "c3h"
+	 */
+	public static String toNotation(int move) {
+		if(move < WALL_MOVES) {
+			return "" + (char) (move % 9 + 97) + (char) (move / 9 + 49);
+		}
+		int wall = move - WALL_MOVES;
+		int slot = wall >> 1;
+		return "" + (char) (slot % 8 + 97) + (char) (slot / 8 + 49) + ((wall & 1) == 0 ? 'v' : 'h');
+	}
+
+	/**
+	 * Converts a move string in the notation used by Board into an encoded move
+	 *
+	 * @param move a move string, such as "e2" or "c3h"
+	 * @return the encoded move
+	 */
+	public static int parseMove(String move) {
+		move = move.toLowerCase();
+		if(move.length() < 2 || move.length() > 3) {
+			throw new IllegalArgumentException("The move submitted is malformed");
+		}
+		int col = ((int) move.charAt(0)) - 97;
+		int row = ((int) move.charAt(1)) - 49;
+		if((col < 0 || col > 8) || (row < 0 || row > 8)) {
+			throw new IllegalArgumentException("The move submitted is malformed");
+		}
+		if(move.length() == 2) {
+			return 9*row + col;
+		}
+		int dir;
+		switch(move.charAt(2)) {
+			case 'v': dir = 0;
+					  break;
+			case 'h': dir = 1;
+					  break;
+			default: throw new IllegalArgumentException("Direction of wall must be 'v' or 'h'");
+		}
+		if(col == 8 || row == 8) {
+			throw new IllegalArgumentException("Walls cannot be designated by row 9 or column 9");
+		}
+		return WALL_MOVES + 2*(8*row + col) + dir;
+	}
+
+	/**
+	 * Returns a string which identifies this position in the same form as Board.positionKey
+	 *
+	 * @return the key of this position
+	 */
+	public String key() {
+		StringBuilder key = new StringBuilder();
+		for(int i = 0; i < numPlayers; i++) {
+			key.append(toNotation(pawns[i])).append(':').append(wallsLeft[i]).append(' ');
+		}
+		key.append('/').append(getActivePlayer()).append('/');
+		Set<String> sortedWalls = new TreeSet<String>();
+		for(int slot = 0; slot < 64; slot++) {
+			if((vWalls & (1L << slot)) != 0L) {
+				sortedWalls.add(toNotation(WALL_MOVES + 2*slot));
+			}
+			if((hWalls & (1L << slot)) != 0L) {
+				sortedWalls.add(toNotation(WALL_MOVES + 2*slot + 1));
+			}
+		}
+		for(String wall : sortedWalls) {
+			key.append(' ').append(wall);
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns a 64 bit hash of this position, which like equals depends on the active player
+	 * rather than the turn.  Distinct positions are very unlikely to share a hash, so it
+	 * can be used to look positions up in large tables
+	 *
+	 * @return the Zobrist hash of this position
+	 */
+	public long hash() {
+		return hash(false);
+	}
+
+	/**
+	 * Returns this position reflected left to right, with every pawn and wall moved to the
+	 * mirror image of its column.  The mirror image plays exactly like this position with
+	 * every move reflected by mirrorMove
+	 *
+	 * @return the mirror image of this position
+	 * @throws IllegalStateException if the game has 4 players, whose goals are not symmetric
+	 */
+	public Position mirror() {
+		if(numPlayers != 2) {
+			throw new IllegalStateException("Only 2 player positions can be mirrored");
+		}
+		int[] newPawns = new int[] {mirrorSpace(pawns[0]), mirrorSpace(pawns[1])};
+		return new Position(numPlayers, turn, newPawns, wallsLeft, mirrorWalls(vWalls), mirrorWalls(hWalls));
+	}
+
+	/**
+	 * Checks whether this position is in its canonical form, so that moves found from it
+	 * need no reflecting
+	 *
+	 * @return true if this is the canonical form of itself and its mirror image
+	 */
+	public boolean isCanonical() {
+		return numPlayers != 2 || hash(false) <= hash(true);
+	}
+
+	/**
+	 * Returns whichever of this position and its mirror image is the canonical form of the
+	 * pair, that with the lower hash.  A 4 player position is its own canonical form
+	 *
+	 * @return this position or its mirror image
+	 */
+	public Position canonical() {
+		return isCanonical() ? this : mirror();
+	}
+
+	/**
+	 * Returns the hash of the canonical form of this position, without making it
+	 *
+	 * @return the hash shared by this position and its mirror image
+	 */
+	public long canonicalHash() {
+		return numPlayers != 2 ? hash(false) : Math.min(hash(false), hash(true));
+	}
+
+	/**
+	 * Reflects a move left to right, turning a move from a position into the same move
+	 * from the position's mirror image and back again
+	 *
+	 * @param move an encoded move
+	 * @return the encoded move reflected
+	 */
+	public static int mirrorMove(int move) {
+		if(move < WALL_MOVES) {
+			return mirrorSpace(move);
+		}
+		int wall = move - WALL_MOVES;
+		int slot = wall >> 1;
+		return WALL_MOVES + 2*(slot - slot % 8 + 7 - slot % 8) + (wall & 1);
+	}
+
+	/**
+	 * Returns the space in the mirror image of a space's column
+	 */
+	private static int mirrorSpace(int space) {
+		return space - space % 9 + 8 - space % 9;
+	}
+
+	/**
+	 * Returns a bit set of wall slots with each slot moved to the mirror image of its column,
+	 * reversing every bit and then putting the rows, one to a byte, back in order
+	 */
+	private static long mirrorWalls(long walls) {
+		return Long.reverseBytes(Long.reverse(walls));
+	}
+
+	/**
+	 * Computes the hash of this position or of its mirror image
+	 */
+	private long hash(boolean mirrored) {
+		long hash = ACTIVE_KEYS[turn % numPlayers];
+		for(int i = 0; i < numPlayers; i++) {
+			hash ^= PAWN_KEYS[i][mirrored ? mirrorSpace(pawns[i]) : pawns[i]] ^ WALLS_LEFT_KEYS[i][wallsLeft[i]];
+		}
+		for(long v = mirrored ? mirrorWalls(vWalls) : vWalls; v != 0L; v &= v - 1) {
+			hash ^= WALL_KEYS[0][Long.numberOfTrailingZeros(v)];
+		}
+		for(long h = mirrored ? mirrorWalls(hWalls) : hWalls; h != 0L; h &= h - 1) {
+			hash ^= WALL_KEYS[1][Long.numberOfTrailingZeros(h)];
+		}
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(! (o instanceof Position)) {
+			return false;
+		}
+		Position other = (Position) o;
+		return numPlayers == other.numPlayers && getActivePlayer() == other.getActivePlayer()
+				&& vWalls == other.vWalls && hWalls == other.hWalls
+				&& Arrays.equals(pawns, other.pawns) && Arrays.equals(wallsLeft, other.wallsLeft);
+	}
+
+	@Override
+	public int hashCode() {
+		long hash = vWalls * 31 + hWalls;
+		hash = hash * 31 + Arrays.hashCode(pawns);
+		hash = hash * 31 + Arrays.hashCode(wallsLeft);
+		return (int) (hash ^ (hash >>> 32)) * 31 + getActivePlayer();
+	}
+
+	@Override
+	public String toString() {
+		return key();
+	}
+}
@@ -0,0 +1,764 @@
+package santanjm.quoridor;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Rates the players of every finished game by both the Elo and the Glicko-2 systems.  The
+ * results of games stream in from the boards attached to the service as they are won, and
+ * are applied by a single writer thread in the order they arrive, so that no two updates
+ * ever race for a player's rating.  Lookups and leaderboards are served from concurrent
+ * maps and sorted indexes the writer keeps up to date, without waiting on it.
+ *
+ * Glicko-2 rates players over rating periods, every game of a period being scored against
+ * the ratings as they stood at its start.  As games stream in, each is rated on its own
+ * against the ratings of the moment, and the periods only count how long players have sat
+ * out, their deviations growing by one period's volatility for each period passed without
+ * a game.  Recomputing the full history instead buckets the games by period, working the
+ * buckets through in order and, since every player's update within a bucket depends only
+ * on the ratings at its start, updating the players of a bucket in parallel.  Elo is
+ * bucketed in the same way, each player moving by the sum of their games' changes.  The
+ * two agree whenever nobody plays twice in a period.
+ *
+ * In a 4 player game the winner beats each of the other three, who are not scored against
+ * each other.
+ * @author santanjm
+ */
+public class RatingService {
+	// Rating systems, for leaderboards
+	public static final int ELO = 0;
+	public static final int GLICKO = 1;
+
+	// The rating, deviation and volatility new players start with
+	public static final double INITIAL_RATING = 1500.0;
+	public static final double INITIAL_DEVIATION = 350.0;
+	public static final double INITIAL_VOLATILITY = 0.06;
+
+	// The most an Elo rating moves by in a single game
+	public static final double K_FACTOR = 32.0;
+
+	// The Glicko-2 system constant, which limits how quickly volatility can change
+	static final double TAU = 0.5;
+
+	// The ratio of the Glicko scale to the Glicko-2 scale
+	static final double SCALE = 173.7178;
+
+	// How closely the new volatility is worked out
+	static final double EPSILON = 0.000001;
+
+	// The length of a rating period in milliseconds
+	final long periodMillis;
+
+	// The threads recomputations update players on
+	final ExecutorService pool;
+
+	// The number of threads in the pool
+	final int threads;
+
+	// Every player's rating, by player id
+	volatile ConcurrentHashMap<Long, Rating> ratings = new ConcurrentHashMap<Long, Rating>();
+
+	// Every player's rating, highest first by each system
+	volatile ConcurrentSkipListSet<Rating> byElo = new ConcurrentSkipListSet<Rating>(ELO_ORDER);
+	volatile ConcurrentSkipListSet<Rating> byGlicko = new ConcurrentSkipListSet<Rating>(GLICKO_ORDER);
+
+	// Every result applied so far, in the order it was applied.  Only the writer touches it
+	final List<Result> history = new ArrayList<Result>();
+
+	// The work waiting for the writer
+	final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
+
+	// The thread applying results
+	final Thread writer;
+
+	// Whether the service is still accepting results
+	volatile boolean open = true;
+
+	// What the last piece of queued work to fail threw, if any
+	volatile RuntimeException failure;
+
+	// Orders ratings highest first by Elo, then by player id
+	static final Comparator<Rating> ELO_ORDER = new Comparator<Rating>() {
+		public int compare(Rating a, Rating b) {
+			int order = Double.compare(b.elo, a.elo);
+			return order != 0 ? order : Long.compare(a.playerId, b.playerId);
+		}
+	};
+
+	// Orders ratings highest first by Glicko-2 rating, then by player id
+	static final Comparator<Rating> GLICKO_ORDER = new Comparator<Rating>() {
+		public int compare(Rating a, Rating b) {
+			int order = Double.compare(b.rating, a.rating);
+			return order != 0 ? order : Long.compare(a.playerId, b.playerId);
+		}
+	};
+
+	/**
+	 * Constructs a rating service whose recomputations use a thread per core
+	 *
+	 * @param periodMillis the length of a rating period in milliseconds
+	 */
+	public RatingService(long periodMillis) {
+		this(periodMillis, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a rating service
+	 *
+	 * @param periodMillis the length of a rating period in milliseconds
+	 * @param threads      the number of threads recomputations update players on
+	 */
+	public RatingService(long periodMillis, int threads) {
+		if(periodMillis < 1 || threads < 1) {
+			throw new IllegalArgumentException("A rating service needs a positive period and at least one thread");
+		}
+		this.periodMillis = periodMillis;
+		this.threads = threads;
+		pool = Executors.newFixedThreadPool(threads);
+		writer = new Thread(new Runnable() {
+			public void run() {
+				write();
+			}
+		}, "ratings");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Starts rating the game played on a board, whose result is submitted when a move made
+	 * by executeMove wins it
+	 *
+	 * @param b         the board the game is played on
+	 * @param playerIds the id of the player playing as each player number, by player number - 1
+	 */
+	public void attach(Board b, long[] playerIds) {
+		if(playerIds.length != b.numPlayers) {
+			throw new IllegalArgumentException("The game needs an id for each of its " + b.numPlayers + " players");
+		}
+		b.ratedPlayers = playerIds.clone();
+		b.ratings = this;
+	}
+
+	/**
+	 * Queues the result of a game to be rated
+	 *
+	 * @param gameId    the id of the game
+	 * @param playerIds the id of the player playing as each player number, by player number - 1
+	 * @param winner    the player number of the winner
+	 * @param playedAt  the time the game ended, in milliseconds since the epoch
+	 */
+	public void submit(long gameId, long[] playerIds, int winner, long playedAt) {
+		if(playerIds.length != 2 && playerIds.length != 4) {
+			throw new IllegalArgumentException("Games are played by 2 or 4 players");
+		}
+		if(winner < 1 || winner > playerIds.length) {
+			throw new IllegalArgumentException("No player " + winner + " in the game");
+		}
+		final Result result = new Result(gameId, playerIds.clone(), winner, playedAt);
+		enqueue(new Runnable() {
+			public void run() {
+				apply(result);
+			}
+		});
+	}
+
+	/**
+	 * Waits until every result queued so far has been rated
+	 */
+	public void flush() throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(1);
+		enqueue(new Runnable() {
+			public void run() {
+				done.countDown();
+			}
+		});
+		done.await();
+	}
+
+	/**
+	 * Rates every result applied so far again from scratch, bucketed by rating period, and
+	 * swaps the new ratings in once they are all worked out.  Results queued after this
+	 * call are applied on top of the recomputed ratings
+	 *
+	 * @throws ExecutionException if the ratings could not be recomputed, leaving those being
+	 *                            served as they were
+	 */
+	public void recompute() throws InterruptedException, ExecutionException {
+		final CountDownLatch done = new CountDownLatch(1);
+		final ExecutionException[] failure = new ExecutionException[1];
+		enqueue(new Runnable() {
+			public void run() {
+				Throwable thrown = null;
+				boolean swapped = false;
+				try {
+					Map<Long, Rating> computed = compute(history);
+					ConcurrentHashMap<Long, Rating> newRatings = new ConcurrentHashMap<Long, Rating>(computed);
+					ConcurrentSkipListSet<Rating> newByElo = new ConcurrentSkipListSet<Rating>(ELO_ORDER);
+					ConcurrentSkipListSet<Rating> newByGlicko = new ConcurrentSkipListSet<Rating>(GLICKO_ORDER);
+					newByElo.addAll(computed.values());
+					newByGlicko.addAll(computed.values());
+					ratings = newRatings;
+					byElo = newByElo;
+					byGlicko = newByGlicko;
+					swapped = true;
+				} catch(ExecutionException e) {
+					thrown = e.getCause();
+				} catch(InterruptedException e) {
+					thrown = e;
+				} catch(RuntimeException e) {
+					thrown = e;
+				} finally {
+					// Anything else thrown is reported too, without a cause
+					if(! swapped) {
+						failure[0] = new ExecutionException("The ratings could not be recomputed", thrown);
+					}
+					done.countDown();
+				}
+			}
+		});
+		done.await();
+		if(failure[0] != null) {
+			throw failure[0];
+		}
+	}
+
+	/**
+	 * Rates a history of results from scratch, bucketed by rating period, without touching
+	 * the ratings the service is serving
+	 *
+	 * @param results the results, in any order
+	 * @return the rating of every player in the results, by player id
+	 */
+	public Map<Long, Rating> compute(List<Result> results) throws InterruptedException, ExecutionException {
+		List<Result> sorted = new ArrayList<Result>(results);
+		Collections.sort(sorted, new Comparator<Result>() {
+			public int compare(Result a, Result b) {
+				return Long.compare(a.playedAt, b.playedAt);
+			}
+		});
+
+		Map<Long, Rating> computed = new HashMap<Long, Rating>();
+		int from = 0;
+		while(from < sorted.size()) {
+			long period = periodOf(sorted.get(from).playedAt);
+			int to = from;
+			while(to < sorted.size() && periodOf(sorted.get(to).playedAt) == period) {
+				to++;
+			}
+			rateBucket(sorted.subList(from, to), period, computed, true);
+			from = to;
+		}
+		return computed;
+	}
+
+	/**
+	 * Returns the rating of a player
+	 *
+	 * @param playerId the id of a player
+	 * @return the player's rating, which is the initial one if they have not been rated
+	 */
+	public Rating getRating(long playerId) {
+		Rating rating = ratings.get(playerId);
+		return rating != null ? rating : new Rating(playerId);
+	}
+
+	/**
+	 * Returns the highest rated players by a rating system.  The leaderboard is read from
+	 * the index as it is being kept up to date, so a player being rerated as it is read
+	 * may be left out of it or appear in it twice
+	 *
+	 * @param system ELO or GLICKO
+	 * @param count  the most players to return
+	 * @return the ratings of the highest rated players, highest first
+	 */
+	public List<Rating> getLeaderboard(int system, int count) {
+		NavigableSet<Rating> index = system == ELO ? byElo : byGlicko;
+		List<Rating> top = new ArrayList<Rating>(Math.min(count, 1024));
+		Iterator<Rating> it = index.iterator();
+		while(top.size() < count && it.hasNext()) {
+			top.add(it.next());
+		}
+		return top;
+	}
+
+	/**
+	 * Getter for what the last piece of work on the writer thread to fail threw, such as a
+	 * result which could not be rated.  The writer carries on with the work after it
+	 *
+	 * @return the failure, or null if nothing has failed
+	 */
+	public RuntimeException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Getter for the number of players rated
+	 *
+	 * @return the number of players who have played a rated game
+	 */
+	public int getPlayerCount() {
+		return ratings.size();
+	}
+
+	/**
+	 * Rates every result still queued and stops the writer and the recomputation threads
+	 */
+	public void close() throws InterruptedException {
+		flush();
+		synchronized(this) {
+			open = false;
+		}
+		writer.interrupt();
+		writer.join();
+		pool.shutdown();
+	}
+
+	/**
+	 * Queues work for the writer
+	 */
+	synchronized void enqueue(Runnable work) {
+		if(! open) {
+			throw new IllegalStateException("The rating service has been closed");
+		}
+		queue.add(work);
+	}
+
+	/**
+	 * Does the queued work, one piece at a time, until the service is closed.  Work which
+	 * fails is recorded and skipped, so that the work queued behind it, and anything waiting
+	 * on that, still gets done
+	 */
+	private void write() {
+		while(open || ! queue.isEmpty()) {
+			Runnable work;
+			try {
+				work = queue.take();
+			} catch(InterruptedException e) {
+				continue;
+			}
+			try {
+				work.run();
+			} catch(RuntimeException e) {
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	 * Rates a single result against the ratings being served and records it in the history,
+	 * on the writer thread
+	 *
+	 * @param result the result of a game
+	 */
+	void apply(Result result) {
+		history.add(result);
+		try {
+			rateBucket(Collections.singletonList(result), periodOf(result.playedAt), ratings, false);
+		} catch(InterruptedException e) {
+			// Rated on this thread, nothing waits
+			throw new IllegalStateException(e);
+		} catch(ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Rates the results of a rating period, each player against the ratings as they stood
+	 * at its start, and puts the new ratings in a map.  The indexes are kept in step when
+	 * the map is the one being served
+	 *
+	 * @param bucket   the results of the period
+	 * @param period   the number of the period
+	 * @param into     the ratings as they stood at the start of the period, by player id
+	 * @param parallel whether to update the players on the pool
+	 */
+	private void rateBucket(List<Result> bucket, final long period, final Map<Long, Rating> into,
+			boolean parallel) throws InterruptedException, ExecutionException {
+		// Each player's games in the period, as the ids of their opponents and their scores
+		final Map<Long, Games> games = new LinkedHashMap<Long, Games>();
+		for(Result result : bucket) {
+			long winner = result.playerIds[result.winner - 1];
+			for(int i = 0; i < result.playerIds.length; i++) {
+				if(i != result.winner - 1) {
+					gamesOf(games, winner).add(result.playerIds[i], 1.0);
+					gamesOf(games, result.playerIds[i]).add(winner, 0.0);
+				}
+			}
+		}
+		final Long[] players = games.keySet().toArray(new Long[games.size()]);
+		final Rating[] updated = new Rating[players.length];
+
+		int slices = parallel ? Math.min(threads, players.length) : 1;
+		if(slices <= 1) {
+			for(int i = 0; i < players.length; i++) {
+				updated[i] = update(before(into, players[i]), games.get(players[i]), into, period);
+			}
+		} else {
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for(int slice = 0; slice < slices; slice++) {
+				final int first = slice*players.length/slices;
+				final int last = (slice + 1)*players.length/slices;
+				tasks.add(new Callable<Void>() {
+					public Void call() {
+						for(int i = first; i < last; i++) {
+							updated[i] = update(before(into, players[i]), games.get(players[i]), into, period);
+						}
+						return null;
+					}
+				});
+			}
+			for(Future<Void> done : pool.invokeAll(tasks)) {
+				done.get();
+			}
+		}
+
+		boolean served = into == ratings;
+		for(Rating rating : updated) {
+			Rating old = into.put(rating.playerId, rating);
+			if(served) {
+				if(old != null) {
+					byElo.remove(old);
+					byGlicko.remove(old);
+				}
+				byElo.add(rating);
+				byGlicko.add(rating);
+			}
+		}
+	}
+
+	/**
+	 * Returns the games of a player in a period, adding a player with none yet
+	 */
+	private static Games gamesOf(Map<Long, Games> games, long playerId) {
+		Games g = games.get(playerId);
+		if(g == null) {
+			g = new Games();
+			games.put(playerId, g);
+		}
+		return g;
+	}
+
+	/**
+	 * Returns a player's rating from a map, or the initial one if they are not in it
+	 */
+	private static Rating before(Map<Long, Rating> ratings, long playerId) {
+		Rating rating = ratings.get(playerId);
+		return rating != null ? rating : new Rating(playerId);
+	}
+
+	/**
+	 * Returns the rating period a time falls in
+	 *
+	 * @param time a time in milliseconds since the epoch
+	 * @return the number of the period
+	 */
+	long periodOf(long time) {
+		return Math.floorDiv(time, periodMillis);
+	}
+
+	/**
+	 * Works out a player's new rating after a rating period by both systems
+	 *
+	 * @param player  the player's rating at the start of the period
+	 * @param games   the player's games in the period
+	 * @param ratings the ratings at the start of the period, by player id
+	 * @param period  the number of the period
+	 * @return the player's rating at the end of the period
+	 */
+	static Rating update(Rating player, Games games, Map<Long, Rating> ratings, long period) {
+		double elo = player.elo;
+		double mu = (player.rating - INITIAL_RATING)/SCALE;
+		double phi = deviation(player, period);
+		double sigma = player.volatility;
+
+		// The estimated variance of the rating from the games and the improvement it shows
+		double variance = 0.0;
+		double improvement = 0.0;
+		for(int i = 0; i < games.count; i++) {
+			Rating opponent = before(ratings, games.opponents[i]);
+			double score = games.scores[i];
+			elo += K_FACTOR*(score - 1.0/(1.0 + Math.pow(10.0, (opponent.elo - player.elo)/400.0)));
+
+			double g = g(deviation(opponent, period));
+			double expected = 1.0/(1.0 + Math.exp(-g*(mu - (opponent.rating - INITIAL_RATING)/SCALE)));
+			variance += g*g*expected*(1.0 - expected);
+			improvement += g*(score - expected);
+		}
+		variance = 1.0/variance;
+		double delta = variance*improvement;
+
+		double newSigma = volatility(delta, phi, variance, sigma);
+		double phiStar = Math.sqrt(phi*phi + newSigma*newSigma);
+		double newPhi = 1.0/Math.sqrt(1.0/(phiStar*phiStar) + 1.0/variance);
+		double newMu = mu + newPhi*newPhi*improvement;
+		return new Rating(player.playerId, elo, SCALE*newMu + INITIAL_RATING, SCALE*newPhi, newSigma,
+				player.games + games.count, period);
+	}
+
+	/**
+	 * Finds a player's deviation on the Glicko-2 scale at the start of a period, grown by
+	 * their volatility for each period they sat out since their last game, up to that of a
+	 * new player
+	 *
+	 * @param player a player's rating
+	 * @param period the number of the period
+	 * @return the deviation on the Glicko-2 scale
+	 */
+	static double deviation(Rating player, long period) {
+		double phi = player.deviation/SCALE;
+		long idle = player.period < 0 ? 0 : period - player.period - 1;
+		if(idle > 0) {
+			phi = Math.sqrt(phi*phi + idle*player.volatility*player.volatility);
+		}
+		return Math.min(phi, INITIAL_DEVIATION/SCALE);
+	}
+
+	/**
+	 * Reduces the weight of a game by the opponent's deviation
+	 */
+	private static double g(double phi) {
+		return 1.0/Math.sqrt(1.0 + 3.0*phi*phi/(Math.PI*Math.PI));
+	}
+
+	/**
+	 * Finds a player's new volatility by the Illinois algorithm, as in step 5 of Glickman's
+	 * description of Glicko-2
+	 *
+	 * @param delta    the estimated improvement in rating
+	 * @param phi      the deviation on the Glicko-2 scale
+	 * @param variance the estimated variance of the rating from the games
+	 * @param sigma    the volatility
+	 * @return the new volatility
+	 */
+	static double volatility(double delta, double phi, double variance, double sigma) {
+		double a = Math.log(sigma*sigma);
+		double big = phi*phi + variance;
+		double lower = a;
+		double upper;
+		if(delta*delta > big) {
+			upper = Math.log(delta*delta - big);
+		} else {
+			int k = 1;
+			while(volatilityTarget(a - k*TAU, delta, big, a) < 0.0) {
+				k++;
+			}
+			upper = a - k*TAU;
+		}
+		double fLower = volatilityTarget(lower, delta, big, a);
+		double fUpper = volatilityTarget(upper, delta, big, a);
+		while(Math.abs(upper - lower) > EPSILON) {
+			double c = lower + (lower - upper)*fLower/(fUpper - fLower);
+			double fC = volatilityTarget(c, delta, big, a);
+			if(fC*fUpper < 0.0) {
+				lower = upper;
+				fLower = fUpper;
+			} else {
+				fLower /= 2.0;
+			}
+			upper = c;
+			fUpper = fC;
+		}
+		return Math.exp(lower/2.0);
+	}
+
+	/**
+	 * The function whose root is the log of the squared new volatility
+	 */
+	private static double volatilityTarget(double x, double delta, double big, double a) {
+		double ex = Math.exp(x);
+		return ex*(delta*delta - big - ex)/(2.0*(big + ex)*(big + ex)) - (x - a)/(TAU*TAU);
+	}
+
+	/**
+	 * A player's games in a rating period
+	 */
+	static class Games {
+		// The ids of the opponents and the player's score against each, 1 for a win and
+		// 0 for a loss, only the first count in use
+		long[] opponents = new long[4];
+		double[] scores = new double[4];
+		int count;
+
+		/**
+		 * Adds a game
+		 *
+		 * @param opponent the id of the opponent
+		 * @param score    1 for a win and 0 for a loss
+		 */
+		void add(long opponent, double score) {
+			if(count == opponents.length) {
+				opponents = Arrays.copyOf(opponents, 2*count);
+				scores = Arrays.copyOf(scores, 2*count);
+			}
+			opponents[count] = opponent;
+			scores[count] = score;
+			count++;
+		}
+	}
+
+	/**
+	 * The result of a finished game
+	 */
+	public static class Result {
+		// The id of the game
+		final long gameId;
+
+		// The id of the player playing as each player number, by player number - 1
+		final long[] playerIds;
+
+		// The player number of the winner
+		final int winner;
+
+		// The time the game ended, in milliseconds since the epoch
+		final long playedAt;
+
+		/**
+		 * Constructs the result of a game
+		 *
+		 * @param gameId    the id of the game
+		 * @param playerIds the id of the player playing as each player number, by player number - 1
+		 * @param winner    the player number of the winner
+		 * @param playedAt  the time the game ended, in milliseconds since the epoch
+		 */
+		public Result(long gameId, long[] playerIds, int winner, long playedAt) {
+			this.gameId = gameId;
+			this.playerIds = playerIds;
+			this.winner = winner;
+			this.playedAt = playedAt;
+		}
+
+		/**
+		 * Getter for the id of the game
+		 *
+		 * @return the game id
+		 */
+		public long getGameId() {
+			return gameId;
+		}
+
+		/**
+		 * Getter for the id of the winner
+		 *
+		 * @return the player id of the winner
+		 */
+		public long getWinnerId() {
+			return playerIds[winner - 1];
+		}
+
+		/**
+		 * Getter for the time the game ended
+		 *
+		 * @return the time in milliseconds since the epoch
+		 */
+		public long getPlayedAt() {
+			return playedAt;
+		}
+	}
+
+	/**
+	 * A player's ratings by both systems as of their last rated game, which never changes
+	 */
+	public static class Rating {
+		// The id of the player
+		final long playerId;
+
+		// The Elo rating
+		final double elo;
+
+		// The Glicko-2 rating, deviation and volatility, the first two on the Glicko scale
+		final double rating;
+		final double deviation;
+		final double volatility;
+
+		// The number of rated games played
+		final int games;
+
+		// The rating period of the last rated game, -1 if there has been none
+		final long period;
+
+		/**
+		 * Constructs the rating of a new player
+		 *
+		 * @param playerId the id of the player
+		 */
+		Rating(long playerId) {
+			this(playerId, INITIAL_RATING, INITIAL_RATING, INITIAL_DEVIATION, INITIAL_VOLATILITY, 0, -1);
+		}
+
+		Rating(long playerId, double elo, double rating, double deviation, double volatility, int games, long period) {
+			this.playerId = playerId;
+			this.elo = elo;
+			this.rating = rating;
+			this.deviation = deviation;
+			this.volatility = volatility;
+			this.games = games;
+			this.period = period;
+		}
+
+		/**
+		 * Getter for the id of the player
+		 *
+		 * @return the player id
+		 */
+		public long getPlayerId() {
+			return playerId;
+		}
+
+		/**
+		 * Getter for the Elo rating
+		 *
+		 * @return the Elo rating
+		 */
+		public double getElo() {
+			return elo;
+		}
+
+		/**
+		 * Getter for the Glicko-2 rating, on the Glicko scale
+		 *
+		 * @return the Glicko-2 rating
+		 */
+		public double getRating() {
+			return rating;
+		}
+
+		/**
+		 * Getter for the Glicko-2 rating deviation, on the Glicko scale
+		 *
+		 * @return the rating deviation
+		 */
+		public double getDeviation() {
+			return deviation;
+		}
+
+		/**
+		 * Getter for the Glicko-2 rating volatility
+		 *
+		 * @return the volatility
+		 */
+		public double getVolatility() {
+			return volatility;
+		}
+
+		/**
+		 * Getter for the number of rated games played
+		 *
+		 * @return the number of games
+		 */
+		public int getGames() {
+			return games;
+		}
+
+		/**
+		 * Returns a string representation of the rating
+		 *
+		 * @return the player id and ratings
+		 */
+		public String toString() {
+			return String.format("%d: elo %.1f, glicko %.1f (rd %.1f, vol %.5f), %d games",
+					playerId, elo, rating, deviation, volatility, games);
+		}
+	}
+}
@@ -0,0 +1,329 @@
+package santanjm.quoridor;
+
+import santanjm.quoridor.*;
+
+/**
+ * Finds whether and in how many steps players can reach their goals through a set of walls,
+ * ignoring any pawns in the way, by flooding outwards from a pawn a whole layer of spaces at
+ * a time rather than visiting spaces one by one.
+ *
+ * The 81 spaces are held as a 128 bit set split over two longs, the low long holding spaces
+ * 0 to 63 and the high long spaces 64 to 80, so that a step right is a shift by 1 and a step
+ * down a shift by 9.  The walls are turned into the sets of spaces whose right and bottom
+ * edges are open, and each layer of the flood is the spaces already reached plus every
+ * space one open step from them.  The number of layers before a goal space is reached is
+ * the distance to the goal, and a layer which adds nothing means there is no way through.
+ * @author santanjm
+ */
+public class Reachability {
+	// The spaces not in the last column, whose right edges lead onto the board
+	static final long RIGHT_LOW;
+	static final long RIGHT_HIGH;
+
+	// The spaces not in the last row, whose bottom edges lead onto the board
+	static final long DOWN_LOW;
+	static final long DOWN_HIGH;
+
+	// Each player's goal spaces, by player number - 1
+	static final long[] GOAL_LOW = new long[4];
+	static final long[] GOAL_HIGH = new long[4];
+
+	static {
+		long rightLow = 0L;
+		long rightHigh = 0L;
+		long downLow = 0L;
+		long downHigh = 0L;
+		for(int space = 0; space < 81; space++) {
+			boolean low = space < 64;
+			long bit = 1L << (space & 63);
+			if(space % 9 != 8) {
+				rightLow |= low ? bit : 0L;
+				rightHigh |= low ? 0L : bit;
+			}
+			if(space < 72) {
+				downLow |= low ? bit : 0L;
+				downHigh |= low ? 0L : bit;
+			}
+			for(int player = 0; player < 4; player++) {
+				if(Position.isGoal(player, space)) {
+					GOAL_LOW[player] |= low ? bit : 0L;
+					GOAL_HIGH[player] |= low ? 0L : bit;
+				}
+			}
+		}
+		RIGHT_LOW = rightLow;
+		RIGHT_HIGH = rightHigh;
+		DOWN_LOW = downLow;
+		DOWN_HIGH = downHigh;
+	}
+
+	private Reachability() {
+	}
+
+	/**
+	 * Finds the fewest steps from a space to one of a player's goal spaces through the walls
+	 *
+	 * @param v      bit set of the vertical wall slots
+	 * @param h      bit set of the horizontal wall slots
+	 * @param space  the index of the space to start from
+	 * @param player the index of a player, their player number - 1
+	 * @return the number of steps, or -1 if none of the player's goal spaces can be reached
+	 */
+	public static int distance(long v, long h, int space, int player) {
+		long[] open = openEdges(v, h);
+		return flood(open, space, player);
+	}
+
+	/**
+	 * Checks whether one of a player's goal spaces can be reached from a space through the walls
+	 *
+	 * @param v      bit set of the vertical wall slots
+	 * @param h      bit set of the horizontal wall slots
+	 * @param space  the index of the space to start from
+	 * @param player the index of a player, their player number - 1
+	 * @return true if there is a path to one of the player's goal spaces and false if not
+	 */
+	public static boolean canReach(long v, long h, int space, int player) {
+		return distance(v, h, space, player) >= 0;
+	}
+
+	/**
+	 * Checks whether every player can reach one of their goal spaces through the walls
+	 *
+	 * @param v          bit set of the vertical wall slots
+	 * @param h          bit set of the horizontal wall slots
+	 * @param pawns      the space index of each player's pawn, by player number - 1
+	 * @param numPlayers the number of players
+	 * @return true if no player is cut off from their goal and false if any is
+	 */
+	public static boolean allCanReach(long v, long h, int[] pawns, int numPlayers) {
+		long[] open = openEdges(v, h);
+		for(int i = 0; i < numPlayers; i++) {
+			if(flood(open, pawns[i], i) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the spaces whose right and bottom edges can be stepped across through the walls
+	 *
+	 * @param v bit set of the vertical wall slots
+	 * @param h bit set of the horizontal wall slots
+	 * @return the low and high longs of the spaces open to the right, then of those open below
+	 */
+	static long[] openEdges(long v, long h) {
+		// A vertical wall closes the right edges of its designator and the space below it,
+		// a horizontal wall the bottom edges of its designator and the space right of it
+		long vLow = spreadLow(v);
+		long vHigh = spreadHigh(v);
+		long hLow = spreadLow(h);
+		long hHigh = spreadHigh(h);
+		return new long[] {
+			RIGHT_LOW & ~(vLow | (vLow << 9)),
+			RIGHT_HIGH & ~(vHigh | (vHigh << 9) | (vLow >>> 55)),
+			DOWN_LOW & ~(hLow | (hLow << 1)),
+			DOWN_HIGH & ~(hHigh | (hHigh << 1) | (hLow >>> 63))
+		};
+	}
+
+	/**
+	 * Finds the spaces whose right and bottom edges can be stepped across through the walls,
+	 * as openEdges does, writing them into one slot of each of the given arrays rather than a
+	 * new array
+	 *
+	 * @param v         bit set of the vertical wall slots
+	 * @param h         bit set of the horizontal wall slots
+	 * @param rightLow  the low longs of the spaces open to the right
+	 * @param rightHigh the high longs of the spaces open to the right
+	 * @param downLow   the low longs of the spaces open below
+	 * @param downHigh  the high longs of the spaces open below
+	 * @param index     the slot to write
+	 */
+	static void openEdges(long v, long h, long[] rightLow, long[] rightHigh, long[] downLow, long[] downHigh,
+			int index) {
+		long vLow = spreadLow(v);
+		long vHigh = spreadHigh(v);
+		long hLow = spreadLow(h);
+		long hHigh = spreadHigh(h);
+		rightLow[index] = RIGHT_LOW & ~(vLow | (vLow << 9));
+		rightHigh[index] = RIGHT_HIGH & ~(vHigh | (vHigh << 9) | (vLow >>> 55));
+		downLow[index] = DOWN_LOW & ~(hLow | (hLow << 1));
+		downHigh[index] = DOWN_HIGH & ~(hHigh | (hHigh << 1) | (hLow >>> 63));
+	}
+
+	/**
+	 * Moves the bits of a set of wall slots, 8 to a row, onto the spaces designating them,
+	 * 9 to a row, keeping those which fall in the low long.  Slot 8*row + col moves up by
+	 * row, which is done as moves of 4, 2 and 1 of the rows with each of those bits of their
+	 * row number set, none of which lands one row on another
+	 *
+	 * @param slots bit set of wall slots
+	 * @return the designating spaces from 0 to 63
+	 */
+	static long spreadLow(long slots) {
+		long low = (slots & 0x00000000FFFFFFFFL) | ((slots & 0xFFFFFFFF00000000L) << 4);
+		low = (low & ~0xFFF00000FFFF0000L) | ((low & 0xFFF00000FFFF0000L) << 2);
+		return (low & ~0xC00FF003FC00FF00L) | ((low & 0xC00FF003FC00FF00L) << 1);
+	}
+
+	/**
+	 * Moves the bits of a set of wall slots onto the spaces designating them, keeping those
+	 * which fall in the high long, see spreadLow.  Only the last row, but for its first slot,
+	 * reaches past the low long
+	 *
+	 * @param slots bit set of wall slots
+	 * @return the designating spaces from 64 to 80, from the bottom of the long
+	 */
+	static long spreadHigh(long slots) {
+		return slots >>> 57;
+	}
+
+	/**
+	 * Floods outwards from a space one layer of steps at a time until a goal space is reached
+	 * or the flood stops spreading
+	 *
+	 * @param open   the open edges, as returned by openEdges
+	 * @param space  the index of the space to start from
+	 * @param player the index of a player, their player number - 1
+	 * @return the number of layers flooded before reaching a goal space, or -1 if none is reached
+	 */
+	static int flood(long[] open, int space, int player) {
+		long low = space < 64 ? 1L << space : 0L;
+		long high = space < 64 ? 0L : 1L << (space - 64);
+		return flood(open[0], open[1], open[2], open[3], low, high, GOAL_LOW[player], GOAL_HIGH[player]);
+	}
+
+	/**
+	 * Floods outwards from a set of spaces one layer of steps at a time until a goal space is
+	 * reached or the flood stops spreading, each 128 bit set of spaces given as its low and
+	 * high longs
+	 *
+	 * @param rightLow  the spaces open to the right
+	 * @param rightHigh
+	 * @param downLow   the spaces open below
+	 * @param downHigh
+	 * @param low       the spaces flooded from
+	 * @param high
+	 * @param goalLow   the goal spaces
+	 * @param goalHigh
+	 * @return the number of layers flooded before reaching a goal space, or -1 if none is reached
+	 */
+	static int flood(long rightLow, long rightHigh, long downLow, long downHigh,
+			long low, long high, long goalLow, long goalHigh) {
+		for(int steps = 0; ; steps++) {
+			if(((low & goalLow) | (high & goalHigh)) != 0L) {
+				return steps;
+			}
+			long nextLow = low | stepLow(low, high, rightLow, downLow);
+			long nextHigh = high | stepHigh(low, high, rightLow, rightHigh, downLow, downHigh);
+			if(nextLow == low && nextHigh == high) {
+				return -1;
+			}
+			low = nextLow;
+			high = nextHigh;
+		}
+	}
+
+	/**
+	 * Finds every space on any of the shortest paths from a space to one of a player's goal
+	 * spaces through the walls.  The flood out from the space is kept a layer at a time, then
+	 * walked back from the goal spaces it first reached, keeping in each layer only the spaces
+	 * a step from those kept in the layer after it
+	 *
+	 * @param v      bit set of the vertical wall slots
+	 * @param h      bit set of the horizontal wall slots
+	 * @param space  the index of the space to start from
+	 * @param player the index of a player, their player number - 1
+	 * @return the low and high longs of the spaces on the shortest paths, both 0 if none of
+	 *         the player's goal spaces can be reached
+	 */
+	public static long[] shortestPaths(long v, long h, int space, int player) {
+		long[] open = openEdges(v, h);
+		long goalLow = GOAL_LOW[player];
+		long goalHigh = GOAL_HIGH[player];
+
+		// The spaces reached after each number of steps
+		long[] reachedLow = new long[82];
+		long[] reachedHigh = new long[82];
+		long low = space < 64 ? 1L << space : 0L;
+		long high = space < 64 ? 0L : 1L << (space - 64);
+		int steps = 0;
+		while(((low & goalLow) | (high & goalHigh)) == 0L) {
+			reachedLow[steps] = low;
+			reachedHigh[steps] = high;
+			long nextLow = low | stepLow(low, high, open[0], open[2]);
+			long nextHigh = high | stepHigh(low, high, open[0], open[1], open[2], open[3]);
+			if(nextLow == low && nextHigh == high) {
+				return new long[] {0L, 0L};
+			}
+			low = nextLow;
+			high = nextHigh;
+			steps++;
+		}
+
+		long frontLow = low & goalLow;
+		long frontHigh = high & goalHigh;
+		long pathLow = frontLow;
+		long pathHigh = frontHigh;
+		for(int k = steps - 1; k >= 0; k--) {
+			// The spaces exactly k steps away
+			long layerLow = reachedLow[k] & (k > 0 ? ~reachedLow[k - 1] : -1L);
+			long layerHigh = reachedHigh[k] & (k > 0 ? ~reachedHigh[k - 1] : -1L);
+			long nextLow = stepLow(frontLow, frontHigh, open[0], open[2]) & layerLow;
+			frontHigh = stepHigh(frontLow, frontHigh, open[0], open[1], open[2], open[3]) & layerHigh;
+			frontLow = nextLow;
+			pathLow |= frontLow;
+			pathHigh |= frontHigh;
+		}
+		return new long[] {pathLow, pathHigh};
+	}
+
+	/**
+	 * Finds the wall slots whose walls would run along an edge of any of a set of spaces,
+	 * that is whose designator is the space, or the space left of, above or above and left
+	 * of it
+	 *
+	 * @param low  the low long of the set of spaces
+	 * @param high the high long of the set of spaces
+	 * @return bit set of the wall slots touching the spaces
+	 */
+	public static long touchingSlots(long low, long high) {
+		long designatorsLow = low | (low >>> 1) | (high << 63) | (low >>> 9) | (high << 55)
+				| (low >>> 10) | (high << 54);
+		long designatorsHigh = high | (high >>> 1) | (high >>> 9) | (high >>> 10);
+		long slots = 0L;
+		for(int row = 0; row < 8; row++) {
+			int at = 9*row;
+			long bits = at + 8 <= 64 ? designatorsLow >>> at : (designatorsLow >>> at) | (designatorsHigh << (64 - at));
+			slots |= (bits & 0xFFL) << (8*row);
+		}
+		return slots;
+	}
+
+	/**
+	 * Finds the low long of the spaces one open step from a set of spaces.  Steps right and
+	 * down leave the spaces open on that side, steps left and up arrive at the spaces open on
+	 * that side
+	 *
+	 * @return the spaces from 0 to 63 a step away
+	 */
+	private static long stepLow(long low, long high, long rightLow, long downLow) {
+		return ((low & rightLow) << 1) | ((low & downLow) << 9)
+				| (((low >>> 1) | (high << 63)) & rightLow)
+				| (((low >>> 9) | (high << 55)) & downLow);
+	}
+
+	/**
+	 * Finds the high long of the spaces one open step from a set of spaces, see stepLow
+	 *
+	 * @return the spaces from 64 to 80 a step away
+	 */
+	private static long stepHigh(long low, long high, long rightLow, long rightHigh, long downLow, long downHigh) {
+		return ((high & rightHigh) << 1) | ((low & rightLow) >>> 63)
+				| ((high & downHigh) << 9) | ((low & downLow) >>> 55)
+				| ((high >>> 1) & rightHigh)
+				| ((high >>> 9) & downHigh);
+	}
+}
@@ -1,7 +1,6 @@
 package santanjm.quoridor;
 
 import java.util.Arrays;
-import java.awt.*;
 
 import santanjm.quoridor.*;
 
@@ -15,6 +14,9 @@ public class Space {
 	// Two element array which contains the x and y coordinates of this space
 	int[] coords;
 	
+	// The number of spaces along a side of the board this space is on
+	int size;
+	
 	// Flag which is true when this space is currently occupied and false otherwise
 	boolean occupied = false;
 	
@@ -24,18 +26,15 @@ public class Space {
 	// Array of the spaces around this space: [above, right, below, left]
 	Space[] neighbors = new Space[4];
 	
-	// The panel which will represent this space on the GUI
-	public SpacePanel panel;
-	
-	// The Graphics object used by the Space Panel
-	Graphics panelGraphics;
+	// Flags for whether the wall segments directly right of and below the space have been
+	// placed, also the small square-shaped segment between those two segments
+	// placed[0] - right wall
+	// placed[1] - below wall
+	// placed[2] - corner wall
+	boolean[] placed = new boolean[3];
 	
-	// Array of the wall panels directly left and below the space (one or both may be null)
-	// also the small square-shaped wall panel between those two panels
-	// wallPanels[0] - right wall
-	// wallPanels[1] - below wall
-	// wallPanels[2] - corner wall
-	WallPanel[] wallPanels = new WallPanel[3];
+	// The view this space is displayed in, null when the board is not displayed
+	BoardView view;
 	
 	/**
 	 * Constructs a new Space object in the board grid
@@ -44,9 +43,19 @@ public class Space {
 	 * @param row the row (y-coordinate) in the grid to place the new space
 	 */
 	public Space(int col, int row) {
+		this(col, row, Geometry.STANDARD.size);
+	}
+	
+	/**
+	 * Constructs a new Space object in the grid of a board of any size
+	 * 
+	 * @param col  the column (x-coordinate) in the grid to place the new space
+	 * @param row  the row (y-coordinate) in the grid to place the new space
+	 * @param size the number of spaces along a side of the board
+	 */
+	public Space(int col, int row, int size) {
 		coords = new int[] {col, row};
-		panel = new SpacePanel(col, row);
-		panelGraphics = panel.getGraphics();
+		this.size = size;
 	}
 	
 	/**
@@ -68,9 +77,7 @@ public class Space {
 	public void occupy(int pNum) {
 		occupied = true;
 		playerNum = pNum;
-		panel.occupy(pNum);
-		panelGraphics = panel.getGraphics();
-		panel.update(panelGraphics);
+		changed();
 	}
 	
 	/**
@@ -79,9 +86,7 @@ public class Space {
 	public void unoccupy() {
 		occupied = false;
 		playerNum = 0;
-		panel.unoccupy();
-		panelGraphics = panel.getGraphics();
-		panel.update(panelGraphics);
+		changed();
 	}
 	
 	/**
@@ -158,59 +163,50 @@ public class Space {
 	}
 	
 	/**
-	 * Getter for one of this space's wall panels
-	 * 
-	 * @param dir the direction (index) of the wall panel
-	 * @return the wall panel at the designated index
-	 */
-	public WallPanel getWallPanel(int dir) {
-		return wallPanels[dir];
-	}
-	
-	/**
-	 * Sets a new wall panel for this space in the indicated direction:
-	 * 0 - right
-	 * 1 - below
+	 * Checks whether this space has a wall segment in the indicated direction, spaces in
+	 * the rightmost column have no right segment and those in the bottom row no below segment
 	 * 
-	 * @param wall a wall panel
-	 * @param dir  the direction of the wall panel, 0 for vertical and 1 for horizontal
+	 * @param dir the direction of the segment, 0 for right, 1 for below and 2 for corner
+	 * @return true if the segment exists and false otherwise
 	 */
-	public void setWallPanel(WallPanel wall, int dir) {
-		wallPanels[dir] = wall;
-	}
-	
-	/**
-	 * Sets a new corner wall panel, the small square panel southwest of the space
-	 * 
-	 * @param corner a wall panel
-	 */
-	public void setCornerWallPanel(WallPanel corner) {
-		wallPanels[2] = corner;
+	public boolean hasWall(int dir) {
+		switch(dir) {
+			case 0:  return coords[0] != size - 1;
+			case 1:  return coords[1] != size - 1;
+			default: return coords[0] != size - 1 && coords[1] != size - 1;
+		}
 	}
 	
 	/**
-	 * Tells the wall panel in the indicated direction that it has been placed
-	 * and so should re-drawn itself
+	 * Marks the wall segment in the indicated direction as placed
+	 * and has it re-drawn
 	 * 
 	 * @param dir the direction of the wall to place, 0 for right and 1 for below
 	 */
 	public void placeWall(int dir) {
-		wallPanels[dir].placed = true;
-		Graphics wallGraphics = wallPanels[dir].getGraphics();
-		wallPanels[dir].update(wallGraphics);
+		placed[dir] = true;
+		changed();
 		if(allPlaced()) {
 			placeCornerWall();
 		}
 	}
 	
 	/**
-	 * Places the corner wall for this space if it is not null
+	 * Places the corner wall for this space if it has one
 	 */
 	public void placeCornerWall() {
-		if(wallPanels[2] != null) {
-			wallPanels[2].placed = true;
-			Graphics wallGraphics = wallPanels[2].getGraphics();
-			wallPanels[2].update(wallGraphics);
+		if(hasWall(2)) {
+			placed[2] = true;
+			changed();
+		}
+	}
+	
+	/**
+	 * Tells the view, if any, that this space needs to be re-drawn
+	 */
+	private void changed() {
+		if(view != null) {
+			view.spaceChanged(this);
 		}
 	}
 	
@@ -224,27 +220,26 @@ public class Space {
 	}
 	
 	/**
-	 * Checks whether a wall panel in a given direction has been placed or not
+	 * Checks whether a wall segment in a given direction has been placed or not
 	 * 
-	 * @param dir the direction of wall panel to check
-	 * @return true if the wall panel in the direction has been placed and false if not
+	 * @param dir the direction of wall segment to check
+	 * @return true if the wall segment in the direction has been placed and false if not
 	 */
 	public boolean isPlaced(int dir) {
 		if(dir < 0 || dir > 2) {
 			throw new IllegalArgumentException("Direction to check must be between 0 and 2");
 		}
-		return wallPanels[dir].placed;
+		return placed[dir];
 	}
 	
 	/**
-	 * Checks whether both wall panels around this space have been placed
-	 * and if so, place the corner panel as well
+	 * Checks whether both wall segments around this space have been placed
+	 * and if so, place the corner segment as well
 	 * 
-	 * @return true if both wall panels have been placed and false otherwise
+	 * @return true if both wall segments have been placed and false otherwise
 	 */
 	public boolean allPlaced() {
-		if((! Arrays.asList(wallPanels).contains(null)) && 
-			(wallPanels[0].placed && wallPanels[1].placed)) {
+		if(hasWall(2) && placed[0] && placed[1]) {
 			return true;
 		}
 		return false;
@@ -264,7 +259,7 @@ public class Space {
 	 */
 	public String toGrid() {
 		char col = (char) (coords[0] + 97);
-		char row = (char) (coords[1] + 49);
+		int row = coords[1] + 1;
 		
 		return "" + col + row;
 	}
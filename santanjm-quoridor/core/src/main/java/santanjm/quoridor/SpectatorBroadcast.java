@@ -0,0 +1,297 @@
+package santanjm.quoridor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Sends the moves of a game to any number of spectators as they are made.  Each move is
+ * sent as a small delta rather than the whole game, and is encoded once into a buffer which
+ * every spectator's connection writes from, without copying it.  A spectator whose
+ * connection cannot keep up has its backlog dropped and is only sent a keyframe of the
+ * whole position every so often, until it has caught up and can follow the deltas again.
+ *
+ * Connections should be non-blocking, so that one slow spectator cannot hold up the game.
+ * Whatever a connection could not take is written by later calls to flush.
+ *
+ * Every frame starts with its length (2 bytes, not counting itself) and its type (1 byte):
+ * delta    - the turn the move was made on (4 bytes), the mover's player number, the encoded
+ *            move and the space the pawn moved from, or 255 for a wall (1 byte each)
+ * keyframe - the number of players (1 byte), the turn (4 bytes), each player's pawn space
+ *            and walls left (1 byte each) and the vertical and horizontal wall bit sets (8 bytes each)
+ * @author santanjm
+ */
+public class SpectatorBroadcast {
+	// Frame types
+	static final byte DELTA = 1;
+	static final byte KEYFRAME = 2;
+
+	// The most frames waiting to be written to a spectator before its backlog is dropped
+	int maxPending;
+
+	// The number of moves between keyframes sent to spectators who have fallen behind
+	int keyframeInterval;
+
+	// The spectators and the frames waiting to be written to each
+	List<Subscriber> subscribers = new ArrayList<Subscriber>();
+
+	// The position after the last move, null until the game is attached
+	Position latest;
+
+	// The number of moves made since the last keyframe was sent
+	int sinceKeyframe;
+
+	// The number of frames dropped from spectators' backlogs
+	long dropped;
+
+	/**
+	 * Constructs a broadcast
+	 *
+	 * @param maxPending       the most frames which may wait to be written to a spectator
+	 * @param keyframeInterval the number of moves between keyframes for spectators who have
+	 *                         fallen behind
+	 */
+	public SpectatorBroadcast(int maxPending, int keyframeInterval) {
+		if(maxPending < 1 || keyframeInterval < 1) {
+			throw new IllegalArgumentException("A broadcast needs room for a frame and a positive keyframe interval");
+		}
+		this.maxPending = maxPending;
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	/**
+	 * Starts broadcasting the moves made on a board from its current position
+	 *
+	 * @param b the board the game is played on
+	 */
+	public synchronized void attach(Board b) {
+		latest = new Position(b);
+		b.broadcast = this;
+	}
+
+	/**
+	 * Adds a spectator, who is sent a keyframe of the current position to start from
+	 *
+	 * @param channel the spectator's connection
+	 */
+	public synchronized void subscribe(WritableByteChannel channel) {
+		Subscriber subscriber = new Subscriber(channel);
+		subscribers.add(subscriber);
+		if(latest != null) {
+			subscriber.pending.add(keyframe(latest));
+			flush(subscriber);
+		}
+	}
+
+	/**
+	 * Removes a spectator, anything still waiting to be written to them is dropped
+	 *
+	 * @param channel the spectator's connection
+	 */
+	public synchronized void unsubscribe(WritableByteChannel channel) {
+		for(Iterator<Subscriber> it = subscribers.iterator(); it.hasNext(); ) {
+			if(it.next().channel == channel) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Sends a move which has just been made to every spectator keeping up with the game,
+	 * along with a keyframe for those who have fallen behind if one is due.  Called by the
+	 * board at the start of each turn
+	 *
+	 * @param before the position the move was made from
+	 * @param move   the encoded move
+	 */
+	synchronized void moveMade(Position before, int move) {
+		latest = before.play(move);
+		ByteBuffer delta = delta(before, move);
+
+		sinceKeyframe++;
+		ByteBuffer keyframe = null;
+		if(sinceKeyframe >= keyframeInterval) {
+			keyframe = keyframe(latest);
+			sinceKeyframe = 0;
+		}
+
+		for(Subscriber subscriber : subscribers) {
+			if(! subscriber.lagging) {
+				subscriber.pending.add(delta.duplicate());
+				if(subscriber.pending.size() > maxPending) {
+					drop(subscriber);
+				}
+			} else if(keyframe != null && subscriber.pending.size() <= 1) {
+				// The backlog has been written, or is about to be, so the spectator can
+				// start following the game again from this keyframe
+				subscriber.pending.add(keyframe.duplicate());
+				subscriber.lagging = false;
+			}
+		}
+		flush();
+	}
+
+	/**
+	 * Writes as much of every spectator's backlog as their connections will take, a
+	 * spectator whose connection fails is removed
+	 */
+	public synchronized void flush() {
+		for(Iterator<Subscriber> it = subscribers.iterator(); it.hasNext(); ) {
+			if(! flush(it.next())) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Getter for the number of spectators
+	 *
+	 * @return the number of spectators subscribed
+	 */
+	public synchronized int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	/**
+	 * Getter for the number of spectators who have fallen behind and are waiting for a keyframe
+	 *
+	 * @return the number of lagging spectators
+	 */
+	public synchronized int getLaggingCount() {
+		int lagging = 0;
+		for(Subscriber subscriber : subscribers) {
+			if(subscriber.lagging) {
+				lagging++;
+			}
+		}
+		return lagging;
+	}
+
+	/**
+	 * Getter for the number of frames dropped from the backlogs of slow spectators
+	 *
+	 * @return the number of dropped frames
+	 */
+	public synchronized long getDroppedFrames() {
+		return dropped;
+	}
+
+	/**
+	 * Writes as much of a spectator's backlog as their connection will take
+	 *
+	 * @return false if the connection has failed and true otherwise
+	 */
+	private boolean flush(Subscriber subscriber) {
+		try {
+			while(! subscriber.pending.isEmpty()) {
+				ByteBuffer head = subscriber.pending.peek();
+				subscriber.channel.write(head);
+				if(head.hasRemaining()) {
+					return true;
+				}
+				subscriber.pending.poll();
+			}
+			return true;
+		} catch(IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Drops the backlog of a spectator who cannot keep up, other than a frame already part
+	 * written, and leaves them waiting for a keyframe
+	 */
+	private void drop(Subscriber subscriber) {
+		ByteBuffer head = subscriber.pending.peek();
+		boolean started = head.position() > 0;
+		dropped += subscriber.pending.size() - (started ? 1 : 0);
+		subscriber.pending.clear();
+		if(started) {
+			subscriber.pending.add(head);
+		}
+		subscriber.lagging = true;
+	}
+
+	/**
+	 * Encodes a move as a delta frame
+	 */
+	private static ByteBuffer delta(Position before, int move) {
+		ByteBuffer frame = ByteBuffer.allocate(10);
+		frame.putShort((short) 8).put(DELTA).putInt(before.turn);
+		frame.put((byte) before.getActivePlayer()).put((byte) move);
+		frame.put((byte) (move < Position.WALL_MOVES ? before.getPawn(before.getActivePlayer()) : 255));
+		frame.flip();
+		return frame.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Encodes a whole position as a keyframe
+	 */
+	private static ByteBuffer keyframe(Position pos) {
+		int length = 1 + 1 + 4 + 2*pos.numPlayers + 16;
+		ByteBuffer frame = ByteBuffer.allocate(2 + length);
+		frame.putShort((short) length).put(KEYFRAME).put((byte) pos.numPlayers).putInt(pos.turn);
+		for(int i = 0; i < pos.numPlayers; i++) {
+			frame.put((byte) pos.pawns[i]).put((byte) pos.wallsLeft[i]);
+		}
+		frame.putLong(pos.vWalls).putLong(pos.hWalls);
+		frame.flip();
+		return frame.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Applies a frame received by a spectator to the position they have so far
+	 *
+	 * @param pos   the spectator's position, null before their first keyframe
+	 * @param frame a buffer positioned at the start of a whole frame, which is read past it
+	 * @return the position after the frame
+	 * @throws IllegalStateException if the frame is a delta which does not follow on from pos
+	 */
+	public static Position apply(Position pos, ByteBuffer frame) {
+		frame.getShort();
+		byte type = frame.get();
+		if(type == KEYFRAME) {
+			int numPlayers = frame.get();
+			int turn = frame.getInt();
+			int[] pawns = new int[numPlayers];
+			int[] wallsLeft = new int[numPlayers];
+			for(int i = 0; i < numPlayers; i++) {
+				pawns[i] = frame.get() & 0xff;
+				wallsLeft[i] = frame.get() & 0xff;
+			}
+			return new Position(numPlayers, turn, pawns, wallsLeft, frame.getLong(), frame.getLong());
+		}
+		if(type != DELTA) {
+			throw new IllegalArgumentException("Unknown frame type " + type);
+		}
+		int turn = frame.getInt();
+		frame.get();
+		int move = frame.get() & 0xff;
+		frame.get();
+		if(pos == null || pos.turn != turn) {
+			throw new IllegalStateException("The delta for turn " + turn + " does not follow on from " + pos);
+		}
+		return pos.play(move);
+	}
+
+	/**
+	 * A spectator's connection along with the frames waiting to be written to it
+	 */
+	private static class Subscriber {
+		// The spectator's connection
+		WritableByteChannel channel;
+
+		// The frames waiting to be written, the first may be part written
+		ArrayDeque<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+
+		// Whether the spectator fell behind and is waiting for a keyframe
+		boolean lagging;
+
+		Subscriber(WritableByteChannel channel) {
+			this.channel = channel;
+		}
+	}
+}
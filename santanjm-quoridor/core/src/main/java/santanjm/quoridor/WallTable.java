@@ -0,0 +1,154 @@
+package santanjm.quoridor;
+
+import santanjm.quoridor.*;
+
+/**
+ * Tables of what each of the 128 wall placements blocks and rules out, built once when the
+ * class is loaded so that placing a wall, checking it against the walls already placed and
+ * checking whether a step is blocked are each a handful of bitwise operations on the bit
+ * sets of wall slots used by Position.
+ *
+ * A placement is numbered 2*slot + dir, as in the encoding of wall moves, where the slot of
+ * the wall designated by [col, row] is 8*row + col and dir is 0 for vertical and 1 for
+ * horizontal.  The edges between spaces are numbered 2*space + side, where side is 0 for the
+ * edge right of the space and 1 for the edge below it.
+ * @author santanjm
+ */
+public class WallTable {
+	// The number of wall placements
+	public static final int PLACEMENTS = 128;
+
+	// The slots in the first and last columns
+	static final long FIRST_COLUMN = 0x0101010101010101L;
+	static final long LAST_COLUMN = 0x8080808080808080L;
+
+	// The two edges each placement blocks, by placement
+	static final int[][] BLOCKED_EDGES = new int[PLACEMENTS][2];
+
+	// Bit sets of the vertical and horizontal slots whose walls cannot be on the board with
+	// each placement, by placement: its own slot in either direction, since a designator
+	// designates a single wall and two walls at one slot would cross, and the slots on
+	// either side along its length in its own direction, whose walls it would overlap
+	static final long[] EXCLUDED_VERTICAL = new long[PLACEMENTS];
+	static final long[] EXCLUDED_HORIZONTAL = new long[PLACEMENTS];
+
+	// Bit sets of the same direction slots each placement overlaps, by placement
+	static final long[] OVERLAPPED = new long[PLACEMENTS];
+
+	// Bit sets of the vertical and horizontal slots whose walls block a step, by 4*space + dir
+	// where dir is 0 above, 1 right, 2 below and 3 left
+	static final long[] BLOCKING_VERTICAL = new long[4*81];
+	static final long[] BLOCKING_HORIZONTAL = new long[4*81];
+
+	// Whether a step goes off the board, by 4*space + dir
+	static final boolean[] OFF_BOARD = new boolean[4*81];
+
+	static {
+		for(int slot = 0; slot < 64; slot++) {
+			int col = slot % 8;
+			int row = slot / 8;
+			int space = 9*row + col;
+			long bit = 1L << slot;
+
+			// A vertical wall runs down the right of its designator and the space below it
+			int vertical = 2*slot;
+			BLOCKED_EDGES[vertical][0] = 2*space;
+			BLOCKED_EDGES[vertical][1] = 2*(space + 9);
+			OVERLAPPED[vertical] = (row > 0 ? bit >>> 8 : 0L) | (row < 7 ? bit << 8 : 0L);
+			EXCLUDED_VERTICAL[vertical] = bit | OVERLAPPED[vertical];
+			EXCLUDED_HORIZONTAL[vertical] = bit;
+
+			// A horizontal wall runs along the bottom of its designator and the space right of it
+			int horizontal = 2*slot + 1;
+			BLOCKED_EDGES[horizontal][0] = 2*space + 1;
+			BLOCKED_EDGES[horizontal][1] = 2*(space + 1) + 1;
+			OVERLAPPED[horizontal] = (col > 0 ? bit >>> 1 : 0L) | (col < 7 ? bit << 1 : 0L);
+			EXCLUDED_VERTICAL[horizontal] = bit;
+			EXCLUDED_HORIZONTAL[horizontal] = bit | OVERLAPPED[horizontal];
+		}
+
+		for(int placement = 0; placement < PLACEMENTS; placement++) {
+			long bit = 1L << (placement >> 1);
+			for(int edge : BLOCKED_EDGES[placement]) {
+				int space = edge >> 1;
+				// The edge right of a space is a step right from it and left from its neighbor,
+				// the edge below is a step down from it and up from its neighbor
+				int step = (edge & 1) == 0 ? 1 : 2;
+				int other = (edge & 1) == 0 ? space + 1 : space + 9;
+				if((placement & 1) == 0) {
+					BLOCKING_VERTICAL[4*space + step] |= bit;
+					BLOCKING_VERTICAL[4*other + (step + 2) % 4] |= bit;
+				} else {
+					BLOCKING_HORIZONTAL[4*space + step] |= bit;
+					BLOCKING_HORIZONTAL[4*other + (step + 2) % 4] |= bit;
+				}
+			}
+		}
+
+		for(int space = 0; space < 81; space++) {
+			for(int dir = 0; dir < 4; dir++) {
+				OFF_BOARD[4*space + dir] = Position.neighbor(space, dir) < 0;
+			}
+		}
+	}
+
+	private WallTable() {
+	}
+
+	/**
+	 * Checks whether a wall placement would clash with any of the walls on the board, by
+	 * sharing a designator with one, crossing one or overlapping one
+	 *
+	 * @param v         bit set of the vertical wall slots
+	 * @param h         bit set of the horizontal wall slots
+	 * @param placement the placement, 2*slot + dir
+	 * @return true if the wall cannot be placed alongside the walls on the board
+	 */
+	public static boolean conflicts(long v, long h, int placement) {
+		return ((v & EXCLUDED_VERTICAL[placement]) | (h & EXCLUDED_HORIZONTAL[placement])) != 0L;
+	}
+
+	/**
+	 * Finds every slot at which a wall of a direction could be placed alongside the walls on
+	 * the board, not counting whether it would cut any player off from their goal
+	 *
+	 * @param v   bit set of the vertical wall slots
+	 * @param h   bit set of the horizontal wall slots
+	 * @param dir the direction of the wall, 0 for vertical and 1 for horizontal
+	 * @return bit set of the slots free for a wall of the direction
+	 */
+	public static long openSlots(long v, long h, int dir) {
+		if(dir == 0) {
+			return ~(v | h | (v << 8) | (v >>> 8));
+		}
+		// Shifting a row's last slot along one lands in the next row's first, or back again
+		return ~(v | h | ((h << 1) & ~FIRST_COLUMN) | ((h >>> 1) & ~LAST_COLUMN));
+	}
+
+	/**
+	 * Widens a set of slots by one slot in every direction, diagonals included
+	 *
+	 * @param slots bit set of slots
+	 * @return bit set of the slots and every slot next to one of them
+	 */
+	public static long widen(long slots) {
+		// A row's last slot shifted along one would land in the next row's first, or back again
+		long across = slots | ((slots << 1) & ~FIRST_COLUMN) | ((slots >>> 1) & ~LAST_COLUMN);
+		return across | (across << 8) | (across >>> 8);
+	}
+
+	/**
+	 * Checks whether a step from a space in a direction is blocked by one of the given walls,
+	 * a step off the board always counts as blocked
+	 *
+	 * @param v     bit set of the vertical wall slots
+	 * @param h     bit set of the horizontal wall slots
+	 * @param space the index of the space stepped from
+	 * @param dir   the direction of the step: 0 above, 1 right, 2 below, 3 left
+	 * @return true if the step cannot be made
+	 */
+	public static boolean isBlocked(long v, long h, int space, int dir) {
+		int step = 4*space + dir;
+		return OFF_BOARD[step] || ((v & BLOCKING_VERTICAL[step]) | (h & BLOCKING_HORIZONTAL[step])) != 0L;
+	}
+}
@@ -393,6 +393,124 @@ public class BoardTest {
 		p2Space = b.getSpaceFromPlayer(p2);
 		assertEquals(b.getDirection(p1Space, p2Space), 3);
 	}
+
+	@Test
+	public void testSmallBoard() {
+		Board b = new Board(2, 5, 3);
+		assertTrue(b.isOccupied(2, 4));
+		assertTrue(b.isOccupied(2, 0));
+		assertEquals(b.getPlayerFromNum(1).getWalls(), 3);
+
+		// Three pawn moves and both directions of every one of the 16 wall slots
+		assertEquals(b.legalMoves().size(), 3 + 2*16);
+		assertFalse(b.isLegalMove("e5v"));
+
+		// Player 1 walks straight up to the first row
+		String[] moves = {"c4", "b1", "c3", "a1", "c2", "b1", "c1"};
+		for(String move : moves) {
+			assertTrue(b.isLegalMove(move));
+			b.executeMove(move);
+			b.nextTurn();
+		}
+		assertEquals(b.getWinner().getPlayerNum(), 1);
+	}
+
+	@Test
+	public void testSmallBoardCutOff() {
+		Board b = new Board(2, 5, 3);
+		b.executeMove("a1h");
+		b.nextTurn();
+		b.executeMove("b1");
+		b.nextTurn();
+		b.executeMove("c1h");
+		b.nextTurn();
+
+		// Player 2 would be shut in the first row by a wall down the right of d1
+		assertFalse(b.isLegalMove("d1v"));
+		assertTrue(b.isLegalMove("d2v"));
+		assertFalse(b.isLegalMove("b1h"));
+		assertFalse(b.isLegalMove("c1v"));
+	}
+
+	@Test
+	public void testLargeBoard() {
+		Board b = new Board(4, 11, 6);
+		assertTrue(b.isOccupied(5, 10));
+		assertTrue(b.isOccupied(5, 0));
+		assertTrue(b.isOccupied(0, 5));
+		assertTrue(b.isOccupied(10, 5));
+		assertEquals(b.getPlayerFromNum(4).getWalls(), 6);
+
+		// Rows past 9 take two digits
+		assertTrue(b.isLegalMove("f10"));
+		assertFalse(b.isLegalMove("f9"));
+		assertTrue(b.isLegalMove("j10h"));
+		assertFalse(b.isLegalMove("k10v"));
+		b.executeMove("j10h");
+		b.nextTurn();
+		assertFalse(b.isLegalMove("j10v"));
+		assertFalse(b.isLegalMove("i10h"));
+		assertTrue(b.isLegalMove("h10h"));
+		assertEquals(b.getPlayerFromNum(1).getWalls(), 5);
+
+		// Copies keep the size and the walls
+		Board copy = b.copy();
+		assertEquals(copy.getSize(), 11);
+		assertFalse(copy.isLegalMove("i10h"));
+		assertEquals(copy.legalMoves(), b.legalMoves());
+		assertEquals(copy.positionKey(), b.positionKey());
+	}
+
+	@Test
+	public void testReferenceRules() {
+		// A row of walls with a gap at the right, then walls which would close it
+		Board b = new Board(2);
+		Board reference = b.referenceCopy();
+		assertTrue(reference.reference);
+		for(String move : new String[] {"a3h", "c3h", "e3h", "g3h", "d3v", "h2v", "h4h"}) {
+			assertEquals(reference.legalMoves(), b.legalMoves());
+			assertTrue(b.isLegalMove(move));
+			b.executeMove(move);
+			b.nextTurn();
+			reference.executeMove(move);
+			reference.nextTurn();
+		}
+		assertFalse(reference.isLegalMove("h3v"));
+		assertEquals(reference.legalMoves(), b.legalMoves());
+		assertTrue(reference.copy().reference);
+	}
+
+	@Test
+	public void testSegmentsAtEdges() {
+		Board small = new Board(2, 7, 8);
+		assertFalse(small.getSpaceFromCoords(6, 3).hasWall(0));
+		assertFalse(small.getSpaceFromCoords(3, 6).hasWall(1));
+		assertFalse(small.getSpaceFromCoords(6, 6).hasWall(2));
+		assertTrue(small.getSpaceFromCoords(5, 5).hasWall(2));
+
+		Board large = new Board(2, 11, 12);
+		assertTrue(large.getSpaceFromCoords(8, 8).hasWall(2));
+		assertTrue(large.getSpaceFromCoords(9, 3).hasWall(0));
+		assertFalse(large.getSpaceFromCoords(10, 3).hasWall(0));
+		assertFalse(large.getSpaceFromCoords(3, 10).hasWall(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLargeBoardRow() {
+		Board b = new Board(2, 11, 12);
+		b.isLegalMove("f12");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyWalls() {
+		// Positions, which every 9x9 game is published as, only go up to 10 walls each
+		new Board(2, 9, 11);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testLargeBoardSnapshot() {
+		new Board(2, 11, 12).snapshot();
+	}
 }
 
 
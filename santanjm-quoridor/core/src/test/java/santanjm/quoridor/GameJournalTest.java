@@ -0,0 +1,286 @@
+package santanjm.quoridor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.GameJournal;
+import santanjm.quoridor.Geometry;
+
+/**
+ * Test class for the game journal
+ */
+public class GameJournalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * A log file which fails the first write it is given after being armed, having written
+	 * only half of its first buffer
+	 */
+	private static class FailingChannel extends FileChannel {
+		// The channel the writes go to
+		final FileChannel delegate;
+
+		// Whether the next write fails
+		volatile boolean armed;
+
+		FailingChannel(FileChannel delegate) {
+			this.delegate = delegate;
+		}
+
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			if(armed) {
+				armed = false;
+				ByteBuffer half = srcs[offset].duplicate();
+				half.limit(half.position() + half.remaining()/2);
+				delegate.write(half);
+				throw new IOException("Disk full");
+			}
+			return delegate.write(srcs, offset, length);
+		}
+
+		public int write(ByteBuffer src) throws IOException {
+			return (int) write(new ByteBuffer[] {src}, 0, 1);
+		}
+
+		public int read(ByteBuffer dst) throws IOException {
+			return delegate.read(dst);
+		}
+
+		public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+			return delegate.read(dsts, offset, length);
+		}
+
+		public long position() throws IOException {
+			return delegate.position();
+		}
+
+		public FileChannel position(long newPosition) throws IOException {
+			delegate.position(newPosition);
+			return this;
+		}
+
+		public long size() throws IOException {
+			return delegate.size();
+		}
+
+		public FileChannel truncate(long size) throws IOException {
+			delegate.truncate(size);
+			return this;
+		}
+
+		public void force(boolean metaData) throws IOException {
+			delegate.force(metaData);
+		}
+
+		public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+			return delegate.transferTo(position, count, target);
+		}
+
+		public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+			return delegate.transferFrom(src, position, count);
+		}
+
+		public int read(ByteBuffer dst, long position) throws IOException {
+			return delegate.read(dst, position);
+		}
+
+		public int write(ByteBuffer src, long position) throws IOException {
+			return delegate.write(src, position);
+		}
+
+		public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+			return delegate.map(mode, position, size);
+		}
+
+		public FileLock lock(long position, long size, boolean shared) throws IOException {
+			return delegate.lock(position, size, shared);
+		}
+
+		public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+			return delegate.tryLock(position, size, shared);
+		}
+
+		protected void implCloseChannel() throws IOException {
+			delegate.close();
+		}
+	}
+
+	/**
+	 * Plays each of the moves on the board as the game loop would
+	 */
+	private static void play(Board b, String... moves) {
+		for(String move : moves) {
+			assertTrue(b.isLegalMove(move));
+			b.executeMove(move);
+			b.nextTurn();
+		}
+	}
+
+	@Test
+	public void testRecover() throws Exception {
+		File dir = folder.newFolder();
+		GameJournal journal = new GameJournal(dir, 2, 4);
+		Board b1 = new Board(2);
+		Board b2 = new Board(4);
+		Board b3 = new Board(2);
+		journal.attach(1, b1).await();
+		journal.attach(2, b2).await();
+		journal.attach(3, b3).await();
+		play(b1, "e8", "e2", "a3h", "c3v", "e7", "e3", "f5h");
+		play(b2, "e8", "e2", "b5", "h5");
+		play(b3, "e8", "e2");
+		journal.close();
+
+		GameJournal reopened = new GameJournal(dir, 2, 4);
+		Map<Long, Board> games = reopened.recover();
+		assertEquals(games.keySet(), new HashSet<Long>(Arrays.asList(1L, 2L, 3L)));
+		assertEquals(games.get(1L).positionKey(), b1.positionKey());
+		assertEquals(games.get(2L).positionKey(), b2.positionKey());
+		assertEquals(games.get(3L).positionKey(), b3.positionKey());
+		assertEquals(games.get(1L).snapshot().getMoves(), b1.snapshot().getMoves());
+		assertEquals(games.get(1L).snapshot().getClock(1), b1.published.getClock(1));
+		reopened.close();
+	}
+
+	@Test
+	public void testWonGamesNotRecovered() throws Exception {
+		File dir = folder.newFolder();
+		GameJournal journal = new GameJournal(dir, 1, 100);
+		Board b = new Board(2);
+		journal.attach(7, b);
+		play(b, "e8", "d1", "e7", "c1", "e6", "d1", "e5", "c1");
+		play(b, "e4", "d1", "e3", "c1", "e2", "d1", "e1");
+		assertNotNull(b.getWinner());
+		journal.close();
+
+		GameJournal reopened = new GameJournal(dir, 1, 100);
+		assertTrue(reopened.recover().isEmpty());
+		reopened.close();
+	}
+
+	@Test
+	public void testTornTailIgnored() throws Exception {
+		File dir = folder.newFolder();
+		GameJournal journal = new GameJournal(dir, 1, 100);
+		Board b = new Board(2);
+		journal.attach(1, b);
+		play(b, "e8", "e2", "d7h");
+		journal.close();
+		b.journal = null;
+
+		// Simulate a crash part way through writing a record
+		File log = new File(dir, "shard-0.log");
+		long length = log.length();
+		RandomAccessFile file = new RandomAccessFile(log, "rw");
+		file.seek(length);
+		file.write(new byte[] {1, 0, 0, 0, 0, 0, 0, 0, 1, 0, 0});
+		file.close();
+
+		GameJournal reopened = new GameJournal(dir, 1, 100);
+		assertEquals(log.length(), length);
+		Board recovered = reopened.recover().get(1L);
+		assertEquals(recovered.positionKey(), b.positionKey());
+
+		// The recovered game goes on logging after the last complete record
+		play(recovered, "c3v");
+		play(b, "c3v");
+		reopened.close();
+		GameJournal again = new GameJournal(dir, 1, 100);
+		assertEquals(again.recover().get(1L).positionKey(), b.positionKey());
+		again.close();
+	}
+
+	@Test
+	public void testFailedWriteCutOff() throws Exception {
+		File dir = folder.newFolder();
+		GameJournal journal = new GameJournal(dir, 1, 100);
+		Board b = new Board(2);
+		journal.attach(1, b);
+		play(b, "e8", "e2");
+
+		// The records queued after this are only written once the channel is swapped
+		FailingChannel channel = new FailingChannel(journal.shards[0].channel);
+		journal.shards[0].channel = channel;
+		channel.armed = true;
+		try {
+			journal.logMove(1, 2, Geometry.STANDARD.parseMove("d7h"), 0).await();
+			fail("The write should have failed");
+		} catch(IOException e) {
+			assertEquals(e.getMessage(), "Disk full");
+		}
+
+		// The moves acknowledged after the failure are all recovered
+		play(b, "d7h", "c3v");
+		journal.close();
+		GameJournal reopened = new GameJournal(dir, 1, 100);
+		assertEquals(reopened.recover().get(1L).positionKey(), b.positionKey());
+		reopened.close();
+	}
+
+	@Test
+	public void testCorruptRecordEndsLog() throws Exception {
+		File dir = folder.newFolder();
+		GameJournal journal = new GameJournal(dir, 1, 100);
+		Board b = new Board(2);
+		journal.attach(1, b);
+		play(b, "e8", "e2");
+		String key = b.positionKey();
+		play(b, "d7h");
+		journal.close();
+
+		// Flip a bit in the last move record
+		File log = new File(dir, "shard-0.log");
+		RandomAccessFile file = new RandomAccessFile(log, "rw");
+		file.seek(log.length() - 6);
+		int value = file.read();
+		file.seek(log.length() - 6);
+		file.write(value ^ 1);
+		file.close();
+
+		GameJournal reopened = new GameJournal(dir, 1, 100);
+		assertEquals(reopened.recover().get(1L).positionKey(), key);
+		reopened.close();
+	}
+
+	@Test
+	public void testGroupCommit() throws Exception {
+		final GameJournal journal = new GameJournal(folder.newFolder(), 2, 1000);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		List<Future<?>> results = new ArrayList<Future<?>>();
+		for(int t = 0; t < 8; t++) {
+			final long gameId = t;
+			results.add(pool.submit(new Callable<Void>() {
+				public Void call() throws Exception {
+					for(int i = 0; i < 50; i++) {
+						journal.logMove(gameId, i, i % 81, 0).await();
+					}
+					return null;
+				}
+			}));
+		}
+		for(Future<?> result : results) {
+			result.get();
+		}
+		pool.shutdown();
+		assertEquals(journal.getRecordCount(), 400);
+		assertTrue(journal.getSyncCount() <= journal.getRecordCount());
+		journal.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosed() throws Exception {
+		GameJournal journal = new GameJournal(folder.newFolder(), 1, 10);
+		journal.close();
+		journal.logMove(1, 0, 0, 0);
+	}
+}
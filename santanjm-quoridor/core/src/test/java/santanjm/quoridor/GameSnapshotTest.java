@@ -0,0 +1,83 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.*;
+import java.util.*;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.GameSnapshot;
+
+/**
+ * Test class for snapshots of games
+ */
+public class GameSnapshotTest {
+
+	/**
+	 * Plays each of the moves on the board as the game loop would
+	 */
+	private static void play(Board b, String... moves) {
+		for(String move : moves) {
+			assertTrue(b.isLegalMove(move));
+			b.executeMove(move);
+			b.nextTurn();
+		}
+	}
+
+	@Test
+	public void testSnapshot() {
+		Board b = new Board(2);
+		play(b, "e8", "e2", "d7h");
+		GameSnapshot snapshot = b.snapshot();
+		assertEquals(snapshot.getMoves(), Arrays.asList("e8", "e2", "d7h"));
+		assertEquals(snapshot.getPosition().key(), b.positionKey());
+		assertEquals(snapshot.getPosition().getActivePlayer(), 2);
+	}
+
+	@Test
+	public void testSnapshotUnchangedByLaterMoves() {
+		Board b = new Board(2);
+		play(b, "e8", "e2");
+		GameSnapshot snapshot = b.snapshot();
+		String key = b.positionKey();
+
+		// Play enough moves that the board's history has to grow
+		for(int i = 0; i < 20; i++) {
+			play(b, "e7", "e3", "e8", "e2");
+		}
+		assertEquals(snapshot.getMoves(), Arrays.asList("e8", "e2"));
+		assertEquals(snapshot.getPosition().key(), key);
+		assertEquals(b.snapshot().getMoves().size(), 82);
+	}
+
+	@Test
+	public void testClocks() throws InterruptedException {
+		Board b = new Board(2);
+		Thread.sleep(20);
+		GameSnapshot snapshot = b.snapshot();
+		assertTrue(snapshot.getClock(1) >= 20);
+		assertEquals(snapshot.getClock(2), 0);
+	}
+
+	@Test
+	public void testSerializeAndRestore() throws Exception {
+		Board b = new Board(4);
+		play(b, "e8", "e2", "b5", "h5", "c3v", "d7h");
+		GameSnapshot snapshot = b.snapshot();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(snapshot);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		GameSnapshot read = (GameSnapshot) in.readObject();
+
+		Board restored = Board.restore(read, null);
+		assertEquals(restored.positionKey(), b.positionKey());
+		assertEquals(restored.turn, b.turn);
+		assertEquals(restored.getActivePlayer().getPlayerNum(), 3);
+		assertEquals(restored.snapshot().getMoves(), snapshot.getMoves());
+		assertEquals(restored.legalMoves(), b.legalMoves());
+		assertFalse(restored.isOccupied(4, 8));
+		assertTrue(restored.isOccupied(1, 4));
+	}
+}
@@ -0,0 +1,107 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import santanjm.quoridor.Geometry;
+import santanjm.quoridor.Position;
+import santanjm.quoridor.Reachability;
+import santanjm.quoridor.WallTable;
+
+/**
+ * Test class for the tables of boards of any size
+ */
+public class GeometryTest {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEvenSize() {
+		Geometry.of(10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooSmall() {
+		Geometry.of(1);
+	}
+
+	@Test
+	public void testShape() {
+		Geometry g = Geometry.of(11);
+		assertEquals(g.spaces, 121);
+		assertEquals(g.slots, 100);
+		assertEquals(g.words, 2);
+		assertEquals(g.numMoves, 321);
+		assertSame(Geometry.of(11), g);
+		assertEquals(Geometry.STANDARD.numMoves, Position.NUM_MOVES);
+
+		// Pawns start in the middle of an edge, opposite their goals
+		assertEquals(g.startSpace(0), 115);
+		assertEquals(g.startSpace(1), 5);
+		assertEquals(g.startSpace(2), 55);
+		assertEquals(g.startSpace(3), 65);
+		assertTrue(g.isGoal(0, 10));
+		assertTrue(g.isGoal(1, 110));
+		assertTrue(g.isGoal(2, 21));
+		assertTrue(g.isGoal(3, 22));
+		assertFalse(g.isGoal(0, 11));
+	}
+
+	@Test
+	public void testNotation() {
+		// Every move reads back as itself
+		for(int size = 3; size <= 13; size += 2) {
+			Geometry g = Geometry.of(size);
+			for(int move = 0; move < g.numMoves; move++) {
+				assertEquals(g.parseMove(g.toNotation(move)), move);
+			}
+		}
+
+		// The standard board writes moves as Position does
+		for(int move = 0; move < Position.NUM_MOVES; move++) {
+			assertEquals(Geometry.STANDARD.toNotation(move), Position.toNotation(move));
+		}
+		assertEquals(Geometry.of(11).parseMove("k10"), 109);
+		assertEquals(Geometry.of(11).toNotation(Geometry.of(11).parseMove("j10h")), "j10h");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOffBoard() {
+		Geometry.of(5).parseMove("f1");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLastRowWall() {
+		Geometry.of(11).parseMove("a11h");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLeadingZero() {
+		Geometry.of(11).parseMove("a01");
+	}
+
+	@Test
+	public void testStandardAgrees() {
+		// On the standard board the tables agree with WallTable and Reachability
+		Geometry g = Geometry.STANDARD;
+		Random random = new Random(11);
+		int[] queue = new int[g.spaces];
+		int[] depth = new int[g.spaces];
+		for(int i = 0; i < 300; i++) {
+			long v = random.nextLong() & random.nextLong() & random.nextLong();
+			long h = random.nextLong() & random.nextLong() & random.nextLong() & ~v;
+			long[] vSlots = new long[] {v};
+			long[] hSlots = new long[] {h};
+			for(int space = 0; space < 81; space++) {
+				for(int dir = 0; dir < 4; dir++) {
+					assertEquals(g.isBlocked(vSlots, hSlots, space, dir), WallTable.isBlocked(v, h, space, dir));
+				}
+				for(int player = 0; player < 4; player++) {
+					assertEquals(g.distance(vSlots, hSlots, space, player, queue, depth),
+							Reachability.distance(v, h, space, player));
+				}
+			}
+			for(int placement = 0; placement < WallTable.PLACEMENTS; placement++) {
+				assertEquals(g.conflicts(vSlots, hSlots, placement), WallTable.conflicts(v, h, placement));
+			}
+		}
+	}
+}
@@ -0,0 +1,306 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.ManualClock;
+import santanjm.quoridor.Matchmaker;
+import santanjm.quoridor.RatingService;
+
+/**
+ * Test class for the matchmaker
+ */
+public class MatchmakerTest {
+
+	/**
+	 * Plays out random arrivals and departures over a number of ticks a second apart,
+	 * checking that nobody is matched twice, to someone they left before or with someone
+	 * outside both players' windows
+	 *
+	 * @return the ids of the players of every match, in the order they were formed
+	 */
+	private static List<String> randomQueue(int ticks, int perTick, long seed) {
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		Random random = new Random(seed);
+		Map<Long, Double> ratings = new HashMap<Long, Double>();
+		Map<Long, Long> joinedAt = new HashMap<Long, Long>();
+		Set<Long> gone = new HashSet<Long>();
+		List<String> formed = new ArrayList<String>();
+		long next = 0;
+		for(int tick = 0; tick < ticks; tick++) {
+			for(int i = 0; i < perTick; i++) {
+				long id = next++;
+				double rating = 1500.0 + random.nextGaussian()*300.0;
+				ratings.put(id, rating);
+				joinedAt.put(id, clock.millis());
+				matchmaker.join(id, rating, random.nextInt(3) == 0 ? 4 : 2);
+				if(random.nextInt(10) == 0) {
+					long leaver = random.nextInt((int) next);
+					if(! gone.contains(leaver)) {
+						gone.add(leaver);
+						matchmaker.leave(leaver);
+					}
+				}
+			}
+			for(Matchmaker.Match match : matchmaker.tick()) {
+				long[] ids = match.getPlayerIds();
+				for(int i = 0; i < ids.length; i++) {
+					assertFalse(gone.contains(ids[i]));
+					if(i > 0) {
+						assertTrue(joinedAt.get(ids[i - 1]) <= joinedAt.get(ids[i]));
+					}
+				}
+				// Everyone is within reach of one player, who is within reach of them
+				boolean reached = false;
+				for(long centre : ids) {
+					boolean all = true;
+					for(long other : ids) {
+						all &= Math.abs(matchmaker.bucketOf(ratings.get(centre))
+								- matchmaker.bucketOf(ratings.get(other)))
+								<= Math.min(window(matchmaker, clock, joinedAt.get(centre)),
+										window(matchmaker, clock, joinedAt.get(other)));
+					}
+					reached |= all;
+				}
+				assertTrue(reached);
+				for(long id : ids) {
+					gone.add(id);
+				}
+				formed.add(match.toString());
+			}
+			clock.advance(1000);
+		}
+		return formed;
+	}
+
+	/**
+	 * The window of a player who joined at a given time, as of the clock's time
+	 */
+	private static int window(Matchmaker matchmaker, ManualClock clock, long joinedAt) {
+		return matchmaker.windowAt(matchmaker.levelAt(clock.millis() - joinedAt));
+	}
+
+	@Test
+	public void testClosePlayersMatch() {
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		matchmaker.join(1, 1500, 2);
+		matchmaker.join(2, 1900, 2);
+		matchmaker.join(3, 1520, 2);
+		assertEquals(matchmaker.getWaitingCount(), 0);
+
+		List<Matchmaker.Match> matches = matchmaker.tick();
+		assertEquals(matches.size(), 1);
+		assertArrayEquals(matches.get(0).getPlayerIds(), new long[] {1, 3});
+		assertEquals(matchmaker.getWaitingCount(), 1);
+	}
+
+	@Test
+	public void testNoMatchWithoutTick() {
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		matchmaker.join(1, 1500, 2);
+		assertTrue(matchmaker.tick().isEmpty());
+		matchmaker.join(2, 1500, 2);
+		clock.advance(60000);
+		List<Matchmaker.Match> matches = matchmaker.tick();
+		assertEquals(matches.size(), 1);
+		assertArrayEquals(matches.get(0).getPlayerIds(), new long[] {1, 2});
+	}
+
+	@Test
+	public void testWindowsWiden() {
+		// 1500 and 1700 are 8 buckets apart, which windows of 2 buckets reach after 6 steps
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		matchmaker.join(1, 1500, 2);
+		matchmaker.join(2, 1700, 2);
+		for(int i = 0; i < 29; i++) {
+			assertTrue(matchmaker.tick().isEmpty());
+			clock.advance(1000);
+		}
+		assertTrue(matchmaker.tick().isEmpty());
+		clock.advance(999);
+		assertTrue(matchmaker.tick().isEmpty());
+		clock.advance(1);
+		List<Matchmaker.Match> matches = matchmaker.tick();
+		assertEquals(matches.size(), 1);
+		assertArrayEquals(matches.get(0).getPlayerIds(), new long[] {1, 2});
+		assertEquals(matchmaker.getWaitingCount(), 0);
+	}
+
+	@Test
+	public void testBothWindowsMustReach() {
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		matchmaker.join(1, 1500, 2);
+		clock.advance(30000);
+		matchmaker.join(2, 1700, 2);
+		assertTrue(matchmaker.tick().isEmpty());
+		clock.advance(29999);
+		assertTrue(matchmaker.tick().isEmpty());
+		clock.advance(1);
+		assertEquals(matchmaker.tick().size(), 1);
+	}
+
+	@Test
+	public void testWidestWindow() {
+		// Windows stop widening at 400 points, so players 500 points apart never meet
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		matchmaker.join(1, 1000, 2);
+		matchmaker.join(2, 1500, 2);
+		for(int i = 0; i < 10; i++) {
+			assertTrue(matchmaker.tick().isEmpty());
+			clock.advance(60000);
+		}
+		matchmaker.join(3, 1250, 2);
+		List<Matchmaker.Match> matches = matchmaker.tick();
+		assertTrue(matches.isEmpty());
+		clock.advance(60000);
+		matches = matchmaker.tick();
+		assertEquals(matches.size(), 1);
+		assertArrayEquals(matches.get(0).getPlayerIds(), new long[] {1, 3});
+	}
+
+	@Test
+	public void testFourSeats() {
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		matchmaker.join(1, 1600, 4);
+		matchmaker.join(2, 1600, 2);
+		matchmaker.join(3, 1590, 4);
+		matchmaker.join(4, 1610, 4);
+		assertTrue(matchmaker.tick().isEmpty());
+		assertEquals(matchmaker.getWaitingCount(), 4);
+
+		clock.advance(1000);
+		matchmaker.join(5, 1620, 4);
+		List<Matchmaker.Match> matches = matchmaker.tick();
+		assertEquals(matches.size(), 1);
+		assertEquals(matches.get(0).getSeats(), 4);
+		// The longest waiting player moves first
+		assertArrayEquals(matches.get(0).getPlayerIds(), new long[] {1, 3, 4, 5});
+		assertEquals(matchmaker.getWaitingCount(), 1);
+	}
+
+	@Test
+	public void testFourSeatsAroundAnother() {
+		// Only the 1500 player has everyone else within their window, and their window is
+		// as wide as it gets before the last of the others reaches them
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		matchmaker.join(1, 1500, 4);
+		matchmaker.join(2, 1100, 4);
+		matchmaker.join(3, 1100, 4);
+		clock.advance(1000);
+		matchmaker.join(4, 1900, 4);
+		List<Matchmaker.Match> matches = new ArrayList<Matchmaker.Match>();
+		for(int i = 0; i < 600 && matches.isEmpty(); i++) {
+			matches = matchmaker.tick();
+			clock.advance(1000);
+		}
+		assertEquals(matches.size(), 1);
+		assertArrayEquals(matches.get(0).getPlayerIds(), new long[] {1, 2, 3, 4});
+		assertEquals(clock.millis(), 71000 + 1000);
+		assertEquals(matchmaker.getWaitingCount(), 0);
+	}
+
+	@Test
+	public void testLeave() {
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		matchmaker.join(1, 1500, 2);
+		assertTrue(matchmaker.tick().isEmpty());
+		matchmaker.leave(1);
+		matchmaker.join(2, 1500, 2);
+		assertTrue(matchmaker.tick().isEmpty());
+		assertEquals(matchmaker.getWaitingCount(), 1);
+
+		// Leaving again or without waiting does nothing
+		matchmaker.leave(1);
+		matchmaker.leave(7);
+		matchmaker.join(1, 1500, 2);
+		List<Matchmaker.Match> matches = matchmaker.tick();
+		assertEquals(matches.size(), 1);
+		assertArrayEquals(matches.get(0).getPlayerIds(), new long[] {2, 1});
+
+		// Requests between ticks are taken in the order they were made
+		matchmaker.join(3, 1500, 2);
+		matchmaker.leave(3);
+		matchmaker.join(4, 1500, 2);
+		assertTrue(matchmaker.tick().isEmpty());
+		matchmaker.leave(4);
+		matchmaker.join(4, 1500, 2);
+		matchmaker.join(5, 1500, 2);
+		matches = matchmaker.tick();
+		assertEquals(matches.size(), 1);
+		assertArrayEquals(matches.get(0).getPlayerIds(), new long[] {4, 5});
+	}
+
+	@Test
+	public void testJoinTwice() {
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		matchmaker.join(1, 1500, 2);
+		matchmaker.join(1, 1500, 2);
+		assertTrue(matchmaker.tick().isEmpty());
+		matchmaker.join(1, 1500, 2);
+		assertTrue(matchmaker.tick().isEmpty());
+		assertEquals(matchmaker.getWaitingCount(), 1);
+	}
+
+	@Test
+	public void testOutOfRange() {
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		matchmaker.join(1, -200, 2);
+		matchmaker.join(2, 5000, 2);
+		matchmaker.join(3, 10, 2);
+		List<Matchmaker.Match> matches = matchmaker.tick();
+		assertEquals(matches.size(), 1);
+		assertArrayEquals(matches.get(0).getPlayerIds(), new long[] {1, 3});
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadSeats() {
+		new Matchmaker(new ManualClock(0)).join(1, 1500, 3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadWindows() {
+		new Matchmaker(new ManualClock(0), 25.0, 100.0, 25.0, 5000, 50.0);
+	}
+
+	@Test
+	public void testRandomQueue() {
+		List<String> formed = randomQueue(200, 50, 11);
+		assertTrue(formed.size() > 1000);
+		assertEquals(randomQueue(200, 50, 11), formed);
+	}
+
+	@Test
+	public void testNewBoard() throws InterruptedException {
+		ManualClock clock = new ManualClock(0);
+		Matchmaker matchmaker = new Matchmaker(clock);
+		for(long id = 1; id <= 4; id++) {
+			matchmaker.join(id, 1500, 4);
+		}
+		Matchmaker.Match match = matchmaker.tick().get(0);
+
+		Board b = match.newBoard(null);
+		assertNotNull(b.getPlayerFromNum(4));
+		assertNull(b.ratings);
+
+		RatingService ratings = new RatingService(60000);
+		try {
+			b = match.newBoard(ratings);
+			assertSame(b.ratings, ratings);
+			assertArrayEquals(b.ratedPlayers, new long[] {1, 2, 3, 4});
+		} finally {
+			ratings.close();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package santanjm.quoridor;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.Metrics;
+
+/**
+ * Test class for the metrics
+ */
+public class MetricsTest {
+
+	@After
+	public void turnOff() {
+		Metrics.setEnabled(false);
+		Metrics.reset();
+	}
+
+	@Test
+	public void testDisabledRecordsNothing() {
+		Metrics.setEnabled(false);
+		Metrics.reset();
+		Board b = new Board(2);
+		b.isLegalMove("e8");
+		b.executeMove("c3v");
+		assertEquals(Metrics.start(), 0L);
+		assertEquals(Metrics.IS_LEGAL_MOVE.getCount(), 0);
+		assertEquals(Metrics.EXECUTE_MOVE.getCount(), 0);
+		assertEquals(Metrics.REACH_STEPS.getCount(), 0);
+	}
+
+	@Test
+	public void testRulesRecorded() {
+		Metrics.setEnabled(true);
+		Metrics.reset();
+		Board b = new Board(2);
+		assertTrue(b.isLegalMove("e8"));
+		assertFalse(b.isLegalMove("e7"));
+		assertTrue(b.isLegalMove("c3v"));
+		b.executeMove("c3v");
+		assertEquals(Metrics.IS_LEGAL_MOVE.getCount(), 3);
+		assertEquals(Metrics.ILLEGAL_MOVES.get(), 1);
+		assertEquals(Metrics.EXECUTE_MOVE.getCount(), 1);
+
+		// The wall was checked for both players, each finding a way through
+		assertTrue(Metrics.CAN_REACH_GOAL.getCount() >= 2);
+		assertTrue(Metrics.REACH_STEPS.getCount() >= 2);
+		assertTrue(Metrics.REACH_STEPS.getMax() >= 8);
+	}
+
+	@Test
+	public void testPercentiles() {
+		Metrics.setEnabled(true);
+		Metrics.reset();
+		for(int i = 1; i <= 1000; i++) {
+			Metrics.THUMBNAIL.record(i * 1000L);
+		}
+		assertEquals(Metrics.THUMBNAIL.getCount(), 1000);
+		assertEquals(Metrics.THUMBNAIL.getMax(), 1000000);
+		assertEquals(Metrics.THUMBNAIL.getMean(), 500500);
+
+		// Each percentile is within an eighth of the exact value
+		long p50 = Metrics.THUMBNAIL.getPercentile(50);
+		assertTrue(p50 >= 500000 && p50 <= 500000 * 9 / 8);
+		long p99 = Metrics.THUMBNAIL.getPercentile(99);
+		assertTrue(p99 >= 990000 && p99 <= 1000000);
+		assertEquals(Metrics.THUMBNAIL.getPercentile(100), 1000000);
+	}
+
+	@Test
+	public void testBuckets() {
+		for(long value : new long[] {0, 1, 15, 16, 17, 100, 12345, 1L << 40, Long.MAX_VALUE}) {
+			int bucket = Metrics.Histogram.bucket(value);
+			assertTrue(Metrics.Histogram.highest(bucket) >= value);
+			assertTrue(bucket == 0 || Metrics.Histogram.highest(bucket - 1) < value);
+		}
+	}
+
+	@Test
+	public void testExport() {
+		Metrics.setEnabled(true);
+		Metrics.reset();
+		Metrics.IS_LEGAL_MOVE.record(42);
+		String json = Metrics.toJson();
+		assertTrue(json.startsWith("{\"enabled\":true,\"histograms\":{\"board.isLegalMove\":{\"unit\":\"ns\",\"count\":1,"));
+		assertTrue(json.contains("\"board.illegalMoves\":0"));
+		assertTrue(Metrics.toText().contains("board.isLegalMove: count=1 mean=42 p50=42"));
+	}
+}
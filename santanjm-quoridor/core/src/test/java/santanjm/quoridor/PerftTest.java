@@ -0,0 +1,62 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.Perft;
+
+/**
+ * Test class for perft, the counts here were produced by the rules in Board and
+ * must be reproduced by any faster move generator
+ */
+public class PerftTest {
+
+	@Test
+	public void testStartingPosTwoPlayers() {
+		Perft perft = new Perft();
+		assertEquals(perft.perft(new Board(2), 1), 131);
+		perft.shutdown();
+	}
+
+	@Test
+	public void testStartingPosFourPlayers() {
+		Perft perft = new Perft();
+		assertEquals(perft.perft(new Board(4), 1), 131);
+		perft.shutdown();
+	}
+
+	@Test
+	public void testDepthTwo() {
+		// Count on more than one thread and with a table to check neither changes the count
+		Perft perft = new Perft(2, 100000);
+		assertEquals(perft.perft(new Board(2), 2), 16677);
+		perft.shutdown();
+	}
+
+	@Test
+	public void testDivide() {
+		// Player 1 is surrounded on three sides with a wall behind player 3
+		Board b = new Board(4);
+		b.placePlayer(b.getPlayerFromNum(1), 4, 4);
+		b.placePlayer(b.getPlayerFromNum(2), 4, 3);
+		b.placePlayer(b.getPlayerFromNum(3), 5, 4);
+		b.placePlayer(b.getPlayerFromNum(4), 3, 4);
+		b.placeWall(b.getSpaceFromCoords(5, 3), 0);
+
+		Perft perft = new Perft();
+		Map<String, Long> divide = perft.divide(b, 1);
+		assertEquals(divide.size(), 129);
+		assertEquals(perft.perft(b, 1), 129);
+
+		// The pawn moves are a step down, two direct jumps and two diagonal jumps
+		Set<String> pawnMoves = new TreeSet<String>();
+		for(String move : divide.keySet()) {
+			if(move.length() == 2) {
+				pawnMoves.add(move);
+			}
+		}
+		assertEquals(pawnMoves, new TreeSet<String>(Arrays.asList("c5", "e3", "e6", "f4", "f6")));
+		perft.shutdown();
+	}
+}
@@ -0,0 +1,233 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.DifferentialFuzzer;
+import santanjm.quoridor.Perft;
+import santanjm.quoridor.Position;
+
+/**
+ * Test class for the position
+ */
+public class PositionTest {
+
+	@Test
+	public void testLegalConstruct() {
+		Position legal1 = new Position(2);
+		assertEquals(legal1.getNumPlayers(), 2);
+		assertEquals(legal1.getWallsLeft(1), 10);
+
+		Position legal2 = new Position(4);
+		assertEquals(legal2.getNumPlayers(), 4);
+		assertEquals(legal2.getWallsLeft(4), 5);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalConstruct() {
+		Position illegal = new Position(3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyWalls() {
+		Board b = new Board(2, 9, 10);
+		b.getPlayerFromNum(1).walls = 11;
+		new Position(b);
+	}
+
+	@Test
+	public void testNotation() {
+		assertEquals(Position.parseMove("e9"), 76);
+		assertEquals(Position.toNotation(76), "e9");
+		for(int move = 0; move < Position.NUM_MOVES; move++) {
+			assertEquals(Position.parseMove(Position.toNotation(move)), move);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalNotation() {
+		Position.parseMove("b3t");
+	}
+
+	@Test
+	public void testSameAsBoard() {
+		Board b = new Board(4);
+		b.placePlayer(b.getPlayerFromNum(1), 4, 4);
+		b.placeWall(b.getSpaceFromCoords(5, 3), 0);
+		Position pos = new Position(b);
+		assertEquals(pos.key(), b.positionKey());
+		assertEquals(pos.getPawn(1), 40);
+		assertEquals(pos.getWallsLeft(1), 4);
+	}
+
+	@Test
+	public void testPlay() {
+		Position pos = new Position(2);
+		Position next = pos.play(Position.parseMove("e8"));
+		assertEquals(next.getPawn(1), 67);
+		assertEquals(next.getActivePlayer(), 2);
+
+		next = next.play(Position.parseMove("d7h"));
+		assertEquals(next.getWallsLeft(2), 9);
+		assertEquals(next.getHorizontalWalls(), 1L << 51);
+
+		// The position played from is left unchanged
+		assertEquals(pos.getPawn(1), 76);
+		assertEquals(pos.getActivePlayer(), 1);
+	}
+
+	@Test
+	public void testIsLegal() {
+		// Test that a step blocked by a wall and a wall through a designator are illegal
+		Position pos = new Position(2).play(Position.parseMove("d8h"));
+		pos = pos.play(Position.parseMove("e2"));
+		assertFalse(pos.isLegal(Position.parseMove("e8")));
+		assertTrue(pos.isLegal(Position.parseMove("f9")));
+		assertFalse(pos.isLegal(Position.parseMove("d8v")));
+		assertFalse(pos.isLegal(Position.parseMove("e8h")));
+		assertTrue(pos.isLegal(Position.parseMove("f8h")));
+	}
+
+	@Test
+	public void testCanReachGoal() {
+		// Box player 1 into the bottom right corner
+		Position pos = new Position(2);
+		for(String wall : new String[] {"e8h", "g8h", "d8v"}) {
+			pos = pos.play(Position.parseMove(wall));
+		}
+		assertTrue(pos.canReachGoal(1));
+		assertFalse(pos.isLegal(Position.parseMove("h8v")));
+		assertFalse(pos.play(Position.parseMove("h8v")).canReachGoal(1));
+		assertTrue(pos.play(Position.parseMove("h8v")).canReachGoal(2));
+	}
+
+	@Test
+	public void testDistanceToGoal() {
+		Position pos = new Position(2);
+		assertEquals(pos.distanceToGoal(1), 8);
+		assertEquals(pos.distanceToGoal(2), 8);
+
+		// A wall in front of player 1 makes them step around it
+		pos = pos.play(Position.parseMove("d8h"));
+		assertEquals(pos.distanceToGoal(1), 9);
+		assertEquals(new Position(4).distanceToGoal(3), 8);
+	}
+
+	@Test
+	public void testRelevantMoves() {
+		Position pos = new Position(2);
+		for(String move : new String[] {"e8", "e2", "d6h", "e4v"}) {
+			pos = pos.play(Position.parseMove(move));
+		}
+		int[] all = pos.legalMoves();
+		int[] moves = new int[Position.NUM_MOVES];
+		assertEquals(pos.relevantSlots(-1), -1L);
+		assertArrayEquals(Arrays.copyOf(moves, pos.legalMoves(moves, -1L)), all);
+
+		// Every pawn move is kept, and of the walls only those in the slots
+		long previous = 0L;
+		for(int reach = 0; reach < 3; reach++) {
+			long slots = pos.relevantSlots(reach);
+			assertEquals(slots & previous, previous);
+			assertTrue(slots != -1L);
+			int count = pos.legalMoves(moves, slots);
+			List<Integer> expected = new ArrayList<Integer>();
+			for(int move : all) {
+				if(move < Position.WALL_MOVES || (slots & (1L << ((move - Position.WALL_MOVES) >> 1))) != 0L) {
+					expected.add(move);
+				}
+			}
+			List<Integer> found = new ArrayList<Integer>();
+			for(int i = 0; i < count; i++) {
+				found.add(moves[i]);
+			}
+			assertEquals(found, expected);
+			previous = slots;
+		}
+		assertEquals(pos.relevantSlots(0), pos.pathSlots());
+	}
+
+	@Test
+	public void testHash() {
+		Position pos = new Position(2).play(Position.parseMove("e8")).play(Position.parseMove("c3v"));
+		Position same = new Position(2).play(Position.parseMove("e8")).play(Position.parseMove("c3v"));
+		assertEquals(pos.hash(), same.hash());
+		assertFalse(pos.hash() == pos.play(Position.parseMove("e7")).hash());
+		assertFalse(pos.hash() == new Position(2).play(Position.parseMove("e8")).play(Position.parseMove("c3h")).hash());
+
+		// Like equals, the hash depends on the active player and not the turn
+		Position later = same.play(Position.parseMove("e7")).play(Position.parseMove("e2"))
+				.play(Position.parseMove("e8")).play(Position.parseMove("e1"));
+		assertEquals(later, pos);
+		assertEquals(later.hash(), pos.hash());
+	}
+
+	@Test
+	public void testMirror() {
+		assertEquals(Position.toNotation(Position.mirrorMove(Position.parseMove("a1"))), "i1");
+		assertEquals(Position.toNotation(Position.mirrorMove(Position.parseMove("c3v"))), "f3v");
+		assertEquals(Position.toNotation(Position.mirrorMove(Position.parseMove("h8h"))), "a8h");
+		assertEquals(new Position(2).mirror(), new Position(2));
+
+		Position pos = new Position(2);
+		for(String move : new String[] {"d9", "c2h", "d8", "a7v", "c8"}) {
+			pos = pos.play(Position.parseMove(move));
+			Position mirror = pos.mirror();
+			assertEquals(mirror.mirror(), pos);
+
+			// The mirror image plays the same with every move reflected
+			Set<Integer> reflected = new TreeSet<Integer>();
+			for(int legal : pos.legalMoves()) {
+				reflected.add(Position.mirrorMove(legal));
+			}
+			Set<Integer> mirrorMoves = new TreeSet<Integer>();
+			for(int legal : mirror.legalMoves()) {
+				mirrorMoves.add(legal);
+			}
+			assertEquals(mirrorMoves, reflected);
+			assertEquals(mirror.distanceToGoal(1), pos.distanceToGoal(1));
+
+			// The position and its mirror image share one canonical form
+			assertEquals(mirror.canonical(), pos.canonical());
+			assertEquals(mirror.canonicalHash(), pos.canonicalHash());
+			assertEquals(pos.canonicalHash(), Math.min(pos.hash(), mirror.hash()));
+			assertTrue(pos.isCanonical() || mirror.isCanonical());
+		}
+
+		// 4 player positions are only their own canonical form
+		Position four = new Position(4).play(Position.parseMove("d9"));
+		assertSame(four.canonical(), four);
+		assertEquals(four.canonicalHash(), four.hash());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMirrorFourPlayers() {
+		new Position(4).mirror();
+	}
+
+	@Test
+	public void testPerftMatchesBoard() {
+		// The reference counts from PerftTest, which were produced by the rules in Board
+		Perft perft = new Perft(2, 100000);
+		assertEquals(perft.perft(new Position(2), 1), 131);
+		assertEquals(perft.perft(new Position(4), 1), 131);
+		assertEquals(perft.perft(new Position(2), 2), 16677);
+
+		Board b = new Board(4);
+		b.placePlayer(b.getPlayerFromNum(1), 4, 4);
+		b.placePlayer(b.getPlayerFromNum(2), 4, 3);
+		b.placePlayer(b.getPlayerFromNum(3), 5, 4);
+		b.placePlayer(b.getPlayerFromNum(4), 3, 4);
+		b.placeWall(b.getSpaceFromCoords(5, 3), 0);
+		assertEquals(perft.divide(new Position(b), 1), perft.divide(b, 1));
+		perft.shutdown();
+	}
+
+	@Test
+	public void testFuzzAgainstBoard() throws Exception {
+		DifferentialFuzzer fuzzer = new DifferentialFuzzer(2, 3000, 42);
+		assertEquals(fuzzer.run(), new ArrayList<DifferentialFuzzer.Mismatch>());
+		assertTrue(fuzzer.getPositions() > 0);
+	}
+}
@@ -0,0 +1,196 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.RatingService;
+
+/**
+ * Test class for the rating service
+ */
+public class RatingServiceTest {
+
+	/**
+	 * Random 2 and 4 player results between a number of players, each ending a number of
+	 * milliseconds after the last
+	 */
+	private static List<RatingService.Result> randomResults(int players, int games, long apart, long seed) {
+		Random random = new Random(seed);
+		List<RatingService.Result> results = new ArrayList<RatingService.Result>();
+		for(int i = 0; i < games; i++) {
+			int seats = random.nextInt(4) == 0 ? 4 : 2;
+			long[] ids = new long[seats];
+			for(int j = 0; j < seats; j++) {
+				boolean taken = true;
+				while(taken) {
+					ids[j] = random.nextInt(players);
+					taken = false;
+					for(int k = 0; k < j; k++) {
+						taken |= ids[k] == ids[j];
+					}
+				}
+			}
+			results.add(new RatingService.Result(i + 1, ids, 1 + random.nextInt(seats), i*apart));
+		}
+		return results;
+	}
+
+	@Test
+	public void testGlickmanExample() {
+		// The worked example from Glickman's description of Glicko-2
+		Map<Long, RatingService.Rating> ratings = new HashMap<Long, RatingService.Rating>();
+		ratings.put(2L, new RatingService.Rating(2, 1500, 1400, 30, 0.06, 0, 0));
+		ratings.put(3L, new RatingService.Rating(3, 1500, 1550, 100, 0.06, 0, 0));
+		ratings.put(4L, new RatingService.Rating(4, 1500, 1700, 300, 0.06, 0, 0));
+		RatingService.Games games = new RatingService.Games();
+		games.add(2, 1.0);
+		games.add(3, 0.0);
+		games.add(4, 0.0);
+
+		RatingService.Rating player = new RatingService.Rating(1, 1500, 1500, 200, 0.06, 0, 0);
+		RatingService.Rating rated = RatingService.update(player, games, ratings, 1);
+		assertEquals(rated.getRating(), 1464.06, 0.01);
+		assertEquals(rated.getDeviation(), 151.52, 0.01);
+		assertEquals(rated.getVolatility(), 0.05999, 0.00001);
+		assertEquals(rated.getGames(), 3);
+	}
+
+	@Test
+	public void testWriterSurvivesFailure() throws Exception {
+		RatingService service = new RatingService(1000, 1);
+		final IllegalStateException thrown = new IllegalStateException("Broken result");
+		service.enqueue(new Runnable() {
+			public void run() {
+				throw thrown;
+			}
+		});
+		service.submit(1, new long[] {1, 2}, 1, 0);
+		service.flush();
+		assertSame(service.getFailure(), thrown);
+		assertEquals(service.getRating(1).getGames(), 1);
+		service.recompute();
+		assertEquals(service.getRating(2).getGames(), 1);
+		service.close();
+	}
+
+	@Test
+	public void testIdleDeviation() {
+		// Sitting out periods grows the deviation, up to that of a new player
+		RatingService.Rating player = new RatingService.Rating(1, 1500, 1500, 50, 0.06, 10, 4);
+		assertEquals(RatingService.deviation(player, 5)*RatingService.SCALE, 50.0, 0.000001);
+		assertEquals(RatingService.deviation(player, 15)*RatingService.SCALE,
+				Math.sqrt(50*50 + 10*Math.pow(0.06*RatingService.SCALE, 2)), 0.000001);
+		assertEquals(RatingService.deviation(player, 1000000)*RatingService.SCALE, 350.0, 0.000001);
+	}
+
+	@Test
+	public void testElo() throws Exception {
+		RatingService service = new RatingService(1000, 1);
+		service.submit(1, new long[] {7, 8}, 2, 0);
+		service.flush();
+		assertEquals(service.getRating(8).getElo(), 1516.0, 0.000001);
+		assertEquals(service.getRating(7).getElo(), 1484.0, 0.000001);
+		assertTrue(service.getRating(8).getRating() > service.getRating(7).getRating());
+		assertEquals(service.getRating(9).getGames(), 0);
+		service.close();
+	}
+
+	@Test
+	public void testBoardResult() throws Exception {
+		RatingService service = new RatingService(1000, 1);
+		Board b = new Board(2, 5, 3);
+		service.attach(b, new long[] {10, 20});
+		String[] moves = {"c4", "b1", "c3", "a1", "c2", "b1", "c1"};
+		for(String move : moves) {
+			b.executeMove(move);
+			b.nextTurn();
+		}
+		service.flush();
+		assertEquals(service.getRating(10).getGames(), 1);
+		assertTrue(service.getRating(10).getElo() > service.getRating(20).getElo());
+		service.close();
+	}
+
+	@Test
+	public void testRecomputeMatchesStream() throws Exception {
+		// With every game in a period of its own, rating the games as they stream in and
+		// recomputing them bucket by bucket come to the same ratings
+		RatingService service = new RatingService(10, 3);
+		List<RatingService.Result> results = randomResults(50, 1000, 10, 3);
+		for(RatingService.Result result : results) {
+			service.submit(result.gameId, result.playerIds, result.winner, result.playedAt);
+		}
+		service.flush();
+		Map<Long, RatingService.Rating> streamed = new HashMap<Long, RatingService.Rating>(service.ratings);
+
+		service.recompute();
+		assertEquals(service.getPlayerCount(), streamed.size());
+		for(RatingService.Rating before : streamed.values()) {
+			RatingService.Rating after = service.getRating(before.getPlayerId());
+			assertEquals(after.getElo(), before.getElo(), 0.000001);
+			assertEquals(after.getRating(), before.getRating(), 0.000001);
+			assertEquals(after.getDeviation(), before.getDeviation(), 0.000001);
+			assertEquals(after.getGames(), before.getGames());
+		}
+		service.close();
+	}
+
+	@Test
+	public void testParallelBuckets() throws Exception {
+		// Many games to a period, rated on one thread and on several
+		List<RatingService.Result> results = randomResults(500, 5000, 1, 5);
+		RatingService single = new RatingService(1000, 1);
+		RatingService parallel = new RatingService(1000, 4);
+		Map<Long, RatingService.Rating> one = single.compute(results);
+		Map<Long, RatingService.Rating> many = parallel.compute(results);
+		assertEquals(many.size(), one.size());
+
+		// Every game moves Elo points from the losers to the winner, so the total stays put
+		double total = 0.0;
+		for(RatingService.Rating rating : one.values()) {
+			RatingService.Rating other = many.get(rating.getPlayerId());
+			assertEquals(other.getElo(), rating.getElo(), 0.0);
+			assertEquals(other.getRating(), rating.getRating(), 0.0);
+			assertEquals(other.getVolatility(), rating.getVolatility(), 0.0);
+			total += rating.getElo();
+		}
+		assertEquals(total, 1500.0*one.size(), 0.001);
+		single.close();
+		parallel.close();
+	}
+
+	@Test
+	public void testLeaderboard() throws Exception {
+		RatingService service = new RatingService(10, 1);
+		for(RatingService.Result result : randomResults(100, 2000, 1, 9)) {
+			service.submit(result.gameId, result.playerIds, result.winner, result.playedAt);
+		}
+		service.flush();
+		List<RatingService.Rating> elo = service.getLeaderboard(RatingService.ELO, 10);
+		List<RatingService.Rating> glicko = service.getLeaderboard(RatingService.GLICKO, 1000);
+		assertEquals(elo.size(), 10);
+		assertEquals(glicko.size(), service.getPlayerCount());
+		for(int i = 1; i < elo.size(); i++) {
+			assertTrue(elo.get(i - 1).getElo() >= elo.get(i).getElo());
+		}
+		for(int i = 1; i < glicko.size(); i++) {
+			assertTrue(glicko.get(i - 1).getRating() >= glicko.get(i).getRating());
+		}
+
+		// The index holds each player once, as of their latest game
+		Set<Long> seen = new HashSet<Long>();
+		for(RatingService.Rating rating : glicko) {
+			assertTrue(seen.add(rating.getPlayerId()));
+			assertSame(rating, service.getRating(rating.getPlayerId()));
+		}
+		service.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosed() throws Exception {
+		RatingService service = new RatingService(10, 1);
+		service.close();
+		service.submit(1, new long[] {1, 2}, 1, 0);
+	}
+}
@@ -0,0 +1,135 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import santanjm.quoridor.Position;
+import santanjm.quoridor.Reachability;
+import santanjm.quoridor.WallTable;
+
+/**
+ * Test class for the flood fill reachability
+ */
+public class ReachabilityTest {
+
+	/**
+	 * Breadth first search one space at a time, the way reachability used to be found
+	 */
+	private static int slowDistance(long v, long h, int from, int player) {
+		int[] steps = new int[81];
+		Arrays.fill(steps, -1);
+		int[] queue = new int[81];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = from;
+		steps[from] = 0;
+		while(head < tail) {
+			int space = queue[head++];
+			if(Position.isGoal(player, space)) {
+				return steps[space];
+			}
+			for(int dir = 0; dir < 4; dir++) {
+				int next = Position.neighbor(space, dir);
+				if(next >= 0 && steps[next] < 0 && ! WallTable.isBlocked(v, h, space, dir)) {
+					steps[next] = steps[space] + 1;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return -1;
+	}
+
+	@Test
+	public void testOpenBoard() {
+		assertEquals(Reachability.distance(0L, 0L, 76, 0), 8);
+		assertEquals(Reachability.distance(0L, 0L, 4, 1), 8);
+		assertEquals(Reachability.distance(0L, 0L, 36, 2), 8);
+		assertEquals(Reachability.distance(0L, 0L, 44, 3), 8);
+		assertEquals(Reachability.distance(0L, 0L, 3, 0), 0);
+	}
+
+	@Test
+	public void testWalledOff() {
+		// A row of horizontal walls along the bottom of row 8 leaves only i8 open, which a
+		// vertical wall on h8 closes, cutting the bottom row off from the top
+		long h = 0L;
+		for(int col = 0; col < 8; col += 2) {
+			h |= 1L << (8*7 + col);
+		}
+		assertEquals(Reachability.distance(0L, h, 76, 0), 12);
+		long v = 1L << (8*7 + 7);
+		assertFalse(Reachability.canReach(v, h, 76, 0));
+		assertTrue(Reachability.canReach(v, h, 4, 0));
+		assertFalse(Reachability.allCanReach(v, h, new int[] {76, 4}, 2));
+		assertTrue(Reachability.allCanReach(0L, h, new int[] {76, 4}, 2));
+	}
+
+	@Test
+	public void testMatchesBreadthFirstSearch() {
+		Random random = new Random(11);
+		for(int trial = 0; trial < 300; trial++) {
+			// Dense walls, so that many spaces are cut off and many paths wind
+			long v = random.nextLong() & random.nextLong();
+			long h = random.nextLong() & random.nextLong() & ~v;
+			for(int space = 0; space < 81; space++) {
+				for(int player = 0; player < 4; player++) {
+					assertEquals(Reachability.distance(v, h, space, player), slowDistance(v, h, space, player));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testOpenEdgesInto() {
+		Random random = new Random(5);
+		long[] rightLow = new long[3];
+		long[] rightHigh = new long[3];
+		long[] downLow = new long[3];
+		long[] downHigh = new long[3];
+		for(int trial = 0; trial < 300; trial++) {
+			long v = random.nextLong() & random.nextLong();
+			long h = random.nextLong() & random.nextLong() & ~v;
+			Reachability.openEdges(v, h, rightLow, rightHigh, downLow, downHigh, trial % 3);
+			assertArrayEquals(new long[] {rightLow[trial % 3], rightHigh[trial % 3], downLow[trial % 3],
+					downHigh[trial % 3]}, Reachability.openEdges(v, h));
+		}
+	}
+
+	@Test
+	public void testShortestPaths() {
+		// On an open board the only shortest path runs straight up the column
+		long[] path = Reachability.shortestPaths(0L, 0L, 76, 0);
+		long column = 0L;
+		for(int row = 0; row < 7; row++) {
+			column |= 1L << (9*row + 4);
+		}
+		assertEquals(path[0], column);
+		assertEquals(path[1], (1L << (67 - 64)) | (1L << (76 - 64)));
+
+		// Walls over d1 to f1 leave two columns to go round by, and every space between them
+		// and the pawn on a path round one end or the other
+		long h = (1L << 3) | (1L << 4);
+		path = Reachability.shortestPaths(0L, h, 76, 0);
+		assertEquals(Long.bitCount(path[0]) + Long.bitCount(path[1]), 42);
+		assertEquals(Reachability.shortestPaths(1L << (8*7 + 7), walledBottom(), 76, 0)[0], 0L);
+	}
+
+	@Test
+	public void testTouchingSlots() {
+		// Every slot around a space in the middle, and only the one slot by a corner
+		assertEquals(Reachability.touchingSlots(1L << 40, 0L), (1L << 27) | (1L << 28) | (1L << 35) | (1L << 36));
+		assertEquals(Reachability.touchingSlots(1L, 0L), 1L);
+		assertEquals(Reachability.touchingSlots(0L, 1L << (80 - 64)), 1L << 63);
+	}
+
+	/**
+	 * Horizontal walls along the bottom of row 8 leaving only i8 open
+	 */
+	private static long walledBottom() {
+		long h = 0L;
+		for(int col = 0; col < 8; col += 2) {
+			h |= 1L << (8*7 + col);
+		}
+		return h;
+	}
+}
@@ -0,0 +1,139 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.*;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.Position;
+import santanjm.quoridor.SpectatorBroadcast;
+
+/**
+ * Test class for the spectator broadcast
+ */
+public class SpectatorBroadcastTest {
+
+	/**
+	 * Connection which takes at most a given number of bytes until it is drained, like a
+	 * non-blocking socket whose send buffer fills up
+	 */
+	private static class SlowChannel implements WritableByteChannel {
+		ByteArrayOutputStream received = new ByteArrayOutputStream();
+		int room;
+
+		SlowChannel(int room) {
+			this.room = room;
+		}
+
+		public int write(ByteBuffer src) {
+			int n = Math.min(room, src.remaining());
+			for(int i = 0; i < n; i++) {
+				received.write(src.get());
+			}
+			room -= n;
+			return n;
+		}
+
+		public boolean isOpen() {
+			return true;
+		}
+
+		public void close() {
+		}
+	}
+
+	/**
+	 * Applies every frame received by a spectator, starting from no position
+	 */
+	private static Position replay(SlowChannel channel) {
+		ByteBuffer frames = ByteBuffer.wrap(channel.received.toByteArray());
+		Position pos = null;
+		while(frames.hasRemaining()) {
+			pos = SpectatorBroadcast.apply(pos, frames);
+		}
+		return pos;
+	}
+
+	/**
+	 * Plays each of the moves on the board as the game loop would
+	 */
+	private static void play(Board b, String... moves) {
+		for(String move : moves) {
+			b.executeMove(move);
+			b.nextTurn();
+		}
+	}
+
+	@Test
+	public void testDeltas() {
+		Board b = new Board(4);
+		SpectatorBroadcast broadcast = new SpectatorBroadcast(16, 10);
+		broadcast.attach(b);
+		SlowChannel spectator = new SlowChannel(Integer.MAX_VALUE);
+		broadcast.subscribe(spectator);
+		int start = spectator.received.size();
+
+		play(b, "e8", "c3v");
+		assertEquals(replay(spectator), new Position(b));
+
+		// The pawn move is a delta of 10 bytes: its turn, mover, move and the space moved from
+		byte[] bytes = spectator.received.toByteArray();
+		assertEquals(bytes.length - start, 20);
+		assertEquals(bytes[start + 8], (byte) Position.parseMove("e8"));
+		assertEquals(bytes[start + 9], (byte) Position.parseMove("e9"));
+		assertEquals(bytes[start + 19], (byte) 255);
+	}
+
+	@Test
+	public void testLateSubscriberStartsFromKeyframe() {
+		Board b = new Board(2);
+		SpectatorBroadcast broadcast = new SpectatorBroadcast(16, 10);
+		broadcast.attach(b);
+		play(b, "e8", "e2", "d7h");
+		SlowChannel spectator = new SlowChannel(Integer.MAX_VALUE);
+		broadcast.subscribe(spectator);
+		play(b, "e3");
+		assertEquals(replay(spectator), new Position(b));
+	}
+
+	@Test
+	public void testSlowSpectatorDroppedToKeyframes() {
+		Board b = new Board(2);
+		SpectatorBroadcast broadcast = new SpectatorBroadcast(4, 6);
+		broadcast.attach(b);
+		SlowChannel fast = new SlowChannel(Integer.MAX_VALUE);
+		SlowChannel slow = new SlowChannel(5);
+		broadcast.subscribe(fast);
+		broadcast.subscribe(slow);
+
+		// The slow spectator takes part of the first keyframe and then nothing more
+		play(b, "e8", "e2", "e7", "e3", "d7h");
+		assertEquals(broadcast.getLaggingCount(), 1);
+		assertTrue(broadcast.getDroppedFrames() > 0);
+
+		// Once drained, the slow spectator is sent the next keyframe and follows the deltas again
+		slow.room = Integer.MAX_VALUE;
+		broadcast.flush();
+		play(b, "c3v", "a1h", "e6");
+		assertEquals(broadcast.getLaggingCount(), 0);
+		play(b, "e4");
+		assertEquals(replay(slow), new Position(b));
+		assertEquals(replay(fast), new Position(b));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDeltaWithoutKeyframe() {
+		Board b = new Board(2);
+		SpectatorBroadcast broadcast = new SpectatorBroadcast(16, 10);
+		broadcast.attach(b);
+		SlowChannel spectator = new SlowChannel(Integer.MAX_VALUE);
+		broadcast.subscribe(spectator);
+		int start = spectator.received.size();
+		play(b, "e8");
+		ByteBuffer frames = ByteBuffer.wrap(spectator.received.toByteArray());
+		frames.position(start);
+		SpectatorBroadcast.apply(null, frames);
+	}
+}
@@ -0,0 +1,99 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import santanjm.quoridor.Position;
+import santanjm.quoridor.WallTable;
+
+/**
+ * Test class for the wall placement tables
+ */
+public class WallTableTest {
+
+	/**
+	 * Random bit sets of walls, roughly one slot in eight taken in each direction
+	 */
+	private static long[][] randomWalls() {
+		Random random = new Random(7);
+		long[][] walls = new long[500][2];
+		for(long[] pair : walls) {
+			pair[0] = random.nextLong() & random.nextLong() & random.nextLong();
+			pair[1] = random.nextLong() & random.nextLong() & random.nextLong() & ~pair[0];
+		}
+		return walls;
+	}
+
+	/**
+	 * Checks whether the slot designated by [col, row] is in a set of walls
+	 */
+	private static boolean hasWall(long walls, int col, int row) {
+		return col >= 0 && col < 8 && row >= 0 && row < 8 && (walls & (1L << (8*row + col))) != 0L;
+	}
+
+	@Test
+	public void testBlockedEdges() {
+		// c3v runs down the right of c3 and c4, c3h along the bottom of c3 and d3
+		int c3 = Position.parseMove("c3");
+		assertArrayEquals(WallTable.BLOCKED_EDGES[Position.parseMove("c3v") - Position.WALL_MOVES],
+				new int[] {2*c3, 2*(c3 + 9)});
+		assertArrayEquals(WallTable.BLOCKED_EDGES[Position.parseMove("c3h") - Position.WALL_MOVES],
+				new int[] {2*c3 + 1, 2*(c3 + 1) + 1});
+	}
+
+	@Test
+	public void testConflicts() {
+		for(long[] pair : randomWalls()) {
+			long v = pair[0];
+			long h = pair[1];
+			for(int slot = 0; slot < 64; slot++) {
+				int col = slot % 8;
+				int row = slot / 8;
+				boolean designated = hasWall(v | h, col, row);
+				boolean vClash = designated || hasWall(v, col, row - 1) || hasWall(v, col, row + 1);
+				boolean hClash = designated || hasWall(h, col - 1, row) || hasWall(h, col + 1, row);
+				assertEquals(WallTable.conflicts(v, h, 2*slot), vClash);
+				assertEquals(WallTable.conflicts(v, h, 2*slot + 1), hClash);
+				assertEquals((WallTable.openSlots(v, h, 0) & (1L << slot)) != 0L, ! vClash);
+				assertEquals((WallTable.openSlots(v, h, 1) & (1L << slot)) != 0L, ! hClash);
+			}
+		}
+	}
+
+	@Test
+	public void testIsBlocked() {
+		for(long[] pair : randomWalls()) {
+			long v = pair[0];
+			long h = pair[1];
+			for(int space = 0; space < 81; space++) {
+				int col = space % 9;
+				int row = space / 9;
+				assertEquals(WallTable.isBlocked(v, h, space, 0),
+						row == 0 || hasWall(h, col, row - 1) || hasWall(h, col - 1, row - 1));
+				assertEquals(WallTable.isBlocked(v, h, space, 1),
+						col == 8 || hasWall(v, col, row) || hasWall(v, col, row - 1));
+				assertEquals(WallTable.isBlocked(v, h, space, 2),
+						row == 8 || hasWall(h, col, row) || hasWall(h, col - 1, row));
+				assertEquals(WallTable.isBlocked(v, h, space, 3),
+						col == 0 || hasWall(v, col - 1, row) || hasWall(v, col - 1, row - 1));
+			}
+		}
+	}
+
+	@Test
+	public void testWiden() {
+		for(long[] pair : randomWalls()) {
+			long slots = pair[0];
+			long widened = WallTable.widen(slots);
+			for(int slot = 0; slot < 64; slot++) {
+				boolean near = false;
+				for(int row = slot / 8 - 1; row <= slot / 8 + 1; row++) {
+					for(int col = slot % 8 - 1; col <= slot % 8 + 1; col++) {
+						near |= row >= 0 && row < 8 && col >= 0 && col < 8 && (slots & (1L << (8*row + col))) != 0L;
+					}
+				}
+				assertEquals((widened & (1L << slot)) != 0L, near);
+			}
+		}
+	}
+}
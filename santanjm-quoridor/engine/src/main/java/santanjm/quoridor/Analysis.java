@@ -0,0 +1,143 @@
+package santanjm.quoridor;
+
+import java.util.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * The result of searching a position to a given depth: the move found best for the active
+ * player, the score it leads to and the line of play expected to follow it.
+ * @author santanjm
+ */
+public class Analysis {
+	// The position searched
+	final Position position;
+
+	// The number of moves looked ahead
+	final int depth;
+
+	// The score of the position for its active player, Search.WIN less the number of moves
+	// needed when the active player has a forced win
+	final int score;
+
+	// The encoded moves of the principal variation, starting with the best move
+	final int[] pv;
+
+	// The number of positions visited by the search
+	final long nodes;
+
+	// The time the search took, in milliseconds
+	final long millis;
+
+	/**
+	 * Constructs an analysis from each of its parts, which are not copied
+	 */
+	Analysis(Position position, int depth, int score, int[] pv, long nodes, long millis) {
+		this.position = position;
+		this.depth = depth;
+		this.score = score;
+		this.pv = pv;
+		this.nodes = nodes;
+		this.millis = millis;
+	}
+
+	/**
+	 * Returns this analysis reflected onto the mirror image of its position, with every
+	 * move of the principal variation reflected (see Position.mirror)
+	 *
+	 * @return the analysis of the mirror image of the position
+	 */
+	Analysis mirror() {
+		int[] line = new int[pv.length];
+		for(int i = 0; i < pv.length; i++) {
+			line[i] = Position.mirrorMove(pv[i]);
+		}
+		return new Analysis(position.mirror(), depth, score, line, nodes, millis);
+	}
+
+	/**
+	 * Getter for the position searched
+	 *
+	 * @return the position
+	 */
+	public Position getPosition() {
+		return position;
+	}
+
+	/**
+	 * Getter for the depth searched
+	 *
+	 * @return the number of moves looked ahead
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Getter for the score of the position for its active player
+	 *
+	 * @return the score, higher being better for the active player
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Getter for the best move found
+	 *
+	 * @return the best move as a move string, or null if the game is already over
+	 */
+	public String getBestMove() {
+		return pv.length == 0 ? null : Position.toNotation(pv[0]);
+	}
+
+	/**
+	 * Getter for the principal variation
+	 *
+	 * @return list of the move strings expected to be played, starting with the best move
+	 */
+	public List<String> getPrincipalVariation() {
+		List<String> moves = new ArrayList<String>();
+		for(int move : pv) {
+			moves.add(Position.toNotation(move));
+		}
+		return moves;
+	}
+
+	/**
+	 * Getter for the encoded moves of the principal variation
+	 *
+	 * @return a copy of the encoded moves, starting with the best move
+	 */
+	public int[] getPrincipalVariationCodes() {
+		return pv.clone();
+	}
+
+	/**
+	 * Getter for the number of positions visited by the search
+	 *
+	 * @return the number of nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Getter for how long the search took
+	 *
+	 * @return the time in milliseconds
+	 */
+	public long getMillis() {
+		return millis;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder line = new StringBuilder();
+		line.append("depth ").append(depth).append(" score ").append(score).append(" pv");
+		for(String move : getPrincipalVariation()) {
+			line.append(' ').append(move);
+		}
+		return line.toString();
+	}
+}
@@ -0,0 +1,200 @@
+package santanjm.quoridor;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import santanjm.quoridor.*;
+
+/**
+ * Analyzes positions on a pool of threads, streaming the analysis of each depth back as
+ * it completes.  The deepest analysis of each position is kept in a bounded cache, keyed on
+ * the position's canonical hash and evicting the least recently used position once full, so
+ * that positions analyzed before, or whose mirror images were, are answered straight from
+ * the cache.  A cached analysis which is not deep enough is reported first and the search
+ * carries on from the depth after it.
+ * @author santanjm
+ */
+public class AnalysisService {
+	// The threads the analyses are run on
+	ExecutorService executor;
+
+	// The evaluator each search scores positions with
+	Evaluator evaluator;
+
+	// Map of canonical position hashes to the deepest analysis of the canonical form of the
+	// position, in order of use
+	final Map<Long, Analysis> cache;
+
+	// The number of requests answered from the cache and the number which needed a search
+	AtomicLong hits = new AtomicLong();
+	AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constructs an analysis service which scores positions with a PathEvaluator
+	 *
+	 * @param threads  the number of positions which can be analyzed at once
+	 * @param capacity the most positions the cache will hold
+	 */
+	public AnalysisService(int threads, int capacity) {
+		this(threads, capacity, new PathEvaluator());
+	}
+
+	/**
+	 * Constructs an analysis service
+	 *
+	 * @param threads   the number of positions which can be analyzed at once
+	 * @param capacity  the most positions the cache will hold
+	 * @param evaluator the evaluator each search scores positions with
+	 */
+	public AnalysisService(int threads, final int capacity, Evaluator evaluator) {
+		if(threads < 1 || capacity < 1) {
+			throw new IllegalArgumentException("Analysis needs at least one thread and room to cache a position");
+		}
+		executor = Executors.newFixedThreadPool(threads);
+		this.evaluator = evaluator;
+		cache = new LinkedHashMap<Long, Analysis>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Analysis> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Analyzes a position to a depth, waiting for the result
+	 *
+	 * @param pos   the position to analyze
+	 * @param depth the number of moves to look ahead
+	 * @return the analysis of the position, which may be deeper than asked for if it was cached
+	 */
+	public Analysis analyze(Position pos, int depth) throws InterruptedException, ExecutionException {
+		Analysis cached = lookup(pos);
+		if(cached != null && cached.depth >= depth) {
+			hits.incrementAndGet();
+			return cached;
+		}
+		return analyze(pos, depth, null).get();
+	}
+
+	/**
+	 * Starts analyzing a position one depth at a time, telling the listener of each depth as
+	 * it completes.  A position already cached to the depth is reported and completed at once
+	 *
+	 * @param pos      the position to analyze
+	 * @param depth    the deepest number of moves to look ahead
+	 * @param listener listener told of each depth as it completes, may be null
+	 * @return future holding the deepest analysis, cancelling it stops the search
+	 */
+	public Future<Analysis> analyze(final Position pos, final int depth, final Search.Listener listener) {
+		final Analysis cached = lookup(pos);
+		if(cached != null && cached.depth >= depth) {
+			hits.incrementAndGet();
+			FutureTask<Analysis> done = new FutureTask<Analysis>(new Callable<Analysis>() {
+				public Analysis call() {
+					if(listener != null) {
+						listener.depthCompleted(cached);
+					}
+					return cached;
+				}
+			});
+			done.run();
+			return done;
+		}
+
+		misses.incrementAndGet();
+		return executor.submit(new Callable<Analysis>() {
+			public Analysis call() {
+				if(cached != null && listener != null) {
+					listener.depthCompleted(cached);
+				}
+				Search search = new Search(evaluator);
+				return search.iterate(pos, depth, cached, new Search.Listener() {
+					public void depthCompleted(Analysis analysis) {
+						store(analysis);
+						if(listener != null) {
+							listener.depthCompleted(analysis);
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Getter for the number of requests answered from the cache
+	 *
+	 * @return the number of cache hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Getter for the number of requests which needed a search
+	 *
+	 * @return the number of cache misses
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Getter for the number of positions in the cache
+	 *
+	 * @return the number of cached analyses
+	 */
+	public int getCacheSize() {
+		synchronized(cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Stops every analysis in progress and shuts down the threads
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Finds the cached analysis of a position
+	 *
+	 * @param pos a position
+	 * @return the deepest analysis of the position, or null if it is not cached
+	 */
+	private Analysis lookup(Position pos) {
+		Analysis cached;
+		synchronized(cache) {
+			cached = cache.get(pos.canonicalHash());
+		}
+		if(cached == null || cached.position.equals(pos)) {
+			return cached;
+		}
+		// The analysis may be of the mirror image, otherwise it is of another position which
+		// shares the hash
+		if(pos.getNumPlayers() == 2 && cached.position.equals(pos.mirror())) {
+			return cached.mirror();
+		}
+		return null;
+	}
+
+	/**
+	 * Caches an analysis, reflected onto the canonical form of its position, unless a deeper
+	 * one of the same position is already cached
+	 *
+	 * @param analysis an analysis
+	 */
+	private void store(Analysis analysis) {
+		if(! analysis.position.isCanonical()) {
+			analysis = analysis.mirror();
+		}
+		long hash = analysis.position.hash();
+		synchronized(cache) {
+			Analysis cached = cache.get(hash);
+			if(cached == null || ! cached.position.equals(analysis.position) || cached.depth < analysis.depth) {
+				cache.put(hash, analysis);
+			}
+		}
+	}
+}
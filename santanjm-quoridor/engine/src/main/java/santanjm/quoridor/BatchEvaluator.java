@@ -0,0 +1,153 @@
+package santanjm.quoridor;
+
+import santanjm.quoridor.*;
+
+/**
+ * Finds the distance to goal of every player in a batch of positions, such as the children
+ * of a node or a whole archive, and scores the positions as PathEvaluator would.  The
+ * positions are laid out a field to an array and flooded for one player at a time across
+ * the whole batch, several positions at a time with the Vector API when the jdk.incubator.vector module has
+ * been added to the JVM with --add-modules, or one at a time otherwise.  Setting the property
+ * quoridor.vector to false also floods them one at a time.
+ *
+ * The arrays are kept from one batch to the next, so like a Search, a batch evaluator
+ * should only be used by one thread at a time.
+ * @author santanjm
+ */
+public class BatchEvaluator {
+	// Whether the Vector API can be used
+	static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+			&& Boolean.parseBoolean(System.getProperty("quoridor.vector", "true"));
+
+	// Whether this evaluator floods several positions at once
+	final boolean vectorized;
+
+	// The spaces open to the right and below in each position and the space each player's
+	// pawn is on, the low and high longs of each in arrays of their own, and the distance
+	// each position was flooded to, grown to fit the largest batch so far
+	long[] rightLow = new long[0];
+	long[] rightHigh = new long[0];
+	long[] downLow = new long[0];
+	long[] downHigh = new long[0];
+	long[][] pawnLow = new long[4][0];
+	long[][] pawnHigh = new long[4][0];
+	int[] flooded = new int[0];
+
+	/**
+	 * Constructs a batch evaluator which uses the Vector API when it can
+	 */
+	public BatchEvaluator() {
+		this(VECTORIZED);
+	}
+
+	/**
+	 * Constructs a batch evaluator
+	 *
+	 * @param vectorized true to use the Vector API, which must be available, and false to
+	 *                   flood one position at a time
+	 */
+	BatchEvaluator(boolean vectorized) {
+		if(vectorized && ! VECTORIZED) {
+			throw new IllegalStateException("The jdk.incubator.vector module is not available");
+		}
+		this.vectorized = vectorized;
+	}
+
+	/**
+	 * Checks whether this evaluator floods several positions at once
+	 *
+	 * @return true if the Vector API is used
+	 */
+	public boolean isVectorized() {
+		return vectorized;
+	}
+
+	/**
+	 * Finds the fewest steps each player needs to reach their goal in each position, as
+	 * Position.distanceToGoal does
+	 *
+	 * @param positions the positions
+	 * @param count     the number of positions, from the start of the array
+	 * @return the distances, that of player number p in position i at 4*i + p - 1, -1 for a
+	 *         player cut off from their goal and 0 for players not in the game
+	 */
+	public int[] distances(Position[] positions, int count) {
+		if(flooded.length < count) {
+			rightLow = new long[count];
+			rightHigh = new long[count];
+			downLow = new long[count];
+			downHigh = new long[count];
+			pawnLow = new long[4][count];
+			pawnHigh = new long[4][count];
+			flooded = new int[count];
+		}
+		int maxPlayers = 0;
+		for(int i = 0; i < count; i++) {
+			Position pos = positions[i];
+			Reachability.openEdges(pos.vWalls, pos.hWalls, rightLow, rightHigh, downLow, downHigh, i);
+			for(int player = 0; player < 4; player++) {
+				if(player < pos.numPlayers) {
+					int space = pos.pawns[player];
+					pawnLow[player][i] = space < 64 ? 1L << space : 0L;
+					pawnHigh[player][i] = space < 64 ? 0L : 1L << (space - 64);
+				} else {
+					// Flooding from the goal itself gives the 0 of a player not in the game
+					pawnLow[player][i] = Reachability.GOAL_LOW[player];
+					pawnHigh[player][i] = Reachability.GOAL_HIGH[player];
+				}
+			}
+			maxPlayers = Math.max(maxPlayers, pos.numPlayers);
+		}
+
+		// Each player in every position at once, since the player decides the goal spaces
+		int[] distances = new int[4*count];
+		for(int player = 0; player < maxPlayers; player++) {
+			long goalLow = Reachability.GOAL_LOW[player];
+			long goalHigh = Reachability.GOAL_HIGH[player];
+			if(vectorized) {
+				VectorFlood.flood(rightLow, rightHigh, downLow, downHigh, pawnLow[player], pawnHigh[player],
+						goalLow, goalHigh, count, flooded);
+			} else {
+				for(int i = 0; i < count; i++) {
+					flooded[i] = Reachability.flood(rightLow[i], rightHigh[i], downLow[i], downHigh[i],
+							pawnLow[player][i], pawnHigh[player][i], goalLow, goalHigh);
+				}
+			}
+			for(int i = 0; i < count; i++) {
+				distances[4*i + player] = flooded[i];
+			}
+		}
+		return distances;
+	}
+
+	/**
+	 * Scores each position for a player, as PathEvaluator does
+	 *
+	 * @param positions the positions, in none of which has any player won
+	 * @param count     the number of positions, from the start of the array
+	 * @param playerNum the number of the player the scores are for
+	 * @return the score of each position
+	 */
+	public int[] evaluate(Position[] positions, int count, int playerNum) {
+		int[] distances = distances(positions, count);
+		int[] scores = new int[count];
+		for(int i = 0; i < count; i++) {
+			Position pos = positions[i];
+			int distance = distances[4*i + playerNum - 1];
+
+			// The opponent closest to their goal is the one to beat
+			int opponentDistance = Integer.MAX_VALUE;
+			int opponentWalls = 0;
+			for(int other = 1; other <= pos.numPlayers; other++) {
+				int d = distances[4*i + other - 1];
+				if(other != playerNum && d < opponentDistance) {
+					opponentDistance = d;
+					opponentWalls = pos.getWallsLeft(other);
+				}
+			}
+			scores[i] = PathEvaluator.STEP*(opponentDistance - distance)
+					+ PathEvaluator.WALL*(pos.getWallsLeft(playerNum) - opponentWalls);
+		}
+		return scores;
+	}
+}
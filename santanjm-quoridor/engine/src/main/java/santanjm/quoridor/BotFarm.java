@@ -0,0 +1,321 @@
+package santanjm.quoridor;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import santanjm.quoridor.*;
+
+/**
+ * Plays computer opponents in any number of hosted games at once.  Each seat waits for its
+ * turns on a virtual thread of its own, which costs next to nothing while it waits, and its
+ * searches are run on a pool of as many threads as there are cores.  A seat's search goes
+ * onto the pool one depth at a time, so a seat thinking deeply gives way to the seats
+ * queued behind it after every depth rather than holding a thread for its whole turn, and
+ * is stopped once the time it has spent on the pool during the turn uses up its quota.
+ * @author santanjm
+ */
+public class BotFarm {
+	// The threads searches are run on
+	final ForkJoinPool pool;
+
+	// The virtual threads the seats wait for their turns on
+	final ExecutorService seats;
+
+	// Every seat taken so far
+	final List<Seat> seated = new CopyOnWriteArrayList<Seat>();
+
+	/**
+	 * Constructs a bot farm which searches on a thread per core
+	 */
+	public BotFarm() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a bot farm
+	 *
+	 * @param searchThreads the number of searches which can be run at once
+	 */
+	public BotFarm(int searchThreads) {
+		if(searchThreads < 1) {
+			throw new IllegalArgumentException("A bot farm needs at least one search thread");
+		}
+		// First in first out, so depths queued by different seats are run in turn
+		pool = new ForkJoinPool(searchThreads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+		seats = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("seat-", 1).factory());
+	}
+
+	/**
+	 * Seats a computer player which scores positions with a PathEvaluator
+	 *
+	 * @param game        the game to play in
+	 * @param playerNum   the number of the player to play as
+	 * @param maxDepth    the deepest number of moves to look ahead
+	 * @param quotaMillis the most time to search for each move, in milliseconds
+	 * @return the seat, already playing
+	 */
+	public Seat seat(HostedGame game, int playerNum, int maxDepth, long quotaMillis) {
+		return seat(game, playerNum, maxDepth, quotaMillis, new PathEvaluator());
+	}
+
+	/**
+	 * Seats a computer player
+	 *
+	 * @param game        the game to play in
+	 * @param playerNum   the number of the player to play as
+	 * @param maxDepth    the deepest number of moves to look ahead
+	 * @param quotaMillis the most time to search for each move, in milliseconds
+	 * @param evaluator   the evaluator the player's searches score positions with
+	 * @return the seat, already playing
+	 */
+	public Seat seat(HostedGame game, int playerNum, int maxDepth, long quotaMillis, Evaluator evaluator) {
+		return seat(game, playerNum, maxDepth, quotaMillis, evaluator, -1);
+	}
+
+	/**
+	 * Seats a computer player whose searches leave out walls far from the play
+	 *
+	 * @param game        the game to play in
+	 * @param playerNum   the number of the player to play as
+	 * @param maxDepth    the deepest number of moves to look ahead
+	 * @param quotaMillis the most time to search for each move, in milliseconds
+	 * @param evaluator   the evaluator the player's searches score positions with
+	 * @param wallReach   the number of slots out from the players' shortest paths the searches
+	 *                    try walls at, or -1 to try every legal wall, see Search.setWallReach
+	 * @return the seat, already playing
+	 */
+	public Seat seat(HostedGame game, int playerNum, int maxDepth, long quotaMillis, Evaluator evaluator, int wallReach) {
+		if(playerNum < 1 || playerNum > game.getPosition().getNumPlayers()) {
+			throw new IllegalArgumentException("No player " + playerNum + " in the game");
+		}
+		if(maxDepth < 1 || maxDepth > Search.MAX_DEPTH) {
+			throw new IllegalArgumentException("Depth must be between 1 and " + Search.MAX_DEPTH);
+		}
+		if(quotaMillis < 1) {
+			throw new IllegalArgumentException("A seat needs at least a millisecond to search each move");
+		}
+		final Seat seat = new Seat(game, playerNum, maxDepth, quotaMillis * 1000000, evaluator, wallReach);
+		seated.add(seat);
+		seats.execute(new Runnable() {
+			public void run() {
+				seat.play();
+			}
+		});
+		return seat;
+	}
+
+	/**
+	 * Getter for every seat taken so far
+	 *
+	 * @return the seats, in the order they were taken
+	 */
+	public List<Seat> getSeats() {
+		return Collections.unmodifiableList(seated);
+	}
+
+	/**
+	 * Stops every seat and the searches they are running
+	 */
+	public void shutdown() {
+		seats.shutdownNow();
+		pool.shutdownNow();
+	}
+
+	/**
+	 * A computer player seated in a hosted game
+	 */
+	public class Seat {
+		// The game played in and the number of the player played as
+		final HostedGame game;
+		final int playerNum;
+
+		// The deepest number of moves to look ahead
+		final int maxDepth;
+
+		// The most time to search for each move, in nanoseconds
+		final long quotaNanos;
+
+		// The evaluator searches score positions with
+		final Evaluator evaluator;
+
+		// The number of slots out from the shortest paths searches try walls at, -1 for every slot
+		final int wallReach;
+
+		// The number of moves made, positions searched, and time spent searching overall and
+		// on the longest move, in nanoseconds
+		final AtomicLong turns = new AtomicLong();
+		final AtomicLong nodes = new AtomicLong();
+		final AtomicLong searchNanos = new AtomicLong();
+		final AtomicLong longestNanos = new AtomicLong();
+
+		// What stopped the seat playing before the game was over, if anything
+		volatile Throwable failure;
+
+		/**
+		 * Constructs a seat
+		 */
+		Seat(HostedGame game, int playerNum, int maxDepth, long quotaNanos, Evaluator evaluator, int wallReach) {
+			this.game = game;
+			this.playerNum = playerNum;
+			this.maxDepth = maxDepth;
+			this.quotaNanos = quotaNanos;
+			this.evaluator = evaluator;
+			this.wallReach = wallReach;
+		}
+
+		/**
+		 * Plays each turn until the game is over or stalled or the farm is shut down
+		 */
+		void play() {
+			try {
+				while(true) {
+					Position pos = game.awaitTurn(playerNum);
+					if(pos.isOver() || game.isStalled()) {
+						return;
+					}
+					// Boxed in by pawns and walls with no walls left, so the game can go no further
+					if(pos.legalMoves().length == 0) {
+						game.stall(playerNum);
+						return;
+					}
+					game.play(playerNum, think(pos));
+				}
+			} catch(InterruptedException e) {
+				// The farm is shutting down
+			} catch(RejectedExecutionException | CancellationException e) {
+				// The pool shut down while a depth was queued or running
+			} catch(RuntimeException e) {
+				failure = e;
+			}
+		}
+
+		/**
+		 * Searches a position one depth at a time on the pool until the deepest depth is
+		 * reached or the quota is used up
+		 *
+		 * @param pos the position to move from
+		 * @return the best move found
+		 */
+		int think(final Position pos) throws InterruptedException {
+			final Search search = new Search(evaluator);
+			search.setWallReach(wallReach);
+			Analysis best = null;
+			long used = 0L;
+			for(int depth = 1; depth <= maxDepth && used < quotaNanos; depth++) {
+				final Analysis previous = best;
+				final int target = depth;
+				// When the depth began running on the pool, 0 while it is still queued
+				final AtomicLong started = new AtomicLong();
+				ForkJoinTask<Analysis> task = pool.submit(new Callable<Analysis>() {
+					public Analysis call() {
+						started.set(System.nanoTime());
+						return search.iterate(pos, target, previous, null);
+					}
+				});
+
+				Analysis analysis = await(task, search, started, used);
+				long ran = started.get() == 0L ? 0L : System.nanoTime() - started.get();
+				used += ran;
+				nodes.addAndGet(search.getNodes());
+				if(analysis == null || analysis == previous) {
+					break;
+				}
+				best = analysis;
+				// There is nothing more to learn once a forced win or loss has been found
+				if(Math.abs(best.score) > Search.WIN - Search.MAX_DEPTH - 1) {
+					break;
+				}
+			}
+			turns.incrementAndGet();
+			searchNanos.addAndGet(used);
+			long longest = longestNanos.get();
+			while(used > longest && ! longestNanos.compareAndSet(longest, used)) {
+				longest = longestNanos.get();
+			}
+			if(best != null && best.pv.length > 0) {
+				return best.pv[0];
+			}
+			// Out of time before even the first depth finished, so any legal move will do
+			return pos.legalMoves()[0];
+		}
+
+		/**
+		 * Waits for a depth to finish, stopping the search once the time it has run for
+		 * would take the turn over its quota.  Time spent queued does not count
+		 *
+		 * @return the analysis of the depth, or null if it was stopped
+		 */
+		private Analysis await(ForkJoinTask<Analysis> task, Search search, AtomicLong started, long used) throws InterruptedException {
+			while(true) {
+				long start = started.get();
+				long left = quotaNanos - used - (start == 0L ? 0L : System.nanoTime() - start);
+				if(start != 0L && left <= 0L) {
+					search.stop();
+					return task.join();
+				}
+				try {
+					return task.get(Math.max(left, 1000000L), TimeUnit.NANOSECONDS);
+				} catch(TimeoutException e) {
+					// Still queued or still running, check the quota again
+				} catch(ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+		}
+
+		/**
+		 * Getter for the number of the player played as
+		 *
+		 * @return the player number
+		 */
+		public int getPlayerNum() {
+			return playerNum;
+		}
+
+		/**
+		 * Getter for the number of moves made
+		 *
+		 * @return the number of turns played
+		 */
+		public long getTurns() {
+			return turns.get();
+		}
+
+		/**
+		 * Getter for the number of positions searched over every turn
+		 *
+		 * @return the number of nodes
+		 */
+		public long getNodes() {
+			return nodes.get();
+		}
+
+		/**
+		 * Getter for the time spent searching over every turn, not counting time queued
+		 *
+		 * @return the search time in milliseconds
+		 */
+		public long getSearchMillis() {
+			return searchNanos.get() / 1000000;
+		}
+
+		/**
+		 * Getter for the longest time spent searching for a single move
+		 *
+		 * @return the longest turn's search time in milliseconds
+		 */
+		public long getLongestTurnMillis() {
+			return longestNanos.get() / 1000000;
+		}
+
+		/**
+		 * Getter for what stopped the seat playing before the game was over
+		 *
+		 * @return the failure, or null if there was none
+		 */
+		public Throwable getFailure() {
+			return failure;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package santanjm.quoridor;
+
+import santanjm.quoridor.*;
+
+/**
+ * Scores positions which are not over from one player's point of view, higher scores
+ * being better for that player.  Used by Search to judge the positions at the end of
+ * the lines it looks at.
+ * @author santanjm
+ */
+public interface Evaluator {
+
+	/**
+	 * Scores a position for a player
+	 *
+	 * @param pos       a position in which no player has won yet
+	 * @param playerNum the number of the player the score is for
+	 * @return the score, well within the range of +/- Search.WIN
+	 */
+	int evaluate(Position pos, int playerNum);
+}
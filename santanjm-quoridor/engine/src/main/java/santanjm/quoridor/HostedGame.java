@@ -0,0 +1,178 @@
+package santanjm.quoridor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import santanjm.quoridor.*;
+
+/**
+ * A game played by seats on any threads, each waiting for its turn and then making its move.
+ * A lock and condition are used rather than synchronized so that the virtual threads bots
+ * play on are unmounted from their carrier threads while they wait.
+ * @author santanjm
+ */
+public class HostedGame {
+	// Guards the position, and is signalled whenever a move is made
+	final ReentrantLock lock = new ReentrantLock();
+	final Condition moved = lock.newCondition();
+
+	// The position reached so far
+	Position position;
+
+	// The number of moves made so far
+	int moves;
+
+	// Whether the game has ended without a winner, the player to move having no legal move
+	boolean stalled;
+
+	/**
+	 * Constructs a game from the starting position
+	 *
+	 * @param numPlayers the number of players in the game, 2 or 4
+	 */
+	public HostedGame(int numPlayers) {
+		this(new Position(numPlayers));
+	}
+
+	/**
+	 * Constructs a game from a position
+	 *
+	 * @param start the position the game starts from
+	 */
+	public HostedGame(Position start) {
+		position = start;
+	}
+
+	/**
+	 * Getter for the position reached so far
+	 *
+	 * @return the current position
+	 */
+	public Position getPosition() {
+		lock.lock();
+		try {
+			return position;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Getter for the number of moves made so far
+	 *
+	 * @return the number of moves
+	 */
+	public int getMoveCount() {
+		lock.lock();
+		try {
+			return moves;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Checks whether the game has ended without a winner
+	 *
+	 * @return true if the player to move had no legal move and the game was stalled
+	 */
+	public boolean isStalled() {
+		lock.lock();
+		try {
+			return stalled;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until it is a player's turn or the game is over or stalled
+	 *
+	 * @param playerNum the number of the player waiting
+	 * @return the position the player is to move from, or the final position
+	 */
+	public Position awaitTurn(int playerNum) throws InterruptedException {
+		lock.lock();
+		try {
+			while(! position.isOver() && ! stalled && position.getActivePlayer() != playerNum) {
+				moved.await();
+			}
+			return position;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Makes a player's move
+	 *
+	 * @param playerNum the number of the player moving
+	 * @param move      the encoded move
+	 * @throws IllegalStateException    if it is not the player's turn or the game is over
+	 * @throws IllegalArgumentException if the move is not legal
+	 */
+	public void play(int playerNum, int move) {
+		lock.lock();
+		try {
+			if(position.isOver() || stalled || position.getActivePlayer() != playerNum) {
+				throw new IllegalStateException("It is not player " + playerNum + "'s turn");
+			}
+			if(! position.isLegal(move)) {
+				throw new IllegalArgumentException("Illegal move " + Position.toNotation(move));
+			}
+			position = position.play(move);
+			moves++;
+			moved.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Ends the game without a winner when the player to move has no legal move, their pawn
+	 * being boxed in by pawns and walls with no walls left to place
+	 *
+	 * @param playerNum the number of the player to move
+	 * @throws IllegalStateException    if it is not the player's turn or the game is over
+	 * @throws IllegalArgumentException if the player has a legal move
+	 */
+	public void stall(int playerNum) {
+		lock.lock();
+		try {
+			if(position.isOver() || stalled || position.getActivePlayer() != playerNum) {
+				throw new IllegalStateException("It is not player " + playerNum + "'s turn");
+			}
+			if(position.legalMoves().length > 0) {
+				throw new IllegalArgumentException("Player " + playerNum + " has a legal move");
+			}
+			stalled = true;
+			moved.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits for the game to be won or stalled
+	 *
+	 * @param timeout the longest time to wait
+	 * @param unit    the unit of the timeout
+	 * @return the number of the winning player, or 0 if the game stalled or was not won in time
+	 */
+	public int awaitWinner(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lock();
+		try {
+			while(! position.isOver() && ! stalled) {
+				if(nanos <= 0L) {
+					return 0;
+				}
+				nanos = moved.awaitNanos(nanos);
+			}
+			return position.getWinner();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
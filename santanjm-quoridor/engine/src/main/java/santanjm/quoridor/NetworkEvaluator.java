@@ -0,0 +1,350 @@
+package santanjm.quoridor;
+
+import java.io.*;
+import java.util.Random;
+
+import santanjm.quoridor.*;
+
+/**
+ * Evaluator backed by a small neural network, trained by NetworkTrainer from the records of
+ * games played out by searches.  The network sees the board as planes of inputs from the
+ * point of view of the player scored, turned so that their goal is the top row: a plane of
+ * their own pawn, one of their opponents' pawns, one each of the vertical and horizontal
+ * walls, and the walls each side has left and whether it is the player's turn.  Two hidden
+ * layers of rectified units lead to a single output, the log odds that the player wins.
+ *
+ * Almost every input is 0, so the first layer adds up the weights of the few which are set
+ * rather than multiplying every input by its weights.  Every buffer is allocated up front,
+ * and batches of positions can be scored at once, several values at a time with the Vector
+ * API when the jdk.incubator.vector module has been added to the JVM, as BatchEvaluator does.
+ *
+ * The buffers are kept from one call to the next, so like a Search, a network evaluator
+ * should only be used by one thread at a time.  Copies share the weights but not the buffers.
+ * @author santanjm
+ */
+public class NetworkEvaluator implements Evaluator {
+	// The number of inputs, units in each hidden layer and outputs of the network
+	public static final int INPUTS = 293;
+	public static final int HIDDEN = 64;
+	public static final int SECOND = 32;
+
+	// The first input of each plane, then the walls the player and their opponents have left,
+	// out of 10, and whether it is the player's turn
+	static final int OWN_PAWN = 0;
+	static final int OPPONENT_PAWNS = 81;
+	static final int VERTICAL_WALLS = 162;
+	static final int HORIZONTAL_WALLS = 226;
+	static final int OWN_WALLS = 290;
+	static final int OPPONENT_WALLS = 291;
+	static final int TO_MOVE = 292;
+
+	// The most inputs set to 1 in a position: every pawn and 20 walls
+	static final int MAX_FEATURES = 4 + 20;
+
+	// How many points of score the output is multiplied by, so that a win twice as likely as
+	// a loss is worth about as much as 7 steps to PathEvaluator
+	public static final int SCALE = 100;
+
+	// Written at the start of a saved network
+	private static final int MAGIC = 0x514E4E31;
+
+	// Where each space and wall slot lands when the board is turned to each player's point
+	// of view, by player number - 1, and whether walls turn from vertical to horizontal
+	static final int[][] SPACE_FRAMES = new int[4][81];
+	static final int[][] SLOT_FRAMES = new int[4][64];
+	static final boolean[] TURNS_WALLS = {false, false, true, true};
+
+	static {
+		for(int row = 0; row < 9; row++) {
+			for(int col = 0; col < 9; col++) {
+				int space = 9*row + col;
+				SPACE_FRAMES[0][space] = space;
+				SPACE_FRAMES[1][space] = 9*(8 - row) + col;
+				SPACE_FRAMES[2][space] = 9*(8 - col) + row;
+				SPACE_FRAMES[3][space] = 9*col + row;
+				if(row < 8 && col < 8) {
+					int slot = 8*row + col;
+					SLOT_FRAMES[0][slot] = slot;
+					SLOT_FRAMES[1][slot] = 8*(7 - row) + col;
+					SLOT_FRAMES[2][slot] = 8*(7 - col) + row;
+					SLOT_FRAMES[3][slot] = 8*col + row;
+				}
+			}
+		}
+	}
+
+	// The weights and biases of each layer.  The first layer's weights are held a row of
+	// HIDDEN to each input, the second's a row of HIDDEN to each unit of the second layer
+	final float[] w1;
+	final float[] b1;
+	final float[] w2;
+	final float[] b2;
+	final float[] w3;
+	final float[] b3;
+
+	// Whether values are worked on several at a time with the Vector API
+	final boolean vectorized;
+
+	// The inputs set to 1 and the values of the wall and turn inputs of the position being
+	// scored, and the units of each hidden layer, grown to fit the largest batch so far
+	int[] features = new int[MAX_FEATURES];
+	float[] scalars = new float[3];
+	float[] hidden = new float[HIDDEN];
+	float[] second = new float[SECOND];
+
+	/**
+	 * Constructs an untrained network with small random weights
+	 *
+	 * @param seed the seed of the random weights
+	 */
+	public NetworkEvaluator(long seed) {
+		this(new float[INPUTS*HIDDEN], new float[HIDDEN], new float[SECOND*HIDDEN], new float[SECOND],
+				new float[SECOND], new float[1], BatchEvaluator.VECTORIZED);
+		Random random = new Random(seed);
+		initialize(w1, random, INPUTS);
+		initialize(w2, random, HIDDEN);
+		initialize(w3, random, SECOND);
+	}
+
+	/**
+	 * Constructs a network from its weights, which are not copied
+	 */
+	NetworkEvaluator(float[] w1, float[] b1, float[] w2, float[] b2, float[] w3, float[] b3, boolean vectorized) {
+		if(vectorized && ! BatchEvaluator.VECTORIZED) {
+			throw new IllegalStateException("The jdk.incubator.vector module is not available");
+		}
+		this.w1 = w1;
+		this.b1 = b1;
+		this.w2 = w2;
+		this.b2 = b2;
+		this.w3 = w3;
+		this.b3 = b3;
+		this.vectorized = vectorized;
+	}
+
+	/**
+	 * Fills a layer's weights with random values scaled to the number of inputs to each unit
+	 */
+	private static void initialize(float[] weights, Random random, int fanIn) {
+		float scale = (float) Math.sqrt(2.0 / fanIn);
+		for(int i = 0; i < weights.length; i++) {
+			weights[i] = (float) random.nextGaussian() * scale;
+		}
+	}
+
+	/**
+	 * Returns an evaluator sharing this one's weights, with buffers of its own, for use on
+	 * another thread
+	 *
+	 * @return the copy
+	 */
+	public NetworkEvaluator copy() {
+		return new NetworkEvaluator(w1, b1, w2, b2, w3, b3, vectorized);
+	}
+
+	/**
+	 * Returns an evaluator sharing this one's weights which works through values one at a
+	 * time or several at once
+	 *
+	 * @param vectorized true to use the Vector API, which must be available
+	 * @return the copy
+	 */
+	NetworkEvaluator copy(boolean vectorized) {
+		return new NetworkEvaluator(w1, b1, w2, b2, w3, b3, vectorized);
+	}
+
+	/**
+	 * Checks whether this evaluator works on several values at once
+	 *
+	 * @return true if the Vector API is used
+	 */
+	public boolean isVectorized() {
+		return vectorized;
+	}
+
+	@Override
+	public int evaluate(Position pos, int playerNum) {
+		return score(output(pos, playerNum));
+	}
+
+	/**
+	 * Scores each of a batch of positions for a player, as evaluate does
+	 *
+	 * @param positions the positions, in none of which has any player won
+	 * @param count     the number of positions, from the start of the array
+	 * @param playerNum the number of the player the scores are for
+	 * @param scores    array the score of each position is written to
+	 */
+	public void evaluate(Position[] positions, int count, int playerNum, int[] scores) {
+		if(hidden.length < count*HIDDEN) {
+			hidden = new float[count*HIDDEN];
+			second = new float[count*SECOND];
+		}
+		for(int i = 0; i < count; i++) {
+			firstLayer(positions[i], playerNum, hidden, i*HIDDEN);
+		}
+		// Each row of the second layer's weights is run over the whole batch while it is at hand
+		for(int j = 0; j < SECOND; j++) {
+			for(int i = 0; i < count; i++) {
+				second[i*SECOND + j] = Math.max(0f, b2[j] + dot(w2, j*HIDDEN, hidden, i*HIDDEN, HIDDEN));
+			}
+		}
+		for(int i = 0; i < count; i++) {
+			scores[i] = score(b3[0] + dot(w3, 0, second, i*SECOND, SECOND));
+		}
+	}
+
+	/**
+	 * Runs a position through the network
+	 *
+	 * @param pos       a position in which no player has won yet
+	 * @param playerNum the number of the player the output is for
+	 * @return the log odds of the player winning
+	 */
+	float output(Position pos, int playerNum) {
+		firstLayer(pos, playerNum, hidden, 0);
+		for(int j = 0; j < SECOND; j++) {
+			second[j] = Math.max(0f, b2[j] + dot(w2, j*HIDDEN, hidden, 0, HIDDEN));
+		}
+		return b3[0] + dot(w3, 0, second, 0, SECOND);
+	}
+
+	/**
+	 * Finds the rectified units of the first hidden layer for a position, adding up the
+	 * weights of the inputs which are set
+	 *
+	 * @param pos       the position
+	 * @param playerNum the number of the player the network sees the board as
+	 * @param into      array the units are written to
+	 * @param offset    the index of the first unit in the array
+	 */
+	private void firstLayer(Position pos, int playerNum, float[] into, int offset) {
+		int count = encode(pos, playerNum, features, scalars);
+		System.arraycopy(b1, 0, into, offset, HIDDEN);
+		for(int k = 0; k < count; k++) {
+			addRow(w1, features[k]*HIDDEN, 1f, into, offset);
+		}
+		for(int k = 0; k < 3; k++) {
+			addRow(w1, (OWN_WALLS + k)*HIDDEN, scalars[k], into, offset);
+		}
+		for(int i = offset; i < offset + HIDDEN; i++) {
+			into[i] = Math.max(0f, into[i]);
+		}
+	}
+
+	/**
+	 * Adds a multiple of a row of HIDDEN weights onto a row of units
+	 */
+	private void addRow(float[] weights, int from, float times, float[] into, int offset) {
+		if(vectorized) {
+			VectorLayers.addRow(weights, from, times, into, offset, HIDDEN);
+		} else {
+			for(int i = 0; i < HIDDEN; i++) {
+				into[offset + i] += times*weights[from + i];
+			}
+		}
+	}
+
+	/**
+	 * Finds the dot product of a row of weights with a row of units
+	 */
+	private float dot(float[] weights, int from, float[] units, int offset, int length) {
+		if(vectorized) {
+			return VectorLayers.dot(weights, from, units, offset, length);
+		}
+		float sum = 0f;
+		for(int i = 0; i < length; i++) {
+			sum += weights[from + i]*units[offset + i];
+		}
+		return sum;
+	}
+
+	/**
+	 * Turns the output of the network into a score
+	 *
+	 * @param output the log odds of winning
+	 * @return the score, well within the range of +/- Search.WIN
+	 */
+	private static int score(float output) {
+		return Math.round(Math.max(-1000f, Math.min(1000f, output))*SCALE);
+	}
+
+	/**
+	 * Finds the inputs of the network for a position, turned to a player's point of view
+	 *
+	 * @param pos       the position
+	 * @param playerNum the number of the player the network sees the board as
+	 * @param features  array the index of each input set to 1 is written to
+	 * @param scalars   array the walls the player and their opponents have left, out of 10,
+	 *                  and 1 if it is the player's turn or 0 if not are written to
+	 * @return the number of inputs set to 1
+	 */
+	static int encode(Position pos, int playerNum, int[] features, float[] scalars) {
+		int player = playerNum - 1;
+		int[] spaces = SPACE_FRAMES[player];
+		int[] slots = SLOT_FRAMES[player];
+		int count = 0;
+		int opponentWalls = 0;
+		for(int other = 0; other < pos.numPlayers; other++) {
+			if(other == player) {
+				features[count++] = OWN_PAWN + spaces[pos.pawns[other]];
+			} else {
+				features[count++] = OPPONENT_PAWNS + spaces[pos.pawns[other]];
+				opponentWalls += pos.wallsLeft[other];
+			}
+		}
+		int vertical = TURNS_WALLS[player] ? HORIZONTAL_WALLS : VERTICAL_WALLS;
+		int horizontal = TURNS_WALLS[player] ? VERTICAL_WALLS : HORIZONTAL_WALLS;
+		for(long walls = pos.vWalls; walls != 0L; walls &= walls - 1) {
+			features[count++] = vertical + slots[Long.numberOfTrailingZeros(walls)];
+		}
+		for(long walls = pos.hWalls; walls != 0L; walls &= walls - 1) {
+			features[count++] = horizontal + slots[Long.numberOfTrailingZeros(walls)];
+		}
+		scalars[0] = pos.wallsLeft[player] / 10f;
+		scalars[1] = opponentWalls / 10f;
+		scalars[2] = pos.getActivePlayer() == playerNum ? 1f : 0f;
+		return count;
+	}
+
+	/**
+	 * Writes the network's weights
+	 *
+	 * @param out the stream to write to, which is left open
+	 */
+	public void save(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		data.writeInt(MAGIC);
+		data.writeInt(INPUTS);
+		data.writeInt(HIDDEN);
+		data.writeInt(SECOND);
+		for(float[] layer : new float[][] {w1, b1, w2, b2, w3, b3}) {
+			for(float weight : layer) {
+				data.writeFloat(weight);
+			}
+		}
+		data.flush();
+	}
+
+	/**
+	 * Reads a network written by save
+	 *
+	 * @param in the stream to read from
+	 * @return the network, which uses the Vector API when it can
+	 */
+	public static NetworkEvaluator load(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if(data.readInt() != MAGIC || data.readInt() != INPUTS || data.readInt() != HIDDEN || data.readInt() != SECOND) {
+			throw new IOException("Not a network of this shape");
+		}
+		float[][] layers = {new float[INPUTS*HIDDEN], new float[HIDDEN], new float[SECOND*HIDDEN], new float[SECOND],
+				new float[SECOND], new float[1]};
+		for(float[] layer : layers) {
+			for(int i = 0; i < layer.length; i++) {
+				layer[i] = data.readFloat();
+			}
+		}
+		return new NetworkEvaluator(layers[0], layers[1], layers[2], layers[3], layers[4], layers[5],
+				BatchEvaluator.VECTORIZED);
+	}
+}
@@ -0,0 +1,374 @@
+package santanjm.quoridor;
+
+import java.io.*;
+import java.util.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Trains a NetworkEvaluator offline from the records of finished games, such as those
+ * played out by searches against themselves.  A record is a GameSnapshot of the end of a
+ * game, whose moves are replayed from the start to find every position of the game.  Each
+ * position is an example for every player in it, the network learning to tell from the
+ * position alone whether that player went on to win, by stochastic gradient descent on the
+ * log loss of its output.
+ *
+ * Records are kept in files of snapshots in their compact binary form, one after another
+ * behind a count.  Like the evaluator it trains, a trainer must only be used by one thread
+ * at a time, and the network must not be used elsewhere while it is being trained.
+ * @author santanjm
+ */
+public class NetworkTrainer {
+	// The most moves a game played by selfPlay may last before it is given up
+	static final int MAX_MOVES = 200;
+
+	// The network trained
+	final NetworkEvaluator network;
+
+	// Shuffles the examples before each pass over them
+	final Random random;
+
+	// The sums of the gradients of the examples of a batch, laid out as the network's weights
+	final float[] g1 = new float[NetworkEvaluator.INPUTS*NetworkEvaluator.HIDDEN];
+	final float[] gb1 = new float[NetworkEvaluator.HIDDEN];
+	final float[] g2 = new float[NetworkEvaluator.SECOND*NetworkEvaluator.HIDDEN];
+	final float[] gb2 = new float[NetworkEvaluator.SECOND];
+	final float[] g3 = new float[NetworkEvaluator.SECOND];
+	final float[] gb3 = new float[1];
+
+	// Whether each input was set in an example of the batch, so that only the rows of the
+	// first layer's weights which have a gradient are touched
+	final boolean[] touched = new boolean[NetworkEvaluator.INPUTS];
+
+	// The inputs and units of the example being worked on, and the gradients of the units
+	final int[] features = new int[NetworkEvaluator.MAX_FEATURES];
+	final float[] scalars = new float[3];
+	final float[] hidden = new float[NetworkEvaluator.HIDDEN];
+	final float[] second = new float[NetworkEvaluator.SECOND];
+	final float[] hiddenGradient = new float[NetworkEvaluator.HIDDEN];
+	final float[] secondGradient = new float[NetworkEvaluator.SECOND];
+
+	/**
+	 * Constructs a trainer
+	 *
+	 * @param network the network to train, whose weights are changed in place
+	 * @param seed    the seed of the order examples are trained on in
+	 */
+	public NetworkTrainer(NetworkEvaluator network, long seed) {
+		this.network = network;
+		random = new Random(seed);
+	}
+
+	/**
+	 * Trains the network on every position of a set of games
+	 *
+	 * @param records   the games, each of which must have been won
+	 * @param epochs    the number of passes over every example
+	 * @param rate      the learning rate
+	 * @param batchSize the number of examples whose gradients are added up for each step
+	 * @return the mean loss over the examples of the last pass, before each step was taken
+	 */
+	public double train(List<GameSnapshot> records, int epochs, float rate, int batchSize) {
+		List<Example> examples = examples(records);
+		double loss = 0.0;
+		for(int epoch = 0; epoch < epochs; epoch++) {
+			Collections.shuffle(examples, random);
+			loss = 0.0;
+			for(int start = 0; start < examples.size(); start += batchSize) {
+				int end = Math.min(start + batchSize, examples.size());
+				for(int i = start; i < end; i++) {
+					Example example = examples.get(i);
+					loss += backward(example.position, example.playerNum, example.won);
+				}
+				step(rate / (end - start));
+			}
+			loss /= examples.size();
+		}
+		return loss;
+	}
+
+	/**
+	 * Finds the mean loss of the network over every position of a set of games
+	 *
+	 * @param records the games, each of which must have been won
+	 * @return the mean log loss
+	 */
+	public double loss(List<GameSnapshot> records) {
+		List<Example> examples = examples(records);
+		double loss = 0.0;
+		for(Example example : examples) {
+			loss += loss(network.output(example.position, example.playerNum), example.won);
+		}
+		return loss / examples.size();
+	}
+
+	/**
+	 * Works out the gradient of the loss on an example and adds it to those of the batch
+	 *
+	 * @return the loss on the example
+	 */
+	private double backward(Position pos, int playerNum, boolean won) {
+		NetworkEvaluator net = network;
+		int hiddenSize = NetworkEvaluator.HIDDEN;
+		int count = NetworkEvaluator.encode(pos, playerNum, features, scalars);
+
+		// Forward, as NetworkEvaluator.output does, keeping every unit
+		System.arraycopy(net.b1, 0, hidden, 0, hiddenSize);
+		for(int k = 0; k < count; k++) {
+			int row = features[k]*hiddenSize;
+			for(int i = 0; i < hiddenSize; i++) {
+				hidden[i] += net.w1[row + i];
+			}
+		}
+		for(int k = 0; k < 3; k++) {
+			int row = (NetworkEvaluator.OWN_WALLS + k)*hiddenSize;
+			for(int i = 0; i < hiddenSize; i++) {
+				hidden[i] += scalars[k]*net.w1[row + i];
+			}
+		}
+		for(int i = 0; i < hiddenSize; i++) {
+			hidden[i] = Math.max(0f, hidden[i]);
+		}
+		float output = net.b3[0];
+		for(int j = 0; j < NetworkEvaluator.SECOND; j++) {
+			float sum = net.b2[j];
+			for(int i = 0; i < hiddenSize; i++) {
+				sum += net.w2[j*hiddenSize + i]*hidden[i];
+			}
+			second[j] = Math.max(0f, sum);
+			output += net.w3[j]*second[j];
+		}
+
+		// Back again, the gradient of the log loss of a sigmoid output being its error
+		float error = (float) (sigmoid(output) - (won ? 1.0 : 0.0));
+		gb3[0] += error;
+		Arrays.fill(hiddenGradient, 0f);
+		for(int j = 0; j < NetworkEvaluator.SECOND; j++) {
+			g3[j] += error*second[j];
+			secondGradient[j] = second[j] > 0f ? error*net.w3[j] : 0f;
+			gb2[j] += secondGradient[j];
+			if(secondGradient[j] != 0f) {
+				for(int i = 0; i < hiddenSize; i++) {
+					g2[j*hiddenSize + i] += secondGradient[j]*hidden[i];
+					hiddenGradient[i] += secondGradient[j]*net.w2[j*hiddenSize + i];
+				}
+			}
+		}
+		for(int i = 0; i < hiddenSize; i++) {
+			if(hidden[i] <= 0f) {
+				hiddenGradient[i] = 0f;
+			}
+			gb1[i] += hiddenGradient[i];
+		}
+		for(int k = 0; k < count + 3; k++) {
+			int input = k < count ? features[k] : NetworkEvaluator.OWN_WALLS + k - count;
+			float value = k < count ? 1f : scalars[k - count];
+			int row = input*hiddenSize;
+			for(int i = 0; i < hiddenSize; i++) {
+				g1[row + i] += value*hiddenGradient[i];
+			}
+			touched[input] = true;
+		}
+		return loss(output, won);
+	}
+
+	/**
+	 * Takes a step against the gradients of the batch and clears them for the next
+	 *
+	 * @param rate the learning rate divided by the number of examples in the batch
+	 */
+	private void step(float rate) {
+		NetworkEvaluator net = network;
+		int hiddenSize = NetworkEvaluator.HIDDEN;
+		for(int input = 0; input < NetworkEvaluator.INPUTS; input++) {
+			if(touched[input]) {
+				int row = input*hiddenSize;
+				for(int i = row; i < row + hiddenSize; i++) {
+					net.w1[i] -= rate*g1[i];
+					g1[i] = 0f;
+				}
+				touched[input] = false;
+			}
+		}
+		descend(net.b1, gb1, rate);
+		descend(net.w2, g2, rate);
+		descend(net.b2, gb2, rate);
+		descend(net.w3, g3, rate);
+		descend(net.b3, gb3, rate);
+	}
+
+	/**
+	 * Moves weights against their gradients and clears the gradients
+	 */
+	private static void descend(float[] weights, float[] gradients, float rate) {
+		for(int i = 0; i < weights.length; i++) {
+			weights[i] -= rate*gradients[i];
+			gradients[i] = 0f;
+		}
+	}
+
+	/**
+	 * Finds the log loss of an output
+	 *
+	 * @param output the log odds given of winning
+	 * @param won    whether the player won
+	 * @return the loss
+	 */
+	private static double loss(float output, boolean won) {
+		// log(1 + e^-x) worked out so as not to overflow for large x of either sign
+		double x = won ? output : -output;
+		return Math.max(-x, 0.0) + Math.log1p(Math.exp(-Math.abs(x)));
+	}
+
+	/**
+	 * Turns log odds into a probability
+	 */
+	private static double sigmoid(float output) {
+		return 1.0 / (1.0 + Math.exp(-output));
+	}
+
+	/**
+	 * Replays every game to find its positions, each an example for every player in it
+	 *
+	 * @param records the games, each of which must have been won
+	 * @return the examples
+	 */
+	static List<Example> examples(List<GameSnapshot> records) {
+		List<Example> examples = new ArrayList<Example>();
+		for(GameSnapshot record : records) {
+			int winner = record.getPosition().getWinner();
+			if(winner == 0) {
+				throw new IllegalArgumentException("A record must be of a game which was won");
+			}
+			Position pos = new Position(record.getPosition().getNumPlayers());
+			for(int move : record.getMoveCodes()) {
+				for(int player = 1; player <= pos.getNumPlayers(); player++) {
+					examples.add(new Example(pos, player, player == winner));
+				}
+				pos = pos.play(move);
+			}
+		}
+		return examples;
+	}
+
+	/**
+	 * Plays games of 2 players out between searches from the start, each game opening with
+	 * random moves so that no two games are alike
+	 *
+	 * @param games       the number of games to play
+	 * @param depth       the number of moves the searches look ahead
+	 * @param randomMoves the number of random moves each game opens with
+	 * @param seed        the seed of the random moves
+	 * @return a record of each game which was won within MAX_MOVES moves
+	 */
+	public static List<GameSnapshot> selfPlay(int games, int depth, int randomMoves, long seed) {
+		Random random = new Random(seed);
+		List<GameSnapshot> records = new ArrayList<GameSnapshot>();
+		for(int game = 0; game < games; game++) {
+			Position pos = new Position(2);
+			int[] moves = new int[MAX_MOVES];
+			int count = 0;
+			while(! pos.isOver() && count < MAX_MOVES) {
+				int move;
+				if(count < randomMoves) {
+					int[] legal = pos.legalMoves();
+					move = legal[random.nextInt(legal.length)];
+				} else {
+					move = new Search().search(pos, depth).getPrincipalVariationCodes()[0];
+				}
+				moves[count++] = move;
+				pos = pos.play(move);
+			}
+			if(pos.isOver()) {
+				records.add(new GameSnapshot(pos, moves, count, new long[2], System.currentTimeMillis()));
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Writes a set of records
+	 *
+	 * @param records the records
+	 * @param out     the stream to write to, which is left open
+	 */
+	public static void writeRecords(List<GameSnapshot> records, OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+		data.writeInt(records.size());
+		for(GameSnapshot record : records) {
+			record.writeTo(data);
+		}
+		data.flush();
+	}
+
+	/**
+	 * Reads a set of records written by writeRecords
+	 *
+	 * @param in the stream to read from
+	 * @return the records
+	 */
+	public static List<GameSnapshot> readRecords(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		int count = data.readInt();
+		List<GameSnapshot> records = new ArrayList<GameSnapshot>();
+		for(int i = 0; i < count; i++) {
+			records.add(GameSnapshot.readFrom(data));
+		}
+		return records;
+	}
+
+	/**
+	 * Plays games to record, or trains a network on recorded games
+	 *
+	 * @param args "play", the number of games, the search depth and the file to write the
+	 *             records to, or "train", the file of records, the file to write the network
+	 *             to and optionally the number of epochs, 10 if not given
+	 */
+	public static void main(String[] args) {
+		try {
+			if(args[0].equals("play")) {
+				List<GameSnapshot> records = selfPlay(Integer.parseInt(args[1]), Integer.parseInt(args[2]), 4,
+						System.nanoTime());
+				try(OutputStream out = new FileOutputStream(args[3])) {
+					writeRecords(records, out);
+				}
+				System.out.println("Recorded " + records.size() + " games");
+			} else if(args[0].equals("train")) {
+				List<GameSnapshot> records;
+				try(InputStream in = new FileInputStream(args[1])) {
+					records = readRecords(in);
+				}
+				int epochs = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+				NetworkEvaluator network = new NetworkEvaluator(1L);
+				NetworkTrainer trainer = new NetworkTrainer(network, 1L);
+				System.out.println("Loss before training: " + trainer.loss(records));
+				for(int epoch = 1; epoch <= epochs; epoch++) {
+					System.out.println("Epoch " + epoch + " loss: " + trainer.train(records, 1, 0.01f, 32));
+				}
+				try(OutputStream out = new FileOutputStream(args[2])) {
+					network.save(out);
+				}
+			} else {
+				throw new IllegalArgumentException(args[0]);
+			}
+		} catch(Exception e) {
+			System.err.println("Usage: NetworkTrainer play <games> <depth> <records file>");
+			System.err.println("       NetworkTrainer train <records file> <network file> [epochs]");
+		}
+	}
+
+	/**
+	 * A position, the player it is seen as and whether they went on to win
+	 */
+	static class Example {
+		final Position position;
+		final int playerNum;
+		final boolean won;
+
+		Example(Position position, int playerNum, boolean won) {
+			this.position = position;
+			this.playerNum = playerNum;
+			this.won = won;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package santanjm.quoridor;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Searches a position on several threads at once by lazy SMP: the calling thread deepens
+ * one depth at a time as Search does, while helper threads search the same position
+ * alongside it, sharing nothing but a transposition table.  Every other helper runs a
+ * depth ahead, and each tries the root moves starting from a different place, so that the
+ * helpers fill the table with positions the main search is about to reach.  Only the
+ * main search's analysis is reported, the helpers just make it faster.
+ *
+ * A parallel search runs one search at a time, so it must only be used by one thread at a time.
+ * @author santanjm
+ */
+public class ParallelSearch {
+	// The number of threads searching, counting the calling thread
+	final int threads;
+
+	// The evaluator each search scores positions with
+	final Evaluator evaluator;
+
+	// The table shared by every thread, kept from one search to the next
+	final TranspositionTable table;
+
+	// The threads the helpers run on
+	final ExecutorService helpers;
+
+	// The searches running at the moment, the main search first
+	final List<Search> running = new CopyOnWriteArrayList<Search>();
+
+	// The number of positions visited by every thread in the last search
+	long nodes;
+
+	/**
+	 * Constructs a parallel search which scores positions with a PathEvaluator
+	 *
+	 * @param threads the number of threads to search on, counting the calling thread
+	 */
+	public ParallelSearch(int threads) {
+		this(threads, new PathEvaluator(), 20);
+	}
+
+	/**
+	 * Constructs a parallel search
+	 *
+	 * @param threads   the number of threads to search on, counting the calling thread
+	 * @param evaluator the evaluator each search scores positions with
+	 * @param tableBits the shared table holds 2^tableBits entries, 16 bytes each
+	 */
+	public ParallelSearch(int threads, Evaluator evaluator, int tableBits) {
+		if(threads < 1) {
+			throw new IllegalArgumentException("A search needs at least one thread");
+		}
+		this.threads = threads;
+		this.evaluator = evaluator;
+		table = new TranspositionTable(tableBits);
+		helpers = Executors.newFixedThreadPool(Math.max(1, threads - 1));
+	}
+
+	/**
+	 * Searches a position one depth at a time on every thread, up to a maximum depth
+	 *
+	 * @param pos      the position to search
+	 * @param maxDepth the deepest number of moves to look ahead
+	 * @param listener listener told of the analysis of each depth as it completes, may be null
+	 * @return the analysis of the deepest depth completed, or null if the search was stopped
+	 *         before any depth completed
+	 */
+	public Analysis iterate(final Position pos, int maxDepth, Search.Listener listener) {
+		Search main = new Search(evaluator, table);
+		running.add(main);
+		List<Future<?>> started = new ArrayList<Future<?>>();
+		for(int i = 1; i < threads; i++) {
+			final Search helper = new Search(evaluator, table);
+			helper.rootRotation = i;
+			final int firstDepth = 1 + i % 2;
+			running.add(helper);
+			started.add(helpers.submit(new Runnable() {
+				public void run() {
+					for(int depth = firstDepth; depth <= Search.MAX_DEPTH; depth++) {
+						Analysis analysis = helper.search(pos, depth);
+						if(analysis == null || Math.abs(analysis.score) > Search.WIN - Search.MAX_DEPTH - 1) {
+							return;
+						}
+					}
+				}
+			}));
+		}
+
+		try {
+			return main.iterate(pos, maxDepth, listener);
+		} finally {
+			// The helpers are only of use while the main search runs
+			nodes = 0L;
+			for(Search search : running) {
+				search.stop();
+			}
+			for(Future<?> helper : started) {
+				try {
+					helper.get();
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch(ExecutionException e) {
+					throw new IllegalStateException(e.getCause());
+				}
+			}
+			for(Search search : running) {
+				nodes += search.getTotalNodes();
+			}
+			running.clear();
+		}
+	}
+
+	/**
+	 * Asks the search running on another thread to give up as soon as possible
+	 */
+	public void stop() {
+		for(Search search : running) {
+			search.stop();
+		}
+	}
+
+	/**
+	 * Getter for the number of positions visited by every thread in the last search
+	 *
+	 * @return the number of nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Getter for the table shared by every thread
+	 *
+	 * @return the transposition table
+	 */
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Stops the helper threads once any search running has finished
+	 */
+	public void shutdown() {
+		helpers.shutdown();
+	}
+}
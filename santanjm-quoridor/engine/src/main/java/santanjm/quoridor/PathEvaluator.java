@@ -0,0 +1,37 @@
+package santanjm.quoridor;
+
+import santanjm.quoridor.*;
+
+/**
+ * Evaluator which compares how far a player is from their goal with how far the closest
+ * of their opponents is from theirs, along with how many walls each has left to slow
+ * the other down with.
+ * @author santanjm
+ */
+public class PathEvaluator implements Evaluator {
+	// The worth of being a step closer to the goal than the leading opponent
+	public static final int STEP = 10;
+
+	// The worth of having a wall more than the leading opponent
+	public static final int WALL = 3;
+
+	@Override
+	public int evaluate(Position pos, int playerNum) {
+		int distance = pos.distanceToGoal(playerNum);
+
+		// The opponent closest to their goal is the one to beat
+		int opponentDistance = Integer.MAX_VALUE;
+		int opponentWalls = 0;
+		for(int other = 1; other <= pos.getNumPlayers(); other++) {
+			if(other == playerNum) {
+				continue;
+			}
+			int d = pos.distanceToGoal(other);
+			if(d < opponentDistance) {
+				opponentDistance = d;
+				opponentWalls = pos.getWallsLeft(other);
+			}
+		}
+		return STEP*(opponentDistance - distance) + WALL*(pos.getWallsLeft(playerNum) - opponentWalls);
+	}
+}
@@ -0,0 +1,111 @@
+package santanjm.quoridor;
+
+import santanjm.quoridor.*;
+
+/**
+ * The result of solving a position with a ProofSolver: whether the active player was proven
+ * to win or to lose, the move to play and how many moves the game lasts with both sides
+ * playing their best.
+ * @author santanjm
+ */
+public class Proof {
+	// The position solved
+	final Position position;
+
+	// ProofSolver.WIN, LOSS or UNKNOWN, for the active player
+	final int result;
+
+	// The encoded move which wins quickest or, in a lost position, holds out longest, -1 if
+	// unknown or the game is already over
+	final int move;
+
+	// The number of moves to the end of the game, -1 if unknown
+	final int length;
+
+	// The number of positions expanded by the solver
+	final long nodes;
+
+	// The time the solve took, in milliseconds
+	final long millis;
+
+	/**
+	 * Constructs a proof from each of its parts
+	 */
+	Proof(Position position, int result, int move, int length, long nodes, long millis) {
+		this.position = position;
+		this.result = result;
+		this.move = move;
+		this.length = length;
+		this.nodes = nodes;
+		this.millis = millis;
+	}
+
+	/**
+	 * Getter for the position solved
+	 *
+	 * @return the position
+	 */
+	public Position getPosition() {
+		return position;
+	}
+
+	/**
+	 * Getter for what was proven
+	 *
+	 * @return ProofSolver.WIN or LOSS for the active player, or UNKNOWN if neither was proven
+	 */
+	public int getResult() {
+		return result;
+	}
+
+	/**
+	 * Getter for the move to play
+	 *
+	 * @return the move string of the quickest win or longest loss, or null if unknown
+	 */
+	public String getBestMove() {
+		return move < 0 ? null : Position.toNotation(move);
+	}
+
+	/**
+	 * Getter for the encoded move to play
+	 *
+	 * @return the encoded move, or -1 if unknown
+	 */
+	public int getBestMoveCode() {
+		return move;
+	}
+
+	/**
+	 * Getter for the length of the game with best play
+	 *
+	 * @return the number of moves until the game is won, or -1 if unknown
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Getter for the number of positions expanded by the solver
+	 *
+	 * @return the number of nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Getter for how long the solve took
+	 *
+	 * @return the time in milliseconds
+	 */
+	public long getMillis() {
+		return millis;
+	}
+
+	@Override
+	public String toString() {
+		String outcome = result == ProofSolver.WIN ? "win" : result == ProofSolver.LOSS ? "loss" : "unknown";
+		return outcome + (move < 0 ? "" : " in " + length + " with " + getBestMove()) + " nodes " + nodes;
+	}
+}
@@ -0,0 +1,404 @@
+package santanjm.quoridor;
+
+import java.util.Arrays;
+
+import santanjm.quoridor.*;
+
+/**
+ * Proves exactly whether the active player of a position can force a win, or whether their
+ * opponents can force them to lose, by depth-first proof-number search.  Where Search looks
+ * a fixed number of moves ahead and guesses at the rest, the solver follows each line to the
+ * end of the game, always expanding the position which is cheapest to settle, so it is only
+ * practical late in a game, with few walls left to place.
+ *
+ * Each node holds two numbers from the point of view of its active player: phi, how many
+ * positions at least must still be settled to prove that player's side wins, and delta, how
+ * many to prove it does not.  A position is won for its active player's side once its phi is
+ * 0, and a node is only searched until one of its numbers reaches the threshold its parent
+ * set it, so the search moves to a sibling as soon as this line becomes more expensive.
+ * Everyone but the active player of the root is on one side, as in Search.
+ *
+ * Games can go round in circles, so a line which repeats a position or runs MAX_PLY moves
+ * deep counts as a failure for the side trying to prove a win.  That can only ever lose a
+ * proof, never make one up, so a win is proven with the active player attacking, a loss
+ * with their opponents attacking, and anything else is reported as unknown.
+ *
+ * The solver keeps every position it settles in a table of its own, whose size is set by a
+ * memory budget.  The table is kept from one position to the next, so like a Search, a
+ * solver must only be used by one thread at a time.
+ * @author santanjm
+ */
+public class ProofSolver {
+	// The outcomes of solving a position, for its active player
+	public static final int WIN = 1;
+	public static final int LOSS = -1;
+	public static final int UNKNOWN = 0;
+
+	// The size of a table entry in bytes: its key, phi, delta, work and result
+	public static final int ENTRY_BYTES = 24;
+
+	// A proof or disproof number which stands for one found impossible, sums stop there
+	static final int INFINITY = Integer.MAX_VALUE / 2;
+
+	// The deepest a line is followed before it is given up as a failure for the attacker
+	static final int MAX_PLY = 255;
+
+	// Mixed into the hash of every position by which side is attacking and by the root player
+	private static final long ATTACK_SALT = 0x94D049BB133111EBL;
+	private static final long ROOT_SALT = 0xBF58476D1CE4E5B9L;
+
+	// The key, phi and delta of each entry, the number of nodes searched to find them, and
+	// once settled, the best move + 1 and the number of moves to the end of the game packed
+	// as (length << 8) | (move + 1)
+	final long[] keys;
+	final int[] phis;
+	final int[] deltas;
+	final int[] works;
+	final int[] results;
+
+	// The index bits of a key, always even, since each key can be in either of a pair of entries
+	final int mask;
+
+	// The number of the active player of the root and whether their side is attacking
+	int root;
+	boolean rootAttacks;
+
+	// The number of positions expanded by the current solve and the most it may expand
+	long nodes;
+	long maxNodes;
+
+	// The key of the position at each ply of the line being searched
+	long[] path = new long[MAX_PLY + 1];
+
+	// The moves from the position at each ply, the positions they lead to and their keys,
+	// and each one's phi, delta and length from the point of view of the position's
+	// active player, reused by every position at that ply
+	int[][] moves = new int[MAX_PLY][Position.NUM_MOVES];
+	Position[][] children = new Position[MAX_PLY][Position.NUM_MOVES];
+	long[][] childKeys = new long[MAX_PLY][Position.NUM_MOVES];
+	int[][] childPhis = new int[MAX_PLY][Position.NUM_MOVES];
+	int[][] childDeltas = new int[MAX_PLY][Position.NUM_MOVES];
+	int[][] childLengths = new int[MAX_PLY][Position.NUM_MOVES];
+
+	// The phi and delta each child starts with until it is searched, from its own point of
+	// view, guessed once when its parent is expanded
+	int[][] guessPhis = new int[MAX_PLY][Position.NUM_MOVES];
+	int[][] guessDeltas = new int[MAX_PLY][Position.NUM_MOVES];
+
+	/**
+	 * Constructs a solver
+	 *
+	 * @param memoryBytes the most memory the table may take, of which it takes the largest
+	 *                    power of two number of ENTRY_BYTES entries which fit
+	 */
+	public ProofSolver(long memoryBytes) {
+		long entries = Long.highestOneBit(Math.min(memoryBytes / ENTRY_BYTES, 1L << 30));
+		if(entries < 2) {
+			throw new IllegalArgumentException("A solver needs room for at least 2 entries of " + ENTRY_BYTES + " bytes");
+		}
+		keys = new long[(int) entries];
+		phis = new int[(int) entries];
+		deltas = new int[(int) entries];
+		works = new int[(int) entries];
+		results = new int[(int) entries];
+		mask = (int) entries - 2;
+	}
+
+	/**
+	 * Solves a board's position
+	 *
+	 * @param b        the board
+	 * @param maxNodes the most positions to expand before giving up
+	 * @return the proof found, whose result is UNKNOWN if neither a win nor a loss was proven
+	 */
+	public Proof solve(Board b, long maxNodes) {
+		return solve(new Position(b), maxNodes);
+	}
+
+	/**
+	 * Solves a position
+	 *
+	 * @param pos      the position
+	 * @param maxNodes the most positions to expand before giving up, between the attempt to
+	 *                 prove a win and that to prove a loss
+	 * @return the proof found, whose result is UNKNOWN if neither a win nor a loss was proven
+	 */
+	public Proof solve(Position pos, long maxNodes) {
+		long start = System.currentTimeMillis();
+		nodes = 0L;
+		this.maxNodes = maxNodes;
+		root = pos.getActivePlayer();
+		if(pos.isOver()) {
+			int result = pos.getWinner() == root ? WIN : LOSS;
+			return new Proof(pos, result, -1, 0, 0L, System.currentTimeMillis() - start);
+		}
+
+		// A win first, as the cheaper and likelier of the two, then a loss
+		for(int attempt = 0; attempt < 2; attempt++) {
+			rootAttacks = attempt == 0;
+			long key = key(pos);
+			path[0] = key;
+			mid(pos, key, 0, INFINITY, INFINITY);
+			int index = find(key);
+			if(index >= 0 && (rootAttacks ? phis[index] : deltas[index]) == 0) {
+				return new Proof(pos, rootAttacks ? WIN : LOSS, (results[index] & 0xFF) - 1,
+						results[index] >>> 8, nodes, System.currentTimeMillis() - start);
+			}
+		}
+		return new Proof(pos, UNKNOWN, -1, -1, nodes, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Removes every entry from the table
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		Arrays.fill(phis, 0);
+		Arrays.fill(deltas, 0);
+		Arrays.fill(works, 0);
+		Arrays.fill(results, 0);
+	}
+
+	/**
+	 * Getter for the number of entries the table holds
+	 *
+	 * @return the number of entries
+	 */
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	/**
+	 * Searches a position until its phi reaches thPhi or its delta reaches thDelta, or it is
+	 * settled, or the solve runs out of nodes, and stores what was found in the table
+	 *
+	 * @param pos     the position, not over and not repeating one earlier in the line
+	 * @param key     the position's key
+	 * @param ply     the number of moves from the root to the position
+	 * @param thPhi   the phi to stop at
+	 * @param thDelta the delta to stop at
+	 */
+	private void mid(Position pos, long key, int ply, int thPhi, int thDelta) {
+		nodes++;
+		long startNodes = nodes;
+		boolean attacking = attacks(pos.getActivePlayer());
+		int[] list = moves[ply];
+		Position[] next = children[ply];
+		long[] nextKeys = childKeys[ply];
+		int count = pos.legalMoves(list);
+		for(int i = 0; i < count; i++) {
+			next[i] = pos.play(list[i]);
+			nextKeys[i] = key(next[i]);
+			guess(next[i], ply, i);
+		}
+
+		int[] p = childPhis[ply];
+		int[] d = childDeltas[ply];
+		while(true) {
+			// The position's side wins if any move wins for it, and loses if every move loses
+			int phi = INFINITY;
+			int secondPhi = INFINITY;
+			int delta = 0;
+			int best = -1;
+			for(int i = 0; i < count; i++) {
+				look(next[i], nextKeys[i], ply + 1, attacking, i);
+				delta = Math.min(INFINITY, delta + d[i]);
+				if(p[i] < phi) {
+					secondPhi = phi;
+					phi = p[i];
+					best = i;
+				} else if(p[i] < secondPhi) {
+					secondPhi = p[i];
+				}
+			}
+
+			if(phi == 0 || delta == 0) {
+				settle(key, ply, count, phi == 0, startNodes);
+				return;
+			}
+			if(phi >= thPhi || delta >= thDelta || nodes >= maxNodes) {
+				store(key, phi, delta, (int) Math.min(nodes - startNodes, Integer.MAX_VALUE), 0);
+				return;
+			}
+
+			// The cheapest move to prove is searched until it stops being the cheapest, or
+			// until this position's delta would pass its threshold.  It is let run a quarter
+			// past the next cheapest, or two moves close in cost would be switched between at
+			// every step, each time searched again from scratch
+			int childPhi = Math.min(thPhi, secondPhi >= INFINITY ? INFINITY : secondPhi + secondPhi / 4 + 1);
+			int childDelta = thDelta >= INFINITY ? INFINITY : Math.min(INFINITY, thDelta - delta + d[best]);
+			path[ply + 1] = nextKeys[best];
+			if(attacks(next[best].getActivePlayer()) == attacking) {
+				mid(next[best], nextKeys[best], ply + 1, childPhi, childDelta);
+			} else {
+				mid(next[best], nextKeys[best], ply + 1, childDelta, childPhi);
+			}
+		}
+	}
+
+	/**
+	 * Finds the phi, delta and length of a child from the point of view of its parent's
+	 * active player, settling it at once if the game is over, it repeats a position earlier in
+	 * the line or it is too deep, and looking it up in the table otherwise
+	 *
+	 * @param child     the child position
+	 * @param key       the child's key
+	 * @param ply       the number of moves from the root to the child
+	 * @param attacking whether the parent's active player is on the attacking side
+	 * @param i         the index the numbers are written to in the arrays of the parent's ply
+	 */
+	private void look(Position child, long key, int ply, boolean attacking, int i) {
+		int phi = guessPhis[ply - 1][i];
+		int delta = guessDeltas[ply - 1][i];
+		int length = 0;
+		boolean childAttacking = attacks(child.getActivePlayer());
+		if(child.isOver()) {
+			boolean won = attacks(child.getWinner()) == childAttacking;
+			phi = won ? 0 : INFINITY;
+			delta = won ? INFINITY : 0;
+		} else if(ply >= MAX_PLY || repeats(key, ply)) {
+			phi = childAttacking ? INFINITY : 0;
+			delta = childAttacking ? 0 : INFINITY;
+		} else {
+			int index = find(key);
+			if(index >= 0) {
+				phi = phis[index];
+				delta = deltas[index];
+				length = results[index] >>> 8;
+			}
+		}
+		boolean same = childAttacking == attacking;
+		childPhis[ply - 1][i] = same ? phi : delta;
+		childDeltas[ply - 1][i] = same ? delta : phi;
+		childLengths[ply - 1][i] = length;
+	}
+
+	/**
+	 * Guesses how hard a child not yet searched will be to prove and to disprove from how
+	 * far ahead in the race to the goals the attackers are, so that the search tries the
+	 * moves which gain ground first and expects a side well behind to be easily beaten
+	 *
+	 * @param child the child position
+	 * @param ply   the number of moves from the root to the child's parent
+	 * @param i     the index the guesses are written to in the arrays of the parent's ply
+	 */
+	private void guess(Position child, int ply, int i) {
+		int attackerDistance = Integer.MAX_VALUE;
+		int defenderDistance = Integer.MAX_VALUE;
+		for(int player = 1; player <= child.getNumPlayers(); player++) {
+			int distance = child.distanceToGoal(player);
+			if(attacks(player)) {
+				attackerDistance = Math.min(attackerDistance, distance);
+			} else {
+				defenderDistance = Math.min(defenderDistance, distance);
+			}
+		}
+		boolean childAttacking = attacks(child.getActivePlayer());
+		// How many steps the attackers would have to spare in a race with no walls
+		int margin = defenderDistance - attackerDistance + (childAttacking ? 1 : 0);
+		int proof = Math.max(1, 3 - 2*margin);
+		int disproof = Math.max(1, 2*margin - 1);
+		guessPhis[ply][i] = childAttacking ? proof : disproof;
+		guessDeltas[ply][i] = childAttacking ? disproof : proof;
+	}
+
+	/**
+	 * Stores a position which has been settled, with the move which wins quickest if its
+	 * active player's side wins, or which holds out longest if it loses
+	 *
+	 * @param key        the position's key
+	 * @param ply        the number of moves from the root to the position
+	 * @param count      the number of moves from the position
+	 * @param won        true if the position's side wins
+	 * @param startNodes the node count when the position's search began
+	 */
+	private void settle(long key, int ply, int count, boolean won, long startNodes) {
+		int[] p = childPhis[ply];
+		int[] lengths = childLengths[ply];
+		int best = -1;
+		for(int i = 0; i < count; i++) {
+			if(won ? p[i] == 0 && (best < 0 || lengths[i] < lengths[best])
+					: best < 0 || lengths[i] > lengths[best]) {
+				best = i;
+			}
+		}
+		if(best < 0) {
+			// Boxed in by pawns with no wall to place, which loses as surely as anything
+			store(key, INFINITY, 0, 1, 0);
+			return;
+		}
+		int length = Math.min(lengths[best] + 1, 0xFFFFFF);
+		store(key, won ? 0 : INFINITY, won ? INFINITY : 0, (int) Math.min(nodes - startNodes, Integer.MAX_VALUE),
+				(length << 8) | (moves[ply][best] + 1));
+	}
+
+	/**
+	 * Checks whether a position repeats one earlier in the line being searched
+	 *
+	 * @param key the position's key
+	 * @param ply the number of moves from the root to the position
+	 * @return true if the same position is at an earlier ply
+	 */
+	private boolean repeats(long key, int ply) {
+		for(int i = ply - 1; i >= 0; i--) {
+			if(path[i] == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether a player is on the attacking side
+	 *
+	 * @param playerNum the number of the player
+	 * @return true if the player is trying to prove a win
+	 */
+	private boolean attacks(int playerNum) {
+		return (playerNum == root) == rootAttacks;
+	}
+
+	/**
+	 * Finds the key of a position, its hash mixed with the root player and attacking side,
+	 * since the numbers of a position are only meaningful for one of each
+	 *
+	 * @param pos the position
+	 * @return the key
+	 */
+	private long key(Position pos) {
+		return pos.hash() ^ (ROOT_SALT * root) ^ (rootAttacks ? ATTACK_SALT : 0L);
+	}
+
+	/**
+	 * Looks a position up in the table
+	 *
+	 * @param key the position's key
+	 * @return the index of its entry, or -1 if it is not in the table
+	 */
+	private int find(long key) {
+		int index = (int) key & mask;
+		if(keys[index] == key && works[index] > 0) {
+			return index;
+		}
+		if(keys[index + 1] == key && works[index + 1] > 0) {
+			return index + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Stores the numbers found for a position, in the entry of the pair already holding it,
+	 * or failing that in whichever of the two took less work to find
+	 */
+	private void store(long key, int phi, int delta, int work, int result) {
+		int index = (int) key & mask;
+		if(keys[index] != key && (keys[index + 1] == key || works[index + 1] < works[index])) {
+			index++;
+		}
+		keys[index] = key;
+		phis[index] = phi;
+		deltas[index] = delta;
+		works[index] = Math.max(work, 1);
+		results[index] = result;
+	}
+}
@@ -0,0 +1,509 @@
+package santanjm.quoridor;
+
+import java.util.Arrays;
+
+import santanjm.quoridor.*;
+
+/**
+ * Finds the best move for the active player of a position by looking a number of moves
+ * ahead with alpha-beta pruning.  Every opponent is assumed to play against the active
+ * player, so games of 4 are searched the same way as games of 2, with the active player
+ * maximizing the score and everyone else minimizing it.  Iterative deepening searches one
+ * move deeper at a time, trying the best line of the previous depth first, and reports each
+ * depth as it completes.
+ *
+ * Unless set to plain alpha-beta, the search is a principal variation search: each depth is
+ * first searched in an aspiration window around the score of the depth before, every move
+ * after the first is only shown to be no better with a null window unless it turns out to
+ * be, moves which cut the search off before are tried early, by killer moves at each ply and
+ * a history score for every move, and late walls which touch no player's shortest path are
+ * first searched a move shallower.  Walls far from every player's shortest path can also be
+ * left out altogether, see setWallReach.
+ *
+ * A search holds the arrays it works in, so it must only be used by one thread at a time.
+ * @author santanjm
+ */
+public class Search {
+	// The score of a position the active player has already won, a win in n moves scores WIN - n
+	public static final int WIN = 1000000;
+
+	// The most moves a search can look ahead
+	public static final int MAX_DEPTH = 63;
+
+	// The number of moves tried at a node before walls may be searched a move shallower
+	static final int LATE_MOVE = 4;
+
+	// How far either side of the score of the previous depth the next is first searched
+	static final int ASPIRATION = 25;
+
+	// Mixed into the hash of every position by the number of the root player, since scores
+	// are from the root player's point of view
+	private static final long ROOT_SALT = 0x9E3779B97F4A7C15L;
+
+	// The evaluator which scores the positions at the end of each line
+	Evaluator evaluator;
+
+	// The number of the player the search is finding a move for
+	int root;
+
+	// The number of positions visited by the current depth and by every depth so far
+	long nodes;
+	long totalNodes;
+
+	// The legal moves at each ply, reused by every position at that ply
+	int[][] moves = new int[MAX_DEPTH + 1][Position.NUM_MOVES];
+
+	// The best line found from each ply and its length
+	int[][] pv = new int[MAX_DEPTH + 1][MAX_DEPTH + 1];
+	int[] pvLength = new int[MAX_DEPTH + 1];
+
+	// The best line of the previous depth, which is searched first
+	int[] hint = new int[0];
+
+	// Set when the search should give up as soon as possible
+	volatile boolean stopped;
+
+	// Table of positions already searched, which may be shared with searches on other
+	// threads, or null to search without one
+	TranspositionTable table;
+
+	// Whether to search with plain alpha-beta rather than principal variation search
+	boolean plain;
+
+	// The last two moves to cut the search off at each ply, -1 for none
+	int[][] killers = new int[MAX_DEPTH + 1][2];
+
+	// How much each move has cut the search off when played by each player, by player
+	// number - 1, counting depth squared each time and halved before each depth
+	int[][] history = new int[4][Position.NUM_MOVES];
+
+	// How many slots out from those touching a shortest path walls are tried, or -1 to try
+	// every legal wall
+	int wallReach = -1;
+
+	// How far along to turn the moves at the root after the first, so that searches sharing
+	// a table start their work in different places
+	int rootRotation;
+
+	/**
+	 * Constructs a search which scores positions with a PathEvaluator
+	 */
+	public Search() {
+		this(new PathEvaluator());
+	}
+
+	/**
+	 * Constructs a search which scores positions with the given evaluator
+	 *
+	 * @param evaluator the evaluator for the positions at the end of each line
+	 */
+	public Search(Evaluator evaluator) {
+		this(evaluator, null);
+	}
+
+	/**
+	 * Constructs a search which remembers the positions it has searched in a table
+	 *
+	 * @param evaluator the evaluator for the positions at the end of each line
+	 * @param table     the table of positions searched, or null to search without one
+	 */
+	public Search(Evaluator evaluator, TranspositionTable table) {
+		this.evaluator = evaluator;
+		this.table = table;
+		for(int[] ply : killers) {
+			Arrays.fill(ply, -1);
+		}
+	}
+
+	/**
+	 * Setter for whether to search with plain alpha-beta, trying the moves in the order they
+	 * are generated and every one to the full depth, rather than principal variation search
+	 *
+	 * @param plain true for plain alpha-beta
+	 */
+	public void setPlain(boolean plain) {
+		this.plain = plain;
+	}
+
+	/**
+	 * Setter for how aggressively walls far from the play are left out of the search.  Only
+	 * walls touching a shortest path of some player, or within a number of slots of one, are
+	 * tried; the fewer slots, the faster and the more likely to miss a good wall
+	 *
+	 * @param wallReach the number of slots out from the paths to try walls at, or -1 to try
+	 *                  every legal wall
+	 */
+	public void setWallReach(int wallReach) {
+		this.wallReach = wallReach;
+	}
+
+	/**
+	 * Searches a position to a fixed depth
+	 *
+	 * @param pos   the position to search
+	 * @param depth the number of moves to look ahead
+	 * @return the analysis of the position, or null if the search was stopped
+	 */
+	public Analysis search(Position pos, int depth) {
+		hint = new int[0];
+		return searchDepth(pos, depth, null);
+	}
+
+	/**
+	 * Searches a position one depth at a time, up to a maximum depth
+	 *
+	 * @param pos      the position to search
+	 * @param maxDepth the deepest number of moves to look ahead
+	 * @param listener listener told of the analysis of each depth as it completes, may be null
+	 * @return the analysis of the deepest depth completed, or null if the search was stopped
+	 *         before any depth completed
+	 */
+	public Analysis iterate(Position pos, int maxDepth, Listener listener) {
+		return iterate(pos, maxDepth, null, listener);
+	}
+
+	/**
+	 * Searches a position one depth at a time, carrying on from an earlier analysis of it
+	 *
+	 * @param pos      the position to search
+	 * @param maxDepth the deepest number of moves to look ahead
+	 * @param previous an analysis of the position already made, whose depth is not searched
+	 *                 again, or null to start from the first depth
+	 * @param listener listener told of the analysis of each depth as it completes, may be null
+	 * @return the analysis of the deepest depth completed, or null if none completed
+	 */
+	Analysis iterate(Position pos, int maxDepth, Analysis previous, Listener listener) {
+		Analysis best = previous;
+		hint = previous == null ? new int[0] : previous.pv;
+		for(int depth = previous == null ? 1 : previous.depth + 1; depth <= maxDepth; depth++) {
+			GameEvents.SearchIteration event = new GameEvents.SearchIteration();
+			event.begin();
+			Analysis analysis = searchDepth(pos, depth, best);
+			if(analysis == null) {
+				break;
+			}
+			event.end();
+			if(event.shouldCommit()) {
+				event.positionHash = pos.hash();
+				event.depth = depth;
+				event.nodes = analysis.nodes;
+				event.nps = analysis.nodes * 1000 / Math.max(1, analysis.millis);
+				event.score = analysis.score;
+				event.bestMove = analysis.getBestMove();
+				event.commit();
+			}
+			best = analysis;
+			hint = analysis.pv;
+			if(listener != null) {
+				listener.depthCompleted(analysis);
+			}
+			// There is nothing more to learn once a forced win or loss has been found
+			if(Math.abs(analysis.score) > WIN - MAX_DEPTH - 1) {
+				break;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Asks a search running on another thread to give up as soon as possible
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Getter for the number of positions visited by the last search
+	 *
+	 * @return the number of nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Getter for the number of positions visited by every search this has made
+	 *
+	 * @return the number of nodes
+	 */
+	public long getTotalNodes() {
+		return totalNodes;
+	}
+
+	/**
+	 * Searches a position to a fixed depth, trying the hint first
+	 *
+	 * @param previous the analysis of the depth before, whose score the window is set around,
+	 *                 or null to search with a full window
+	 * @return the analysis of the position, or null if the search was stopped
+	 */
+	private Analysis searchDepth(Position pos, int depth, Analysis previous) {
+		if(depth < 1 || depth > MAX_DEPTH) {
+			throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH);
+		}
+		long start = System.nanoTime();
+		root = pos.getActivePlayer();
+		nodes = 0;
+		ageHistory();
+		int score;
+		if(! plain && previous != null && depth >= 3 && Math.abs(previous.score) < WIN - MAX_DEPTH - 1) {
+			int alpha = previous.score - ASPIRATION;
+			int beta = previous.score + ASPIRATION;
+			score = alphaBeta(pos, depth, 0, alpha, beta, true);
+			// A score outside the window is only a bound, so the depth is searched again in full
+			if(! stopped && (score <= alpha || score >= beta)) {
+				score = alphaBeta(pos, depth, 0, -WIN - 1, WIN + 1, true);
+			}
+		} else {
+			score = alphaBeta(pos, depth, 0, -WIN - 1, WIN + 1, true);
+		}
+		totalNodes += nodes;
+		if(stopped) {
+			return null;
+		}
+		int[] line = new int[pvLength[0]];
+		System.arraycopy(pv[0], 0, line, 0, line.length);
+		return new Analysis(pos, depth, score, line, nodes, (System.nanoTime() - start) / 1000000);
+	}
+
+	/**
+	 * Scores a position for the root player by looking depth moves ahead
+	 *
+	 * @param pos   the position to score
+	 * @param depth the number of moves left to look ahead
+	 * @param ply   the number of moves made since the root
+	 * @param alpha the score the root player is already assured of
+	 * @param beta  the score the opponents can already hold the root player to
+	 * @param onPv  whether every move to this position was the hint's
+	 * @return the score of the position for the root player
+	 */
+	private int alphaBeta(Position pos, int depth, int ply, int alpha, int beta, boolean onPv) {
+		nodes++;
+		pvLength[ply] = 0;
+		if((nodes & 1023) == 0 && Thread.currentThread().isInterrupted()) {
+			stopped = true;
+		}
+		if(stopped) {
+			return 0;
+		}
+
+		int winner = pos.getWinner();
+		if(winner != 0) {
+			return winner == root ? WIN - ply : -(WIN - ply);
+		}
+		if(depth == 0) {
+			return evaluator.evaluate(pos, root);
+		}
+
+		// A position searched at least as deep before may already settle this one, but the
+		// root is always searched so that it has a line to report
+		long key = 0L;
+		int tableMove = -1;
+		if(table != null) {
+			key = pos.hash() ^ (ROOT_SALT * root);
+			long entry = table.probe(key);
+			if(entry != 0L) {
+				tableMove = TranspositionTable.move(entry);
+				if(ply > 0 && TranspositionTable.depth(entry) >= depth) {
+					int score = TranspositionTable.score(entry, ply);
+					int bound = TranspositionTable.bound(entry);
+					if(bound == TranspositionTable.EXACT
+							|| (bound == TranspositionTable.LOWER && score >= beta)
+							|| (bound == TranspositionTable.UPPER && score <= alpha)) {
+						return score;
+					}
+				}
+			}
+		}
+
+		// The wall slots touching a shortest path, found once walls are pruned to them or a
+		// wall is late enough to reduce
+		long pathSlots = -1L;
+		int[] list = moves[ply];
+		int count;
+		if(wallReach >= 0 && pos.getWallsLeft(pos.getActivePlayer()) > 0) {
+			pathSlots = pos.pathSlots();
+			long slots = pathSlots;
+			for(int i = 0; i < wallReach; i++) {
+				slots = WallTable.widen(slots);
+			}
+			count = pos.legalMoves(list, slots);
+		} else {
+			count = pos.legalMoves(list);
+		}
+		if(count == 0) {
+			return evaluator.evaluate(pos, root);
+		}
+		boolean hinted = onPv && ply < hint.length && toFront(list, 0, count, hint[ply]);
+		int ordered = hinted ? 1 : 0;
+		if(tableMove >= 0 && toFront(list, ordered, count, tableMove)) {
+			ordered++;
+		}
+		boolean maximizing = pos.getActivePlayer() == root;
+		if(! plain) {
+			// Moves which cut the search off at this ply before come next, then the rest by
+			// how often they have cut it off anywhere
+			for(int k = 0; k < 2; k++) {
+				if(killers[ply][k] >= 0 && toFront(list, ordered, count, killers[ply][k])) {
+					ordered++;
+				}
+			}
+			sortByHistory(list, ordered, count, history[pos.getActivePlayer() - 1]);
+		}
+		if(ply == 0 && rootRotation > 0 && count > 2) {
+			rotate(list, 1, count, rootRotation % (count - 1));
+		}
+		int alphaStart = alpha;
+		int betaStart = beta;
+
+		int best = maximizing ? -WIN - 1 : WIN + 1;
+		for(int i = 0; i < count; i++) {
+			int move = list[i];
+			Position child = pos.play(move);
+			boolean childOnPv = hinted && i == 0;
+			int score;
+			if(plain || i == 0) {
+				score = alphaBeta(child, depth - 1, ply + 1, alpha, beta, childOnPv);
+			} else {
+				// A late wall which touches no shortest path changes no player's distance to
+				// their goal, so it is first searched a move shallower
+				int reduction = 0;
+				if(i >= LATE_MOVE && depth >= 2 && move >= Position.WALL_MOVES && i >= ordered) {
+					if(pathSlots == -1L) {
+						pathSlots = pos.pathSlots();
+					}
+					if((pathSlots & (1L << ((move - Position.WALL_MOVES) >> 1))) == 0L) {
+						reduction = 1;
+					}
+				}
+
+				// Every move after the first is expected to be no better, which a null window
+				// around the bound it must beat proves cheaply, and only a move which beats it
+				// is searched again in full
+				int nullAlpha = maximizing ? alpha : beta - 1;
+				int nullBeta = maximizing ? alpha + 1 : beta;
+				score = alphaBeta(child, depth - 1 - reduction, ply + 1, nullAlpha, nullBeta, false);
+				if(reduction > 0 && ! stopped && (maximizing ? score > alpha : score < beta)) {
+					score = alphaBeta(child, depth - 1, ply + 1, nullAlpha, nullBeta, false);
+				}
+				if(! stopped && score > alpha && score < beta) {
+					score = alphaBeta(child, depth - 1, ply + 1, alpha, beta, false);
+				}
+			}
+			if(stopped) {
+				return 0;
+			}
+			if(maximizing ? score > best : score < best) {
+				best = score;
+				pv[ply][0] = move;
+				System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+				pvLength[ply] = pvLength[ply + 1] + 1;
+			}
+			if(maximizing) {
+				alpha = Math.max(alpha, score);
+			} else {
+				beta = Math.min(beta, score);
+			}
+			if(alpha >= beta) {
+				if(! plain) {
+					if(killers[ply][0] != move) {
+						killers[ply][1] = killers[ply][0];
+						killers[ply][0] = move;
+					}
+					history[pos.getActivePlayer() - 1][move] += depth*depth;
+				}
+				break;
+			}
+		}
+
+		if(table != null) {
+			int bound = best <= alphaStart ? TranspositionTable.UPPER
+					: best >= betaStart ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+			table.store(key, ply, depth, best, bound, pvLength[ply] > 0 ? pv[ply][0] : -1);
+		}
+		return best;
+	}
+
+	/**
+	 * Turns part of a list of moves along, so that the move at from + by comes first
+	 *
+	 * @param list the moves
+	 * @param from the index of the first move turned
+	 * @param to   the index after the last move turned
+	 * @param by   the number of places to turn them
+	 */
+	private static void rotate(int[] list, int from, int to, int by) {
+		int[] turned = new int[by];
+		System.arraycopy(list, from, turned, 0, by);
+		System.arraycopy(list, from + by, list, from, to - from - by);
+		System.arraycopy(turned, 0, list, to - by, by);
+	}
+
+	/**
+	 * Moves a move to the front of part of a list of moves, shifting those before it back one
+	 *
+	 * @param list  the moves
+	 * @param from  the index of the front of the part
+	 * @param count the index after the end of the part
+	 * @param move  the move to bring to the front
+	 * @return true if the move was in the part
+	 */
+	private static boolean toFront(int[] list, int from, int count, int move) {
+		for(int i = from; i < count; i++) {
+			if(list[i] == move) {
+				System.arraycopy(list, from, list, from + 1, i - from);
+				list[from] = move;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Halves every history score, so that cut-offs from earlier depths and earlier searches
+	 * count for less than those of the depth about to be searched and the scores cannot grow
+	 * without bound over a long search
+	 */
+	private void ageHistory() {
+		for(int[] scores : history) {
+			for(int move = 0; move < scores.length; move++) {
+				scores[move] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Sorts part of a list of moves by their history scores, highest first, keeping moves
+	 * with the same score in the order they were in
+	 *
+	 * @param list    the moves
+	 * @param from    the index of the first move sorted
+	 * @param count   the index after the last move sorted
+	 * @param scores  the history score of each move
+	 */
+	private static void sortByHistory(int[] list, int from, int count, int[] scores) {
+		for(int i = from + 1; i < count; i++) {
+			int move = list[i];
+			int score = scores[move];
+			int j = i;
+			while(j > from && scores[list[j - 1]] < score) {
+				list[j] = list[j - 1];
+				j--;
+			}
+			list[j] = move;
+		}
+	}
+
+	/**
+	 * Listener told of each depth of an iterative deepening search as it completes
+	 */
+	public interface Listener {
+
+		/**
+		 * Called on the searching thread once a depth has been searched
+		 *
+		 * @param analysis the analysis of the position to that depth
+		 */
+		void depthCompleted(Analysis analysis);
+	}
+}
@@ -0,0 +1,135 @@
+package santanjm.quoridor;
+
+import java.util.Arrays;
+
+import santanjm.quoridor.*;
+
+/**
+ * Table of the scores and best moves found for positions during a search, which any number
+ * of threads can read and write at once without locking.  Each entry is held in two longs,
+ * the packed data and the position's key xored with the data, so an entry torn by two
+ * threads writing it at once fails the check on its key when read and is simply missed.
+ *
+ * Scores are those of Search, from the point of view of the root player, so searches key
+ * positions on their hash mixed with the root player, and a table can be kept from one
+ * search to the next.  A win found n moves from the position it is stored for is held as a
+ * win in n, and turned back into a win from the root when read at a different ply.
+ * @author santanjm
+ */
+public class TranspositionTable {
+	// Whether a stored score is exact, or only a bound on the score
+	static final int EXACT = 0;
+	static final int LOWER = 1;
+	static final int UPPER = 2;
+
+	// The position key and packed data of each entry, the key xored with the data
+	final long[] keys;
+	final long[] data;
+
+	// The index bits of a key
+	final int mask;
+
+	/**
+	 * Constructs an empty table
+	 *
+	 * @param bits the table holds 2^bits entries, 16 bytes each
+	 */
+	public TranspositionTable(int bits) {
+		if(bits < 1 || bits > 30) {
+			throw new IllegalArgumentException("A table must have between 2^1 and 2^30 entries");
+		}
+		keys = new long[1 << bits];
+		data = new long[1 << bits];
+		mask = (1 << bits) - 1;
+	}
+
+	/**
+	 * Looks a position up
+	 *
+	 * @param key the position's hash
+	 * @return the packed entry for the position, or 0 if it is not in the table
+	 */
+	long probe(long key) {
+		int index = (int) key & mask;
+		long entry = data[index];
+		return (keys[index] ^ entry) == key ? entry : 0L;
+	}
+
+	/**
+	 * Stores what was found for a position, replacing whatever was in its entry
+	 *
+	 * @param key   the position's hash
+	 * @param ply   the number of moves from the root to the position
+	 * @param depth the number of moves the position was searched ahead
+	 * @param score the score found for the position
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param move  the best move found from the position, or -1 if there is none
+	 */
+	void store(long key, int ply, int depth, int score, int bound, int move) {
+		// A forced win or loss is stored as counted from the position rather than the root
+		if(score > Search.WIN - Search.MAX_DEPTH - 1) {
+			score += ply;
+		} else if(score < -(Search.WIN - Search.MAX_DEPTH - 1)) {
+			score -= ply;
+		}
+		long entry = ((long) score << 32) | (bound << 16) | (depth << 8) | (move + 1);
+		int index = (int) key & mask;
+		data[index] = entry;
+		keys[index] = key ^ entry;
+	}
+
+	/**
+	 * Removes every entry
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0L);
+		Arrays.fill(data, 0L);
+	}
+
+	/**
+	 * Unpacks the score of an entry, as seen from the root
+	 *
+	 * @param entry a packed entry
+	 * @param ply   the number of moves from the root to the position
+	 * @return the score
+	 */
+	static int score(long entry, int ply) {
+		int score = (int) (entry >> 32);
+		if(score > Search.WIN - Search.MAX_DEPTH - 1) {
+			return score - ply;
+		} else if(score < -(Search.WIN - Search.MAX_DEPTH - 1)) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Unpacks the bound of an entry
+	 *
+	 * @param entry a packed entry
+	 * @return EXACT, LOWER or UPPER
+	 */
+	static int bound(long entry) {
+		return (int) (entry >>> 16) & 3;
+	}
+
+	/**
+	 * Unpacks the depth of an entry
+	 *
+	 * @param entry a packed entry
+	 * @return the number of moves the position was searched ahead
+	 */
+	static int depth(long entry) {
+		return (int) (entry >>> 8) & 0xFF;
+	}
+
+	/**
+	 * Unpacks the best move of an entry
+	 *
+	 * @param entry a packed entry
+	 * @return the best move found, or -1 if there was none
+	 */
+	static int move(long entry) {
+		return (int) (entry & 0xFF) - 1;
+	}
+}
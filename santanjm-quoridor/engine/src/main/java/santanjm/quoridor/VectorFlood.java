@@ -0,0 +1,97 @@
+package santanjm.quoridor;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import santanjm.quoridor.*;
+
+/**
+ * The flood fill of Reachability run on as many boards at once as the widest vectors of
+ * the processor hold longs, a lane to a board.  Every lane floods one layer per step and
+ * the boards are done once each has reached its goal or stopped spreading.  Only loaded
+ * when the jdk.incubator.vector module is present, see BatchEvaluator.
+ * @author santanjm
+ */
+final class VectorFlood {
+	// The widest vectors of longs the processor works on
+	static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+	private VectorFlood() {
+	}
+
+	/**
+	 * Floods every board from its start space to the same goal spaces, writing the number of
+	 * layers each took to reach the goal, or -1 if it could not.  Each array holds the boards
+	 * in the same order, the low and high longs of the 128 bit sets of spaces as in
+	 * Reachability
+	 *
+	 * @param rightLow  the spaces open to the right
+	 * @param rightHigh
+	 * @param downLow   the spaces open below
+	 * @param downHigh
+	 * @param startLow  the space flooded from
+	 * @param startHigh
+	 * @param goalLow   the goal spaces
+	 * @param goalHigh
+	 * @param count     the number of boards
+	 * @param distances array the distance of each board is written to
+	 */
+	static void flood(long[] rightLow, long[] rightHigh, long[] downLow, long[] downHigh,
+			long[] startLow, long[] startHigh, long goalLow, long goalHigh, int count, int[] distances) {
+		int lanes = SPECIES.length();
+		long[] found = new long[lanes];
+		int bound = SPECIES.loopBound(count);
+		LongVector gl = LongVector.broadcast(SPECIES, goalLow);
+		LongVector gh = LongVector.broadcast(SPECIES, goalHigh);
+		for(int i = 0; i < bound; i += lanes) {
+			LongVector rl = LongVector.fromArray(SPECIES, rightLow, i);
+			LongVector rh = LongVector.fromArray(SPECIES, rightHigh, i);
+			LongVector dl = LongVector.fromArray(SPECIES, downLow, i);
+			LongVector dh = LongVector.fromArray(SPECIES, downHigh, i);
+			LongVector low = LongVector.fromArray(SPECIES, startLow, i);
+			LongVector high = LongVector.fromArray(SPECIES, startHigh, i);
+			LongVector result = LongVector.broadcast(SPECIES, -1L);
+			VectorMask<Long> done = SPECIES.maskAll(false);
+			for(int steps = 0; ; steps++) {
+				VectorMask<Long> reached = low.and(gl).or(high.and(gh)).compare(VectorOperators.NE, 0L);
+				result = result.blend(steps, reached.andNot(done));
+				done = done.or(reached);
+
+				LongVector rightOut = low.and(rl);
+				LongVector downOut = low.and(dl);
+				LongVector nextLow = low
+						.or(rightOut.lanewise(VectorOperators.LSHL, 1))
+						.or(downOut.lanewise(VectorOperators.LSHL, 9))
+						.or(low.lanewise(VectorOperators.LSHR, 1).or(high.lanewise(VectorOperators.LSHL, 63)).and(rl))
+						.or(low.lanewise(VectorOperators.LSHR, 9).or(high.lanewise(VectorOperators.LSHL, 55)).and(dl));
+				LongVector nextHigh = high
+						.or(high.and(rh).lanewise(VectorOperators.LSHL, 1))
+						.or(rightOut.lanewise(VectorOperators.LSHR, 63))
+						.or(high.and(dh).lanewise(VectorOperators.LSHL, 9))
+						.or(downOut.lanewise(VectorOperators.LSHR, 55))
+						.or(high.lanewise(VectorOperators.LSHR, 1).and(rh))
+						.or(high.lanewise(VectorOperators.LSHR, 9).and(dh));
+
+				// A board which has stopped spreading without reaching its goal never will
+				done = done.or(nextLow.compare(VectorOperators.EQ, low).and(nextHigh.compare(VectorOperators.EQ, high)));
+				if(done.allTrue()) {
+					break;
+				}
+				low = nextLow;
+				high = nextHigh;
+			}
+			result.intoArray(found, 0);
+			for(int lane = 0; lane < lanes; lane++) {
+				distances[i + lane] = (int) found[lane];
+			}
+		}
+
+		// The boards left over after the last full vector are flooded one at a time
+		for(int i = bound; i < count; i++) {
+			distances[i] = Reachability.flood(rightLow[i], rightHigh[i], downLow[i], downHigh[i],
+					startLow[i], startHigh[i], goalLow, goalHigh);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package santanjm.quoridor;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import santanjm.quoridor.*;
+
+/**
+ * The sums of NetworkEvaluator's layers worked out as many floats at a time as the widest
+ * vectors of the processor hold.  Only loaded when the jdk.incubator.vector module is
+ * present, see BatchEvaluator.
+ * @author santanjm
+ */
+final class VectorLayers {
+	// The widest vectors of floats the processor works on
+	static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	private VectorLayers() {
+	}
+
+	/**
+	 * Adds a multiple of a row of weights onto a row of units
+	 *
+	 * @param weights the weights
+	 * @param from    the index of the first weight of the row
+	 * @param times   the multiple
+	 * @param into    the units
+	 * @param offset  the index of the first unit
+	 * @param length  the length of both rows
+	 */
+	static void addRow(float[] weights, int from, float times, float[] into, int offset, int length) {
+		int bound = SPECIES.loopBound(length);
+		FloatVector multiple = FloatVector.broadcast(SPECIES, times);
+		int i = 0;
+		for(; i < bound; i += SPECIES.length()) {
+			FloatVector w = FloatVector.fromArray(SPECIES, weights, from + i);
+			FloatVector u = FloatVector.fromArray(SPECIES, into, offset + i);
+			w.fma(multiple, u).intoArray(into, offset + i);
+		}
+		for(; i < length; i++) {
+			into[offset + i] += times*weights[from + i];
+		}
+	}
+
+	/**
+	 * Finds the dot product of a row of weights with a row of units
+	 *
+	 * @param weights the weights
+	 * @param from    the index of the first weight of the row
+	 * @param units   the units
+	 * @param offset  the index of the first unit
+	 * @param length  the length of both rows
+	 * @return the sum of each weight times its unit
+	 */
+	static float dot(float[] weights, int from, float[] units, int offset, int length) {
+		int bound = SPECIES.loopBound(length);
+		FloatVector sum = FloatVector.zero(SPECIES);
+		int i = 0;
+		for(; i < bound; i += SPECIES.length()) {
+			FloatVector w = FloatVector.fromArray(SPECIES, weights, from + i);
+			FloatVector u = FloatVector.fromArray(SPECIES, units, offset + i);
+			sum = w.fma(u, sum);
+		}
+		float total = sum.reduceLanes(VectorOperators.ADD);
+		for(; i < length; i++) {
+			total += weights[from + i]*units[offset + i];
+		}
+		return total;
+	}
+}
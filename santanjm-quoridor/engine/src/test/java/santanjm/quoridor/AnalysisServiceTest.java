@@ -0,0 +1,167 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import java.util.concurrent.*;
+import santanjm.quoridor.AnalysisService;
+import santanjm.quoridor.Position;
+import santanjm.quoridor.Search;
+
+/**
+ * Test class for the search and the analysis service
+ */
+public class AnalysisServiceTest {
+
+	/**
+	 * Listener which collects every analysis it is told of
+	 */
+	private static class Collector implements Search.Listener {
+		List<Analysis> analyses = new CopyOnWriteArrayList<Analysis>();
+
+		public void depthCompleted(Analysis analysis) {
+			analyses.add(analysis);
+		}
+	}
+
+	@Test
+	public void testWinInOne() {
+		// Player 1 is a step from their goal
+		Position pos = new Position(2, 0, new int[] {13, 67}, new int[] {10, 10}, 0L, 0L);
+		Analysis analysis = new Search().search(pos, 2);
+		assertEquals(analysis.getBestMove(), "e1");
+		assertEquals(analysis.getScore(), Search.WIN - 1);
+	}
+
+	@Test
+	public void testBlocksLoss() {
+		// Player 2 must wall player 1 off from their goal or lose
+		Position pos = new Position(2, 1, new int[] {13, 40}, new int[] {10, 10}, 0L, 0L);
+		Analysis analysis = new Search().search(pos, 2);
+		assertTrue(analysis.getPrincipalVariationCodes()[0] >= Position.WALL_MOVES);
+		assertTrue(analysis.getScore() > -Search.WIN + Search.MAX_DEPTH);
+	}
+
+	@Test
+	public void testPlainSearchAgrees() {
+		// Reductions and windows must not lose a forced win or the wall stopping a loss
+		Position pos = new Position(2, 0, new int[] {13, 67}, new int[] {10, 10}, 0L, 0L);
+		Search plain = new Search();
+		plain.setPlain(true);
+		Analysis analysis = plain.search(pos, 2);
+		assertEquals(analysis.getBestMove(), "e1");
+		assertEquals(analysis.getScore(), new Search().search(pos, 2).getScore());
+
+		pos = new Position(2, 1, new int[] {13, 40}, new int[] {10, 10}, 0L, 0L);
+		Analysis blocked = new Search().iterate(pos, 3, null);
+		assertTrue(blocked.getPrincipalVariationCodes()[0] >= Position.WALL_MOVES);
+		assertTrue(blocked.getScore() > -Search.WIN + Search.MAX_DEPTH);
+	}
+
+	@Test
+	public void testFewerNodes() {
+		Position pos = new Position(2);
+		for(String move : new String[] {"e8", "e2", "e7", "e3"}) {
+			pos = pos.play(Position.parseMove(move));
+		}
+		Search plain = new Search();
+		plain.setPlain(true);
+		Analysis full = plain.iterate(pos, 3, null);
+		Analysis pvs = new Search().iterate(pos, 3, null);
+		assertEquals(pvs.getDepth(), 3);
+		assertTrue(pvs.getNodes() < full.getNodes());
+		assertTrue(pos.isLegal(pvs.getPrincipalVariationCodes()[0]));
+	}
+
+	@Test
+	public void testWallReachKeepsBlock() {
+		// The walls which stop player 1 touch their path, so the fewest walls still find one
+		Position pos = new Position(2, 1, new int[] {13, 40}, new int[] {10, 10}, 0L, 0L);
+		Search search = new Search();
+		search.setWallReach(0);
+		Analysis analysis = search.search(pos, 2);
+		assertTrue(analysis.getPrincipalVariationCodes()[0] >= Position.WALL_MOVES);
+		assertTrue(analysis.getScore() > -Search.WIN + Search.MAX_DEPTH);
+
+		Search full = new Search();
+		Analysis deeper = search.iterate(pos.play(analysis.getPrincipalVariationCodes()[0]), 3, null);
+		assertTrue(deeper.getNodes() < full.iterate(pos.play(analysis.getPrincipalVariationCodes()[0]), 3, null).getNodes());
+	}
+
+	@Test
+	public void testStreamsEachDepth() throws Exception {
+		AnalysisService service = new AnalysisService(2, 100);
+		Collector collector = new Collector();
+		Analysis analysis = service.analyze(new Position(2), 3, collector).get();
+		assertEquals(analysis.getDepth(), 3);
+		assertEquals(collector.analyses.size(), 3);
+		for(int i = 0; i < 3; i++) {
+			assertEquals(collector.analyses.get(i).getDepth(), i + 1);
+		}
+		assertEquals(analysis.getPrincipalVariation().size(), 3);
+		assertEquals(analysis.getBestMove(), analysis.getPrincipalVariation().get(0));
+		service.shutdown();
+	}
+
+	@Test
+	public void testCache() throws Exception {
+		AnalysisService service = new AnalysisService(1, 100);
+		Position pos = new Position(2).play(Position.parseMove("e8"));
+		Analysis first = service.analyze(pos, 2);
+		assertEquals(service.getMisses(), 1);
+
+		// The same position, reached by another path, comes from the cache
+		Position same = new Position(2).play(Position.parseMove("e8"));
+		assertSame(service.analyze(same, 2), first);
+		assertSame(service.analyze(same, 1), first);
+		assertEquals(service.getHits(), 2);
+
+		// A deeper request is told of the cached depth first and carries on from there
+		Collector collector = new Collector();
+		Analysis deeper = service.analyze(same, 3, collector).get();
+		assertEquals(deeper.getDepth(), 3);
+		assertSame(collector.analyses.get(0), first);
+		assertEquals(collector.analyses.size(), 2);
+		assertSame(service.analyze(pos, 2), deeper);
+		service.shutdown();
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() throws Exception {
+		AnalysisService service = new AnalysisService(1, 2);
+		Position a = new Position(2).play(Position.parseMove("e8"));
+		Position b = new Position(2).play(Position.parseMove("d9"));
+		Position c = new Position(2).play(Position.parseMove("c3v"));
+		service.analyze(a, 1);
+		service.analyze(b, 1);
+		service.analyze(a, 1);
+		service.analyze(c, 1);
+		assertEquals(service.getCacheSize(), 2);
+		assertEquals(service.getMisses(), 3);
+
+		// b was used least recently, so it is the one which was evicted
+		service.analyze(a, 1);
+		service.analyze(c, 1);
+		assertEquals(service.getHits(), 3);
+		service.analyze(b, 1);
+		assertEquals(service.getMisses(), 4);
+		service.shutdown();
+	}
+
+	@Test
+	public void testMirrorImageCached() throws Exception {
+		AnalysisService service = new AnalysisService(1, 100);
+		Position pos = new Position(2).play(Position.parseMove("d9")).play(Position.parseMove("c2h"));
+		Analysis analysis = service.analyze(pos, 2);
+
+		// The mirror image is answered from the cache, with its moves reflected
+		Analysis mirrored = service.analyze(pos.mirror(), 2);
+		assertEquals(service.getHits(), 1);
+		assertEquals(service.getCacheSize(), 1);
+		assertEquals(mirrored.getPosition(), pos.mirror());
+		assertEquals(mirrored.getScore(), analysis.getScore());
+		assertEquals(mirrored.getBestMove(), Position.toNotation(Position.mirrorMove(analysis.getPrincipalVariationCodes()[0])));
+		assertEquals(new Search().search(pos.mirror(), 2).getScore(), mirrored.getScore());
+		service.shutdown();
+	}
+}
@@ -0,0 +1,83 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import santanjm.quoridor.BatchEvaluator;
+import santanjm.quoridor.PathEvaluator;
+import santanjm.quoridor.Position;
+
+/**
+ * Test class for the batch evaluator
+ */
+public class BatchEvaluatorTest {
+
+	/**
+	 * Positions reached by random play, of both 2 and 4 players, ending before anyone wins
+	 */
+	private static Position[] randomPositions(int count) {
+		Random random = new Random(5);
+		Position[] positions = new Position[count];
+		for(int i = 0; i < count; i++) {
+			Position pos = new Position(i % 3 == 0 ? 4 : 2);
+			int length = random.nextInt(40);
+			for(int move = 0; move < length; move++) {
+				int[] moves = pos.legalMoves();
+				Position next = pos.play(moves[random.nextInt(moves.length)]);
+				if(next.isOver()) {
+					break;
+				}
+				pos = next;
+			}
+			positions[i] = pos;
+		}
+		return positions;
+	}
+
+	/**
+	 * Checks a batch evaluator against the positions' own distances and PathEvaluator
+	 */
+	private static void checkMatches(BatchEvaluator batch) {
+		// An odd count leaves boards over after the last full vector
+		Position[] positions = randomPositions(301);
+		int[] distances = batch.distances(positions, positions.length);
+		int[] scores = batch.evaluate(positions, positions.length, 2);
+		PathEvaluator evaluator = new PathEvaluator();
+		for(int i = 0; i < positions.length; i++) {
+			for(int player = 1; player <= 4; player++) {
+				int expected = player <= positions[i].getNumPlayers() ? positions[i].distanceToGoal(player) : 0;
+				assertEquals(distances[4*i + player - 1], expected);
+			}
+			assertEquals(scores[i], evaluator.evaluate(positions[i], 2));
+		}
+	}
+
+	@Test
+	public void testScalarMatchesPositions() {
+		BatchEvaluator batch = new BatchEvaluator(false);
+		assertFalse(batch.isVectorized());
+		checkMatches(batch);
+	}
+
+	@Test
+	public void testVectorMatchesPositions() {
+		// The tests run with the jdk.incubator.vector module added
+		BatchEvaluator batch = new BatchEvaluator(true);
+		assertTrue(batch.isVectorized());
+		checkMatches(batch);
+	}
+
+	@Test
+	public void testCutOffPlayer() {
+		// Walls across the bottom of row 8 and down the right of h8 and h9 cut player 1 off,
+		// while player 2 can still reach i9
+		long h = 0L;
+		for(int col = 0; col < 8; col += 2) {
+			h |= 1L << (8*7 + col);
+		}
+		Position pos = new Position(2, 0, new int[] {76, 4}, new int[] {5, 5}, 1L << (8*7 + 7), h);
+		int[] distances = new BatchEvaluator().distances(new Position[] {pos}, 1);
+		assertEquals(distances[0], -1);
+		assertEquals(distances[1], 12);
+	}
+}
@@ -0,0 +1,120 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import java.util.concurrent.*;
+import santanjm.quoridor.BotFarm;
+import santanjm.quoridor.HostedGame;
+import santanjm.quoridor.Position;
+
+/**
+ * Test class for hosted games and the bot farm
+ */
+public class BotFarmTest {
+
+	@Test
+	public void testBotsFinishGame() throws Exception {
+		BotFarm farm = new BotFarm(2);
+		HostedGame game = new HostedGame(2);
+		BotFarm.Seat first = farm.seat(game, 1, 2, 1000);
+		BotFarm.Seat second = farm.seat(game, 2, 2, 1000);
+		int winner = game.awaitWinner(60, TimeUnit.SECONDS);
+		farm.shutdown();
+		assertTrue(winner == 1 || winner == 2);
+		assertNull(first.getFailure());
+		assertNull(second.getFailure());
+		assertEquals(first.getTurns() + second.getTurns(), (long) game.getMoveCount());
+		assertTrue(first.getNodes() > 0);
+	}
+
+	@Test
+	public void testManyGamesOnFewThreads() throws Exception {
+		BotFarm farm = new BotFarm(2);
+		List<HostedGame> games = new ArrayList<HostedGame>();
+		for(int i = 0; i < 50; i++) {
+			HostedGame game = new HostedGame(i % 5 == 0 ? 4 : 2);
+			for(int player = 1; player <= game.getPosition().getNumPlayers(); player++) {
+				farm.seat(game, player, 1, 1000);
+			}
+			games.add(game);
+		}
+		for(HostedGame game : games) {
+			assertTrue(game.awaitWinner(120, TimeUnit.SECONDS) > 0);
+		}
+		farm.shutdown();
+		assertEquals(farm.getSeats().size(), 120);
+		for(BotFarm.Seat seat : farm.getSeats()) {
+			assertNull(seat.getFailure());
+		}
+	}
+
+	@Test
+	public void testQuotaLimitsTurn() throws Exception {
+		// One search thread, so the deep bot's depths and the shallow bots' take turns on it
+		BotFarm farm = new BotFarm(1);
+		HostedGame deep = new HostedGame(2);
+		BotFarm.Seat greedy = farm.seat(deep, 1, Search.MAX_DEPTH, 50);
+		HostedGame shallow = new HostedGame(2);
+		farm.seat(shallow, 1, 1, 1000);
+		farm.seat(shallow, 2, 1, 1000);
+		assertTrue(shallow.awaitWinner(60, TimeUnit.SECONDS) > 0);
+
+		// Player 2 of the deep game moves by hand between the deep bot's moves
+		Position pos = deep.awaitTurn(2);
+		deep.play(2, pos.legalMoves()[0]);
+		deep.awaitTurn(2);
+		farm.shutdown();
+		assertEquals(greedy.getTurns(), 2L);
+		assertTrue(greedy.getLongestTurnMillis() < 500);
+		assertNull(greedy.getFailure());
+	}
+
+	@Test
+	public void testBoxedInPlayerStalls() throws Exception {
+		// Player 1 on e5 with walls on three sides and player 2 on e6, who cannot be jumped
+		// or stepped around, and no walls left to place
+		int[] pawns = new int[] {40, 49, 36, 44};
+		int[] wallsLeft = new int[] {0, 5, 5, 5};
+		long vWalls = (1L << 35) | (1L << 36);
+		long hWalls = (1L << 28) | (1L << 44);
+		Position boxed = new Position(4, 0, pawns, wallsLeft, vWalls, hWalls);
+		assertEquals(boxed.legalMoves().length, 0);
+
+		BotFarm farm = new BotFarm(1);
+		HostedGame game = new HostedGame(boxed);
+		List<BotFarm.Seat> seats = new ArrayList<BotFarm.Seat>();
+		for(int player = 1; player <= 4; player++) {
+			seats.add(farm.seat(game, player, 2, 1000));
+		}
+		assertEquals(game.awaitWinner(60, TimeUnit.SECONDS), 0);
+		assertTrue(game.isStalled());
+		assertEquals(game.getMoveCount(), 0);
+		for(BotFarm.Seat seat : seats) {
+			assertNull(seat.getFailure());
+		}
+		farm.shutdown();
+	}
+
+	@Test
+	public void testPlayChecksTurnAndLegality() throws Exception {
+		HostedGame game = new HostedGame(2);
+		try {
+			game.play(2, 13);
+			fail("Played out of turn");
+		} catch(IllegalStateException e) {
+			// Expected
+		}
+		try {
+			game.play(1, 40);
+			fail("Played an illegal move");
+		} catch(IllegalArgumentException e) {
+			// Expected
+		}
+		int move = game.getPosition().legalMoves()[0];
+		game.play(1, move);
+		assertEquals(game.getMoveCount(), 1);
+		assertEquals(game.getPosition().getActivePlayer(), 2);
+		assertEquals(game.awaitWinner(10, TimeUnit.MILLISECONDS), 0);
+	}
+}
@@ -0,0 +1,142 @@
+package santanjm.quoridor;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+import java.io.File;
+import java.util.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.Position;
+import santanjm.quoridor.Search;
+
+/**
+ * Test class for the flight recorder events
+ */
+public class GameEventsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Starts a recording of every quoridor event, however short
+	 */
+	private static Recording record() {
+		Recording recording = new Recording();
+		for(String name : new String[] {"MoveValidation", "WallReachability", "SearchIteration",
+				"GameStarted", "MoveExecuted", "GameEnded"}) {
+			recording.enable("santanjm.quoridor." + name).withThreshold(java.time.Duration.ZERO);
+		}
+		recording.start();
+		return recording;
+	}
+
+	/**
+	 * Stops a recording and reads back its events
+	 */
+	private List<RecordedEvent> stop(Recording recording) throws Exception {
+		recording.stop();
+		File file = folder.newFile();
+		recording.dump(file.toPath());
+		recording.close();
+		return RecordingFile.readAllEvents(file.toPath());
+	}
+
+	/**
+	 * Picks out the recorded events of one type, in the order they were committed
+	 */
+	private static List<RecordedEvent> named(List<RecordedEvent> recorded, String name) {
+		List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+		for(RecordedEvent event : recorded) {
+			if(event.getEventType().getName().equals("santanjm.quoridor." + name)) {
+				events.add(event);
+			}
+		}
+		Collections.sort(events, new Comparator<RecordedEvent>() {
+			public int compare(RecordedEvent a, RecordedEvent b) {
+				return a.getEndTime().compareTo(b.getEndTime());
+			}
+		});
+		return events;
+	}
+
+	@Test
+	public void testGameLifecycle() throws Exception {
+		Recording recording = record();
+		Board b = new Board(2);
+		String[] moves = {"e8", "d1", "e7", "c1", "e6", "b1", "e5", "a1", "e4", "b1",
+				"e3", "a1", "e2", "b1", "e1"};
+		for(String move : moves) {
+			assertTrue(b.isLegalMove(move));
+			b.executeMove(move);
+			b.nextTurn();
+		}
+		Board copy = b.copy();
+		copy.isLegalMove("a2");
+		List<RecordedEvent> recorded = stop(recording);
+
+		List<RecordedEvent> started = named(recorded, "GameStarted");
+		assertEquals(started.size(), 1);
+		assertEquals(started.get(0).getLong("gameId"), b.gameId);
+		assertEquals(started.get(0).getInt("players"), 2);
+
+		List<RecordedEvent> executed = named(recorded, "MoveExecuted");
+		assertEquals(executed.size(), moves.length);
+		assertEquals(executed.get(1).getString("move"), "d1");
+		assertEquals(executed.get(1).getInt("player"), 2);
+		assertEquals(executed.get(1).getInt("turn"), 1);
+
+		List<RecordedEvent> ended = named(recorded, "GameEnded");
+		assertEquals(ended.size(), 1);
+		assertEquals(ended.get(0).getLong("gameId"), b.gameId);
+		assertEquals(ended.get(0).getInt("winner"), 1);
+		assertEquals(ended.get(0).getInt("moves"), moves.length);
+
+		// The copy only explores moves, so its checks are not tied to any game
+		List<RecordedEvent> validated = named(recorded, "MoveValidation");
+		assertEquals(validated.size(), moves.length + 1);
+		assertEquals(validated.get(moves.length).getLong("gameId"), 0L);
+	}
+
+	@Test
+	public void testRuleChecks() throws Exception {
+		Recording recording = record();
+		Board b = new Board(2);
+		assertFalse(b.isLegalMove("e7"));
+		assertTrue(b.isLegalMove("c3h"));
+		List<RecordedEvent> recorded = stop(recording);
+
+		List<RecordedEvent> validated = named(recorded, "MoveValidation");
+		assertEquals(validated.size(), 2);
+		assertEquals(validated.get(0).getLong("gameId"), b.gameId);
+		assertEquals(validated.get(0).getString("move"), "e7");
+		assertFalse(validated.get(0).getBoolean("legal"));
+		assertTrue(validated.get(1).getBoolean("legal"));
+
+		List<RecordedEvent> reachability = named(recorded, "WallReachability");
+		assertTrue(reachability.size() >= 2);
+		assertEquals(reachability.get(0).getString("wall"), "c3h");
+		assertEquals(reachability.get(0).getLong("gameId"), b.gameId);
+		assertTrue(reachability.get(0).getBoolean("reachable"));
+	}
+
+	@Test
+	public void testSearchIterations() throws Exception {
+		Recording recording = record();
+		Position pos = new Position(new Board(2));
+		new Search().iterate(pos, 2, null);
+		List<RecordedEvent> recorded = stop(recording);
+
+		List<RecordedEvent> iterations = named(recorded, "SearchIteration");
+		assertEquals(iterations.size(), 2);
+		assertEquals(iterations.get(0).getInt("depth"), 1);
+		assertEquals(iterations.get(1).getInt("depth"), 2);
+		assertEquals(iterations.get(1).getLong("positionHash"), pos.hash());
+		assertTrue(iterations.get(1).getLong("nodes") > 0);
+		assertTrue(iterations.get(1).getLong("nps") > 0);
+		assertNotNull(iterations.get(1).getString("bestMove"));
+	}
+}
@@ -0,0 +1,117 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.io.*;
+import java.util.*;
+import santanjm.quoridor.GameSnapshot;
+import santanjm.quoridor.NetworkEvaluator;
+import santanjm.quoridor.NetworkTrainer;
+import santanjm.quoridor.Position;
+
+/**
+ * Test class for the neural network evaluator and its trainer
+ */
+public class NetworkEvaluatorTest {
+
+	/**
+	 * Positions part way through a game, with walls of both directions placed
+	 */
+	private static Position[] positions() {
+		String[][] lines = {
+			{},
+			{"e8", "e2", "d6h", "e4v", "c3v"},
+			{"e8", "e2", "d8", "f2", "d7", "f3", "c6h", "e6h", "d3v"}
+		};
+		Position[] positions = new Position[lines.length];
+		for(int i = 0; i < lines.length; i++) {
+			Position pos = new Position(2);
+			for(String move : lines[i]) {
+				pos = pos.play(Position.parseMove(move));
+			}
+			positions[i] = pos;
+		}
+		return positions;
+	}
+
+	/**
+	 * Turns a 2 player position upside down with the players swapped, which player 2 sees
+	 * exactly as player 1 saw the original
+	 */
+	private static Position flip(Position pos) {
+		long v = 0L;
+		long h = 0L;
+		for(int slot = 0; slot < 64; slot++) {
+			int flipped = 8*(7 - slot / 8) + slot % 8;
+			v |= ((pos.vWalls >>> slot) & 1L) << flipped;
+			h |= ((pos.hWalls >>> slot) & 1L) << flipped;
+		}
+		int[] pawns = new int[2];
+		for(int i = 0; i < 2; i++) {
+			pawns[1 - i] = 9*(8 - pos.pawns[i] / 9) + pos.pawns[i] % 9;
+		}
+		return new Position(2, pos.turn + 1, pawns, new int[] {pos.wallsLeft[1], pos.wallsLeft[0]}, v, h);
+	}
+
+	@Test
+	public void testGoalAtTop() {
+		for(int player = 0; player < 4; player++) {
+			for(int space = 0; space < 81; space++) {
+				assertEquals(NetworkEvaluator.SPACE_FRAMES[player][space] < 9, Position.isGoal(player, space));
+			}
+		}
+	}
+
+	@Test
+	public void testSameFromEitherSide() {
+		NetworkEvaluator network = new NetworkEvaluator(3L);
+		for(Position pos : positions()) {
+			// Sums in a different order may round differently
+			assertEquals(network.evaluate(flip(pos), 2), network.evaluate(pos, 1), 1);
+			assertEquals(network.evaluate(flip(pos), 1), network.evaluate(pos, 2), 1);
+		}
+	}
+
+	@Test
+	public void testBatchAndVectors() {
+		NetworkEvaluator network = new NetworkEvaluator(5L);
+		Position[] positions = positions();
+		int[] scores = new int[positions.length];
+		network.evaluate(positions, positions.length, 2, scores);
+		for(int i = 0; i < positions.length; i++) {
+			assertEquals(scores[i], network.evaluate(positions[i], 2));
+			assertEquals(network.copy(false).evaluate(positions[i], 2), scores[i], 1);
+			if(BatchEvaluator.VECTORIZED) {
+				assertEquals(network.copy(true).evaluate(positions[i], 2), scores[i], 1);
+			}
+		}
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		NetworkEvaluator network = new NetworkEvaluator(7L);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		network.save(out);
+		NetworkEvaluator loaded = NetworkEvaluator.load(new ByteArrayInputStream(out.toByteArray()));
+		for(Position pos : positions()) {
+			assertEquals(loaded.evaluate(pos, 1), network.evaluate(pos, 1));
+		}
+	}
+
+	@Test
+	public void testTrainingLowersLoss() throws IOException {
+		List<GameSnapshot> records = NetworkTrainer.selfPlay(8, 1, 4, 11L);
+		assertTrue(records.size() > 0);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		NetworkTrainer.writeRecords(records, out);
+		List<GameSnapshot> read = NetworkTrainer.readRecords(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(read.size(), records.size());
+		assertEquals(read.get(0).getMoves(), records.get(0).getMoves());
+
+		NetworkEvaluator network = new NetworkEvaluator(13L);
+		NetworkTrainer trainer = new NetworkTrainer(network, 17L);
+		double before = trainer.loss(read);
+		trainer.train(read, 5, 0.01f, 16);
+		assertTrue(trainer.loss(read) < before);
+	}
+}
@@ -0,0 +1,92 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.util.*;
+import santanjm.quoridor.ParallelSearch;
+import santanjm.quoridor.Position;
+import santanjm.quoridor.Search;
+import santanjm.quoridor.TranspositionTable;
+
+/**
+ * Test class for the transposition table and the parallel search
+ */
+public class ParallelSearchTest {
+
+	@Test
+	public void testTableEntries() {
+		TranspositionTable table = new TranspositionTable(4);
+		assertEquals(table.probe(12345L), 0L);
+		table.store(12345L, 3, 5, -42, TranspositionTable.LOWER, 208);
+		long entry = table.probe(12345L);
+		assertEquals(TranspositionTable.score(entry, 3), -42);
+		assertEquals(TranspositionTable.bound(entry), TranspositionTable.LOWER);
+		assertEquals(TranspositionTable.depth(entry), 5);
+		assertEquals(TranspositionTable.move(entry), 208);
+
+		// A key sharing the index misses, and a win is counted from where it is read
+		assertEquals(table.probe(12345L + 16), 0L);
+		table.store(7L, 4, 2, Search.WIN - 6, TranspositionTable.EXACT, -1);
+		entry = table.probe(7L);
+		assertEquals(TranspositionTable.score(entry, 1), Search.WIN - 3);
+		assertEquals(TranspositionTable.move(entry), -1);
+
+		// Half of an entry overwritten by another thread fails the key check
+		table.data[7] ^= 1L << 40;
+		assertEquals(table.probe(7L), 0L);
+	}
+
+	@Test
+	public void testTableKeepsScores() {
+		// A fresh table cannot hold anything searched deeper than a depth 3 alpha-beta search
+		// needs, so the scores must be exactly those found without one
+		Random random = new Random(9);
+		for(int trial = 0; trial < 10; trial++) {
+			Position pos = new Position(trial % 2 == 0 ? 2 : 4);
+			for(int move = 0; move < 6; move++) {
+				int[] moves = pos.legalMoves();
+				pos = pos.play(moves[random.nextInt(moves.length)]);
+			}
+			Search plain = new Search();
+			Search tabled = new Search(new PathEvaluator(), new TranspositionTable(16));
+			plain.setPlain(true);
+			tabled.setPlain(true);
+			assertEquals(tabled.search(pos, 3).getScore(), plain.search(pos, 3).getScore());
+			assertTrue(tabled.getNodes() <= plain.getNodes());
+		}
+	}
+
+	@Test
+	public void testParallelFindsWin() {
+		// Player 1 is a step from their goal
+		Position pos = new Position(2, 0, new int[] {13, 67}, new int[] {10, 10}, 0L, 0L);
+		ParallelSearch search = new ParallelSearch(4);
+		Analysis analysis = search.iterate(pos, 4, null);
+		search.shutdown();
+		assertEquals(analysis.getBestMove(), "e1");
+		assertEquals(analysis.getScore(), Search.WIN - 1);
+	}
+
+	@Test
+	public void testHelpersSearch() {
+		ParallelSearch search = new ParallelSearch(3);
+		Position pos = new Position(2);
+		List<Integer> depths = new ArrayList<Integer>();
+		Analysis analysis = search.iterate(pos, 3, new Search.Listener() {
+			public void depthCompleted(Analysis analysis) {
+				depths.add(analysis.getDepth());
+			}
+		});
+		assertEquals(depths, Arrays.asList(1, 2, 3));
+		assertTrue(pos.isLegal(analysis.getPrincipalVariationCodes()[0]));
+		assertTrue(search.getNodes() >= analysis.getNodes());
+
+		// The table is kept, so searching again is answered mostly from it.  The first search
+		// may already have been, if a helper a depth ahead got there first, so the count to
+		// beat is that of a search without a table
+		Analysis again = search.iterate(pos, 3, null);
+		search.shutdown();
+		assertTrue(pos.isLegal(again.getPrincipalVariationCodes()[0]));
+		assertTrue(again.getNodes() < new Search().iterate(pos, 3, null).getNodes());
+	}
+}
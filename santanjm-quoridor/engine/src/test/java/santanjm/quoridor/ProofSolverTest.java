@@ -0,0 +1,85 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.Position;
+import santanjm.quoridor.Proof;
+import santanjm.quoridor.ProofSolver;
+
+/**
+ * Test class for the proof-number solver
+ */
+public class ProofSolverTest {
+
+	/**
+	 * A 2 player position with neither player holding any walls, player 1 to move
+	 */
+	private static Position race(int first, int second) {
+		return new Position(2, 0, new int[] {first, second}, new int[] {0, 0}, 0L, 0L);
+	}
+
+	@Test
+	public void testWinFromBoard() {
+		// Player 1 is a step from their goal, with every wall still to place
+		Board b = new Board(2);
+		b.placePlayer(b.getPlayerFromNum(1), 4, 1);
+		Proof proof = new ProofSolver(1 << 20).solve(b, 1000);
+		assertEquals(proof.getResult(), ProofSolver.WIN);
+		assertEquals(proof.getLength(), 1);
+		assertEquals(proof.getPosition().play(proof.getBestMoveCode()).getWinner(), 1);
+	}
+
+	@Test
+	public void testRaces() {
+		// In columns apart, each player 6 steps from their goal, the first to move wins
+		ProofSolver solver = new ProofSolver(1 << 24);
+		Proof proof = solver.solve(race(57, 23), 100000);
+		assertEquals(proof.getResult(), ProofSolver.WIN);
+		assertEquals(proof.getLength(), 11);
+		assertEquals(proof.getBestMoveCode(), 48);
+
+		// A step behind, player 1 loses, holding out for as long as the race lasts
+		proof = solver.solve(race(49, 31), 100000);
+		assertEquals(proof.getResult(), ProofSolver.LOSS);
+		assertEquals(proof.getLength(), 10);
+	}
+
+	@Test
+	public void testWinHoldsAgainstEveryReply() {
+		ProofSolver solver = new ProofSolver(1 << 24);
+		Position pos = race(48, 32);
+		Proof proof = solver.solve(pos, 100000);
+		assertEquals(proof.getResult(), ProofSolver.WIN);
+		Position played = pos.play(proof.getBestMoveCode());
+		for(int reply : played.legalMoves()) {
+			Proof after = solver.solve(played.play(reply), 100000);
+			assertEquals(after.getResult(), ProofSolver.WIN);
+			assertTrue(after.getLength() <= proof.getLength() - 2);
+		}
+	}
+
+	@Test
+	public void testWallsLeft() {
+		// A step behind with a wall each, player 1 cannot wall player 2 back far enough
+		Position pos = new Position(2, 0, new int[] {40, 49}, new int[] {1, 1}, 0L, 0L);
+		Proof proof = new ProofSolver(1 << 26).solve(pos, 2000000);
+		assertEquals(proof.getResult(), ProofSolver.LOSS);
+		assertTrue(proof.getBestMoveCode() >= 0);
+	}
+
+	@Test
+	public void testBudget() {
+		ProofSolver solver = new ProofSolver(1000 * ProofSolver.ENTRY_BYTES);
+		assertEquals(solver.getCapacity(), 512);
+		Proof proof = solver.solve(race(57, 23), 50);
+		assertEquals(proof.getResult(), ProofSolver.UNKNOWN);
+		assertEquals(proof.getBestMove(), null);
+		assertTrue(proof.getNodes() <= 51);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLittleMemory() {
+		new ProofSolver(ProofSolver.ENTRY_BYTES);
+	}
+}
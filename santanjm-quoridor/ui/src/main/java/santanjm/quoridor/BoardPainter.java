@@ -0,0 +1,203 @@
+package santanjm.quoridor;
+
+import java.awt.*;
+
+import santanjm.quoridor.*;
+
+/**
+ * Draws the parts of a board with plain java.awt graphics, so that the game panel and the
+ * thumbnail renderer draw boards exactly the same way.  Nothing here creates or touches a
+ * Swing component, so it can be used on a headless machine.
+ * @author santanjm
+ */
+public class BoardPainter {
+	// The width and height of every space
+	public static final int SPACE_SIZE = 70;
+
+	// The thickness of the wall segments between the spaces
+	public static final int WALL_SIZE = 9;
+
+	// The room left of and above the grid for the row and column labels
+	public static final int MARGIN = 30;
+
+	// The distance from the start of one space to the start of the next
+	public static final int STEP = SPACE_SIZE + WALL_SIZE;
+
+	// The width and height of a whole board
+	public static final int SIZE = MARGIN + 9*SPACE_SIZE + 8*WALL_SIZE + WALL_SIZE;
+
+	// The color of each player's pawn, by player number - 1
+	static final Color[] PLAYER_COLORS = new Color[] {Color.RED, Color.BLUE, Color.YELLOW, Color.GREEN};
+
+	private BoardPainter() {
+	}
+
+	/**
+	 * Paints everything which does not change during a game: the labels, the outlines of
+	 * the empty spaces and the outlines of the wall segments
+	 *
+	 * @param g          the graphics to paint with, whose font is used for the labels
+	 * @param background the color behind the grid
+	 */
+	static void paintBackground(Graphics g, Color background) {
+		g.setColor(background);
+		g.fillRect(0, 0, SIZE, SIZE);
+		g.setColor(Color.BLACK);
+		FontMetrics metrics = g.getFontMetrics();
+		for(int i = 0; i < 9; i++) {
+			String column = "" + (char) (i + 97);
+			String row = "" + (i + 1);
+			int offset = MARGIN + i*STEP + SPACE_SIZE/2;
+			g.drawString(column, offset - metrics.stringWidth(column)/2, MARGIN/2 + metrics.getAscent()/2);
+			g.drawString(row, MARGIN/2 - metrics.stringWidth(row)/2, offset + metrics.getAscent()/2);
+		}
+		for(int row = 0; row < 9; row++) {
+			for(int col = 0; col < 9; col++) {
+				int x = MARGIN + col*STEP;
+				int y = MARGIN + row*STEP;
+				g.drawRect(x, y, SPACE_SIZE, SPACE_SIZE);
+				if(col != 8) {
+					g.drawRect(x + SPACE_SIZE, y, WALL_SIZE, SPACE_SIZE);
+				}
+				if(row != 8) {
+					g.drawRect(x, y + SPACE_SIZE, SPACE_SIZE, WALL_SIZE);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Paints the pawn on a space, if any, and its placed wall segments
+	 *
+	 * @param g        the graphics to paint with
+	 * @param col      the column of the space
+	 * @param row      the row of the space
+	 * @param occupant the number of the player on the space, 0 for none
+	 * @param segments the placed flags of the space's right, below and corner wall segments
+	 */
+	static void paintSpace(Graphics g, int col, int row, int occupant, boolean[] segments) {
+		int x = MARGIN + col*STEP;
+		int y = MARGIN + row*STEP;
+		if(occupant > 0) {
+			g.setColor(PLAYER_COLORS[occupant - 1]);
+			g.fillOval(x, y, SPACE_SIZE, SPACE_SIZE);
+		}
+		g.setColor(Color.BLACK);
+		if(segments[0]) {
+			g.fillRect(x + SPACE_SIZE, y, WALL_SIZE, SPACE_SIZE);
+		}
+		if(segments[1]) {
+			g.fillRect(x, y + SPACE_SIZE, SPACE_SIZE, WALL_SIZE);
+		}
+		if(segments[2]) {
+			g.fillRect(x + SPACE_SIZE, y + SPACE_SIZE, WALL_SIZE, WALL_SIZE);
+		}
+	}
+
+	/**
+	 * Paints a translucent preview of a move on top of the board
+	 *
+	 * @param g         the graphics to paint with
+	 * @param move      an encoded move
+	 * @param playerNum the number of the player who would make the move
+	 */
+	static void paintGhost(Graphics g, int move, int playerNum) {
+		Color color = PLAYER_COLORS[playerNum - 1];
+		g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), 128));
+		if(move < Position.WALL_MOVES) {
+			g.fillOval(MARGIN + (move % 9)*STEP, MARGIN + (move / 9)*STEP, SPACE_SIZE, SPACE_SIZE);
+		} else {
+			Rectangle wall = wallBounds(move);
+			g.fillRect(wall.x, wall.y, wall.width, wall.height);
+		}
+	}
+
+	/**
+	 * Paints a small marker in the middle of a space a pawn may move to
+	 *
+	 * @param g     the graphics to paint with
+	 * @param space the index of the space
+	 */
+	static void paintTarget(Graphics g, int space) {
+		int size = SPACE_SIZE/4;
+		g.setColor(Color.GRAY);
+		g.fillOval(MARGIN + (space % 9)*STEP + (SPACE_SIZE - size)/2,
+				MARGIN + (space / 9)*STEP + (SPACE_SIZE - size)/2, size, size);
+	}
+
+	/**
+	 * Finds the move a point on the board would make if clicked: the space the point is
+	 * on, or the wall along the gap it is in.  A wall covers the gap beside two spaces, so
+	 * the gap beside the last space of a column or row places the wall ending there
+	 *
+	 * @param x the x coordinate of the point
+	 * @param y the y coordinate of the point
+	 * @return the encoded move, or -1 if the point is not on a space or in a gap
+	 */
+	static int moveAt(int x, int y) {
+		x -= MARGIN;
+		y -= MARGIN;
+		if(x < 0 || y < 0) {
+			return -1;
+		}
+		int col = x / STEP;
+		int row = y / STEP;
+		boolean inColumn = x % STEP < SPACE_SIZE;
+		boolean inRow = y % STEP < SPACE_SIZE;
+		if(col > 8 || row > 8) {
+			return -1;
+		}
+		if(inColumn && inRow) {
+			return 9*row + col;
+		}
+		if(! inColumn && inRow && col < 8) {
+			return Position.WALL_MOVES + 2*(8*Math.min(row, 7) + col);
+		}
+		if(inColumn && ! inRow && row < 8) {
+			return Position.WALL_MOVES + 2*(8*row + Math.min(col, 7)) + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the area a move would be drawn over: a whole space for a pawn move or both
+	 * segments and the corner of a wall
+	 *
+	 * @param move an encoded move
+	 * @return the area covered by the move
+	 */
+	static Rectangle moveBounds(int move) {
+		if(move < Position.WALL_MOVES) {
+			return new Rectangle(MARGIN + (move % 9)*STEP, MARGIN + (move / 9)*STEP, SPACE_SIZE + 1, SPACE_SIZE + 1);
+		}
+		return wallBounds(move);
+	}
+
+	/**
+	 * Returns the area covered by a wall
+	 *
+	 * @param move an encoded wall placement
+	 * @return the area of both segments of the wall and the corner between them
+	 */
+	private static Rectangle wallBounds(int move) {
+		int wall = move - Position.WALL_MOVES;
+		int slot = wall >> 1;
+		int x = MARGIN + (slot % 8)*STEP;
+		int y = MARGIN + (slot / 8)*STEP;
+		if((wall & 1) == 0) {
+			return new Rectangle(x + SPACE_SIZE, y, WALL_SIZE, STEP + SPACE_SIZE);
+		}
+		return new Rectangle(x, y + SPACE_SIZE, STEP + SPACE_SIZE, WALL_SIZE);
+	}
+
+	/**
+	 * Returns the area covered by a space along with its wall segments and their outlines
+	 *
+	 * @param col the column of the space
+	 * @param row the row of the space
+	 * @return the area to repaint when the space changes
+	 */
+	static Rectangle cellBounds(int col, int row) {
+		return new Rectangle(MARGIN + col*STEP, MARGIN + row*STEP, STEP + 1, STEP + 1);
+	}
+}
@@ -0,0 +1,233 @@
+package santanjm.quoridor;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import santanjm.quoridor.*;
+
+/**
+ * Single component which paints the whole board: the labels, the spaces, the pawns and the
+ * walls.  Everything which never changes is drawn once into a background image, and when
+ * a space changes only the area of that space and its wall segments is repainted.
+ *
+ * The panel keeps its own copy of what each space looks like, which is only read and
+ * written on the Event Dispatch Thread, so that the game can carry on from any thread
+ * while all painting happens on the EDT.
+ *
+ * Moves can be made by clicking on a space or in the gap where a wall would go.  The legal
+ * moves of each turn are found once, off the EDT, so that highlighting the move under the
+ * mouse and previewing it are just lookups.
+ */
+public class GamePanel extends JComponent implements BoardView {
+	private static final long serialVersionUID = 1L;
+
+	// The number of the player occupying each space, 0 for none, by space index
+	int[] occupants = new int[81];
+
+	// The placed flags of the wall segments of each space, by space index
+	boolean[][] placed = new boolean[81][3];
+
+	// The labels, the empty spaces and the outlines of the wall segments, drawn once
+	transient BufferedImage background;
+
+	// The moves clicked on the panel, along with any typed moves the game adds, waiting to
+	// be taken by the game
+	transient BlockingQueue<String> submittedMoves = new LinkedBlockingQueue<String>();
+
+	// The legal moves of the current turn, null while they are being found or once a move
+	// has been clicked
+	transient LegalMoveTable targets;
+
+	// The move the mouse is over, -1 for none
+	int hover = -1;
+
+	// The thread the legal moves of each turn are found on, created when first needed
+	transient ExecutorService finder;
+
+	// The number of turns started, so that the moves found for an earlier turn are ignored
+	AtomicInteger turns = new AtomicInteger();
+
+	/**
+	 * Creates a new game panel with every space empty
+	 */
+	public GamePanel() {
+		setOpaque(true);
+		setPreferredSize(new Dimension(BoardPainter.SIZE, BoardPainter.SIZE));
+		setSize(BoardPainter.SIZE, BoardPainter.SIZE);
+
+		MouseAdapter mouse = new MouseAdapter() {
+			@Override
+			public void mouseMoved(MouseEvent e) {
+				hoverAt(e.getX(), e.getY());
+			}
+
+			@Override
+			public void mouseExited(MouseEvent e) {
+				hoverAt(-1, -1);
+			}
+
+			@Override
+			public void mousePressed(MouseEvent e) {
+				clickAt(e.getX(), e.getY());
+			}
+		};
+		addMouseListener(mouse);
+		addMouseMotionListener(mouse);
+	}
+
+	/**
+	 * Starts finding the legal moves of a new turn on a background thread, once found they
+	 * can be clicked.  Called by the board at the start of every turn
+	 *
+	 * @param pos the position at the start of the turn
+	 */
+	public void turnStarted(final Position pos) {
+		final int turn = turns.incrementAndGet();
+		if(finder == null) {
+			finder = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "legal-move-finder");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		finder.execute(new Runnable() {
+			public void run() {
+				final LegalMoveTable table = new LegalMoveTable(pos);
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if(turns.get() == turn) {
+							targets = table;
+							hover = -1;
+							repaint();
+						}
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Takes the next move submitted, waiting for one if none has been submitted
+	 *
+	 * @return the move string of the submitted move
+	 */
+	public String takeMove() throws InterruptedException {
+		return submittedMoves.take();
+	}
+
+	/**
+	 * Moves the highlight to the legal move under a point, repainting only the areas of the
+	 * old and new highlighted moves
+	 */
+	private void hoverAt(int x, int y) {
+		int move = BoardPainter.moveAt(x, y);
+		if(targets == null || ! targets.isLegal(move)) {
+			move = -1;
+		}
+		if(move != hover) {
+			if(hover >= 0) {
+				repaint(BoardPainter.moveBounds(hover));
+			}
+			hover = move;
+			if(hover >= 0) {
+				repaint(BoardPainter.moveBounds(hover));
+			}
+		}
+	}
+
+	/**
+	 * Submits the legal move under a point, after which no more moves can be clicked until
+	 * the next turn starts
+	 */
+	private void clickAt(int x, int y) {
+		int move = BoardPainter.moveAt(x, y);
+		if(targets != null && targets.isLegal(move)) {
+			submittedMoves.add(Position.toNotation(move));
+			targets = null;
+			hover = -1;
+			repaint();
+		}
+	}
+
+	/**
+	 * Records how a space now looks and repaints only the area it covers.  May be called
+	 * from any thread, the change is applied on the Event Dispatch Thread
+	 *
+	 * @param s a space which has been occupied, unoccupied or had a wall segment placed
+	 */
+	public void spaceChanged(Space s) {
+		final int index = 9*s.getRow() + s.getColumn();
+		final int occupant = s.getPlayerNum();
+		final boolean[] segments = s.placed.clone();
+		final Rectangle dirty = BoardPainter.cellBounds(s.getColumn(), s.getRow());
+		Runnable update = new Runnable() {
+			public void run() {
+				occupants[index] = occupant;
+				placed[index] = segments;
+				repaint(dirty);
+			}
+		};
+		if(SwingUtilities.isEventDispatchThread()) {
+			update.run();
+		} else {
+			SwingUtilities.invokeLater(update);
+		}
+	}
+
+	/**
+	 * Paints the background image followed by the pawns and placed walls of each space
+	 * within the area being repainted
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		long start = Metrics.start();
+		if(background == null) {
+			background = createBackground();
+		}
+		g.drawImage(background, 0, 0, null);
+
+		Rectangle clip = g.getClipBounds();
+		for(int row = 0; row < 9; row++) {
+			for(int col = 0; col < 9; col++) {
+				if(clip == null || clip.intersects(BoardPainter.cellBounds(col, row))) {
+					BoardPainter.paintSpace(g, col, row, occupants[9*row + col], placed[9*row + col]);
+				}
+			}
+		}
+
+		// Mark where the pawn may move and preview the move under the mouse
+		if(targets != null) {
+			for(int space = 0; space < 81; space++) {
+				if(targets.isLegalPawnMove(space) && occupants[space] == 0) {
+					BoardPainter.paintTarget(g, space);
+				}
+			}
+			if(hover >= 0) {
+				BoardPainter.paintGhost(g, hover, targets.getPosition().getActivePlayer());
+			}
+		}
+		Metrics.PAINT.stop(start);
+	}
+
+	/**
+	 * Draws everything which does not change during a game into a new image
+	 *
+	 * @return image of the labels, the empty spaces and the wall segment outlines
+	 */
+	private BufferedImage createBackground() {
+		BufferedImage image = new BufferedImage(BoardPainter.SIZE, BoardPainter.SIZE, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		if(getFont() != null) {
+			g.setFont(getFont());
+		}
+		BoardPainter.paintBackground(g, getBackground() == null ? Color.LIGHT_GRAY : getBackground());
+		g.dispose();
+		return image;
+	}
+}
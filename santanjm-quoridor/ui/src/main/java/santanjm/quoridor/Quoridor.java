@@ -0,0 +1,102 @@
+package santanjm.quoridor;
+
+import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import javax.swing.*;
+import santanjm.quoridor.*;
+
+/**
+ * The main class for the Quoridor game, this is what is called to run the game. 
+ * @author catsby
+ */
+public class Quoridor {
+
+	public static void main(String[] args) {
+		try {
+			GamePanel gamepanel = new GamePanel();
+			Board b = new Board(Integer.parseInt(args[0]), gamepanel);
+			gameLoop(b, gamepanel);
+		} catch(Exception e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * The game of Quoridor's main loop
+	 *
+	 * @param b         the board the game is played on
+	 * @param gamepanel the game panel the board is displayed in
+	 */
+	static void gameLoop(Board b, final GamePanel gamepanel) {
+		// Moves may be typed or clicked, typed moves are read on their own thread into the
+		// same queue as the clicked ones
+		final BlockingQueue<String> moves = gamepanel.submittedMoves;
+		Thread moveReader = new Thread(new Runnable() {
+			public void run() {
+				Scanner lines = new Scanner(System.in);
+				while(lines.hasNextLine()) {
+					moves.add(lines.nextLine());
+				}
+			}
+		}, "move-reader");
+		moveReader.setDaemon(true);
+		moveReader.start();
+
+		// The frame is created on the Event Dispatch Thread, where all of the painting happens
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				JFrame gameframe = new JFrame("Quoridor");
+				gameframe.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+				gameframe.setResizable(false);
+				gameframe.add(gamepanel);
+				gameframe.pack();
+				gameframe.setVisible(true);
+			}
+		});
+		while(true) {
+			// First, set the active player
+			b.setActivePlayer();
+
+			// Now we print out the current turn number and the game status
+			System.out.println("Turn " + (b.turn + 1) + ": "
+							  + "\n" + "The current game status:\n" + b.currentGameStatus());
+
+			// Next, we prompt the active player for a move
+			System.out.print("Enter or click a move player " + b.getActivePlayer().getPlayerNum() + ": ");
+			String move;
+			try {
+				move = gamepanel.takeMove();
+			} catch(InterruptedException e) {
+				return;
+			}
+
+			// First we force the move to be all lower case
+			move = move.toLowerCase();
+
+			// Next we strip any and all whitespace from the move submitted
+			move = move.replaceAll("\\s+", "");
+
+			if(b.isLegalMove(move)) {
+				b.executeMove(move);
+				System.out.println("Move succeeded");
+				System.out.println(b.getActivePlayer() + "\n");
+
+				// Update all player's boards
+				for(Player p : b.players) {
+					p.updateBoard(b);
+					if(p.checkHasWon()) {
+						System.out.println("Player " + p.getPlayerNum() + " has won the game!!!");
+
+						// Nothing more can be clicked once the game is over
+						gamepanel.turnStarted(new Position(b));
+						return;
+					}
+				}
+				b.nextTurn();
+			} else {
+				System.out.println("ILLEGAL MOVE");
+			}
+		}
+	}
+}
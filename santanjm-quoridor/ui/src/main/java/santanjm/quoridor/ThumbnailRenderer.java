@@ -0,0 +1,199 @@
+package santanjm.quoridor;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import javax.imageio.ImageIO;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import santanjm.quoridor.*;
+
+/**
+ * Draws boards into small square images and encodes them as PNGs, without creating any
+ * Swing component, so that thumbnails of many games can be made on a headless machine.
+ * The background, which is the same for every board, is drawn once and copied into each
+ * image.  Every thread draws into an image of its own which it reuses for every board.
+ * @author santanjm
+ */
+public class ThumbnailRenderer {
+	// The width and height of the thumbnails
+	int size;
+
+	// The labels, the empty spaces and the outlines of the wall segments at thumbnail size
+	BufferedImage background;
+
+	// The pixels of the background, which are copied into each thumbnail
+	int[] backgroundPixels;
+
+	// The image each thread draws into
+	ThreadLocal<BufferedImage> buffers = new ThreadLocal<BufferedImage>() {
+		@Override
+		protected BufferedImage initialValue() {
+			return new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+		}
+	};
+
+	// The threads the thumbnails of many boards are drawn on
+	ExecutorService pool;
+
+	/**
+	 * Constructs a renderer of thumbnails of the given size
+	 *
+	 * @param size    the width and height of the thumbnails in pixels
+	 * @param threads the number of threads to draw batches of thumbnails on
+	 */
+	public ThumbnailRenderer(int size, int threads) {
+		if(size < 1 || threads < 1) {
+			throw new IllegalArgumentException("Thumbnails need a positive size and at least one thread");
+		}
+		this.size = size;
+		background = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = createGraphics(background);
+		BoardPainter.paintBackground(g, Color.WHITE);
+		g.dispose();
+		backgroundPixels = pixels(background);
+		pool = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Draws a board into the calling thread's image.  The image is drawn over by the next
+	 * board the same thread renders, so it must be used or copied before then
+	 *
+	 * @param b the board to draw, which must not be changed while it is drawn
+	 * @return the calling thread's image with the board drawn in it
+	 */
+	public BufferedImage render(Board b) {
+		long start = Metrics.start();
+		BufferedImage image = buffers.get();
+		System.arraycopy(backgroundPixels, 0, pixels(image), 0, backgroundPixels.length);
+		Graphics2D g = createGraphics(image);
+		for(Space s : b.spaces) {
+			boolean[] segments = s.placed;
+			if(s.getPlayerNum() > 0 || segments[0] || segments[1] || segments[2]) {
+				BoardPainter.paintSpace(g, s.getColumn(), s.getRow(), s.getPlayerNum(), segments);
+			}
+		}
+		g.dispose();
+		Metrics.THUMBNAIL.stop(start);
+		return image;
+	}
+
+	/**
+	 * Draws a board and encodes it as a PNG
+	 *
+	 * @param b the board to draw, which must not be changed while it is drawn
+	 * @return the bytes of the PNG
+	 */
+	public byte[] renderPng(Board b) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		// Encoding into memory rather than through a temporary file
+		MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(bytes);
+		ImageIO.write(render(b), "png", out);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Draws many boards in parallel and encodes each as a PNG
+	 *
+	 * @param boards the boards to draw, which must not be changed while they are drawn
+	 * @return the bytes of the PNG of each board, in the same order as the boards
+	 */
+	public List<byte[]> renderPngs(List<Board> boards) throws InterruptedException, ExecutionException {
+		List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+		for(final Board b : boards) {
+			results.add(pool.submit(new Callable<byte[]>() {
+				public byte[] call() throws IOException {
+					return renderPng(b);
+				}
+			}));
+		}
+		List<byte[]> pngs = new ArrayList<byte[]>();
+		for(Future<byte[]> result : results) {
+			pngs.add(result.get());
+		}
+		return pngs;
+	}
+
+	/**
+	 * Getter for the size of the thumbnails
+	 *
+	 * @return the width and height of the thumbnails in pixels
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Shuts down the threads used to draw batches of thumbnails
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Creates graphics which draw into an image at thumbnail scale
+	 */
+	private Graphics2D createGraphics(BufferedImage image) {
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.scale((double) size / BoardPainter.SIZE, (double) size / BoardPainter.SIZE);
+		return g;
+	}
+
+	/**
+	 * Returns the array backing the pixels of an image
+	 */
+	private static int[] pixels(BufferedImage image) {
+		return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * Renders random positions to PNGs and prints how many were rendered per second
+	 *
+	 * @param args the number of thumbnails, their size and the number of threads
+	 */
+	public static void main(String[] args) {
+		try {
+			int count = Integer.parseInt(args[0]);
+			int size = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+			int threads = args.length > 2 ? Integer.parseInt(args[2])
+					: Runtime.getRuntime().availableProcessors();
+
+			// A few positions from random games, each rendered many times
+			Random random = new Random(1);
+			List<Board> positions = new ArrayList<Board>();
+			for(int i = 0; i < 16; i++) {
+				Board b = new Board(i % 2 == 0 ? 2 : 4);
+				for(int move = 0; move < 20 && b.getWinner() == null; move++) {
+					List<String> moves = b.legalMoves();
+					b.executeMove(moves.get(random.nextInt(moves.size())));
+					b.nextTurn();
+				}
+				positions.add(b);
+			}
+			List<Board> boards = new ArrayList<Board>();
+			for(int i = 0; i < count; i++) {
+				boards.add(positions.get(i % positions.size()));
+			}
+
+			ThumbnailRenderer renderer = new ThumbnailRenderer(size, threads);
+			long start = System.nanoTime();
+			long bytes = 0;
+			for(byte[] png : renderer.renderPngs(boards)) {
+				bytes += png.length;
+			}
+			long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+			System.out.println("Rendered " + count + " thumbnails (" + bytes + " bytes) in " + millis
+					+ " ms, " + (count * 1000 / millis) + " per second");
+			renderer.shutdown();
+		} catch(Exception e) {
+			System.err.println("Usage: ThumbnailRenderer <number of thumbnails> [size] [threads]");
+			System.exit(1);
+		}
+	}
+}
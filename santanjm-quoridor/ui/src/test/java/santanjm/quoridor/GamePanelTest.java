@@ -0,0 +1,202 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import javax.swing.SwingUtilities;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.GamePanel;
+import santanjm.quoridor.LegalMoveTable;
+import santanjm.quoridor.Position;
+
+/**
+ * Test class for the game panel
+ */
+public class GamePanelTest {
+
+	/**
+	 * Waits for every change queued on the Event Dispatch Thread to be applied, then paints
+	 * the panel into an image
+	 */
+	private static BufferedImage paint(final GamePanel panel) throws Exception {
+		final BufferedImage image = new BufferedImage(BoardPainter.SIZE, BoardPainter.SIZE, BufferedImage.TYPE_INT_RGB);
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				Graphics g = image.createGraphics();
+				panel.paint(g);
+				g.dispose();
+			}
+		});
+		return image;
+	}
+
+	/**
+	 * Returns the color of the pixel at the center of a space
+	 */
+	private static Color center(BufferedImage image, int col, int row) {
+		int x = BoardPainter.MARGIN + col*BoardPainter.STEP + BoardPainter.SPACE_SIZE/2;
+		int y = BoardPainter.MARGIN + row*BoardPainter.STEP + BoardPainter.SPACE_SIZE/2;
+		return new Color(image.getRGB(x, y));
+	}
+
+	@Test
+	public void testSingleComponent() {
+		GamePanel panel = new GamePanel();
+		Board b = new Board(4, panel);
+		assertEquals(panel.getComponentCount(), 0);
+		assertEquals(panel.getPreferredSize(), new Dimension(BoardPainter.SIZE, BoardPainter.SIZE));
+	}
+
+	@Test
+	public void testPaintsPawns() throws Exception {
+		GamePanel panel = new GamePanel();
+		Board b = new Board(4, panel);
+		BufferedImage image = paint(panel);
+		assertEquals(center(image, 4, 8), Color.RED);
+		assertEquals(center(image, 4, 0), Color.BLUE);
+		assertEquals(center(image, 0, 4), Color.YELLOW);
+		assertEquals(center(image, 8, 4), Color.GREEN);
+
+		b.executeMove("e8");
+		image = paint(panel);
+		assertEquals(center(image, 4, 7), Color.RED);
+		assertFalse(center(image, 4, 8).equals(Color.RED));
+	}
+
+	@Test
+	public void testPaintsWalls() throws Exception {
+		GamePanel panel = new GamePanel();
+		Board b = new Board(2, panel);
+		b.executeMove("c3v");
+		BufferedImage image = paint(panel);
+
+		// Both segments to the right of c3 and c4 and the corner between them are filled
+		int x = BoardPainter.MARGIN + 2*BoardPainter.STEP + BoardPainter.SPACE_SIZE + BoardPainter.WALL_SIZE/2;
+		for(int y : new int[] {2*BoardPainter.STEP + 35, 2*BoardPainter.STEP + 74, 3*BoardPainter.STEP + 35}) {
+			assertEquals(new Color(image.getRGB(x, BoardPainter.MARGIN + y)), Color.BLACK);
+		}
+		// The segment to the right of c5 is left empty
+		assertFalse(new Color(image.getRGB(x, BoardPainter.MARGIN + 4*BoardPainter.STEP + 35)).equals(Color.BLACK));
+	}
+
+	/**
+	 * Waits until the panel has the legal moves of the board's current position
+	 */
+	private static LegalMoveTable awaitTargets(final Board b, final GamePanel panel) throws Exception {
+		final LegalMoveTable[] table = new LegalMoveTable[1];
+		long deadline = System.currentTimeMillis() + 5000;
+		while(System.currentTimeMillis() < deadline) {
+			SwingUtilities.invokeAndWait(new Runnable() {
+				public void run() {
+					table[0] = panel.targets;
+				}
+			});
+			if(table[0] != null && table[0].getPosition().equals(new Position(b))) {
+				return table[0];
+			}
+			Thread.sleep(5);
+		}
+		throw new AssertionError("The legal moves were never found");
+	}
+
+	/**
+	 * Sends a mouse event to the panel on the Event Dispatch Thread
+	 */
+	private static void mouse(final GamePanel panel, final int id, final int x, final int y) throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				panel.dispatchEvent(new MouseEvent(panel, id, 0, 0, x, y, 1, false));
+			}
+		});
+	}
+
+	@Test
+	public void testMoveAt() {
+		int x = BoardPainter.MARGIN + 4*BoardPainter.STEP + 10;
+		int y = BoardPainter.MARGIN + 7*BoardPainter.STEP + 10;
+		assertEquals(Position.toNotation(BoardPainter.moveAt(x, y)), "e8");
+
+		// The gap right of e8 and below e8
+		assertEquals(Position.toNotation(BoardPainter.moveAt(x - 10 + BoardPainter.SPACE_SIZE + 2, y)), "e8v");
+		assertEquals(Position.toNotation(BoardPainter.moveAt(x, y - 10 + BoardPainter.SPACE_SIZE + 2)), "e8h");
+
+		// The gap beside the last row places the wall ending there
+		int last = BoardPainter.MARGIN + 8*BoardPainter.STEP + 10;
+		assertEquals(Position.toNotation(BoardPainter.moveAt(x - 10 + BoardPainter.SPACE_SIZE + 2, last)), "e8v");
+
+		// The labels and the corners between gaps make no move
+		assertEquals(BoardPainter.moveAt(5, 5), -1);
+		assertEquals(BoardPainter.moveAt(x - 10 + BoardPainter.SPACE_SIZE + 2, y - 10 + BoardPainter.SPACE_SIZE + 2), -1);
+	}
+
+	@Test
+	public void testLegalMoveTable() {
+		Position pos = new Position(4).play(Position.parseMove("e5h"));
+		LegalMoveTable table = new LegalMoveTable(pos);
+		int[] moves = pos.legalMoves();
+		assertEquals(table.getCount(), moves.length);
+		for(int move = 0; move < Position.NUM_MOVES; move++) {
+			assertEquals(table.isLegal(move), Arrays.binarySearch(moves, move) >= 0);
+		}
+		assertFalse(table.isLegalWall(8*4 + 4, 1));
+		assertTrue(table.isLegalPawnMove(Position.parseMove("d1")));
+		assertFalse(table.isLegalPawnMove(Position.parseMove("a6")));
+	}
+
+	@Test
+	public void testClickToMove() throws Exception {
+		GamePanel panel = new GamePanel();
+		Board b = new Board(2, panel);
+		awaitTargets(b, panel);
+		int x = BoardPainter.MARGIN + 4*BoardPainter.STEP + 10;
+		int y = BoardPainter.MARGIN + 7*BoardPainter.STEP + 10;
+
+		// Hovering over a legal move previews it and clicking submits it
+		mouse(panel, MouseEvent.MOUSE_MOVED, x, y);
+		assertEquals(panel.hover, Position.parseMove("e8"));
+		mouse(panel, MouseEvent.MOUSE_PRESSED, x, y);
+		assertEquals(panel.takeMove(), "e8");
+		assertNull(panel.targets);
+
+		// Nothing can be clicked until the next turn starts
+		mouse(panel, MouseEvent.MOUSE_PRESSED, x, y);
+		assertTrue(panel.submittedMoves.isEmpty());
+		b.executeMove("e8");
+		b.nextTurn();
+		awaitTargets(b, panel);
+
+		// An illegal move is neither highlighted nor submitted
+		mouse(panel, MouseEvent.MOUSE_MOVED, x, y);
+		assertEquals(panel.hover, -1);
+		mouse(panel, MouseEvent.MOUSE_PRESSED, x, y);
+		assertTrue(panel.submittedMoves.isEmpty());
+	}
+
+	@Test
+	public void testRestoreWithPanel() throws Exception {
+		Board b = new Board(2);
+		b.executeMove("c3v");
+		b.nextTurn();
+		b.executeMove("d7h");
+		b.nextTurn();
+		GamePanel panel = new GamePanel();
+		Board restored = Board.restore(b.snapshot(), panel);
+		assertTrue(restored.getSpaceFromCoords(2, 2).isPlaced(0));
+		assertTrue(restored.getSpaceFromCoords(3, 6).isPlaced(1));
+		assertEquals(restored.getPlayerFromNum(1).getWalls(), 9);
+
+		// The restored game carries on like the original
+		restored.executeMove("e8");
+		b.executeMove("e8");
+		assertEquals(restored.positionKey(), b.positionKey());
+
+		// The panel shows the restored walls and pawns
+		BufferedImage image = paint(panel);
+		int x = BoardPainter.MARGIN + 2*BoardPainter.STEP + BoardPainter.SPACE_SIZE + BoardPainter.WALL_SIZE/2;
+		assertEquals(new Color(image.getRGB(x, BoardPainter.MARGIN + 2*BoardPainter.STEP + 35)), Color.BLACK);
+		assertEquals(center(image, 4, 7), Color.RED);
+	}
+}
@@ -0,0 +1,82 @@
+package santanjm.quoridor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.*;
+import javax.imageio.ImageIO;
+import santanjm.quoridor.Board;
+import santanjm.quoridor.BoardPainter;
+import santanjm.quoridor.ThumbnailRenderer;
+
+/**
+ * Test class for the thumbnail renderer
+ */
+public class ThumbnailRendererTest {
+
+	/**
+	 * Returns the color of the pixel at the center of a space in an image of a given size
+	 */
+	private static Color center(BufferedImage image, int col, int row) {
+		double scale = (double) image.getWidth() / BoardPainter.SIZE;
+		int x = (int) ((BoardPainter.MARGIN + col*BoardPainter.STEP + BoardPainter.SPACE_SIZE/2) * scale);
+		int y = (int) ((BoardPainter.MARGIN + row*BoardPainter.STEP + BoardPainter.SPACE_SIZE/2) * scale);
+		return new Color(image.getRGB(x, y));
+	}
+
+	@Test
+	public void testRender() {
+		ThumbnailRenderer renderer = new ThumbnailRenderer(BoardPainter.SIZE, 1);
+		Board b = new Board(4);
+		b.executeMove("c3v");
+		BufferedImage image = renderer.render(b);
+		assertEquals(center(image, 4, 8), Color.RED);
+		assertEquals(center(image, 4, 0), Color.BLUE);
+		assertEquals(center(image, 0, 4), Color.YELLOW);
+		assertEquals(center(image, 8, 4), Color.GREEN);
+		assertEquals(center(image, 4, 4), Color.WHITE);
+
+		// The corner between the two segments of the wall is filled in
+		int x = BoardPainter.MARGIN + 2*BoardPainter.STEP + BoardPainter.SPACE_SIZE + 4;
+		int y = BoardPainter.MARGIN + 2*BoardPainter.STEP + BoardPainter.SPACE_SIZE + 4;
+		assertEquals(new Color(image.getRGB(x, y)), Color.BLACK);
+
+		// The same image is reused and drawn over for the next board
+		Board other = new Board(2);
+		assertSame(renderer.render(other), image);
+		assertEquals(center(image, 0, 4), Color.WHITE);
+		renderer.shutdown();
+	}
+
+	@Test
+	public void testRenderPng() throws Exception {
+		ThumbnailRenderer renderer = new ThumbnailRenderer(96, 1);
+		Board b = new Board(2);
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(renderer.renderPng(b)));
+		assertEquals(image.getWidth(), 96);
+		assertEquals(image.getHeight(), 96);
+		assertEquals(center(image, 4, 8), Color.RED);
+		renderer.shutdown();
+	}
+
+	@Test
+	public void testRenderPngsInParallel() throws Exception {
+		ThumbnailRenderer renderer = new ThumbnailRenderer(64, 4);
+		Board two = new Board(2);
+		Board four = new Board(4);
+		four.executeMove("e5h");
+		List<Board> boards = new ArrayList<Board>();
+		for(int i = 0; i < 200; i++) {
+			boards.add(i % 2 == 0 ? two : four);
+		}
+		List<byte[]> pngs = renderer.renderPngs(boards);
+		assertEquals(pngs.size(), 200);
+		for(int i = 2; i < 200; i++) {
+			assertArrayEquals(pngs.get(i), pngs.get(i % 2));
+		}
+		assertFalse(Arrays.equals(pngs.get(0), pngs.get(1)));
+		renderer.shutdown();
+	}
+}